@@ -0,0 +1,107 @@
+package vives.bancovives.benchmark;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.cards.repository.CardsRepository;
+import vives.bancovives.rest.clients.model.Address;
+import vives.bancovives.rest.clients.model.Client;
+import vives.bancovives.rest.products.accounttype.model.AccountType;
+import vives.bancovives.rest.products.cardtype.model.CardType;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Entidades y repositorios en memoria para medir la lógica de negocio sin base de datos
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    public static Account account(String iban, String dni, double balance) {
+        Client client = Client.builder()
+                .id(UUID.randomUUID())
+                .publicId("client-" + dni)
+                .dni(dni)
+                .completeName("Cliente " + dni)
+                .email(dni + "@bancovives.es")
+                .phoneNumber("600000000")
+                .address(new Address())
+                .build();
+        AccountType accountType = AccountType.builder().name("AHORRO").description("Cuenta de ahorro").interest(1.0).build();
+        return Account.builder()
+                .iban(iban)
+                .balance(balance)
+                .password("password")
+                .client(client)
+                .accountType(accountType)
+                .isDeleted(false)
+                .build();
+    }
+
+    public static Card card(String cardNumber, Account account) {
+        return Card.builder()
+                .cardNumber(cardNumber)
+                .cardOwner(account.getClient().getCompleteName())
+                .expirationDate("12/99")
+                .cvv(123)
+                .pin("1234")
+                .cardType(CardType.builder().name("DEBITO").description("Tarjeta de debito").build())
+                .account(account)
+                .dailyLimit(Double.MAX_VALUE)
+                .weeklyLimit(Double.MAX_VALUE)
+                .monthlyLimit(Double.MAX_VALUE)
+                .build();
+    }
+
+    /**
+     * Repositorio de cuentas que solo resuelve {@code findByIban} sobre las cuentas indicadas
+     */
+    public static AccountRepository accountRepository(Account... accounts) {
+        Map<String, Account> byIban = new ConcurrentHashMap<>();
+        for (Account account : accounts) {
+            byIban.put(account.getIban(), account);
+        }
+        return inMemory(AccountRepository.class, "findByIban", byIban::get);
+    }
+
+    /**
+     * Repositorio de tarjetas que solo resuelve {@code findByCardNumber} sobre las tarjetas indicadas
+     */
+    public static CardsRepository cardsRepository(Card... cards) {
+        Map<String, Card> byNumber = new ConcurrentHashMap<>();
+        for (Card card : cards) {
+            byNumber.put(card.getCardNumber(), card);
+        }
+        return inMemory(CardsRepository.class, "findByCardNumber", byNumber::get);
+    }
+
+    /**
+     * Implementa un repositorio con un único método de búsqueda por clave que devuelve un Optional. El resto de
+     * métodos no se usan en los benchmarks y lanzan una excepción
+     */
+    private static <R extends JpaRepository<?, ?>> R inMemory(Class<R> type, String finder, Function<Object, Object> lookup) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals(finder)) {
+                return Optional.ofNullable(lookup.apply(args[0]));
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + " en memoria";
+                };
+            }
+            throw new UnsupportedOperationException(method.getName() + " no está disponible en el repositorio en memoria");
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -0,0 +1,45 @@
+package vives.bancovives.config.cache.codec;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import vives.bancovives.benchmark.BenchmarkFixtures;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+
+/**
+ * Compara el coste de guardar en Redis una tarjeta, con su cuenta, cliente y tipos, con la serialización de Java que
+ * se usaba antes ({@code jdk}) y con las proyecciones en JSON ({@code projection}). El tamaño de cada valor se muestra
+ * al preparar el benchmark
+ */
+@State(Scope.Thread)
+public class CacheCodecBenchmark {
+
+    @Param({"jdk", "projection"})
+    public String codec;
+
+    private RedisSerializer<Object> serializer;
+    private Card card;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        serializer = codec.equals("jdk")
+                ? new JdkSerializationRedisSerializer()
+                : new ProjectionRedisSerializer(CacheProjection.defaults());
+        Account account = BenchmarkFixtures.account("ES0000000000000000000001", "12345678Z", 1000);
+        card = BenchmarkFixtures.card("1234567890123456", account);
+        encoded = serializer.serialize(card);
+        System.out.println("Tamaño de la tarjeta con " + codec + ": " + encoded.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.serialize(card);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return serializer.deserialize(encoded);
+    }
+}
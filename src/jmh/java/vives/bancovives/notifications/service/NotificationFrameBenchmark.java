@@ -0,0 +1,86 @@
+package vives.bancovives.notifications.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import vives.bancovives.notifications.model.NotificationOutboxEvent;
+import vives.bancovives.notifications.model.NotificationSource;
+import vives.bancovives.notifications.model.NotificationType;
+import vives.bancovives.rest.movements.model.MovementType;
+import vives.bancovives.rest.users.models.Role;
+import vives.bancovives.rest.users.models.User;
+import vives.bancovives.utils.IdGenerator;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Coste de preparar los mensajes de una transferencia para sus dos destinatarios. {@code legacy} es el mensaje que se
+ * enviaba antes, el {@code toString()} de una notificación con el usuario completo del destinatario, construido una
+ * vez por destinatario, y {@code frame} el {@link vives.bancovives.notifications.model.NotificationFrame} en JSON,
+ * serializado una vez y compartido. El tamaño de cada mensaje se muestra al preparar el benchmark y la memoria
+ * reservada por operación la da el perfilador gc.
+ */
+@State(Scope.Thread)
+public class NotificationFrameBenchmark {
+
+    @Param({"legacy", "frame"})
+    public String format;
+
+    private NotificationDelivery delivery;
+    private NotificationOutboxEvent event;
+    private User firstUser;
+    private User secondUser;
+
+    @Setup
+    public void setUp() {
+        // Solo se usa para serializar, no publica nada
+        delivery = new NotificationDelivery(null, new ObjectMapper());
+        event = NotificationOutboxEvent.builder()
+                .id(UUID.randomUUID())
+                .source(NotificationSource.MOVEMENT)
+                .type(NotificationType.CREATE)
+                .movementType(MovementType.TRANSFERENCIA)
+                .entityId("6710c0aa5f1b2c3d4e5f6a7b")
+                .amount(1250.75)
+                .recipient("first")
+                .destinationRecipient("second")
+                .build();
+        firstUser = user("first");
+        secondUser = user("second");
+        String sample = format.equals("legacy") ? legacy(firstUser, "Se ha realizado una transferencia en su cuenta bancaria")
+                : delivery.serialize(event);
+        System.out.println("Tamaño del mensaje con " + format + ": "
+                + sample.getBytes(StandardCharsets.UTF_8).length + " bytes por destinatario");
+    }
+
+    @Benchmark
+    public void transfer(Blackhole blackhole) {
+        if (format.equals("legacy")) {
+            blackhole.consume(legacy(firstUser, "Se ha realizado una transferencia en su cuenta bancaria"));
+            blackhole.consume(legacy(secondUser, "Se ha recibido una transferencia a su cuenta bancaria"));
+        } else {
+            String frame = delivery.serialize(event);
+            blackhole.consume(frame);
+            blackhole.consume(frame);
+        }
+    }
+
+    private static User user(String username) {
+        return User.builder()
+                .username(username)
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z5Yx5.7QfBKl4pV0XKC1vJu6")
+                .roles(Set.of(Role.USER))
+                .build();
+    }
+
+    /**
+     * Mensaje que se enviaba antes: el {@code toString()} generado por Lombok de la notificación
+     */
+    private static String legacy(User recipient, String message) {
+        return "Notification(id=" + IdGenerator.generateId() + ", recipient=" + recipient + ", type="
+                + NotificationType.CREATE + ", message=" + message + ", createdAt=" + LocalDateTime.now() + ")";
+    }
+}
@@ -0,0 +1,158 @@
+package vives.bancovives.notifications.websocket.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import vives.bancovives.rest.users.models.User;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Coste de enviar una notificación a un usuario con muchas sesiones abiertas, dos por usuario. {@code index} es el
+ * índice por usuario del {@link WebSocketHandler} y {@code scan} el recorrido de todas las sesiones que se hacía antes
+ */
+@State(Scope.Thread)
+public class WebSocketFanOutBenchmark {
+
+    private static final int DEVICES_PER_USER = 2;
+
+    @Param({"10000", "100000"})
+    public int sessions;
+
+    private WebSocketHandler handler;
+    private Set<WebSocketSession> allSessions;
+    private User recipient;
+
+    @Setup
+    public void setUp() {
+        handler = new WebSocketHandler("Notification", null, null);
+        allSessions = new CopyOnWriteArraySet<>();
+        int users = sessions / DEVICES_PER_USER;
+        for (int i = 0; i < sessions; i++) {
+            BenchmarkSession session = new BenchmarkSession(String.valueOf(i));
+            handler.register("user-" + (i % users), session);
+            allSessions.add(session);
+        }
+        recipient = User.builder().username("user-" + (users / 2)).build();
+    }
+
+    @Benchmark
+    public void index() throws IOException {
+        handler.sendMessage("{\"entity\":\"Movement\"}", recipient);
+    }
+
+    @Benchmark
+    public void scan() throws IOException {
+        for (WebSocketSession session : allSessions) {
+            if (session.isOpen() && session.getAttributes().get("username").equals(recipient.getUsername())) {
+                session.sendMessage(new TextMessage("{\"entity\":\"Movement\"}"));
+            }
+        }
+    }
+
+    /**
+     * Sesión en memoria que solo cuenta los mensajes que recibe
+     */
+    static final class BenchmarkSession implements WebSocketSession {
+        private final String id;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private long sent;
+
+        BenchmarkSession(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public URI getUri() {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return HttpHeaders.EMPTY;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return null;
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return List.of();
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+            sent++;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+        }
+    }
+}
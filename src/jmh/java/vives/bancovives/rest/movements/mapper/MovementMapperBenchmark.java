@@ -0,0 +1,41 @@
+package vives.bancovives.rest.movements.mapper;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import vives.bancovives.rest.movements.dtos.output.MovementResponseDto;
+import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Convierte un movimiento guardado en la respuesta que se envía al cliente
+ */
+@State(Scope.Thread)
+public class MovementMapperBenchmark {
+
+    private final MovementMapper mapper = new MovementMapper();
+    private Movement movement;
+
+    @Setup
+    public void setUp() {
+        movement = Movement.builder()
+                .id(new ObjectId())
+                .movementType(MovementType.PAGO)
+                .ibanOfReference("ES0000000000000000000001")
+                .accountOfReferencePublicId("account-public-id")
+                .clientOfReferenceDni("11111111A")
+                .amountBeforeMovement(100.0)
+                .amountOfMoney(25.0)
+                .balanceAfterMovement(75.0)
+                .cardPublicId("card-public-id")
+                .cardNumber("4111111111111111")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Benchmark
+    public MovementResponseDto fromEntityToResponse() {
+        return mapper.fromEntityToResponse(movement);
+    }
+}
@@ -0,0 +1,44 @@
+package vives.bancovives.rest.movements.services;
+
+import org.openjdk.jmh.annotations.*;
+import vives.bancovives.benchmark.BenchmarkFixtures;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementContext;
+import vives.bancovives.rest.movements.model.MovementType;
+
+/**
+ * Aplica un movimiento sobre cuentas ya cargadas, sin bloqueos ni persistencia
+ */
+@State(Scope.Thread)
+public class MoveMoneyBenchmark {
+
+    private MovementServiceImpl movementService;
+    private MovementContext transfer;
+    private MovementContext payment;
+
+    @Setup
+    public void setUp() {
+        movementService = new MovementServiceImpl(null, null, null, null, null, null, null, null, null, null, null);
+        Account reference = BenchmarkFixtures.account("ES0000000000000000000001", "11111111A", 1_000_000);
+        Account destination = BenchmarkFixtures.account("ES0000000000000000000002", "22222222B", 1_000_000);
+        Card card = BenchmarkFixtures.card("4111111111111111", reference);
+        transfer = new MovementContext(MovementType.TRANSFERENCIA, reference, destination, null);
+        payment = new MovementContext(MovementType.PAGO, reference, null, card);
+    }
+
+    @Benchmark
+    public Movement transfer() {
+        Movement movement = Movement.builder().movementType(MovementType.TRANSFERENCIA).amountOfMoney(1.0).build();
+        movementService.moveMoney(movement, transfer);
+        return movement;
+    }
+
+    @Benchmark
+    public Movement cardPayment() {
+        Movement movement = Movement.builder().movementType(MovementType.PAGO).amountOfMoney(1.0).build();
+        movementService.moveMoney(movement, payment);
+        return movement;
+    }
+}
@@ -0,0 +1,42 @@
+package vives.bancovives.rest.movements.validator;
+
+import org.openjdk.jmh.annotations.*;
+import vives.bancovives.benchmark.BenchmarkFixtures;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+
+/**
+ * Valida movimientos resolviendo las cuentas y la tarjeta en repositorios en memoria
+ */
+@State(Scope.Thread)
+public class MovementValidatorBenchmark {
+
+    private MovementValidator validator;
+    private MovementCreateDto transfer;
+    private MovementCreateDto payment;
+
+    @Setup
+    public void setUp() {
+        Account reference = BenchmarkFixtures.account("ES0000000000000000000001", "11111111A", 1_000_000);
+        Account destination = BenchmarkFixtures.account("ES0000000000000000000002", "22222222B", 1_000_000);
+        Card card = BenchmarkFixtures.card("4111111111111111", reference);
+        validator = new MovementValidator(
+                BenchmarkFixtures.accountRepository(reference, destination),
+                BenchmarkFixtures.cardsRepository(card));
+        transfer = new MovementCreateDto("TRANSFERENCIA", reference.getIban(), destination.getIban(), 10.0, null);
+        payment = new MovementCreateDto("PAGO", reference.getIban(), null, 10.0, card.getCardNumber());
+    }
+
+    @Benchmark
+    public MovementCreateDto transfer() {
+        validator.validateMovementDto(transfer);
+        return transfer;
+    }
+
+    @Benchmark
+    public MovementCreateDto cardPayment() {
+        validator.validateMovementDto(payment);
+        return payment;
+    }
+}
@@ -0,0 +1,62 @@
+package vives.bancovives.security.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Verifica la firma de un token JWT, que se hace en cada petición autenticada. {@code verifyTokenPerRequestKeys}
+ * reproduce la verificación anterior, que leía y procesaba la clave pública y creaba el verificador en cada petición,
+ * para comparar con el anillo de claves que se prepara una sola vez
+ */
+@State(Scope.Thread)
+public class JwtServiceBenchmark {
+
+    private JwtServiceImpl jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtServiceImpl();
+        setField("privateKeyPath", "classpath:/keys/private_key.pem");
+        setField("publicKeyPath", "classpath:/keys/public_key.pem");
+        setField("jwtExpiration", 3600L);
+        token = jwtService.generateToken(new User("admin", "admin", List.of()));
+    }
+
+    @Benchmark
+    public boolean verifyToken() {
+        return jwtService.verifyToken(token);
+    }
+
+    @Benchmark
+    public boolean verifyTokenPerRequestKeys() throws Exception {
+        String publicKeyPem;
+        try (InputStream is = getClass().getResourceAsStream("/keys/public_key.pem")) {
+            publicKeyPem = new String(is.readAllBytes());
+        }
+        byte[] decoded = Base64.getDecoder().decode(publicKeyPem
+                .replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", "")
+                .replaceAll("\\s", ""));
+        ECPublicKey publicKey = (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(decoded));
+        JWT.require(Algorithm.ECDSA256(publicKey, null)).build().verify(token);
+        return true;
+    }
+
+    private void setField(String name, Object value) {
+        Field field = ReflectionUtils.findField(JwtServiceImpl.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, jwtService, value);
+    }
+}
@@ -0,0 +1,26 @@
+package vives.bancovives.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import vives.bancovives.utils.account.IbanGenerator;
+import vives.bancovives.utils.card.CreditCardGenerator;
+
+/**
+ * Generadores de identificadores que se usan al crear cuentas, tarjetas y el resto de entidades
+ */
+public class GeneratorsBenchmark {
+
+    @Benchmark
+    public String generateIban() {
+        return IbanGenerator.generateIban("ES");
+    }
+
+    @Benchmark
+    public String generateId() {
+        return IdGenerator.generateId();
+    }
+
+    @Benchmark
+    public String generateCardNumber() {
+        return CreditCardGenerator.generateCardNumber();
+    }
+}
@@ -0,0 +1,94 @@
+package vives.bancovives.config.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Aplaza los cambios en la caché hasta que se confirma la transacción en curso, para que la caché nunca tenga datos
+ * que después se deshacen. Si no hay transacción el cambio se aplica en el momento.
+ * <p>
+ * Un fallo al actualizar la caché no afecta a la transacción, que ya está confirmada: solo se registra, y la entrada
+ * afectada se corregirá cuando caduque.
+ */
+@Slf4j
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * @param action Cambio en la caché
+     */
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runSafely(action);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                runSafely(action);
+            }
+        });
+    }
+
+    /**
+     * Acumula los elementos de un mismo lote durante la transacción en curso y, al confirmarse, aplica el cambio una
+     * sola vez con todos ellos, para que una escritura masiva no haga un viaje a la caché por cada fila.
+     * Si no hay transacción el cambio se aplica en el momento con ese único elemento.
+     *
+     * @param batch  Identifica el lote; la acción del primer elemento de cada transacción es la que se aplica
+     * @param item   Elemento que se añade al lote
+     * @param action Cambio en la caché con todos los elementos del lote
+     */
+    public static <T> void collect(Object batch, T item, Consumer<Collection<T>> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runSafely(() -> action.accept(List.of(item)));
+            return;
+        }
+        // Se busca entre las sincronizaciones, y no como recurso, para que una transacción anidada tenga su propio lote
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Batch<?> pending && pending.key.equals(batch)) {
+                @SuppressWarnings("unchecked")
+                Batch<T> typed = (Batch<T>) pending;
+                typed.items.add(item);
+                return;
+            }
+        }
+        Batch<T> pending = new Batch<>(batch, action);
+        pending.items.add(item);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    private static final class Batch<T> implements TransactionSynchronization {
+
+        private final Object key;
+        private final Consumer<Collection<T>> action;
+        private final Set<T> items = new LinkedHashSet<>();
+
+        private Batch(Object key, Consumer<Collection<T>> action) {
+            this.key = key;
+            this.action = action;
+        }
+
+        @Override
+        public void afterCommit() {
+            runSafely(() -> action.accept(items));
+        }
+    }
+
+    private static void runSafely(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido actualizar la caché tras confirmar la transacción: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package vives.bancovives.config.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché de entidades que se pueden buscar por varias claves.
+ * <p>
+ * Cada entidad se guarda una sola vez, con su clave principal, y el resto de claves (alias) se guardan como
+ * {@code alias:valor} apuntando a la clave principal. Así, al borrar la clave principal dejan de valer a la vez todos
+ * sus alias, sin que pueda quedar una copia antigua accesible por alguno de ellos. Un alias que apunta a una entrada
+ * borrada o que ya no coincide con la entidad cuenta como un fallo.
+ * <p>
+ * Las entidades se copian al guardarlas y al devolverlas, de modo que quien las recibe puede modificarlas sin cambiar
+ * la copia de la caché. Al guardar no se sustituye una entrada con una versión más reciente que la nueva, para que
+ * una lectura lenta de la base de datos no pise la escritura de otra transacción que ha terminado antes. Las
+ * entidades sin versión, que todavía no se han guardado, no se guardan en la caché.
+ *
+ * @param <V> Tipo de las entidades
+ */
+@Slf4j
+public class AliasedCache<V> {
+
+    private final Cache cache;
+    private final Class<V> type;
+    private final Function<V, String> primaryKey;
+    private final Map<String, Function<V, String>> aliases;
+    private final ToLongFunction<V> version;
+    private final UnaryOperator<V> copier;
+
+    /**
+     * @param cache      Caché donde se guardan las entidades y los alias
+     * @param type       Tipo de las entidades
+     * @param primaryKey Clave principal de una entidad
+     * @param aliases    Nombre de cada alias y cómo obtenerlo de una entidad
+     * @param version    Versión de una entidad, que crece con cada cambio, o un número negativo si no tiene
+     * @param copier     Copia independiente de una entidad
+     */
+    public AliasedCache(Cache cache, Class<V> type, Function<V, String> primaryKey,
+                        Map<String, Function<V, String>> aliases, ToLongFunction<V> version, UnaryOperator<V> copier) {
+        this.cache = cache;
+        this.type = type;
+        this.primaryKey = primaryKey;
+        this.aliases = aliases;
+        this.version = version;
+        this.copier = copier;
+    }
+
+    /**
+     * @param key Clave principal
+     * @return Copia de la entidad guardada, o vacío si no está en la caché
+     */
+    public Optional<V> get(String key) {
+        V cached = cache.get(key, type);
+        return Optional.ofNullable(cached).map(copier);
+    }
+
+    /**
+     * Busca una entidad por su clave principal y, si no está, la carga y la guarda
+     *
+     * @param key    Clave principal
+     * @param loader Carga la entidad de la base de datos; puede lanzar una excepción si no existe
+     * @return La entidad
+     */
+    public V get(String key, Supplier<V> loader) {
+        return get(key).orElseGet(() -> load(loader));
+    }
+
+    /**
+     * Busca una entidad por uno de sus alias y, si no está, la carga y la guarda
+     *
+     * @param alias  Nombre del alias
+     * @param value  Valor del alias
+     * @param loader Carga la entidad de la base de datos; puede lanzar una excepción si no existe
+     * @return La entidad
+     */
+    public V getByAlias(String alias, String value, Supplier<V> loader) {
+        return findByAlias(alias, value).orElseGet(() -> load(loader));
+    }
+
+    /**
+     * @param alias Nombre del alias
+     * @param value Valor del alias
+     * @return Copia de la entidad guardada, o vacío si no está en la caché
+     */
+    public Optional<V> findByAlias(String alias, String value) {
+        String key = cache.get(aliasKey(alias, value), String.class);
+        if (key == null) {
+            return Optional.empty();
+        }
+        return get(key).filter(entity -> value.equals(aliases.get(alias).apply(entity)));
+    }
+
+    /**
+     * Guarda una entidad y sus alias, salvo que la caché ya tenga una versión más reciente
+     *
+     * @param entity Entidad a guardar
+     */
+    public void put(V entity) {
+        if (version.applyAsLong(entity) < 0) {
+            return;
+        }
+        String key = primaryKey.apply(entity);
+        V cached = cache.get(key, type);
+        if (cached != null && version.applyAsLong(cached) > version.applyAsLong(entity)) {
+            log.debug("La caché {} ya tiene una versión más reciente de {}", cache.getName(), key);
+            return;
+        }
+        cache.put(key, copier.apply(entity));
+        putAliases(entity, key);
+    }
+
+    /**
+     * Guarda de una vez entidades recién cargadas de la base de datos junto con sus alias. Si la caché es una
+     * {@link TwoLevelCache} se escriben todas en Redis con un solo viaje.
+     *
+     * @param entities Entidades a guardar; las que no tienen versión se ignoran
+     */
+    public void putAllLoaded(Collection<V> entities) {
+        Map<String, Object> entries = new LinkedHashMap<>();
+        for (V entity : entities) {
+            if (version.applyAsLong(entity) < 0) {
+                continue;
+            }
+            String key = primaryKey.apply(entity);
+            entries.put(key, copier.apply(entity));
+            aliases.forEach((alias, extractor) -> {
+                String value = extractor.apply(entity);
+                if (value != null) {
+                    entries.put(aliasKey(alias, value), key);
+                }
+            });
+        }
+        if (cache instanceof TwoLevelCache twoLevel) {
+            twoLevel.putAllLoaded(entries);
+        } else {
+            entries.forEach(cache::put);
+        }
+    }
+
+    /**
+     * Borra una entidad, lo que invalida a la vez todos sus alias
+     *
+     * @param key Clave principal
+     */
+    public void evict(String key) {
+        cache.evict(key);
+    }
+
+    /**
+     * Borra varias entidades de una vez. Si la caché es una {@link TwoLevelCache} se borran de Redis con un solo viaje.
+     *
+     * @param keys Claves principales
+     */
+    public void evictAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (cache instanceof TwoLevelCache twoLevel) {
+            twoLevel.evictAll(keys);
+        } else {
+            keys.forEach(cache::evict);
+        }
+    }
+
+    /**
+     * Borra de una vez las entidades a las que apuntan varios valores de un alias, si la caché los conoce
+     *
+     * @param alias  Nombre del alias
+     * @param values Valores del alias
+     */
+    public void evictAllByAlias(String alias, Collection<String> values) {
+        List<String> keys = new ArrayList<>();
+        for (String value : values) {
+            String key = cache.get(aliasKey(alias, value), String.class);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        evictAll(keys);
+    }
+
+    /**
+     * Borra la entidad a la que apunta un alias, si la caché lo conoce
+     *
+     * @param alias Nombre del alias
+     * @param value Valor del alias
+     */
+    public void evictByAlias(String alias, String value) {
+        String key = cache.get(aliasKey(alias, value), String.class);
+        if (key != null) {
+            evict(key);
+        }
+    }
+
+    /**
+     * Guarda una entidad recién cargada sin sustituir la que haya podido guardar otra transacción mientras tanto
+     */
+    private V load(Supplier<V> loader) {
+        V loaded = loader.get();
+        if (loaded == null || version.applyAsLong(loaded) < 0) {
+            return loaded;
+        }
+        String key = primaryKey.apply(loaded);
+        cache.putIfAbsent(key, copier.apply(loaded));
+        putAliases(loaded, key);
+        return copier.apply(loaded);
+    }
+
+    /**
+     * Los alias casi nunca cambian, por lo que solo se escriben si no están o apuntan a otra entidad
+     */
+    private void putAliases(V entity, String key) {
+        aliases.forEach((alias, extractor) -> {
+            String value = extractor.apply(entity);
+            if (value != null && !key.equals(cache.get(aliasKey(alias, value), String.class))) {
+                cache.put(aliasKey(alias, value), key);
+            }
+        });
+    }
+
+    static String aliasKey(String alias, String value) {
+        return alias + ":" + value;
+    }
+}
@@ -0,0 +1,53 @@
+package vives.bancovives.config.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Suscribe el gestor de cachés de dos niveles a las invalidaciones que publican los demás nodos.
+ * <p>
+ * La suscripción no se hace al arrancar sino en segundo plano, y se reintenta periódicamente mientras Redis no esté
+ * disponible, para que la aplicación pueda arrancar sin Redis. Mientras no hay suscripción las copias locales de las
+ * entradas modificadas en otros nodos caducan según su tiempo de vida. Una vez suscrito, el propio contenedor se
+ * reconecta si se pierde la conexión.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationSubscriber {
+
+    private final RedisMessageListenerContainer container;
+
+    public CacheInvalidationSubscriber(RedisConnectionFactory connectionFactory, TwoLevelCacheManager cacheManager) {
+        this.container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.CHANNEL));
+        container.afterPropertiesSet();
+    }
+
+    /**
+     * Se suscribe al canal de invalidaciones si todavía no lo está
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.retry-interval:30000}")
+    public void subscribe() {
+        if (container.isListening()) {
+            return;
+        }
+        try {
+            container.stop();
+            container.start();
+            log.info("Suscrito a las invalidaciones de caché de los demás nodos");
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido suscribir a las invalidaciones de caché, se reintentará: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        container.destroy();
+    }
+}
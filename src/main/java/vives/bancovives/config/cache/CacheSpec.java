@@ -0,0 +1,78 @@
+package vives.bancovives.config.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ajustes de una caché de dos niveles.
+ * <p>
+ * El tiempo de vida de cada entrada se acorta una fracción aleatoria de hasta {@code ttlJitter}, para que las entradas
+ * guardadas a la vez no caduquen todas en el mismo instante.
+ *
+ * @param nearMaxSize      Número máximo de entradas de la caché local
+ * @param nearTtl          Tiempo de vida de las entradas de la caché local
+ * @param ttl              Tiempo de vida de las entradas en Redis
+ * @param ttlJitter        Fracción máxima, entre 0 y 1, en que se acorta al azar el tiempo de vida de cada entrada
+ * @param earlyRefreshBeta Cuánto se adelanta el refresco de las entradas a punto de caducar; 0 lo desactiva
+ */
+public record CacheSpec(long nearMaxSize, Duration nearTtl, Duration ttl, double ttlJitter, double earlyRefreshBeta) {
+
+    /**
+     * @return Tiempo de vida en Redis de una entrada nueva, ya acortado al azar
+     */
+    public long jitteredTtlMillis() {
+        return jitter(ttl.toMillis());
+    }
+
+    /**
+     * Tiempo de vida en Redis de un valor. Los valores cargados a través de la caché viven lo que les queda hasta su
+     * caducidad, para que Redis y la caché local caduquen a la vez.
+     *
+     * @param value Valor que se va a guardar
+     * @return Tiempo de vida de la entrada en Redis
+     */
+    public Duration remoteTtl(Object value) {
+        if (value instanceof TimedValue timed) {
+            return Duration.ofMillis(Math.max(1, timed.remainingMillis(System.currentTimeMillis())));
+        }
+        return Duration.ofMillis(jitteredTtlMillis());
+    }
+
+    /**
+     * Caducidad de las entradas de la caché local: su tiempo de vida acortado al azar, y nunca más allá de la
+     * caducidad de los valores cargados a través de la caché
+     *
+     * @return Política de caducidad para Caffeine
+     */
+    public Expiry<String, Object> nearExpiry() {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, Object value, long currentTime) {
+                long millis = jitter(nearTtl.toMillis());
+                if (value instanceof TimedValue timed) {
+                    millis = Math.min(millis, timed.remainingMillis(System.currentTimeMillis()));
+                }
+                return Duration.ofMillis(millis).toNanos();
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private long jitter(long millis) {
+        if (ttlJitter <= 0) {
+            return millis;
+        }
+        return millis - (long) (millis * Math.min(ttlJitter, 1.0) * ThreadLocalRandom.current().nextDouble());
+    }
+}
@@ -0,0 +1,172 @@
+package vives.bancovives.config.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.accounts.service.AccountCache;
+import vives.bancovives.rest.movements.repository.MovementRepository;
+import vives.bancovives.rest.products.accounttype.model.AccountType;
+import vives.bancovives.rest.products.accounttype.repositories.AccountTypeRepository;
+import vives.bancovives.rest.products.cardtype.model.CardType;
+import vives.bancovives.rest.products.cardtype.repositories.CardTypeRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Precarga las cachés al arrancar para que las primeras peticiones tras un despliegue no vayan todas a la base de
+ * datos: todos los tipos de cuenta y de tarjeta no borrados, por id público y por nombre, y las cuentas con más
+ * movimientos recientes junto con sus usuarios. Cada caché se escribe de una vez, con un solo viaje a Redis.
+ * <p>
+ * La precarga se hace en segundo plano para no retrasar el arranque, y mientras dura este indicador de salud devuelve
+ * OUT_OF_SERVICE, lo que mantiene el nodo fuera del grupo {@code readiness}. Si no termina dentro de
+ * {@code cache.warm-up.budget} el nodo pasa a estar listo igualmente y la precarga sigue hasta terminar. Un fallo en
+ * una parte, por ejemplo si MongoDB no está disponible, no impide precargar el resto.
+ */
+@Component
+@Slf4j
+public class CacheWarmUp implements HealthIndicator {
+
+    static final String ACCOUNT_TYPES = "accountTypes";
+    static final String CARD_TYPES = "cardTypes";
+    static final String USERS = "users";
+
+    private final CacheManager cacheManager;
+    private final AccountTypeRepository accountTypeRepository;
+    private final CardTypeRepository cardTypeRepository;
+    private final AccountRepository accountRepository;
+    private final MovementRepository movementRepository;
+    private final AccountCache accountCache;
+    private final TransactionTemplate transactionTemplate;
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    private final AtomicLong warmedEntries = new AtomicLong();
+    private volatile long deadlineMillis = Long.MAX_VALUE;
+
+    @Value("${cache.warm-up.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.warm-up.budget:30s}")
+    private Duration budget;
+
+    @Value("${cache.warm-up.hot-accounts:1000}")
+    private int hotAccounts;
+
+    @Value("${cache.warm-up.activity-window:7d}")
+    private Duration activityWindow;
+
+    public CacheWarmUp(CacheManager cacheManager, AccountTypeRepository accountTypeRepository,
+                       CardTypeRepository cardTypeRepository, AccountRepository accountRepository,
+                       MovementRepository movementRepository, AccountCache accountCache,
+                       TransactionTemplate transactionTemplate) {
+        this.cacheManager = cacheManager;
+        this.accountTypeRepository = accountTypeRepository;
+        this.cardTypeRepository = cardTypeRepository;
+        this.accountRepository = accountRepository;
+        this.movementRepository = movementRepository;
+        this.accountCache = accountCache;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            finished.complete(null);
+            return;
+        }
+        deadlineMillis = System.currentTimeMillis() + budget.toMillis();
+        CompletableFuture.runAsync(this::warmUp).whenComplete((result, e) -> finished.complete(null));
+    }
+
+    @Override
+    public Health health() {
+        if (finished.isDone()) {
+            return Health.up().withDetail("entries", warmedEntries.get()).build();
+        }
+        if (System.currentTimeMillis() >= deadlineMillis) {
+            return Health.up().withDetail("entries", warmedEntries.get())
+                    .withDetail("budgetExceeded", true).build();
+        }
+        return Health.outOfService().withDetail("entries", warmedEntries.get()).build();
+    }
+
+    /**
+     * Precarga el catálogo de productos y las cuentas más activas
+     */
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        run("el catálogo de productos", this::warmUpCatalogue);
+        run("las cuentas más activas", this::warmUpHotAccounts);
+        log.info("Cachés precargadas con {} entradas en {} ms", warmedEntries.get(), System.currentTimeMillis() - start);
+    }
+
+    private void run(String part, Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido precargar {}: {}", part, e.getMessage());
+        }
+    }
+
+    private void warmUpCatalogue() {
+        Map<String, Object> accountTypes = new LinkedHashMap<>();
+        for (AccountType accountType : accountTypeRepository.findAllByIsDeletedFalse()) {
+            accountTypes.put(accountType.getPublicId(), accountType);
+            accountTypes.put(accountType.getName(), accountType);
+        }
+        putAll(ACCOUNT_TYPES, accountTypes);
+
+        Map<String, Object> cardTypes = new LinkedHashMap<>();
+        for (CardType cardType : cardTypeRepository.findAllByIsDeletedFalse()) {
+            cardTypes.put(cardType.getPublicId(), cardType);
+            cardTypes.put(cardType.getName(), cardType);
+        }
+        putAll(CARD_TYPES, cardTypes);
+    }
+
+    private void warmUpHotAccounts() {
+        List<String> ibans = movementRepository.findMostActiveIbans(LocalDateTime.now().minus(activityWindow), hotAccounts);
+        if (ibans.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Account> accounts = accountRepository.findAllWithClientByIbanIn(ibans);
+            accountCache.putAllLoaded(accounts);
+            warmedEntries.addAndGet(accounts.size());
+
+            Map<String, Object> users = new LinkedHashMap<>();
+            accounts.stream()
+                    .map(account -> account.getClient() == null ? null : account.getClient().getUser())
+                    .filter(Objects::nonNull)
+                    .forEach(user -> users.put(user.getPublicId(), user));
+            putAll(USERS, users);
+        });
+    }
+
+    private void putAll(String cacheName, Map<String, Object> values) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null || values.isEmpty()) {
+            return;
+        }
+        if (cache instanceof TwoLevelCache twoLevel) {
+            twoLevel.putAllLoaded(values);
+        } else {
+            values.forEach(cache::put);
+        }
+        warmedEntries.addAndGet(values.size());
+    }
+}
@@ -0,0 +1,92 @@
+package vives.bancovives.config.cache;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Caché de Redis que además permite guardar y borrar muchas entradas de una vez.
+ * <p>
+ * Las escrituras en bloque se envían en un pipeline, con una sola conexión y sin esperar la respuesta de cada orden,
+ * y los borrados en bloque con un único DEL. Las claves, los valores y el tiempo de vida de cada entrada son los
+ * mismos que si se guardaran una a una. En un cluster las escrituras se envían una a una, ya que el pipeline no
+ * admite claves repartidas entre varios nodos.
+ */
+public class PipelinedRedisCache extends RedisCache {
+
+    private final RedisConnectionFactory connectionFactory;
+
+    /**
+     * @param name              Nombre de la caché
+     * @param cacheWriter       Escritor con el que se hacen las operaciones de una sola entrada
+     * @param cacheConfig       Configuración de la caché
+     * @param connectionFactory Conexiones con las que se hacen las operaciones en bloque
+     */
+    public PipelinedRedisCache(String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfig,
+                               RedisConnectionFactory connectionFactory) {
+        super(name, cacheWriter, cacheConfig);
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Guarda varias entradas de una vez. Los valores nulos se ignoran.
+     *
+     * @param entries Valores a guardar según su clave
+     */
+    public void putAll(Map<?, ?> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            boolean pipelined = !(connection instanceof RedisClusterConnection);
+            if (pipelined) {
+                connection.openPipeline();
+            }
+            try {
+                entries.forEach((key, value) -> {
+                    Object storeValue = value == null ? null : preProcessCacheValue(value);
+                    if (storeValue != null) {
+                        connection.stringCommands().set(serializeCacheKey(createCacheKey(key)),
+                                serializeCacheValue(storeValue), expiration(key, value),
+                                RedisStringCommands.SetOption.upsert());
+                    }
+                });
+            } finally {
+                if (pipelined) {
+                    connection.closePipeline();
+                }
+            }
+        }
+    }
+
+    /**
+     * Borra varias entradas de una vez
+     *
+     * @param keys Claves de las entradas
+     */
+    public void evictAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        byte[][] redisKeys = keys.stream()
+                .map(key -> serializeCacheKey(createCacheKey(key)))
+                .toArray(byte[][]::new);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().del(redisKeys);
+        }
+    }
+
+    private Expiration expiration(Object key, Object value) {
+        Duration ttl = getCacheConfiguration().getTtlFunction().getTimeToLive(key, value);
+        return ttl == null || ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl);
+    }
+}
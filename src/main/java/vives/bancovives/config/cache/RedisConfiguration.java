@@ -1,24 +1,49 @@
 package vives.bancovives.config.cache;
 
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisClientConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
-import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import redis.clients.jedis.JedisPoolConfig;
+import vives.bancovives.config.cache.codec.CacheProjection;
+import vives.bancovives.config.cache.codec.ProjectionRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Clase de configuración para la caché Redis en la aplicación.
  * Esta clase establece la conexión con el servidor Redis, el RedisTemplate para las operaciones de datos,
- * y el RedisCacheManager para administrar las instancias de caché.
+ * y el gestor de cachés de dos niveles, con una caché local en cada nodo delante de Redis.
+ * La conexión puede ser con un servidor único, con sentinel o con un cluster, según {@code redis.mode}.
  *
  * @author Diego Novillo Luceño
  * @since 1.0.0
@@ -46,20 +71,195 @@ public class RedisConfiguration {
     int entryTimeout;
 
     /**
-     * Crea una {} para conectarse al servidor Redis.
+     * Número máximo de entradas por defecto de la caché local de cada caché.
+     */
+    @Value("${cache.near.max-size:10000}")
+    long nearMaxSize;
+
+    /**
+     * Tiempo de vida por defecto de las entradas de la caché local.
+     */
+    @Value("${cache.near.ttl:60s}")
+    Duration nearTtl;
+
+    /**
+     * Fracción máxima en que se acorta al azar el tiempo de vida de cada entrada.
+     */
+    @Value("${cache.ttl-jitter:0.1}")
+    double ttlJitter;
+
+    /**
+     * Cuánto se adelanta el refresco de las entradas a punto de caducar; 0 lo desactiva.
+     */
+    @Value("${cache.early-refresh.beta:1.0}")
+    double earlyRefreshBeta;
+
+    /**
+     * Cliente con el que se conecta a Redis: {@code jedis} o {@code lettuce}.
+     */
+    @Value("${redis.client:jedis}")
+    String client;
+
+    /**
+     * Topología de Redis: {@code standalone}, {@code sentinel} o {@code cluster}.
+     */
+    @Value("${redis.mode:standalone}")
+    String mode;
+
+    /**
+     * Contraseña del servidor Redis, vacía si no tiene.
+     */
+    @Value("${redis.password:}")
+    String password;
+
+    /**
+     * Nombre del maestro vigilado por los sentinel.
+     */
+    @Value("${redis.sentinel.master:mymaster}")
+    String sentinelMaster;
+
+    /**
+     * Nodos sentinel como {@code host:puerto}.
+     */
+    @Value("${redis.sentinel.nodes:}")
+    String[] sentinelNodes;
+
+    /**
+     * Nodos iniciales del cluster como {@code host:puerto}.
+     */
+    @Value("${redis.cluster.nodes:}")
+    String[] clusterNodes;
+
+    /**
+     * Número máximo de redirecciones que se siguen entre nodos del cluster.
+     */
+    @Value("${redis.cluster.max-redirects:3}")
+    int clusterMaxRedirects;
+
+    /**
+     * Número máximo de conexiones del pool.
+     */
+    @Value("${redis.pool.max-total:16}")
+    int poolMaxTotal;
+
+    /**
+     * Número máximo de conexiones libres que se mantienen en el pool.
+     */
+    @Value("${redis.pool.max-idle:16}")
+    int poolMaxIdle;
+
+    /**
+     * Número mínimo de conexiones libres que se mantienen en el pool.
+     */
+    @Value("${redis.pool.min-idle:2}")
+    int poolMinIdle;
+
+    /**
+     * Tiempo máximo de espera por una conexión libre del pool.
+     */
+    @Value("${redis.pool.max-wait:500ms}")
+    Duration poolMaxWait;
+
+    /**
+     * Tiempo máximo para establecer una conexión.
+     */
+    @Value("${redis.timeout.connect:2s}")
+    Duration connectTimeout;
+
+    /**
+     * Tiempo máximo de espera por la respuesta de una orden.
+     */
+    @Value("${redis.timeout.read:2s}")
+    Duration readTimeout;
+
+    /**
+     * Crea la factoría de conexiones con Redis según el cliente y la topología configurados, con un pool de
+     * conexiones de tamaño y tiempos de espera limitados. Con Lettuce la factoría también ofrece el API reactivo.
      *
-     * @return Instancia de JedisConnectionFactory
+     * @return Instancia de RedisConnectionFactory
      */
     @Bean
-    public JedisConnectionFactory connectionFactory() {
-        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration();
-        configuration.setHostName(host);
-        configuration.setPort(port);
-        return new JedisConnectionFactory(configuration);
+    public RedisConnectionFactory connectionFactory() {
+        return "lettuce".equalsIgnoreCase(client) ? lettuceConnectionFactory() : jedisConnectionFactory();
+    }
+
+    private JedisConnectionFactory jedisConnectionFactory() {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        configurePool(poolConfig);
+        JedisClientConfiguration clientConfig = JedisClientConfiguration.builder()
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .usePooling().poolConfig(poolConfig)
+                .build();
+        return switch (topology()) {
+            case RedisSentinelConfiguration sentinel -> new JedisConnectionFactory(sentinel, clientConfig);
+            case RedisClusterConfiguration cluster -> new JedisConnectionFactory(cluster, clientConfig);
+            case RedisStandaloneConfiguration standalone -> new JedisConnectionFactory(standalone, clientConfig);
+            default -> throw new IllegalStateException("Topología de Redis no soportada: " + mode);
+        };
+    }
+
+    private LettuceConnectionFactory lettuceConnectionFactory() {
+        GenericObjectPoolConfig<StatefulConnection<?, ?>> poolConfig = new GenericObjectPoolConfig<>();
+        configurePool(poolConfig);
+        SocketOptions socketOptions = SocketOptions.builder().connectTimeout(connectTimeout).build();
+        ClientOptions clientOptions = isCluster()
+                ? ClusterClientOptions.builder().socketOptions(socketOptions).build()
+                : ClientOptions.builder().socketOptions(socketOptions).build();
+        LettuceClientConfiguration clientConfig = LettucePoolingClientConfiguration.builder()
+                .commandTimeout(readTimeout)
+                .clientOptions(clientOptions)
+                .poolConfig(poolConfig)
+                .build();
+        return new LettuceConnectionFactory(topology(), clientConfig);
+    }
+
+    private void configurePool(GenericObjectPoolConfig<?> poolConfig) {
+        poolConfig.setMaxTotal(poolMaxTotal);
+        poolConfig.setMaxIdle(poolMaxIdle);
+        poolConfig.setMinIdle(poolMinIdle);
+        poolConfig.setMaxWait(poolMaxWait);
+    }
+
+    private boolean isCluster() {
+        return "cluster".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * @return Configuración de la topología indicada en {@code redis.mode}
+     */
+    private org.springframework.data.redis.connection.RedisConfiguration topology() {
+        RedisPassword redisPassword = RedisPassword.of(password.isEmpty() ? null : password);
+        if ("sentinel".equalsIgnoreCase(mode)) {
+            RedisSentinelConfiguration configuration = new RedisSentinelConfiguration(sentinelMaster, Set.of(sentinelNodes));
+            configuration.setPassword(redisPassword);
+            return configuration;
+        }
+        if (isCluster()) {
+            RedisClusterConfiguration configuration = new RedisClusterConfiguration(List.of(clusterNodes));
+            configuration.setMaxRedirects(clusterMaxRedirects);
+            configuration.setPassword(redisPassword);
+            return configuration;
+        }
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(host, port);
+        configuration.setPassword(redisPassword);
+        return configuration;
     }
 
     /**
-     * Crea un {@link RedisTemplate} para realizar operaciones Redis.
+     * Crea el serializador de los valores guardados en Redis, que guarda proyecciones en JSON de las entidades en
+     * lugar de las entidades serializadas por Java.
+     *
+     * @return Instancia de ProjectionRedisSerializer
+     */
+    @Bean
+    public ProjectionRedisSerializer cacheValueSerializer() {
+        return new ProjectionRedisSerializer(CacheProjection.defaults());
+    }
+
+    /**
+     * Crea un {@link RedisTemplate} para realizar operaciones Redis. No usa transacciones, que retienen una conexión
+     * del pool hasta que termina la transacción de la base de datos.
      *
      * @return Instancia de {@link RedisTemplate}
      */
@@ -69,26 +269,51 @@ public class RedisConfiguration {
         template.setConnectionFactory(connectionFactory());
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashKeySerializer(new JdkSerializationRedisSerializer());
-        template.setValueSerializer(new JdkSerializationRedisSerializer());
-        template.setEnableTransactionSupport(true);
+        template.setHashValueSerializer(cacheValueSerializer());
+        template.setValueSerializer(cacheValueSerializer());
         template.afterPropertiesSet();
         return template;
     }
 
     /**
-     * Crea un RedisCacheManager para administrar las instancias de caché.
+     * Crea el gestor de cachés de dos niveles: una caché local en cada nodo delante de la caché compartida en Redis.
+     * El tamaño y el tiempo de vida se pueden ajustar por caché con las propiedades
+     * {@code cache.specs.<caché>.near-max-size}, {@code cache.specs.<caché>.near-ttl},
+     * {@code cache.specs.<caché>.redis-ttl}, {@code cache.specs.<caché>.ttl-jitter} y
+     * {@code cache.specs.<caché>.early-refresh-beta}.
      *
-     * @return Instancia de RedisCacheManager
+     * @param redisTemplate Plantilla con la que se publican las invalidaciones
+     * @param meterRegistry Registro donde se publican los aciertos y fallos de cada nivel
+     * @param environment   Entorno del que se leen los ajustes de cada caché
+     * @return Instancia de TwoLevelCacheManager
      */
     @Bean
-    public CacheManager cacheManager() {
+    public TwoLevelCacheManager cacheManager(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry, Environment environment) {
         RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofSeconds(entryTimeout))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(cacheValueSerializer()))
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(connectionFactory())
-                .cacheDefaults(cacheConfig)
-                .build();
+        Function<String, CacheSpec> specs = name -> new CacheSpec(
+                environment.getProperty("cache.specs." + name + ".near-max-size", Long.class, nearMaxSize),
+                environment.getProperty("cache.specs." + name + ".near-ttl", Duration.class, nearTtl),
+                environment.getProperty("cache.specs." + name + ".redis-ttl", Duration.class, Duration.ofSeconds(entryTimeout)),
+                environment.getProperty("cache.specs." + name + ".ttl-jitter", Double.class, ttlJitter),
+                environment.getProperty("cache.specs." + name + ".early-refresh-beta", Double.class, earlyRefreshBeta)
+        );
+
+        RedisCacheManager redisCacheManager = new RedisCacheManager(
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory(), BatchStrategies.scan(1000)), cacheConfig) {
+            @Override
+            protected RedisCache createRedisCache(String name, RedisCacheConfiguration configuration) {
+                CacheSpec spec = specs.apply(name);
+                RedisCacheWriter.TtlFunction ttl = (key, value) -> spec.remoteTtl(value);
+                return new PipelinedRedisCache(name, getCacheWriter(),
+                        (configuration != null ? configuration : cacheConfig).entryTtl(ttl), connectionFactory());
+            }
+        };
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoLevelCacheManager(redisCacheManager, redisTemplate, specs, meterRegistry);
     }
-}
\ No newline at end of file
+}
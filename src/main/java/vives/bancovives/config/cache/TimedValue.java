@@ -0,0 +1,50 @@
+package vives.bancovives.config.cache;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Valor cargado a través de la caché, guardado junto con el momento en que caduca y lo que tardó en cargarse.
+ * <p>
+ * Con esos dos datos se decide si refrescarlo antes de que caduque: cuanto más cerca está de caducar y más caro es
+ * cargarlo, más probable es que una lectura lo refresque, de modo que normalmente se refresca en una sola petición
+ * antes de que caduque para todas a la vez.
+ *
+ * @param value           Valor guardado
+ * @param expiresAtMillis Momento en que caduca, en milisegundos desde la época
+ * @param loadMillis      Milisegundos que tardó en cargarse
+ */
+public record TimedValue(Object value, long expiresAtMillis, long loadMillis) implements Serializable {
+
+    /**
+     * @param now Momento actual en milisegundos
+     * @return Si el valor ya ha caducado
+     */
+    public boolean isExpired(long now) {
+        return now >= expiresAtMillis;
+    }
+
+    /**
+     * @param now Momento actual en milisegundos
+     * @return Milisegundos que le quedan antes de caducar, o 0 si ya ha caducado
+     */
+    public long remainingMillis(long now) {
+        return Math.max(0, expiresAtMillis - now);
+    }
+
+    /**
+     * Decide si refrescar el valor antes de que caduque, adelantando la caducidad una cantidad aleatoria proporcional
+     * a lo que costó cargarlo
+     *
+     * @param now  Momento actual en milisegundos
+     * @param beta Cuánto se adelanta el refresco; 0 lo desactiva y valores mayores que 1 lo adelantan más
+     * @return Si esta lectura debe refrescar el valor
+     */
+    public boolean shouldRefreshEarly(long now, double beta) {
+        if (beta <= 0) {
+            return false;
+        }
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return now - loadMillis * beta * Math.log(random) >= expiresAtMillis;
+    }
+}
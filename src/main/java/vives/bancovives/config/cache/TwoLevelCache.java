@@ -0,0 +1,366 @@
+package vives.bancovives.config.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.dao.DataAccessException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché de dos niveles: una caché local Caffeine, limitada en tamaño y tiempo, delante de la caché compartida en Redis.
+ * <p>
+ * Las lecturas se resuelven primero en la caché local y solo van a Redis si no está, guardando después el resultado en
+ * local. Las escrituras y los borrados se aplican en Redis y en local, y se publican para que el resto de nodos
+ * descarten su copia local. Los valores de la caché local se comparten entre peticiones sin copiarse, igual que en
+ * cualquier caché en memoria, por lo que no deben modificarse.
+ * <p>
+ * Si Redis no está disponible se sigue sirviendo desde la caché local y los fallos cuentan como fallos de caché.
+ * <p>
+ * Las cargas con {@link #get(Object, Callable)}, que Spring usa con {@code @Cacheable(sync = true)}, se agrupan por
+ * clave: si varias peticiones fallan a la vez solo una carga el valor y las demás esperan su resultado. Estos valores
+ * se guardan como {@link TimedValue}, y a medida que se acercan a su caducidad alguna lectura los refresca antes de
+ * tiempo mientras las demás siguen usando el valor actual. La agrupación es por nodo: con varios nodos cada uno carga
+ * como mucho una vez por clave.
+ * <p>
+ * Para precargar o invalidar muchas entradas a la vez están {@link #putAllLoaded(Map)} y {@link #evictAll(Collection)},
+ * que si la caché remota es una {@link PipelinedRedisCache} lo hacen con un único viaje a Redis.
+ */
+@Slf4j
+public class TwoLevelCache implements Cache {
+
+    /**
+     * Métrica con los aciertos y fallos de cada nivel
+     */
+    static final String GETS_METRIC = "cache.level.gets";
+
+    /**
+     * Métrica con las cargas a través de la caché: las que cargan el valor, las que esperan a la carga de otra
+     * petición y los refrescos anticipados
+     */
+    static final String LOADS_METRIC = "cache.level.loads";
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> near;
+    private final Cache remote;
+    private final CacheSpec spec;
+    private final InvalidationPublisher publisher;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Counter nearHits;
+    private final Counter nearMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Counter loads;
+    private final Counter coalescedLoads;
+    private final Counter earlyRefreshes;
+
+    /**
+     * Publica que una entrada ha cambiado para que los demás nodos la descarten de su caché local
+     */
+    @FunctionalInterface
+    public interface InvalidationPublisher {
+        /**
+         * @param cacheName Nombre de la caché
+         * @param key       Clave que ha cambiado, o null si se ha vaciado la caché entera
+         */
+        void publish(String cacheName, String key);
+    }
+
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, Object> near, Cache remote,
+                         CacheSpec spec, InvalidationPublisher publisher, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.near = near;
+        this.remote = remote;
+        this.spec = spec;
+        this.publisher = publisher;
+        this.nearHits = counter(meterRegistry, "near", "hit");
+        this.nearMisses = counter(meterRegistry, "near", "miss");
+        this.remoteHits = counter(meterRegistry, "redis", "hit");
+        this.remoteMisses = counter(meterRegistry, "redis", "miss");
+        this.loads = loadCounter(meterRegistry, "loaded");
+        this.coalescedLoads = loadCounter(meterRegistry, "coalesced");
+        this.earlyRefreshes = loadCounter(meterRegistry, "early_refresh");
+        Gauge.builder("cache.level.size", near, com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+                .description("Entradas en la caché local")
+                .tag("cache", name)
+                .tag("level", "near")
+                .register(meterRegistry);
+    }
+
+    private Counter counter(MeterRegistry meterRegistry, String level, String result) {
+        return Counter.builder(GETS_METRIC)
+                .description("Lecturas de la caché por nivel")
+                .tag("cache", name)
+                .tag("level", level)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter loadCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(LOADS_METRIC)
+                .description("Cargas a través de la caché")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return near;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object stored = lookup(key);
+        return stored == null ? null : new SimpleValueWrapper(unwrap(stored));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("El valor de la caché " + name + " no es de tipo " + type.getName());
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String nearKey = nearKey(key);
+        Object stored = lookup(key);
+        if (stored != null) {
+            if (!(stored instanceof TimedValue timed)
+                    || !timed.shouldRefreshEarly(System.currentTimeMillis(), spec.earlyRefreshBeta())) {
+                return (T) unwrap(stored);
+            }
+            CompletableFuture<Object> refresh = new CompletableFuture<>();
+            if (inFlight.putIfAbsent(nearKey, refresh) != null) {
+                // Otra petición ya lo está refrescando, mientras tanto sigue valiendo el actual
+                return (T) timed.value();
+            }
+            earlyRefreshes.increment();
+            return (T) load(key, nearKey, valueLoader, refresh);
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(nearKey, future);
+        if (running != null) {
+            coalescedLoads.increment();
+            return (T) await(key, valueLoader, running);
+        }
+        // La carga de otra petición puede haber terminado entre la lectura y el registro de esta
+        Object loaded = fresh(near.getIfPresent(nearKey));
+        if (loaded != null) {
+            inFlight.remove(nearKey, future);
+            future.complete(unwrap(loaded));
+            return (T) unwrap(loaded);
+        }
+        loads.increment();
+        return (T) load(key, nearKey, valueLoader, future);
+    }
+
+    /**
+     * Carga el valor, lo guarda en los dos niveles y se lo entrega a las peticiones que lo esperan. Los valores
+     * cargados no se publican a los demás nodos, ya que no han cambiado sino caducado.
+     */
+    private Object load(Object key, String nearKey, Callable<?> valueLoader, CompletableFuture<Object> future) {
+        try {
+            long start = System.currentTimeMillis();
+            Object value = valueLoader.call();
+            if (value != null) {
+                long now = System.currentTimeMillis();
+                TimedValue timed = new TimedValue(value, now + spec.jitteredTtlMillis(), now - start);
+                putRemote(key, timed);
+                near.put(nearKey, timed);
+            }
+            future.complete(value);
+            return value;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(nearKey, future);
+        }
+    }
+
+    private Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        putRemote(key, value);
+        String nearKey = nearKey(key);
+        if (value == null) {
+            near.invalidate(nearKey);
+        } else {
+            near.put(nearKey, value);
+        }
+        publisher.publish(name, nearKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        try {
+            remote.evict(key);
+        } catch (DataAccessException e) {
+            log.warn("No se ha podido borrar de Redis la clave {} de la caché {}: {}", key, name, e.getMessage());
+        }
+        String nearKey = nearKey(key);
+        near.invalidate(nearKey);
+        publisher.publish(name, nearKey);
+    }
+
+    /**
+     * Guarda de una vez valores recién cargados de la base de datos, con el mismo tiempo de vida que si se hubieran
+     * cargado a través de la caché. Igual que las cargas, no se publican a los demás nodos.
+     *
+     * @param values Valores según su clave; los nulos se ignoran
+     */
+    public void putAllLoaded(Map<?, ?> values) {
+        long now = System.currentTimeMillis();
+        Map<Object, Object> timed = new LinkedHashMap<>();
+        values.forEach((key, value) -> {
+            if (value != null) {
+                timed.put(key, new TimedValue(value, now + spec.jitteredTtlMillis(), 0));
+            }
+        });
+        try {
+            if (remote instanceof PipelinedRedisCache pipelined) {
+                pipelined.putAll(timed);
+            } else {
+                timed.forEach(remote::put);
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se han podido guardar en Redis {} claves de la caché {}: {}", timed.size(), name, e.getMessage());
+        }
+        timed.forEach((key, value) -> near.put(nearKey(key), value));
+    }
+
+    /**
+     * Borra varias entradas de una vez de los dos niveles y lo publica para los demás nodos
+     *
+     * @param keys Claves de las entradas
+     */
+    public void evictAll(Collection<?> keys) {
+        try {
+            if (remote instanceof PipelinedRedisCache pipelined) {
+                pipelined.evictAll(keys);
+            } else {
+                keys.forEach(remote::evict);
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se han podido borrar de Redis {} claves de la caché {}: {}", keys.size(), name, e.getMessage());
+        }
+        for (Object key : keys) {
+            String nearKey = nearKey(key);
+            near.invalidate(nearKey);
+            publisher.publish(name, nearKey);
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            remote.clear();
+        } catch (DataAccessException e) {
+            log.warn("No se ha podido vaciar en Redis la caché {}: {}", name, e.getMessage());
+        }
+        near.invalidateAll();
+        publisher.publish(name, null);
+    }
+
+    /**
+     * Descarta una entrada de la caché local porque ha cambiado en otro nodo
+     *
+     * @param key Clave de la entrada, o null para descartar todas
+     */
+    void invalidateNear(String key) {
+        if (key == null) {
+            near.invalidateAll();
+        } else {
+            near.invalidate(key);
+        }
+    }
+
+    /**
+     * Busca el valor guardado, primero en la caché local y luego en Redis, descartando los que ya han caducado
+     *
+     * @return El valor tal como está guardado, o null si no está en ningún nivel
+     */
+    private Object lookup(Object key) {
+        String nearKey = nearKey(key);
+        Object value = fresh(near.getIfPresent(nearKey));
+        if (value != null) {
+            nearHits.increment();
+            return value;
+        }
+        nearMisses.increment();
+
+        ValueWrapper wrapper = getRemote(key);
+        value = wrapper == null ? null : fresh(wrapper.get());
+        if (value == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        near.put(nearKey, value);
+        return value;
+    }
+
+    private static Object fresh(Object stored) {
+        if (stored instanceof TimedValue timed && timed.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return stored;
+    }
+
+    private static Object unwrap(Object stored) {
+        return stored instanceof TimedValue timed ? timed.value() : stored;
+    }
+
+    private void putRemote(Object key, Object value) {
+        try {
+            remote.put(key, value);
+        } catch (DataAccessException e) {
+            log.warn("No se ha podido guardar en Redis la clave {} de la caché {}: {}", key, name, e.getMessage());
+        }
+    }
+
+    private ValueWrapper getRemote(Object key) {
+        try {
+            return remote.get(key);
+        } catch (DataAccessException e) {
+            log.warn("No se ha podido leer de Redis la clave {} de la caché {}: {}", key, name, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Las claves locales se guardan como texto, igual que en Redis, para poder invalidarlas desde otros nodos
+     */
+    static String nearKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,115 @@
+package vives.bancovives.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Gestor de cachés de dos niveles que pone una caché local Caffeine delante de cada caché de Redis.
+ * <p>
+ * Cada escritura o borrado se publica en el canal {@link #CHANNEL} de Redis con el formato
+ * {@code nodo:cache[:clave]}. Al recibir un mensaje de otro nodo se descarta la entrada de la caché local, o la caché
+ * entera si el mensaje no lleva clave. Los mensajes del propio nodo se ignoran.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    /**
+     * Canal de Redis por el que se avisa a los demás nodos de las entradas que han cambiado
+     */
+    public static final String CHANNEL = "cache:invalidation";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final CacheManager remoteCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final Function<String, CacheSpec> specs;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param remoteCacheManager Gestor de las cachés compartidas en Redis
+     * @param redisTemplate      Plantilla con la que se publican las invalidaciones
+     * @param specs              Ajustes de cada caché según su nombre
+     * @param meterRegistry      Registro donde se publican los aciertos y fallos de cada nivel
+     */
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, StringRedisTemplate redisTemplate,
+                                Function<String, CacheSpec> specs, MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.specs = specs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> createCache(n, remote));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    private TwoLevelCache createCache(String name, Cache remote) {
+        CacheSpec spec = specs.apply(name);
+        log.info("Caché {} con caché local de {} entradas durante {}", name, spec.nearMaxSize(), spec.nearTtl());
+        com.github.benmanes.caffeine.cache.Cache<String, Object> near = Caffeine.newBuilder()
+                .maximumSize(spec.nearMaxSize())
+                .expireAfter(spec.nearExpiry())
+                .build();
+        return new TwoLevelCache(name, near, remote, spec, this::publish, meterRegistry);
+    }
+
+    /**
+     * Avisa a los demás nodos de que una entrada ha cambiado. Si Redis no está disponible solo se pierde el aviso y
+     * las copias locales de otros nodos caducan según su tiempo de vida.
+     */
+    void publish(String cacheName, String key) {
+        String message = key == null ? nodeId + ":" + cacheName : nodeId + ":" + cacheName + ":" + key;
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (DataAccessException e) {
+            log.warn("No se ha podido publicar la invalidación de la caché {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Recibe las invalidaciones publicadas por los demás nodos
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":", 3);
+        if (parts.length < 2 || parts[0].equals(nodeId)) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            cache.invalidateNear(parts.length == 3 ? parts[2] : null);
+        }
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,49 @@
+package vives.bancovives.config.cache.codec;
+
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.products.accounttype.model.AccountType;
+import vives.bancovives.rest.products.cardtype.model.CardType;
+import vives.bancovives.rest.users.models.User;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Cómo se guarda en caché un tipo de valor: el identificador que se escribe junto al valor, la proyección que se
+ * serializa en lugar de la entidad y las funciones para pasar de una a otra.
+ *
+ * @param typeId          Identificador corto del tipo, que se guarda con el valor
+ * @param valueType       Tipo de los valores que se guardan en caché
+ * @param projectionType  Tipo de la proyección que se serializa
+ * @param toProjection    Convierte un valor en su proyección
+ * @param fromProjection  Reconstruye el valor a partir de la proyección
+ * @param <V>             Tipo de los valores
+ * @param <P>             Tipo de la proyección
+ */
+public record CacheProjection<V, P>(String typeId, Class<V> valueType, Class<P> projectionType,
+                                    Function<V, P> toProjection, Function<P, V> fromProjection) {
+
+    /**
+     * Proyecciones de las entidades que se guardan en las cachés de la aplicación
+     */
+    public static List<CacheProjection<?, ?>> defaults() {
+        return List.of(
+                new CacheProjection<>("account", Account.class, CachedAccount.class, CachedAccount::from, CachedAccount::toEntity),
+                new CacheProjection<>("card", Card.class, CachedCard.class, CachedCard::from, CachedCard::toEntity),
+                new CacheProjection<>("user", User.class, CachedUser.class, CachedUser::from, CachedUser::toEntity),
+                new CacheProjection<>("accountType", AccountType.class, CachedAccountType.class, CachedAccountType::from, CachedAccountType::toEntity),
+                new CacheProjection<>("cardType", CardType.class, CachedCardType.class, CachedCardType::from, CachedCardType::toEntity)
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    Object project(Object value) {
+        return toProjection.apply((V) value);
+    }
+
+    @SuppressWarnings("unchecked")
+    Object restore(Object projection) {
+        return fromProjection.apply((P) projection);
+    }
+}
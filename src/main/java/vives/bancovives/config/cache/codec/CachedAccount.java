@@ -0,0 +1,44 @@
+package vives.bancovives.config.cache.codec;
+
+import vives.bancovives.rest.accounts.model.Account;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Proyección de {@link Account} que se guarda en caché, con el tipo de cuenta y el cliente reducidos
+ */
+public record CachedAccount(UUID id, String publicId, String iban, double balance, String password,
+                            CachedAccountType accountType, CachedClient client, LocalDateTime createdAt,
+                            LocalDateTime updatedAt, boolean isDeleted, Long version, Integer interestDay,
+                            LocalDate lastInterestDate) {
+
+    public static CachedAccount from(Account account) {
+        if (account == null) {
+            return null;
+        }
+        return new CachedAccount(account.getId(), account.getPublicId(), account.getIban(), account.getBalance(),
+                account.getPassword(), CachedAccountType.from(account.getAccountType()),
+                CachedClient.from(account.getClient()), account.getCreatedAt(), account.getUpdatedAt(),
+                account.isDeleted(), account.getVersion(), account.getInterestDay(), account.getLastInterestDate());
+    }
+
+    public Account toEntity() {
+        return Account.builder()
+                .id(id)
+                .publicId(publicId)
+                .iban(iban)
+                .balance(balance)
+                .password(password)
+                .accountType(accountType == null ? null : accountType.toEntity())
+                .client(client == null ? null : client.toEntity())
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .isDeleted(isDeleted)
+                .version(version)
+                .interestDay(interestDay)
+                .lastInterestDate(lastInterestDate)
+                .build();
+    }
+}
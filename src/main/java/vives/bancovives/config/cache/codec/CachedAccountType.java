@@ -0,0 +1,35 @@
+package vives.bancovives.config.cache.codec;
+
+import vives.bancovives.rest.products.accounttype.model.AccountType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Proyección de {@link AccountType} que se guarda en caché, sin la lista de cuentas del tipo
+ */
+public record CachedAccountType(UUID id, String publicId, String name, String description, Double interest,
+                                LocalDateTime createdAt, LocalDateTime updatedAt, Boolean isDeleted) {
+
+    public static CachedAccountType from(AccountType accountType) {
+        if (accountType == null) {
+            return null;
+        }
+        return new CachedAccountType(accountType.getId(), accountType.getPublicId(), accountType.getName(),
+                accountType.getDescription(), accountType.getInterest(), accountType.getCreatedAt(),
+                accountType.getUpdatedAt(), accountType.getIsDeleted());
+    }
+
+    public AccountType toEntity() {
+        return AccountType.builder()
+                .id(id)
+                .publicId(publicId)
+                .name(name)
+                .description(description)
+                .interest(interest)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .isDeleted(isDeleted)
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package vives.bancovives.config.cache.codec;
+
+import vives.bancovives.rest.cards.model.Card;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Proyección de {@link Card} que se guarda en caché, con el tipo de tarjeta y la cuenta reducidos
+ */
+public record CachedCard(UUID id, String publicId, String cardNumber, String cardOwner, String expirationDate,
+                         Integer cvv, String pin, CachedCardType cardType, CachedAccount account,
+                         double spentToday, double spentThisWeek, double spentThisMonth, LocalDate spentTodayDate,
+                         LocalDate spentThisWeekStart, LocalDate spentThisMonthStart, double dailyLimit,
+                         double weeklyLimit, double monthlyLimit, Boolean isInactive, Boolean isDeleted,
+                         LocalDateTime creationDate, LocalDateTime lastUpdate, Long version) {
+
+    public static CachedCard from(Card card) {
+        if (card == null) {
+            return null;
+        }
+        return new CachedCard(card.getId(), card.getPublicId(), card.getCardNumber(), card.getCardOwner(),
+                card.getExpirationDate(), card.getCvv(), card.getPin(), CachedCardType.from(card.getCardType()),
+                CachedAccount.from(card.getAccount()), card.getSpentToday(), card.getSpentThisWeek(),
+                card.getSpentThisMonth(), card.getSpentTodayDate(), card.getSpentThisWeekStart(),
+                card.getSpentThisMonthStart(), card.getDailyLimit(), card.getWeeklyLimit(), card.getMonthlyLimit(),
+                card.getIsInactive(), card.getIsDeleted(), card.getCreationDate(), card.getLastUpdate(),
+                card.getVersion());
+    }
+
+    public Card toEntity() {
+        return Card.builder()
+                .id(id)
+                .publicId(publicId)
+                .cardNumber(cardNumber)
+                .cardOwner(cardOwner)
+                .expirationDate(expirationDate)
+                .cvv(cvv)
+                .pin(pin)
+                .cardType(cardType == null ? null : cardType.toEntity())
+                .account(account == null ? null : account.toEntity())
+                .spentToday(spentToday)
+                .spentThisWeek(spentThisWeek)
+                .spentThisMonth(spentThisMonth)
+                .spentTodayDate(spentTodayDate)
+                .spentThisWeekStart(spentThisWeekStart)
+                .spentThisMonthStart(spentThisMonthStart)
+                .dailyLimit(dailyLimit)
+                .weeklyLimit(weeklyLimit)
+                .monthlyLimit(monthlyLimit)
+                .isInactive(isInactive)
+                .isDeleted(isDeleted)
+                .creationDate(creationDate)
+                .lastUpdate(lastUpdate)
+                .version(version)
+                .build();
+    }
+}
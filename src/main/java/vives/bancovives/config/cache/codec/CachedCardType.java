@@ -0,0 +1,33 @@
+package vives.bancovives.config.cache.codec;
+
+import vives.bancovives.rest.products.cardtype.model.CardType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Proyección de {@link CardType} que se guarda en caché
+ */
+public record CachedCardType(UUID id, String publicId, String name, String description,
+                             LocalDateTime createdAt, LocalDateTime updatedAt, Boolean isDeleted) {
+
+    public static CachedCardType from(CardType cardType) {
+        if (cardType == null) {
+            return null;
+        }
+        return new CachedCardType(cardType.getId(), cardType.getPublicId(), cardType.getName(),
+                cardType.getDescription(), cardType.getCreatedAt(), cardType.getUpdatedAt(), cardType.getIsDeleted());
+    }
+
+    public CardType toEntity() {
+        return CardType.builder()
+                .id(id)
+                .publicId(publicId)
+                .name(name)
+                .description(description)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .isDeleted(isDeleted)
+                .build();
+    }
+}
@@ -0,0 +1,44 @@
+package vives.bancovives.config.cache.codec;
+
+import vives.bancovives.rest.clients.model.Address;
+import vives.bancovives.rest.clients.model.Client;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Proyección del {@link Client} de una cuenta que se guarda en caché, sin sus cuentas y con el usuario reducido
+ */
+public record CachedClient(UUID id, String publicId, String dni, String completeName, Address address, String email,
+                           String phoneNumber, String photo, String dniPicture, CachedUser user, boolean validated,
+                           boolean isDeleted, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static CachedClient from(Client client) {
+        if (client == null) {
+            return null;
+        }
+        return new CachedClient(client.getId(), client.getPublicId(), client.getDni(), client.getCompleteName(),
+                client.getAddress(), client.getEmail(), client.getPhoneNumber(), client.getPhoto(),
+                client.getDniPicture(), CachedUser.nestedFrom(client.getUser()), client.isValidated(),
+                client.isDeleted(), client.getCreatedAt(), client.getUpdatedAt());
+    }
+
+    public Client toEntity() {
+        return Client.builder()
+                .id(id)
+                .publicId(publicId)
+                .dni(dni)
+                .completeName(completeName)
+                .address(address)
+                .email(email)
+                .phoneNumber(phoneNumber)
+                .photo(photo)
+                .dniPicture(dniPicture)
+                .user(user == null ? null : user.toEntity())
+                .validated(validated)
+                .isDeleted(isDeleted)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
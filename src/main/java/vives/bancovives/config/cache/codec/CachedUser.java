@@ -0,0 +1,47 @@
+package vives.bancovives.config.cache.codec;
+
+import vives.bancovives.rest.users.models.Role;
+import vives.bancovives.rest.users.models.User;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Proyección de {@link User} que se guarda en caché, sin el cliente asociado. Cuando el usuario va dentro de otra
+ * entidad, como el cliente de una cuenta, tampoco se guarda la contraseña.
+ */
+public record CachedUser(UUID id, String publicId, String username, String password, Set<Role> roles,
+                         LocalDateTime createdAt, LocalDateTime updatedAt, Boolean isDeleted) {
+
+    public static CachedUser from(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new CachedUser(user.getId(), user.getPublicId(), user.getUsername(), user.getPassword(),
+                user.getRoles() == null ? null : Set.copyOf(user.getRoles()),
+                user.getCreatedAt(), user.getUpdatedAt(), user.getIsDeleted());
+    }
+
+    /**
+     * Proyección para guardar el usuario dentro de otra entidad
+     */
+    public static CachedUser nestedFrom(User user) {
+        CachedUser cached = from(user);
+        return cached == null ? null : new CachedUser(cached.id, cached.publicId, cached.username, null,
+                cached.roles, cached.createdAt, cached.updatedAt, cached.isDeleted);
+    }
+
+    public User toEntity() {
+        return User.builder()
+                .id(id)
+                .publicId(publicId)
+                .username(username)
+                .password(password)
+                .roles(roles)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .isDeleted(isDeleted)
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+package vives.bancovives.config.cache.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import vives.bancovives.config.cache.TimedValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializador de los valores de Redis que guarda una proyección en JSON en lugar de la entidad JPA serializada por
+ * Java. Cada valor se escribe como {@code {"t":"<tipo>","v":{...}}}, donde el tipo indica la proyección. Los
+ * {@link TimedValue} añaden su caducidad y lo que tardaron en cargarse: {@code {"t":..,"x":..,"d":..,"v":{...}}}.
+ * <p>
+ * Tolera cambios de esquema: se ignoran los campos desconocidos y los que faltan quedan con su valor por defecto. Un
+ * valor que no se puede leer, por ejemplo de un tipo que este nodo no conoce, se trata como un fallo de caché y se
+ * vuelve a cargar. Los valores de tipos sin proyección y los escritos antes con serialización de Java se siguen
+ * escribiendo y leyendo con ella, de modo que las entradas que ya estaban en Redis siguen siendo válidas.
+ */
+@Slf4j
+public class ProjectionRedisSerializer implements RedisSerializer<Object> {
+
+    /**
+     * Primeros bytes de cualquier valor serializado por Java
+     */
+    private static final byte[] JDK_MAGIC = {(byte) 0xAC, (byte) 0xED};
+
+    private final ObjectMapper mapper;
+    private final Map<Class<?>, CacheProjection<?, ?>> byValueType = new HashMap<>();
+    private final Map<String, CacheProjection<?, ?>> byTypeId = new HashMap<>();
+    private final JdkSerializationRedisSerializer fallback = new JdkSerializationRedisSerializer();
+
+    public ProjectionRedisSerializer(List<CacheProjection<?, ?>> projections) {
+        this.mapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+        for (CacheProjection<?, ?> projection : projections) {
+            byValueType.put(projection.valueType(), projection);
+            byTypeId.put(projection.typeId(), projection);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+        TimedValue timed = value instanceof TimedValue t ? t : null;
+        Object entity = timed != null ? timed.value() : value;
+        CacheProjection<?, ?> projection = projectionFor(entity.getClass());
+        if (projection == null) {
+            return fallback.serialize(value);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = mapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("t", projection.typeId());
+            if (timed != null) {
+                generator.writeNumberField("x", timed.expiresAtMillis());
+                generator.writeNumberField("d", timed.loadMillis());
+            }
+            generator.writeFieldName("v");
+            mapper.writeValue(generator, projection.project(entity));
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new SerializationException("No se puede serializar el valor de tipo " + projection.typeId(), e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length >= 2 && bytes[0] == JDK_MAGIC[0] && bytes[1] == JDK_MAGIC[1]) {
+            return fallback.deserialize(bytes);
+        }
+        try (JsonParser parser = mapper.createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || !"t".equals(parser.nextFieldName())
+                    || parser.nextToken() != JsonToken.VALUE_STRING) {
+                log.warn("Valor de caché con un formato desconocido, se ignora");
+                return null;
+            }
+            String typeId = parser.getText();
+            CacheProjection<?, ?> projection = byTypeId.get(typeId);
+            if (projection == null) {
+                log.warn("Valor de caché de un tipo desconocido: {}", typeId);
+                return null;
+            }
+            Long expiresAt = null;
+            long loadMillis = 0;
+            String field;
+            while ((field = parser.nextFieldName()) != null && !"v".equals(field)) {
+                parser.nextToken();
+                switch (field) {
+                    case "x" -> expiresAt = parser.getLongValue();
+                    case "d" -> loadMillis = parser.getLongValue();
+                    default -> parser.skipChildren();
+                }
+            }
+            if (field == null) {
+                log.warn("Valor de caché de tipo {} sin valor, se ignora", typeId);
+                return null;
+            }
+            parser.nextToken();
+            Object value = projection.restore(mapper.readValue(parser, projection.projectionType()));
+            return expiresAt == null ? value : new TimedValue(value, expiresAt, loadMillis);
+        } catch (IOException e) {
+            log.warn("No se puede leer un valor de caché, se ignora: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Busca la proyección del tipo o de sus superclases, para las subclases que genera Hibernate
+     */
+    private CacheProjection<?, ?> projectionFor(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            CacheProjection<?, ?> projection = byValueType.get(current);
+            if (projection != null) {
+                return projection;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package vives.bancovives.notifications.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Mensaje que reciben los clientes por WebSocket: qué ha pasado, en qué entidad, su id público, el importe si es un
+ * movimiento y cuándo, en milisegundos desde epoch. Se serializa una vez por notificación y el mismo texto se envía a
+ * todos sus destinatarios. El cliente compone el texto a mostrar a partir de estos campos.
+ * <p>
+ * Ejemplo: {@code {"type":"CREATE","entity":"MOVEMENT","id":"6710c0...","amount":20.0,"timestamp":1729152000000}}
+ *
+ * @param type      Tipo de cambio
+ * @param entity    Entidad que ha cambiado
+ * @param id        Id público de la entidad
+ * @param amount    Importe del movimiento, o null si no es un movimiento
+ * @param timestamp Momento del cambio en milisegundos desde epoch
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record NotificationFrame(NotificationType type, NotificationSource entity, String id, Double amount,
+                                long timestamp) {
+
+    /**
+     * Tipo de los mensajes que agrupan varias notificaciones
+     */
+    public static final String DIGEST = "DIGEST";
+
+    /**
+     * La fecha de la notificación se guarda con {@code LocalDateTime.now()}, en la zona horaria del servidor, y se
+     * convierte a epoch con esa misma zona
+     *
+     * @param event Notificación guardada en el outbox
+     * @param type  Tipo con el que se notifica, que puede no ser el del cambio
+     * @return El mensaje de la notificación
+     */
+    public static NotificationFrame of(NotificationOutboxEvent event, NotificationType type) {
+        return new NotificationFrame(type, event.getSource(), event.getEntityId(), event.getAmount(),
+                event.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    /**
+     * Junta varios mensajes ya serializados en uno solo, sin volver a serializarlos:
+     * {@code {"type":"DIGEST","count":N,"events":[...]}}. Si hay más de {@code maxEvents} solo se incluyen los últimos
+     * y {@code count} indica cuántos había, para que el cliente sepa que debe recargar.
+     *
+     * @param frames    Mensajes serializados, del más antiguo al más reciente
+     * @param maxEvents Número máximo de mensajes que se incluyen
+     * @return El mensaje que los agrupa
+     */
+    public static String digest(List<String> frames, int maxEvents) {
+        List<String> included = frames.size() > maxEvents ? frames.subList(frames.size() - maxEvents, frames.size()) : frames;
+        return "{\"type\":\"" + DIGEST + "\",\"count\":" + frames.size() + ",\"events\":[" + String.join(",", included) + "]}";
+    }
+}
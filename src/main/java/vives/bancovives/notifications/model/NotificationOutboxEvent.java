@@ -0,0 +1,70 @@
+package vives.bancovives.notifications.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import vives.bancovives.rest.movements.model.MovementType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Notificación pendiente de enviar. Se guarda en la misma transacción que el cambio que la genera, de modo que solo
+ * se envía si el cambio se confirma, y el envío se hace después y fuera de la petición.
+ * <p>
+ * Guarda el nombre de usuario de los destinatarios, que se obtiene al guardarla de las entidades ya cargadas, de modo
+ * que enviarla no requiere consultar los clientes ni los usuarios. En las transferencias el segundo destinatario es el
+ * cliente de la cuenta de destino.
+ */
+@Data
+@Builder
+@Entity
+@Table(name = "notification_outbox", indexes = @Index(name = "idx_notification_outbox_next_attempt_at", columnList = "next_attempt_at"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private NotificationSource source;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private NotificationType type;
+
+    @Column(name = "movement_type")
+    @Enumerated(EnumType.STRING)
+    private MovementType movementType;
+
+    /**
+     * Id público de la entidad que ha cambiado
+     */
+    @Column(name = "entity_id")
+    private String entityId;
+
+    /**
+     * Importe del movimiento, solo en los movimientos
+     */
+    private Double amount;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(name = "destination_recipient")
+    private String destinationRecipient;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Builder.Default
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Builder.Default
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+}
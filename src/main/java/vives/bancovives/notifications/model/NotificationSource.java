@@ -0,0 +1,8 @@
+package vives.bancovives.notifications.model;
+
+/**
+ * Entidad cuyo cambio ha generado una notificación
+ */
+public enum NotificationSource {
+    MOVEMENT, ACCOUNT, CARD, CLIENT
+}
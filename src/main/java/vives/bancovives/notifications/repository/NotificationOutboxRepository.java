@@ -0,0 +1,40 @@
+package vives.bancovives.notifications.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import vives.bancovives.notifications.model.NotificationOutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEvent, UUID> {
+    /**
+     * Notificaciones que ya se pueden enviar, de la más antigua a la más reciente. Las filas quedan bloqueadas hasta
+     * el final de la transacción y se saltan las que ya tiene bloqueadas otra instancia.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM NotificationOutboxEvent e WHERE e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+    List<NotificationOutboxEvent> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+    /**
+     * Aplaza las notificaciones indicadas hasta la fecha dada, para que ninguna otra instancia las envíe mientras tanto
+     */
+    @Modifying
+    @Query("UPDATE NotificationOutboxEvent e SET e.nextAttemptAt = :until WHERE e.id IN :ids")
+    int postpone(@Param("ids") Collection<UUID> ids, @Param("until") LocalDateTime until);
+    /**
+     * Vuelve a programar el envío de una notificación que ha fallado
+     */
+    @Modifying
+    @Query("UPDATE NotificationOutboxEvent e SET e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt WHERE e.id = :id")
+    int reschedule(@Param("id") UUID id, @Param("attempts") int attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+}
@@ -0,0 +1,91 @@
+package vives.bancovives.notifications.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import vives.bancovives.notifications.exceptions.NotificationSenderException;
+import vives.bancovives.notifications.model.NotificationFrame;
+import vives.bancovives.notifications.model.NotificationOutboxEvent;
+import vives.bancovives.notifications.model.NotificationSource;
+import vives.bancovives.notifications.model.NotificationType;
+import vives.bancovives.notifications.websocket.broker.NotificationBroker;
+import vives.bancovives.notifications.websocket.broker.UserMessage;
+import vives.bancovives.rest.movements.model.MovementType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Envía por WebSocket una notificación guardada en el outbox a los usuarios que guarda, como un
+ * {@link NotificationFrame}. El mensaje se serializa una sola vez y el mismo texto se envía a todos los destinatarios.
+ * No consulta la base de datos, por lo que no necesita una transacción mientras espera a los sockets.
+ * <p>
+ * Los mensajes se publican en el {@link NotificationBroker}, que los hace llegar al nodo en el que esté conectado cada
+ * usuario. Cada mensaje se identifica por la notificación y su posición en ella, así que si la notificación se
+ * reintenta los usuarios que ya la recibieron no la reciben otra vez.
+ */
+@Component
+@Slf4j
+public class NotificationDelivery {
+
+    private final NotificationBroker broker;
+    private final ObjectWriter frameWriter;
+
+    public NotificationDelivery(NotificationBroker broker, ObjectMapper objectMapper) {
+        this.broker = broker;
+        this.frameWriter = objectMapper.writerFor(NotificationFrame.class);
+    }
+
+    /**
+     * En las transferencias se notifica a los dos clientes y en el resto de movimientos solo al de la cuenta de
+     * referencia. Las modificaciones de un movimiento que no es una transferencia se notifican como uno nuevo.
+     *
+     * @param event Notificación a enviar
+     * @throws NotificationSenderException Si no se ha podido enviar a alguno de los destinatarios
+     */
+    public void deliver(NotificationOutboxEvent event) {
+        String frame = serialize(event);
+        List<CompletableFuture<Void>> published = new ArrayList<>(2);
+        published.add(publish(event, 0, event.getRecipient(), frame));
+        if (event.getSource() == NotificationSource.MOVEMENT && event.getMovementType() == MovementType.TRANSFERENCIA) {
+            published.add(publish(event, 1, event.getDestinationRecipient(), frame));
+        }
+        await(published);
+    }
+
+    /**
+     * @param event Notificación
+     * @return El mensaje de la notificación en JSON
+     */
+    String serialize(NotificationOutboxEvent event) {
+        NotificationType type = event.getSource() == NotificationSource.MOVEMENT
+                && event.getMovementType() != MovementType.TRANSFERENCIA ? NotificationType.CREATE : event.getType();
+        try {
+            return frameWriter.writeValueAsString(NotificationFrame.of(event, type));
+        } catch (JsonProcessingException e) {
+            throw new NotificationSenderException("Error al serializar la notificación: " + e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Void> publish(NotificationOutboxEvent event, int position, String username, String frame) {
+        return broker.publish(new UserMessage(event.getId() + ":" + position, username, frame));
+    }
+
+    private void await(List<CompletableFuture<Void>> published) {
+        try {
+            for (CompletableFuture<Void> future : published) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            log.error("Error al enviar notificación: {}", e.getCause().getMessage());
+            throw new NotificationSenderException("Error al enviar notificación: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NotificationSenderException("Envío de notificación interrumpido");
+        }
+    }
+}
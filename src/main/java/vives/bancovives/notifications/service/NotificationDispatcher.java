@@ -0,0 +1,195 @@
+package vives.bancovives.notifications.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import vives.bancovives.notifications.model.NotificationOutboxEvent;
+import vives.bancovives.notifications.repository.NotificationOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Envía en segundo plano las notificaciones guardadas en el outbox.
+ * <p>
+ * Un hilo virtual recoge las notificaciones pendientes por lotes de hasta {@code notifications.dispatcher.batch-size}
+ * y las aplaza durante {@code notifications.dispatcher.lease}, de modo que otra instancia no las envíe a la vez. Cada
+ * notificación del lote se envía en su propio hilo virtual, así que un destinatario lento solo retrasa la suya; la que
+ * no termina en {@code notifications.dispatcher.delivery-timeout} se da por fallida. Las enviadas se borran del
+ * outbox y las fallidas se reintentan con una espera que se duplica en cada intento, hasta
+ * {@code notifications.dispatcher.max-attempts} intentos, tras los que se descartan.
+ * <p>
+ * El hilo consulta el outbox cada {@code notifications.dispatcher.poll-interval}, o antes si se le avisa de que se ha
+ * confirmado una notificación nueva. Si la aplicación se detiene con notificaciones aplazadas, se envían cuando vence
+ * el plazo, por lo que una notificación puede llegar más de una vez pero nunca se pierde.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationDelivery delivery;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final ExecutorService deliveries = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile Thread loop;
+
+    @Value("${notifications.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notifications.dispatcher.batch-size:100}")
+    private int batchSize;
+
+    @Value("${notifications.dispatcher.poll-interval:1s}")
+    private Duration pollInterval;
+
+    @Value("${notifications.dispatcher.lease:30s}")
+    private Duration lease;
+
+    @Value("${notifications.dispatcher.delivery-timeout:5s}")
+    private Duration deliveryTimeout;
+
+    @Value("${notifications.dispatcher.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notifications.dispatcher.retry-backoff:2s}")
+    private Duration retryBackoff;
+
+    public NotificationDispatcher(NotificationOutboxRepository outboxRepository, NotificationDelivery delivery,
+                                  TransactionTemplate transactionTemplate) {
+        this.outboxRepository = outboxRepository;
+        this.delivery = delivery;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled && loop == null) {
+            loop = Thread.ofVirtual().name("notification-dispatcher").start(this::run);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = loop;
+        if (current != null) {
+            current.interrupt();
+        }
+        deliveries.shutdownNow();
+    }
+
+    /**
+     * Avisa de que hay notificaciones nuevas en el outbox
+     */
+    public void wakeUp() {
+        wakeUps.release();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (dispatchBatch() < batchSize) {
+                    wakeUps.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("Error al enviar las notificaciones pendientes: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Envía un lote de notificaciones pendientes
+     *
+     * @return Número de notificaciones del lote
+     * @throws InterruptedException Si se interrumpe el hilo mientras espera a los envíos
+     */
+    public int dispatchBatch() throws InterruptedException {
+        List<NotificationOutboxEvent> claimed = claim();
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        Map<NotificationOutboxEvent, Future<?>> sending = new LinkedHashMap<>();
+        for (NotificationOutboxEvent event : claimed) {
+            sending.put(event, deliveries.submit(() -> delivery.deliver(event)));
+        }
+
+        long deadline = System.nanoTime() + deliveryTimeout.toNanos();
+        List<UUID> delivered = new ArrayList<>();
+        List<NotificationOutboxEvent> failed = new ArrayList<>();
+        for (Map.Entry<NotificationOutboxEvent, Future<?>> entry : sending.entrySet()) {
+            try {
+                entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                delivered.add(entry.getKey().getId());
+            } catch (ExecutionException e) {
+                log.warn("No se ha podido enviar la notificación {}: {}", entry.getKey().getId(), e.getCause().getMessage());
+                failed.add(entry.getKey());
+            } catch (TimeoutException e) {
+                log.warn("La notificación {} no se ha enviado en {}", entry.getKey().getId(), deliveryTimeout);
+                entry.getValue().cancel(true);
+                failed.add(entry.getKey());
+            }
+        }
+        complete(delivered, failed);
+        return claimed.size();
+    }
+
+    /**
+     * Recoge las notificaciones pendientes y las aplaza mientras se envían
+     */
+    private List<NotificationOutboxEvent> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<NotificationOutboxEvent> due = outboxRepository.findDue(now, PageRequest.of(0, batchSize));
+            if (!due.isEmpty()) {
+                outboxRepository.postpone(due.stream().map(NotificationOutboxEvent::getId).toList(), now.plus(lease));
+            }
+            return due;
+        });
+    }
+
+    /**
+     * Borra las notificaciones enviadas y programa el reintento de las fallidas
+     */
+    private void complete(List<UUID> delivered, List<NotificationOutboxEvent> failed) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!delivered.isEmpty()) {
+                outboxRepository.deleteAllByIdInBatch(delivered);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            for (NotificationOutboxEvent event : failed) {
+                int attempts = event.getAttempts() + 1;
+                if (attempts >= maxAttempts) {
+                    log.error("Se descarta la notificación {} de {} tras {} intentos", event.getId(), event.getSource(), attempts);
+                    outboxRepository.deleteAllByIdInBatch(List.of(event.getId()));
+                } else {
+                    outboxRepository.reschedule(event.getId(), attempts, now.plus(retryBackoff.multipliedBy(1L << (attempts - 1))));
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package vives.bancovives.notifications.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.service.AccountService;
+import vives.bancovives.rest.clients.exceptions.ClientNotFound;
+import vives.bancovives.rest.clients.model.Client;
+import vives.bancovives.rest.clients.repository.ClientRepository;
+import vives.bancovives.rest.clients.repository.ClientUsername;
+import vives.bancovives.rest.users.models.User;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Obtiene el nombre de usuario al que se envían las notificaciones de una cuenta o de un cliente.
+ * <p>
+ * Si el usuario del cliente ya está cargado se toma de él sin consultar nada. Si no, se busca en una caché acotada de
+ * id público del cliente a nombre de usuario, y los que faltan se consultan todos juntos con una sola consulta que no
+ * carga los clientes ni los usuarios. La caché se actualiza cada vez que se lee un usuario cargado, y sus entradas
+ * caducan tras {@code notifications.recipients.cache-ttl} por si cambia el nombre de usuario.
+ */
+@Component
+public class NotificationRecipientResolver {
+
+    private final ClientRepository clientRepository;
+    private final AccountService accountService;
+    private final Cache<String, String> usernamesByClient;
+
+    public NotificationRecipientResolver(
+            ClientRepository clientRepository,
+            AccountService accountService,
+            @Value("${notifications.recipients.cache-size:10000}") long cacheSize,
+            @Value("${notifications.recipients.cache-ttl:10m}") Duration cacheTtl
+    ) {
+        this.clientRepository = clientRepository;
+        this.accountService = accountService;
+        this.usernamesByClient = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * @param client Cliente
+     * @return Nombre de usuario del cliente
+     * @throws ClientNotFound Si el cliente no existe o no tiene usuario
+     */
+    public String usernameOf(Client client) {
+        String username = loadedUsername(client);
+        if (username != null) {
+            return username;
+        }
+        return usernamesOfClients(Set.of(client.getPublicId())).get(client.getPublicId());
+    }
+
+    /**
+     * @param account Cuenta
+     * @return Nombre de usuario del cliente de la cuenta
+     * @throws ClientNotFound Si el cliente no existe o no tiene usuario
+     */
+    public String usernameOf(Account account) {
+        return usernameOf(account.getClient());
+    }
+
+    /**
+     * Busca la cuenta en la caché de cuentas y devuelve el nombre de usuario de su cliente
+     *
+     * @param iban Iban de la cuenta
+     * @return Nombre de usuario del cliente de la cuenta
+     */
+    public String usernameOfIban(String iban) {
+        return usernameOf(accountService.findByIban(iban));
+    }
+
+    /**
+     * Obtiene de una vez los nombres de usuario de los clientes de varias cuentas, con como mucho una consulta
+     *
+     * @param accounts Cuentas
+     * @return Nombre de usuario del cliente de cada cuenta según su iban
+     * @throws ClientNotFound Si algún cliente no existe o no tiene usuario
+     */
+    public Map<String, String> usernamesOf(Collection<Account> accounts) {
+        Map<String, String> usernamesByIban = new HashMap<>();
+        Map<String, String> pendingClientByIban = new HashMap<>();
+        for (Account account : accounts) {
+            String username = loadedUsername(account.getClient());
+            if (username != null) {
+                usernamesByIban.put(account.getIban(), username);
+            } else {
+                pendingClientByIban.put(account.getIban(), account.getClient().getPublicId());
+            }
+        }
+        if (!pendingClientByIban.isEmpty()) {
+            Map<String, String> usernames = usernamesOfClients(new HashSet<>(pendingClientByIban.values()));
+            pendingClientByIban.forEach((iban, clientPublicId) -> usernamesByIban.put(iban, usernames.get(clientPublicId)));
+        }
+        return usernamesByIban;
+    }
+
+    /**
+     * Devuelve el nombre de usuario si el usuario del cliente ya está cargado, y lo guarda en la caché
+     */
+    private String loadedUsername(Client client) {
+        if (client == null) {
+            throw new ClientNotFound("La cuenta no tiene cliente");
+        }
+        if (!Hibernate.isInitialized(client)) {
+            return null;
+        }
+        User user = client.getUser();
+        if (user == null || !Hibernate.isInitialized(user)) {
+            return null;
+        }
+        usernamesByClient.put(client.getPublicId(), user.getUsername());
+        return user.getUsername();
+    }
+
+    private Map<String, String> usernamesOfClients(Set<String> clientPublicIds) {
+        Map<String, String> usernames = usernamesByClient.getAll(clientPublicIds, missing ->
+                clientRepository.findUsernamesByPublicIdIn(Set.copyOf(missing)).stream()
+                        .collect(Collectors.toMap(ClientUsername::clientPublicId, ClientUsername::username)));
+        if (usernames.size() < clientPublicIds.size()) {
+            Set<String> notFound = new HashSet<>(clientPublicIds);
+            notFound.removeAll(usernames.keySet());
+            throw new ClientNotFound("No se ha encontrado el usuario de los clientes: " + notFound);
+        }
+        return usernames;
+    }
+}
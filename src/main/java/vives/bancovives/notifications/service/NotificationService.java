@@ -6,9 +6,14 @@ import vives.bancovives.rest.cards.model.Card;
 import vives.bancovives.rest.clients.model.Client;
 import vives.bancovives.rest.movements.model.Movement;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface NotificationService {
     void sendNotificationFromMovement(Movement movement, NotificationType notificationType);
+    void sendNotificationFromMovement(Movement movement, Account accountOfReference, Account accountOfDestination, NotificationType notificationType);
+    void sendNotificationsFromMovements(List<Movement> movements, Collection<Account> accounts, NotificationType notificationType);
     void sendNotificationFromAccount(Account account, NotificationType notificationType);
     void sendNotificationFromCard(Card card, NotificationType notificationType);
     void sendNotificationFromClient(Client client, NotificationType notificationType);
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package vives.bancovives.notifications.websocket.broker;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Broker para un único nodo y para las pruebas: entrega cada mensaje directamente a las sesiones de este nodo.
+ * Se usa con {@code notifications.broker.type=local}.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.broker.type", havingValue = "local")
+public class LocalNotificationBroker implements NotificationBroker {
+
+    private final LocalSessionDelivery localDelivery;
+
+    public LocalNotificationBroker(LocalSessionDelivery localDelivery) {
+        this.localDelivery = localDelivery;
+    }
+
+    @Override
+    public CompletableFuture<Void> publish(UserMessage message) {
+        return localDelivery.deliver(message);
+    }
+
+    @Override
+    public void userConnected(String username) {
+        // Todas las sesiones están en este nodo
+    }
+
+    @Override
+    public void userDisconnected(String username) {
+        // Todas las sesiones están en este nodo
+    }
+}
@@ -0,0 +1,185 @@
+package vives.bancovives.notifications.websocket.broker;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import vives.bancovives.notifications.model.NotificationFrame;
+import vives.bancovives.notifications.websocket.config.WebSocketHandler;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entrega los mensajes a las sesiones de WebSocket de este nodo, descartando los que ya se han entregado. Un mismo
+ * mensaje puede llegar más de una vez si se reintenta el envío de su notificación o si se publica dos veces; se
+ * recuerdan los identificadores durante {@code notifications.broker.dedup-window}.
+ * <p>
+ * Las ráfagas de mensajes para un mismo usuario, como las de una remesa de nóminas, se agrupan: el primer mensaje se
+ * envía en el momento y abre una ventana de {@code notifications.coalescing.window}, y los que llegan durante la
+ * ventana se envían juntos al cerrarla en un único mensaje {@link NotificationFrame#digest(List, int)}. Mientras siguen
+ * llegando mensajes la ventana se vuelve a abrir. Con una ventana de cero cada mensaje se envía por separado.
+ * <p>
+ * La entrega de un mensaje termina cuando se ha enviado, también si espera a que se cierre la ventana, de modo que la
+ * notificación solo se da por enviada entonces. Si falla se olvida su identificador, para que el reintento de la
+ * notificación no se tome por un duplicado.
+ */
+@Component
+@Slf4j
+public class LocalSessionDelivery {
+
+    private final WebSocketHandler webSocketHandler;
+    private final Cache<String, CompletableFuture<Void>> deliveredIds;
+    private final long windowMillis;
+    private final int maxDigestEvents;
+    private final Map<String, List<Pending>> openWindows = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService windowCloser = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("notification-coalescer").daemon().factory());
+
+    public LocalSessionDelivery(
+            WebSocketHandler webSocketHandler,
+            @Value("${notifications.broker.dedup-window:5m}") Duration dedupWindow,
+            @Value("${notifications.broker.dedup-size:100000}") long dedupSize,
+            @Value("${notifications.coalescing.window:250ms}") Duration coalescingWindow,
+            @Value("${notifications.coalescing.max-events:50}") int maxDigestEvents
+    ) {
+        this.webSocketHandler = webSocketHandler;
+        this.deliveredIds = Caffeine.newBuilder()
+                .expireAfterWrite(dedupWindow)
+                .maximumSize(dedupSize)
+                .build();
+        this.windowMillis = coalescingWindow.toMillis();
+        this.maxDigestEvents = maxDigestEvents;
+    }
+
+    @PreDestroy
+    public void stop() {
+        windowCloser.shutdownNow();
+        // Lo pendiente se envía ya en lugar de perderse
+        openWindows.keySet().forEach(this::closeWindow);
+    }
+
+    /**
+     * @param message Mensaje a entregar
+     * @return Se completa al enviar el mensaje, o con el error del envío. Un duplicado devuelve la entrega del primero
+     */
+    public CompletableFuture<Void> deliver(UserMessage message) {
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        CompletableFuture<Void> previous = deliveredIds.asMap().putIfAbsent(message.id(), sent);
+        if (previous != null) {
+            log.debug("Se descarta el mensaje duplicado {}", message.id());
+            return previous;
+        }
+        Pending pending = new Pending(message, sent);
+        if (windowMillis > 0 && !openWindow(pending)) {
+            // Se enviará al cerrar la ventana abierta por un mensaje anterior
+            return sent;
+        }
+        try {
+            webSocketHandler.sendMessage(message.payload(), message.username());
+            sent.complete(null);
+        } catch (IOException | RuntimeException e) {
+            failed(pending, e);
+        }
+        return sent;
+    }
+
+    /**
+     * Abre la ventana del usuario si no la tiene, o si no añade el mensaje a los pendientes de la ventana abierta
+     *
+     * @return Si se ha abierto la ventana, y el mensaje hay que enviarlo ya
+     */
+    private boolean openWindow(Pending message) {
+        String username = message.message().username();
+        boolean[] opened = {false};
+        openWindows.compute(username, (key, pending) -> {
+            if (pending == null) {
+                opened[0] = true;
+                return new ArrayList<>();
+            }
+            pending.add(message);
+            return pending;
+        });
+        if (opened[0]) {
+            scheduleClose(username);
+        }
+        return opened[0];
+    }
+
+    private void scheduleClose(String username) {
+        try {
+            windowCloser.schedule(() -> closeWindow(username), windowMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Se está deteniendo la aplicación
+            closeWindow(username);
+        }
+    }
+
+    /**
+     * Envía lo que se ha juntado durante la ventana del usuario. Si no hay nada la ventana se cierra, y si no se vuelve
+     * a abrir para seguir agrupando la ráfaga
+     */
+    private void closeWindow(String username) {
+        List<List<Pending>> taken = new ArrayList<>(1);
+        openWindows.computeIfPresent(username, (key, pending) -> {
+            if (pending.isEmpty()) {
+                return null;
+            }
+            taken.add(pending);
+            return new ArrayList<>();
+        });
+        if (taken.isEmpty()) {
+            return;
+        }
+        List<Pending> batch = taken.getFirst();
+        List<String> frames = batch.stream().map(pending -> pending.message().payload()).toList();
+        String payload = frames.size() == 1 ? frames.getFirst() : NotificationFrame.digest(frames, maxDigestEvents);
+        try {
+            webSocketHandler.sendMessage(payload, username);
+            batch.forEach(pending -> pending.sent().complete(null));
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se han podido enviar {} notificaciones agrupadas a {}: {}", frames.size(), username, e.getMessage());
+            batch.forEach(pending -> failed(pending, e));
+        }
+        if (!windowCloser.isShutdown()) {
+            scheduleClose(username);
+        }
+    }
+
+    private void failed(Pending pending, Exception e) {
+        deliveredIds.asMap().remove(pending.message().id(), pending.sent());
+        pending.sent().completeExceptionally(e);
+    }
+
+    /**
+     * @param username Usuario
+     * @return Si el usuario tiene alguna sesión abierta en este nodo
+     */
+    public boolean hasSessions(String username) {
+        return webSocketHandler.hasSessions(username);
+    }
+
+    /**
+     * @return Usuarios con alguna sesión abierta en este nodo
+     */
+    public Set<String> connectedUsers() {
+        return webSocketHandler.connectedUsers();
+    }
+
+    /**
+     * Mensaje que espera a que se cierre la ventana de su usuario, con la entrega que se completa al enviarlo
+     */
+    private record Pending(UserMessage message, CompletableFuture<Void> sent) {
+    }
+}
@@ -0,0 +1,18 @@
+package vives.bancovives.notifications.websocket.broker;
+
+import vives.bancovives.notifications.websocket.config.SessionPresenceListener;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hace llegar los mensajes de un usuario a las sesiones de WebSocket que tenga abiertas, estén en el nodo que sea.
+ * Sabe qué usuarios tienen sesiones en este nodo porque el WebSocketHandler le avisa cuando se conectan y desconectan.
+ */
+public interface NotificationBroker extends SessionPresenceListener {
+
+    /**
+     * @param message Mensaje a enviar
+     * @return Se completa cuando el mensaje se ha entregado a los nodos del usuario, o con error si no ha sido posible
+     */
+    CompletableFuture<Void> publish(UserMessage message);
+}
@@ -0,0 +1,361 @@
+package vives.bancovives.notifications.websocket.broker;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Broker que reparte los mensajes entre los nodos a través de Redis. Es el que se usa por defecto
+ * ({@code notifications.broker.type=redis}).
+ * <p>
+ * Cada nodo apunta en Redis en qué nodos tiene sesiones cada usuario, en un conjunto ordenado
+ * {@code ws:presence:<usuario>} cuyos miembros son los nodos y su puntuación el momento en que caduca la entrada. Las
+ * entradas se renuevan periódicamente, así que las de un nodo que se cae desaparecen solas. Cada nodo escucha en su
+ * propio canal {@code ws:node:<nodo>}, y un mensaje solo se publica en los canales de los nodos en los que su usuario
+ * tiene sesiones, nunca a todos.
+ * <p>
+ * Los mensajes se publican por lotes: se juntan durante {@code notifications.broker.flush-interval} o hasta
+ * {@code notifications.broker.batch-size}, se buscan los nodos de todos sus usuarios en un solo pipeline y se envía
+ * una única publicación por nodo con todos sus mensajes. Los mensajes repetidos dentro de un lote se envían una vez, y
+ * los que llegan repetidos a un nodo los descarta {@link LocalSessionDelivery}.
+ * <p>
+ * Si Redis no está disponible para buscar los nodos se entregan solo a las sesiones de este nodo, para que un único
+ * nodo siga funcionando sin Redis. Si falla la publicación a otros nodos el envío termina con error y se reintenta.
+ * <p>
+ * La entrega a otros nodos es como mucho una vez: el envío se da por completado en cuanto Redis acepta la publicación,
+ * sin esperar al nodo que la recibe. Si ese nodo no está escuchando en ese momento, o no consigue entregarla a sus
+ * sesiones, la notificación se pierde y solo queda registrada en su log; no vuelve a la cola de salida. Las
+ * notificaciones son avisos y el estado real se consulta siempre en la API, así que no se confirma cada entrega
+ * entre nodos. La entrega a las sesiones de este nodo sí se espera y, si falla, se reintenta.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.broker.type", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisNotificationBroker implements NotificationBroker {
+
+    static final String PRESENCE_PREFIX = "ws:presence:";
+    static final String NODE_CHANNEL_PREFIX = "ws:node:";
+    private static final TypeReference<List<UserMessage>> MESSAGE_LIST = new TypeReference<>() {
+    };
+
+    private final StringRedisTemplate redisTemplate;
+    private final LocalSessionDelivery localDelivery;
+    private final ObjectMapper objectMapper;
+    private final RedisMessageListenerContainer container;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService deliveries = Executors.newVirtualThreadPerTaskExecutor();
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration presenceTtl;
+    private volatile Thread flusher;
+
+    public RedisNotificationBroker(
+            RedisConnectionFactory connectionFactory,
+            StringRedisTemplate redisTemplate,
+            LocalSessionDelivery localDelivery,
+            ObjectMapper objectMapper,
+            @Value("${notifications.broker.batch-size:500}") int batchSize,
+            @Value("${notifications.broker.flush-interval:5ms}") Duration flushInterval,
+            @Value("${notifications.broker.presence-ttl:30s}") Duration presenceTtl
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.localDelivery = localDelivery;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.presenceTtl = presenceTtl;
+        this.container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(this::onMessage, new ChannelTopic(NODE_CHANNEL_PREFIX + nodeId));
+        container.afterPropertiesSet();
+    }
+
+    @PostConstruct
+    public void start() {
+        Thread thread = Thread.ofVirtual().name("notification-broker").unstarted(this::flushLoop);
+        flusher = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        Thread thread = flusher;
+        flusher = null;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(flushInterval.toMillis() + 1000);
+        }
+        container.destroy();
+        deliveries.shutdown();
+        // Lo que quede en la cola lo reintentará el outbox
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(pending -> pending.future().completeExceptionally(
+                new IllegalStateException("El broker de notificaciones se ha detenido")));
+    }
+
+    @Override
+    public CompletableFuture<Void> publish(UserMessage message) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (flusher == null) {
+            future.completeExceptionally(new IllegalStateException("El broker de notificaciones no está en marcha"));
+            return future;
+        }
+        queue.add(new Pending(message, future));
+        return future;
+    }
+
+    @Override
+    public void userConnected(String username) {
+        // Fuera del hilo de la conexión para no retrasarla si Redis tarda; si falla se apunta en la siguiente renovación
+        deliveries.execute(() -> {
+            try {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    announce((StringRedisConnection) connection, username, System.currentTimeMillis());
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.debug("No se ha podido apuntar la presencia de {}: {}", username, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void userDisconnected(String username) {
+        deliveries.execute(() -> {
+            try {
+                redisTemplate.opsForZSet().remove(PRESENCE_PREFIX + username, nodeId);
+            } catch (RuntimeException e) {
+                log.debug("No se ha podido borrar la presencia de {}: {}", username, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Renueva la presencia de los usuarios conectados a este nodo y borra las entradas caducadas de otros nodos
+     */
+    @Scheduled(fixedDelayString = "${notifications.broker.presence-refresh:10000}")
+    public void refreshPresence() {
+        Set<String> users = localDelivery.connectedUsers();
+        if (users.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (String username : users) {
+                    announce(redis, username, now);
+                    redis.zRemRangeByScore(PRESENCE_PREFIX + username, Double.NEGATIVE_INFINITY, now);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido renovar la presencia de {} usuarios, se reintentará: {}", users.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Se suscribe al canal de este nodo si todavía no lo está
+     */
+    @Scheduled(fixedDelayString = "${notifications.broker.subscribe-retry-interval:30000}")
+    public void subscribe() {
+        if (container.isListening()) {
+            return;
+        }
+        try {
+            container.stop();
+            container.start();
+            log.info("Suscrito a las notificaciones del nodo {}", nodeId);
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido suscribir a las notificaciones del nodo, se reintentará: {}", e.getMessage());
+        }
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+
+    private void announce(StringRedisConnection redis, String username, long now) {
+        String key = PRESENCE_PREFIX + username;
+        redis.zAdd(key, now + presenceTtl.toMillis(), nodeId);
+        redis.pExpire(key, presenceTtl.toMillis() * 2);
+    }
+
+    private void flushLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (flusher != null) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                flush(List.copyOf(batch));
+                batch.clear();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Envía un lote de mensajes: a este nodo directamente y al resto con una publicación por nodo
+     *
+     * @param batch Mensajes pendientes
+     */
+    void flush(List<Pending> batch) {
+        // Los repetidos dentro del lote se envían una vez y se completan todos a la vez
+        Map<String, List<Pending>> byId = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            byId.computeIfAbsent(pending.message().id(), id -> new ArrayList<>()).add(pending);
+        }
+        List<UserMessage> messages = byId.values().stream().map(pendings -> pendings.getFirst().message()).toList();
+
+        Map<String, Set<String>> nodesByUser = findNodes(messages);
+        Map<String, List<UserMessage>> remoteByNode = new HashMap<>();
+        Map<String, CompletableFuture<Void>> localById = new HashMap<>();
+        for (UserMessage message : messages) {
+            Set<String> nodes = nodesByUser.getOrDefault(message.username(), Set.of());
+            for (String node : nodes) {
+                if (!node.equals(nodeId)) {
+                    remoteByNode.computeIfAbsent(node, n -> new ArrayList<>()).add(message);
+                }
+            }
+            // También si este nodo aún no ha apuntado su presencia en Redis
+            if (nodes.contains(nodeId) || localDelivery.hasSessions(message.username())) {
+                localById.put(message.id(), CompletableFuture.supplyAsync(() -> localDelivery.deliver(message), deliveries)
+                        .thenCompose(Function.identity()));
+            }
+        }
+
+        RuntimeException publishError = publishRemote(remoteByNode);
+        for (UserMessage message : messages) {
+            boolean remote = nodesByUser.getOrDefault(message.username(), Set.of()).stream().anyMatch(n -> !n.equals(nodeId));
+            CompletableFuture<Void> local = localById.getOrDefault(message.id(), CompletableFuture.completedFuture(null));
+            List<Pending> pendings = byId.get(message.id());
+            local.whenComplete((result, e) -> {
+                Throwable error = e != null ? e : (remote ? publishError : null);
+                for (Pending pending : pendings) {
+                    if (error == null) {
+                        pending.future().complete(null);
+                    } else {
+                        pending.future().completeExceptionally(error);
+                    }
+                }
+            });
+        }
+    }
+
+    private Map<String, Set<String>> findNodes(List<UserMessage> messages) {
+        List<String> usernames = messages.stream().map(UserMessage::username).distinct().toList();
+        String now = Long.toString(System.currentTimeMillis());
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                usernames.forEach(username -> redis.zRangeByScore(PRESENCE_PREFIX + username, now, "+inf"));
+                return null;
+            });
+            Map<String, Set<String>> nodesByUser = new HashMap<>();
+            for (int i = 0; i < usernames.size(); i++) {
+                if (results.get(i) instanceof Set<?> nodes && !nodes.isEmpty()) {
+                    nodesByUser.put(usernames.get(i), toStrings(nodes));
+                }
+            }
+            return nodesByUser;
+        } catch (RuntimeException e) {
+            log.warn("No se han podido buscar los nodos de {} usuarios, se envía solo a este nodo: {}",
+                    usernames.size(), e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private RuntimeException publishRemote(Map<String, List<UserMessage>> remoteByNode) {
+        if (remoteByNode.isEmpty()) {
+            return null;
+        }
+        try {
+            Map<String, String> payloads = new HashMap<>();
+            for (Map.Entry<String, List<UserMessage>> entry : remoteByNode.entrySet()) {
+                payloads.put(NODE_CHANNEL_PREFIX + entry.getKey(), objectMapper.writeValueAsString(entry.getValue()));
+            }
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                payloads.forEach(redis::publish);
+                return null;
+            });
+            return null;
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("No se han podido publicar los mensajes para {} nodos: {}", remoteByNode.size(), e.getMessage());
+            return e instanceof RuntimeException runtime ? runtime : new IllegalStateException(e);
+        }
+    }
+
+    private void onMessage(Message message, byte[] pattern) {
+        List<UserMessage> messages;
+        try {
+            messages = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), MESSAGE_LIST);
+        } catch (JsonProcessingException e) {
+            log.warn("Se descarta un lote de notificaciones mal formado: {}", e.getMessage());
+            return;
+        }
+        // El nodo que publicó ya dio el envío por completado: un fallo aquí solo se registra (entrega como mucho una vez)
+        messages.forEach(userMessage -> deliveries.execute(() -> localDelivery.deliver(userMessage)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        log.warn("No se ha podido entregar la notificación {}: {}", userMessage.id(), e.getMessage());
+                    }
+                })));
+    }
+
+    private static Set<String> toStrings(Set<?> values) {
+        Set<String> strings = new HashSet<>();
+        values.forEach(value -> strings.add(String.valueOf(value)));
+        return strings;
+    }
+
+    record Pending(UserMessage message, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,11 @@
+package vives.bancovives.notifications.websocket.broker;
+
+/**
+ * Mensaje para las sesiones de WebSocket de un usuario
+ *
+ * @param id       Identificador del mensaje, el mismo en cada reenvío, con el que se descartan los duplicados
+ * @param username Nombre del usuario destinatario
+ * @param payload  Contenido del mensaje
+ */
+public record UserMessage(String id, String username, String payload) {
+}
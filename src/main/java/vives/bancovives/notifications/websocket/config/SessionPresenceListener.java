@@ -0,0 +1,44 @@
+package vives.bancovives.notifications.websocket.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Recibe los avisos de cuándo un usuario abre su primera sesión de WebSocket en este nodo y cuándo cierra la última
+ */
+public interface SessionPresenceListener {
+
+    SessionPresenceListener NONE = new SessionPresenceListener() {
+        @Override
+        public void userConnected(String username) {
+        }
+
+        @Override
+        public void userDisconnected(String username) {
+        }
+    };
+
+    void userConnected(String username);
+
+    void userDisconnected(String username);
+
+    /**
+     * Avisa al oyente que haya en el contexto en el momento del aviso, para poder crear el WebSocketHandler antes que
+     * los beans que dependen de él y a la vez quieren recibir sus avisos
+     *
+     * @param listeners Oyentes del contexto
+     * @return Oyente que delega en el del contexto, si lo hay
+     */
+    static SessionPresenceListener lazy(ObjectProvider<? extends SessionPresenceListener> listeners) {
+        return new SessionPresenceListener() {
+            @Override
+            public void userConnected(String username) {
+                listeners.ifAvailable(listener -> listener.userConnected(username));
+            }
+
+            @Override
+            public void userDisconnected(String username) {
+                listeners.ifAvailable(listener -> listener.userDisconnected(username));
+            }
+        };
+    }
+}
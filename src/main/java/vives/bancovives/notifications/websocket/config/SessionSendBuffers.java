@@ -0,0 +1,184 @@
+package vives.bancovives.notifications.websocket.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envuelve cada sesión de WebSocket en un búfer de envío acotado, para que varios hilos puedan enviar a la vez a la
+ * misma sesión y un cliente lento no bloquee a quien le envía. Solo un hilo escribe en el socket; el resto deja su
+ * mensaje en el búfer y sigue.
+ * <p>
+ * Cuando el búfer de una sesión supera {@code notifications.websocket.buffer-size-limit}, según
+ * {@code notifications.websocket.overflow-strategy}:
+ * <ul>
+ *     <li>TERMINATE: se cierra la sesión, y el cliente tendrá que volver a conectarse.</li>
+ *     <li>DROP: se descartan los mensajes nuevos hasta que el cliente se ponga al día. Solo se cierra la sesión si el
+ *     búfer llega al doble del límite.</li>
+ * </ul>
+ * En ambos casos se cierra la sesión si un envío tarda más de {@code notifications.websocket.send-time-limit}.
+ * <p>
+ * Publica las métricas {@code websocket.send.buffer} (bytes pendientes), {@code websocket.send.queue} (mensajes
+ * pendientes), {@code websocket.send.dropped} (mensajes descartados, por {@code reason}: overflow si no cabían en el
+ * búfer y closed si quedaban pendientes al cerrarse la sesión) y {@code websocket.sessions.terminated} (sesiones
+ * cerradas por lentas).
+ */
+public class SessionSendBuffers {
+
+    private final Duration sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final OverflowStrategy overflowStrategy;
+    private final Set<BufferedSession> sessions = ConcurrentHashMap.newKeySet();
+    private final Counter overflowDropped;
+    private final Counter closedDropped;
+    private final Counter terminated;
+
+    public SessionSendBuffers(Duration sendTimeLimit, DataSize bufferSizeLimit, OverflowStrategy overflowStrategy,
+                              MeterRegistry meterRegistry) {
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = (int) bufferSizeLimit.toBytes();
+        this.overflowStrategy = overflowStrategy;
+        Gauge.builder("websocket.send.buffer", this, SessionSendBuffers::bufferedBytes)
+                .description("Bytes pendientes de enviar en los búferes de las sesiones de WebSocket")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("websocket.send.queue", this, SessionSendBuffers::queuedMessages)
+                .description("Mensajes pendientes de enviar en los búferes de las sesiones de WebSocket")
+                .register(meterRegistry);
+        this.overflowDropped = droppedCounter(meterRegistry, "overflow");
+        this.closedDropped = droppedCounter(meterRegistry, "closed");
+        this.terminated = Counter.builder("websocket.sessions.terminated")
+                .description("Sesiones de WebSocket cerradas por no recibir los mensajes a tiempo")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return Búferes con los límites por defecto: 10 segundos por envío y 512 KB por sesión, cerrando las sesiones
+     * que los superan
+     */
+    static SessionSendBuffers withDefaults() {
+        return new SessionSendBuffers(Duration.ofSeconds(10), DataSize.ofKilobytes(512), OverflowStrategy.TERMINATE,
+                new SimpleMeterRegistry());
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("websocket.send.dropped")
+                .description("Mensajes de WebSocket descartados sin enviar")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param session Sesión del cliente
+     * @return La sesión con su búfer de envío
+     */
+    WebSocketSession wrap(WebSocketSession session) {
+        BufferedSession buffered = new BufferedSession(new SentCounter(session));
+        sessions.add(buffered);
+        return buffered;
+    }
+
+    /**
+     * Deja de seguir una sesión que se ha cerrado, contando como descartados los mensajes que no llegó a enviar
+     *
+     * @param session Sesión devuelta por {@link #wrap(WebSocketSession)}
+     */
+    void release(WebSocketSession session) {
+        if (session instanceof BufferedSession buffered && sessions.remove(buffered)) {
+            closedDropped.increment(buffered.queued());
+        }
+    }
+
+    /**
+     * @return Sesiones que llevan más de {@code send-time-limit} enviando el mismo mensaje
+     */
+    List<WebSocketSession> stalled() {
+        long limit = sendTimeLimit.toMillis();
+        return sessions.stream()
+                .filter(session -> session.getTimeSinceSendStarted() > limit)
+                .map(WebSocketSession.class::cast)
+                .toList();
+    }
+
+    /**
+     * Cuenta una sesión cerrada por no recibir los mensajes a tiempo
+     */
+    void terminated() {
+        terminated.increment();
+    }
+
+    private long bufferedBytes() {
+        return sessions.stream().mapToLong(BufferedSession::getBufferSize).sum();
+    }
+
+    private long queuedMessages() {
+        return sessions.stream().mapToLong(BufferedSession::queued).sum();
+    }
+
+    /**
+     * Sesión con búfer que cuenta los mensajes que acepta en el búfer
+     */
+    private class BufferedSession extends ConcurrentWebSocketSessionDecorator {
+
+        private final boolean dropNew;
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong sent;
+
+        BufferedSession(SentCounter session) {
+            // Con DROP los mensajes que no caben se descartan aquí, y el límite del decorador queda como tope para
+            // los que se cuelan a la vez
+            super(session, (int) sendTimeLimit.toMillis(),
+                    overflowStrategy == OverflowStrategy.DROP ? bufferSizeLimit * 2 : bufferSizeLimit,
+                    OverflowStrategy.TERMINATE);
+            this.dropNew = overflowStrategy == OverflowStrategy.DROP;
+            this.sent = session.sent;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            int buffered = getBufferSize();
+            if (dropNew && buffered > 0 && buffered + message.getPayloadLength() > bufferSizeLimit) {
+                overflowDropped.increment();
+                return;
+            }
+            accepted.incrementAndGet();
+            super.sendMessage(message);
+        }
+
+        long queued() {
+            return Math.max(0, accepted.get() - sent.get());
+        }
+    }
+
+    /**
+     * Sesión que cuenta los mensajes que se empiezan a enviar por el socket, al sacarlos del búfer
+     */
+    private static class SentCounter extends WebSocketSessionDecorator {
+
+        private final AtomicLong sent = new AtomicLong();
+
+        SentCounter(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            sent.incrementAndGet();
+            super.sendMessage(message);
+        }
+    }
+}
@@ -1,18 +1,25 @@
 package vives.bancovives.notifications.websocket.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
+import vives.bancovives.notifications.websocket.broker.NotificationBroker;
 import vives.bancovives.rest.users.services.UsersService;
 import vives.bancovives.security.jwt.JwtService;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -22,11 +29,25 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     private final JwtService jwtService;
     private final UsersService usersService;
+    private final ObjectProvider<NotificationBroker> brokers;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${notifications.websocket.send-time-limit:10s}")
+    private Duration sendTimeLimit;
+
+    @Value("${notifications.websocket.buffer-size-limit:512KB}")
+    private DataSize bufferSizeLimit;
+
+    @Value("${notifications.websocket.overflow-strategy:terminate}")
+    private OverflowStrategy overflowStrategy;
 
     @Autowired
-    public WebSocketConfig(JwtService jwtService, UsersService usersService) {
+    public WebSocketConfig(JwtService jwtService, UsersService usersService, ObjectProvider<NotificationBroker> brokers,
+                           MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.usersService = usersService;
+        this.brokers = brokers;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -37,7 +58,9 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     @Bean
     public vives.bancovives.notifications.websocket.config.WebSocketHandler webSocketNotificationsHandler() {
-        return new vives.bancovives.notifications.websocket.config.WebSocketHandler("Notification", jwtService, usersService);
+        return new vives.bancovives.notifications.websocket.config.WebSocketHandler("Notification", jwtService, usersService,
+                SessionPresenceListener.lazy(brokers),
+                new SessionSendBuffers(sendTimeLimit, bufferSizeLimit, overflowStrategy, meterRegistry));
     }
 
     public static class CustomHandshakeInterceptor implements HandshakeInterceptor {
@@ -3,10 +3,12 @@ package vives.bancovives.notifications.websocket.config;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 import vives.bancovives.rest.users.models.User;
 import vives.bancovives.rest.users.services.UsersService;
@@ -16,23 +18,35 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class WebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable, WebSocketSender{
     private final String entity;
     private final JwtService jwtService;
     private UsersService userService;
+    private final SessionPresenceListener presenceListener;
+    private final SessionSendBuffers sendBuffers;
 
-    // Sesiones de los clientes conectados, para recorrelos y enviarles mensajes (patrón observer)
-    // es concurrente porque puede ser compartida por varios hilos
-    private final Set<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
+    // Sesiones de los clientes conectados indexadas por usuario y por id de sesión, para enviar un mensaje solo a las
+    // sesiones de su destinatario sin recorrer las del resto. Un usuario puede tener varias, una por dispositivo.
+    // Es concurrente porque se modifica y se recorre desde varios hilos a la vez. Se guardan las sesiones con su
+    // búfer de envío, que no son iguales a las que recibe el handler, por eso se indexan por id
+    private final Map<String, Map<String, WebSocketSession>> sessionsByUser = new ConcurrentHashMap<>();
 
     public WebSocketHandler(
             String entity, JwtService jwtService, UsersService usersService) {
+        this(entity, jwtService, usersService, SessionPresenceListener.NONE, SessionSendBuffers.withDefaults());
+    }
+
+    public WebSocketHandler(
+            String entity, JwtService jwtService, UsersService usersService, SessionPresenceListener presenceListener,
+            SessionSendBuffers sendBuffers) {
         this.entity = entity;
         this.jwtService = jwtService;
         this.userService = usersService;
+        this.presenceListener = presenceListener;
+        this.sendBuffers = sendBuffers;
     }
 
     /**
@@ -52,11 +66,10 @@ public class WebSocketHandler extends TextWebSocketHandler implements SubProtoco
             User user = userService.findUserByUsername(username);
             if (jwtService.isTokenValid(token,user)){
                 log.info("Sesión: {} - Usuario: {}", session, username);
-                attributes.put("username", username);
-                sessions.add(session);
+                WebSocketSession buffered = register(username, session);
                 TextMessage message = new TextMessage("Se ha conectado al websocket con el usuario: " + username);
                 log.info("Servidor envía: {}", message);
-                session.sendMessage(message);
+                buffered.sendMessage(message);
             }else {
                 log.warn("Token inválido, cerrando sesión: {}", session);
                 session.close(CloseStatus.NOT_ACCEPTABLE);
@@ -78,27 +91,72 @@ public class WebSocketHandler extends TextWebSocketHandler implements SubProtoco
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         log.info("Conexión cerrada con el servidor: " + status);
-        sessions.remove(session);
+        unregister(session);
     }
 
     /**
-     * Envía un mensaje a todos los clientes conectados
+     * Envía un mensaje a todas las sesiones abiertas de un usuario. Si falla el envío a una sesión se descarta y se
+     * sigue con las demás, para que un dispositivo desconectado no impida avisar al resto. Si otro hilo está enviando
+     * a la misma sesión el mensaje se deja en su búfer y no se espera, y si la sesión no recibe a tiempo se cierra
      *
-     * @param message Mensaje a enviar
+     * @param message  Mensaje a enviar
+     * @param username Nombre del usuario destinatario
      * @throws IOException Error al enviar el mensaje
      */
     @Override
-    public void sendMessage(String message, User user) throws IOException {
+    public void sendMessage(String message, String username) throws IOException {
         log.info("Enviar mensaje de cambios en la entidad: " + entity + " : " + message);
-        // Enviamos el mensaje a todos los clientes conectados
-        for (WebSocketSession session : sessions) {
-            if (session.isOpen() && session.getAttributes().get("username").equals(user.getUsername())) {
-                log.info("Servidor WS envía: " + message);
-                session.sendMessage(new TextMessage(message));
+        Map<String, WebSocketSession> sessions = sessionsByUser.get(username);
+        if (sessions == null) {
+            return;
+        }
+        TextMessage textMessage = new TextMessage(message);
+        for (WebSocketSession session : sessions.values()) {
+            if (!session.isOpen()) {
+                unregister(session);
+                continue;
+            }
+            try {
+                log.debug("Servidor WS envía a la sesión {}: {}", session.getId(), message);
+                session.sendMessage(textMessage);
+            } catch (SessionLimitExceededException e) {
+                terminate(session, e.getMessage());
+            } catch (IOException e) {
+                log.warn("No se ha podido enviar el mensaje a la sesión {}: {}", session.getId(), e.getMessage());
+                unregister(session);
             }
         }
     }
 
+    /**
+     * Cierra las sesiones que llevan más de {@code notifications.websocket.send-time-limit} enviando un mensaje. El
+     * límite solo se comprueba al enviar otro mensaje a la sesión, y así se cierran también las de los usuarios que
+     * no reciben más mensajes
+     */
+    @Scheduled(fixedDelayString = "${notifications.websocket.stall-check-interval:5000}")
+    public void closeStalledSessions() {
+        sendBuffers.stalled().forEach(session -> terminate(session, "envío bloqueado"));
+    }
+
+    /**
+     * Cierra una sesión que no recibe los mensajes a tiempo. Se cierra en otro hilo porque el que está enviando a la
+     * sesión puede tenerla bloqueada
+     */
+    private void terminate(WebSocketSession session, String reason) {
+        if (!unregister(session)) {
+            return;
+        }
+        log.warn("Se cierra la sesión {} por no recibir los mensajes a tiempo: {}", session.getId(), reason);
+        sendBuffers.terminated();
+        Thread.ofVirtual().start(() -> {
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Error al cerrar la sesión {}: {}", session.getId(), e.getMessage());
+            }
+        });
+    }
+
     /**
      * Maneja los errores de transporte que le llegan al servidor
      *
@@ -109,6 +167,88 @@ public class WebSocketHandler extends TextWebSocketHandler implements SubProtoco
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         log.info("Error de transporte con el servidor: " + exception.getMessage());
+        unregister(session);
+        if (session.isOpen()) {
+            session.close(CloseStatus.SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Añade una sesión, con su búfer de envío, a las de su usuario. Si es la primera del usuario se avisa a
+     * {@link SessionPresenceListener}
+     *
+     * @param username Usuario de la sesión
+     * @param session  Sesión del cliente
+     * @return La sesión con su búfer, a través de la que hay que enviarle los mensajes
+     */
+    WebSocketSession register(String username, WebSocketSession session) {
+        session.getAttributes().put("username", username);
+        WebSocketSession buffered = sendBuffers.wrap(session);
+        // Se añade dentro de compute para que no se pierda si a la vez se borra el conjunto vacío del usuario
+        boolean[] first = {false};
+        sessionsByUser.compute(username, (key, sessions) -> {
+            first[0] = sessions == null;
+            Map<String, WebSocketSession> userSessions = sessions != null ? sessions : new ConcurrentHashMap<>();
+            userSessions.put(session.getId(), buffered);
+            return userSessions;
+        });
+        if (first[0]) {
+            presenceListener.userConnected(username);
+        }
+        return buffered;
+    }
+
+    /**
+     * Quita una sesión de las de su usuario, y al usuario del índice si no le quedan sesiones, avisando entonces a
+     * {@link SessionPresenceListener}
+     *
+     * @param session Sesión del cliente, con o sin su búfer
+     * @return Si la sesión estaba registrada
+     */
+    boolean unregister(WebSocketSession session) {
+        Object username = session.getAttributes().get("username");
+        if (username == null) {
+            return false;
+        }
+        WebSocketSession[] removed = {null};
+        boolean[] last = {false};
+        sessionsByUser.computeIfPresent(username.toString(), (key, sessions) -> {
+            removed[0] = sessions.remove(session.getId());
+            last[0] = removed[0] != null && sessions.isEmpty();
+            return sessions.isEmpty() ? null : sessions;
+        });
+        if (removed[0] == null) {
+            return false;
+        }
+        sendBuffers.release(removed[0]);
+        if (last[0]) {
+            presenceListener.userDisconnected(username.toString());
+        }
+        return true;
+    }
+
+    /**
+     * @param username Usuario
+     * @return Si el usuario tiene alguna sesión abierta en este nodo
+     */
+    public boolean hasSessions(String username) {
+        return sessionsByUser.containsKey(username);
+    }
+
+    /**
+     * @return Usuarios con alguna sesión abierta en este nodo
+     */
+    public Set<String> connectedUsers() {
+        return Set.copyOf(sessionsByUser.keySet());
+    }
+
+    /**
+     * @param username Usuario
+     * @return Número de sesiones abiertas del usuario
+     */
+    int sessionCount(String username) {
+        Map<String, WebSocketSession> sessions = sessionsByUser.get(username);
+        return sessions == null ? 0 : sessions.size();
     }
 
     /**
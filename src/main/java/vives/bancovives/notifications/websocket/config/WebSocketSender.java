@@ -9,6 +9,10 @@ import java.io.IOException;
  */
 public interface WebSocketSender {
 
-    void sendMessage(String message, User user) throws IOException;
+    void sendMessage(String message, String username) throws IOException;
+
+    default void sendMessage(String message, User user) throws IOException {
+        sendMessage(message, user.getUsername());
+    }
 
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.data.mongodb.core.mapping.DBRef;
+import vives.bancovives.rest.accounts.service.AccountCacheListener;
 import vives.bancovives.rest.clients.model.Client;
 import vives.bancovives.rest.products.accounttype.model.AccountType;
 import vives.bancovives.utils.IdGenerator;
@@ -16,16 +17,17 @@ import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Data
 @Builder
 @Entity
-@Table(name = "accounts")
+@Table(name = "accounts", indexes = @Index(name = "idx_accounts_interest_day_id", columnList = "interest_day, id"))
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, AccountCacheListener.class})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Account implements Serializable {
 
@@ -78,11 +80,32 @@ public class Account implements Serializable {
     @Column(name = "is_deleted")
     private boolean isDeleted = false;
 
-    // Método para generar el IBAN automáticamente
+    /**
+     * Versión para el control optimista de concurrencia sobre el saldo
+     */
+    @Version
+    private Long version;
+
+    /**
+     * Día del mes en el que se abonan los intereses, el de creación de la cuenta
+     */
+    @Column(name = "interest_day")
+    private Integer interestDay;
+
+    /**
+     * Fecha del último abono de intereses, para no abonarlos dos veces en el mismo mes
+     */
+    @Column(name = "last_interest_date")
+    private LocalDate lastInterestDate;
+
+    // Método para generar el IBAN y el día de abono de intereses automáticamente
     @PrePersist
     private void generateIban() {
         if (this.iban == null || this.iban.isEmpty()) {
             this.iban = IbanGenerator.generateIban("ES");
         }
+        if (this.interestDay == null) {
+            this.interestDay = (this.createdAt != null ? this.createdAt : LocalDateTime.now()).getDayOfMonth();
+        }
     }
 }
\ No newline at end of file
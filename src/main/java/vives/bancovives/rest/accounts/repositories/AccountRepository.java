@@ -1,16 +1,43 @@
 package vives.bancovives.rest.accounts.repositories;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import vives.bancovives.rest.accounts.model.Account;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface AccountRepository extends JpaRepository<Account, UUID>, JpaSpecificationExecutor<Account> {
     Optional<Account> findByPublicId(String id);
+    @EntityGraph(attributePaths = {"accountType", "client", "client.user"})
     Optional<Account> findByIban(String iban);
-    List<Account> findAllByAccountType_InterestNotNull();
+    boolean existsByIbanAndClient_User_Username(String iban, String username);
+    @EntityGraph(attributePaths = {"accountType", "client", "client.user"})
+    List<Account> findAllWithClientByIbanIn(Collection<String> ibans);
+    @EntityGraph(attributePaths = {"accountType", "client"})
+    List<Account> findAllByIdIn(Collection<UUID> ids);
+    @Query("SELECT a.id FROM Account a WHERE a.interestDay IN :days AND a.accountType.interest > 0 AND a.balance > 0 AND a.isDeleted = false " +
+            "AND (a.lastInterestDate IS NULL OR a.lastInterestDate < :period) ORDER BY a.id")
+    List<UUID> findInterestDueIds(@Param("days") Collection<Integer> days, @Param("period") LocalDate period, Pageable pageable);
+    @Query("SELECT a.id FROM Account a WHERE a.interestDay IN :days AND a.accountType.interest > 0 AND a.balance > 0 AND a.isDeleted = false " +
+            "AND (a.lastInterestDate IS NULL OR a.lastInterestDate < :period) AND a.id > :lastId ORDER BY a.id")
+    List<UUID> findInterestDueIdsAfter(@Param("days") Collection<Integer> days, @Param("period") LocalDate period, @Param("lastId") UUID lastId, Pageable pageable);
     List<Account> findAllByClient_User_Username(String username);
+    @Query("SELECT a.iban FROM Account a WHERE a.client.user.username = :username")
+    List<String> findIbansByClient_User_Username(@Param("username") String username);
+    /**
+     * Actualiza el saldo de una cuenta solo si sigue teniendo la versión indicada, sin leerla antes
+     * @return Número de cuentas actualizadas, 0 si otra transacción la ha modificado
+     */
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = :balance, a.version = a.version + 1 WHERE a.id = :id AND a.version = :version")
+    int updateBalance(@Param("id") UUID id, @Param("balance") double balance, @Param("version") Long version);
 }
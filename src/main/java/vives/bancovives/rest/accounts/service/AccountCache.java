@@ -0,0 +1,92 @@
+package vives.bancovives.rest.accounts.service;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import vives.bancovives.config.cache.AliasedCache;
+import vives.bancovives.config.cache.codec.CachedAccount;
+import vives.bancovives.rest.accounts.model.Account;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caché de cuentas accesible por su id público y por su iban. Las cuentas se guardan una sola vez, con su id público,
+ * y el iban apunta a ella, por lo que al borrar una cuenta de la caché dejan de valer a la vez las dos claves.
+ * <p>
+ * {@link AccountCacheListener} la descarta cada vez que se confirma un cambio en una cuenta, sea cual sea el servicio
+ * que la modifica, y los movimientos guardan directamente las cuentas que actualizan. Las cuentas devueltas son copias desligadas de la base de datos: para guardar
+ * cambios sobre ellas se comprueba su versión, y si otra transacción la ha modificado antes se rechaza la escritura.
+ */
+@Component
+public class AccountCache {
+
+    /**
+     * Nombre de la caché de cuentas
+     */
+    public static final String CACHE_NAME = "accounts";
+
+    private static final String IBAN = "iban";
+
+    private final AliasedCache<Account> cache;
+
+    public AccountCache(CacheManager cacheManager) {
+        this.cache = new AliasedCache<>(cacheManager.getCache(CACHE_NAME), Account.class, Account::getPublicId,
+                Map.of(IBAN, Account::getIban),
+                account -> account.getVersion() == null ? -1 : account.getVersion(),
+                account -> CachedAccount.from(account).toEntity());
+    }
+
+    /**
+     * @param publicId Id público de la cuenta
+     * @param loader   Carga la cuenta de la base de datos si no está en la caché
+     * @return La cuenta
+     */
+    public Account findByPublicId(String publicId, Supplier<Account> loader) {
+        return cache.get(publicId, loader);
+    }
+
+    /**
+     * @param iban   Iban de la cuenta
+     * @param loader Carga la cuenta de la base de datos si no está en la caché
+     * @return La cuenta
+     */
+    public Account findByIban(String iban, Supplier<Account> loader) {
+        return cache.getByAlias(IBAN, iban, loader);
+    }
+
+    /**
+     * @param account Cuenta tal como ha quedado en la base de datos
+     */
+    public void put(Account account) {
+        cache.put(account);
+    }
+
+    /**
+     * @param accounts Cuentas recién cargadas de la base de datos, que se guardan de una vez
+     */
+    public void putAllLoaded(Collection<Account> accounts) {
+        cache.putAllLoaded(accounts);
+    }
+
+    /**
+     * @param publicId Id público de la cuenta
+     */
+    public void evict(String publicId) {
+        cache.evict(publicId);
+    }
+
+    /**
+     * @param publicIds Ids públicos de las cuentas, que se borran de una vez
+     */
+    public void evictAll(Collection<String> publicIds) {
+        cache.evictAll(publicIds);
+    }
+
+    /**
+     * @param iban Iban de la cuenta
+     */
+    public void evictByIban(String iban) {
+        cache.evictByAlias(IBAN, iban);
+    }
+}
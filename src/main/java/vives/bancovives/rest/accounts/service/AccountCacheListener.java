@@ -0,0 +1,47 @@
+package vives.bancovives.rest.accounts.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import vives.bancovives.config.cache.AfterCommit;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.service.CardCache;
+
+import java.util.Collection;
+
+/**
+ * Mantiene {@link AccountCache} al día con cada cambio que se confirma en una cuenta, venga del servicio que venga:
+ * descarta la cuenta y la tarjeta de la cuenta, que lleva una copia de ella, para que se vuelvan a cargar al pedirse.
+ * <p>
+ * Las cuentas no se vuelven a guardar en la caché: un proceso masivo, como el abono de intereses, no debe llenarla de
+ * cuentas que nadie va a pedir. Los borrados de una misma transacción se hacen juntos al confirmarse, con un solo
+ * viaje a Redis por caché.
+ * <p>
+ * Hibernate lo crea a través de Spring; las cachés se piden al usarse para no depender de ellas al arrancar JPA.
+ */
+public class AccountCacheListener {
+
+    private final ObjectProvider<AccountCache> accountCache;
+    private final ObjectProvider<CardCache> cardCache;
+
+    public AccountCacheListener(ObjectProvider<AccountCache> accountCache, ObjectProvider<CardCache> cardCache) {
+        this.accountCache = accountCache;
+        this.cardCache = cardCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Account account) {
+        AfterCommit.collect(AccountCacheListener.class, new ChangedAccount(account.getPublicId(), account.getIban()), this::evict);
+    }
+
+    private void evict(Collection<ChangedAccount> accounts) {
+        accountCache.getObject().evictAll(accounts.stream().map(ChangedAccount::publicId).toList());
+        cardCache.getObject().evictAllByAccountIban(accounts.stream().map(ChangedAccount::iban).toList());
+    }
+
+    private record ChangedAccount(String publicId, String iban) {
+    }
+}
@@ -2,10 +2,6 @@ package vives.bancovives.rest.accounts.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -31,27 +27,31 @@ import java.util.Optional;
 
 /**
  * Implementacion del servicio para manejar cuentas.
+ * Las búsquedas por id público y por iban pasan por {@link AccountCache}, que se actualiza sola al confirmar cualquier
+ * cambio en una cuenta.
  */
 @Service
 @Slf4j
-@CacheConfig(cacheNames = {"accounts"})
 public class AccountServiceImpl  implements AccountService {
     
     private final AccountRepository accountRepository;
     private final ClientRepository clientRepository;
     private final AccountTypeRepository accountTypeRepository;
+    private final AccountCache accountCache;
     /**
      * Constructor para AccountServiceImpl.
      *
      * @param accountRepository el repositorio de la cuenta
      * @param clientRepository el repositorio del cliente
      * @param accountTypeRepository el repositorio de tipo de cuenta
+     * @param accountCache la caché de cuentas
      */
     @Autowired
-    public AccountServiceImpl(AccountRepository accountRepository, ClientRepository clientRepository, AccountTypeRepository accountTypeRepository) {
+    public AccountServiceImpl(AccountRepository accountRepository, ClientRepository clientRepository, AccountTypeRepository accountTypeRepository, AccountCache accountCache) {
         this.accountRepository = accountRepository;
         this.clientRepository = clientRepository;
         this.accountTypeRepository = accountTypeRepository;
+        this.accountCache = accountCache;
     }
     /**
      * Encuentra todas las cuentas basadas en los criterios dados.
@@ -101,10 +101,9 @@ public class AccountServiceImpl  implements AccountService {
      * @throws AccountNotFoundException si la cuenta no se encuentra
      */
     @Override
-    @Cacheable(key = "#id")
     public Account findById(String id) {
         log.info("Buscando cuenta por id: " + id);
-        return existsAccountByPublicId(id);
+        return accountCache.findByPublicId(id, () -> existsAccountByPublicId(id));
     }
     /**
      * Encuentra una cuenta por su IBAN.
@@ -116,7 +115,8 @@ public class AccountServiceImpl  implements AccountService {
     @Override
     public Account findByIban(String iban) {
         log.info("Buscando cuenta por iban: {}", iban);
-        return accountRepository.findByIban(iban).orElseThrow(() -> new AccountNotFoundException("Cuenta no encontrada con iban " + iban));
+        return accountCache.findByIban(iban, () -> accountRepository.findByIban(iban)
+                .orElseThrow(() -> new AccountNotFoundException("Cuenta no encontrada con iban " + iban)));
     }
     /**
      * Guarda una nueva cuenta.
@@ -126,7 +126,6 @@ public class AccountServiceImpl  implements AccountService {
      * @throws AccountConflictException si ya existe una cuenta con el mismo IBAN
      */
     @Override
-    @CachePut(key = "#result.id")
     public Account save (InputAccount inputAccount){
         log.info("Guardando cuenta");
         Client client = existClientByDniAndValidated(inputAccount.getDni());
@@ -145,7 +144,6 @@ public class AccountServiceImpl  implements AccountService {
      * @throws AccountNotFoundException si la cuenta no se encuentra
      */
     @Override
-    @CacheEvict(key = "#id")
     public Account deleteById(String id){
         log.info("Eliminando cuenta con el id" + id );
         Account account = existsAccountByPublicId(id);
@@ -162,7 +160,6 @@ public class AccountServiceImpl  implements AccountService {
      * @throws AccountNotFoundException si la cuenta no se encuentra
      * @throws ClientBadRequest si el DNI del cliente no coincide
      */
-    @CachePut(key = "#id")
     @Override
     public Account updateById(String id, InputAccount updatedAccount) {
         log.info("Actualizando la cuenta con id " + id);
@@ -60,6 +60,7 @@ public class CardMapper {
                 .expirationDate(card.getExpirationDate())
                 .creationDate(card.getCreationDate())
                 .lastUpdate(LocalDateTime.now())
+                .version(card.getVersion())
                 .build();
     }
 
@@ -12,11 +12,15 @@ import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.service.CardCacheListener;
 import vives.bancovives.rest.products.cardtype.model.CardType;
 import vives.bancovives.utils.IdGenerator;
 
 import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
 import java.util.UUID;
 
 @Data
@@ -25,7 +29,7 @@ import java.util.UUID;
 @Table(name = "cards")
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, CardCacheListener.class})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Card implements Serializable {
     @Id
@@ -63,16 +67,42 @@ public class Card implements Serializable {
     @JsonIgnoreProperties("card")
     private Account account;
 
-
+    /**
+     * Gasto del día indicado en {@link #spentTodayDate}
+     */
     @Builder.Default
     private double spentToday = 0;
 
+    /**
+     * Gasto de la semana ISO que empieza el lunes indicado en {@link #spentThisWeekStart}
+     */
     @Builder.Default
     private double spentThisWeek = 0;
 
+    /**
+     * Gasto del mes que empieza el día indicado en {@link #spentThisMonthStart}
+     */
     @Builder.Default
     private double spentThisMonth = 0;
 
+    /**
+     * Día al que corresponde el gasto diario
+     */
+    @Column(name = "spent_today_date")
+    private LocalDate spentTodayDate;
+
+    /**
+     * Lunes de la semana a la que corresponde el gasto semanal
+     */
+    @Column(name = "spent_this_week_start")
+    private LocalDate spentThisWeekStart;
+
+    /**
+     * Primer día del mes al que corresponde el gasto mensual
+     */
+    @Column(name = "spent_this_month_start")
+    private LocalDate spentThisMonthStart;
+
     @DecimalMin(value = "0.1", message = "El límite diario no puede ser negativo")
     @Column(name = "daily_limit", nullable = false)
     @Builder.Default
@@ -109,4 +139,57 @@ public class Card implements Serializable {
     @NotNull
     @Column(name = "updated_at")
     private LocalDateTime lastUpdate = LocalDateTime.now();
+
+    /**
+     * Versión para el control optimista de concurrencia sobre los gastos de la tarjeta
+     */
+    @Version
+    private Long version;
+
+    /**
+     * Pone a cero los gastos cuyo periodo ha terminado y los asigna al periodo actual. Así los gastos se renuevan la
+     * primera vez que se usa la tarjeta en un nuevo día, semana o mes, sin resetear todas las tarjetas cada noche.
+     * Un gasto sin periodo, guardado antes de que existieran, se asigna al periodo actual conservando su valor
+     *
+     * @param today Día actual
+     */
+    public void rollSpendingPeriods(LocalDate today) {
+        if (!today.equals(spentTodayDate)) {
+            spentToday = spentTodayDate == null ? spentToday : 0;
+            spentTodayDate = today;
+        }
+        LocalDate weekStart = weekStart(today);
+        if (!weekStart.equals(spentThisWeekStart)) {
+            spentThisWeek = spentThisWeekStart == null ? spentThisWeek : 0;
+            spentThisWeekStart = weekStart;
+        }
+        LocalDate monthStart = today.withDayOfMonth(1);
+        if (!monthStart.equals(spentThisMonthStart)) {
+            spentThisMonth = spentThisMonthStart == null ? spentThisMonth : 0;
+            spentThisMonthStart = monthStart;
+        }
+    }
+
+    /**
+     * Suma un gasto a los periodos actuales de la tarjeta
+     *
+     * @param amount Cantidad gastada
+     * @param today  Día del gasto
+     */
+    public void addSpending(double amount, LocalDate today) {
+        rollSpendingPeriods(today);
+        spentToday += amount;
+        spentThisWeek += amount;
+        spentThisMonth += amount;
+    }
+
+    /**
+     * Lunes de la semana ISO de una fecha, independiente de la configuración regional del servidor
+     *
+     * @param date Fecha
+     * @return Primer día de la semana
+     */
+    public static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
 }
\ No newline at end of file
@@ -1,10 +1,16 @@
 package vives.bancovives.rest.cards.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vives.bancovives.rest.cards.model.Card;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -14,7 +20,24 @@ public interface CardsRepository extends JpaRepository<Card, String>, JpaSpecifi
 
     Optional<Card> findByPublicId(String id);
 
+    @EntityGraph(attributePaths = {"cardType", "account", "account.accountType", "account.client", "account.client.user"})
     Optional<Card> findByCardNumber(String cardNumber);
 
+    @EntityGraph(attributePaths = {"cardType", "account", "account.accountType", "account.client", "account.client.user"})
+    List<Card> findAllByCardNumberIn(Collection<String> cardNumbers);
+
     boolean existsByAccount_Iban(String iban);
+
+    /**
+     * Actualiza los gastos acumulados de una tarjeta solo si sigue teniendo la versión indicada, sin leerla antes
+     *
+     * @param card Tarjeta con los gastos nuevos y la versión que se leyó
+     * @return Número de tarjetas actualizadas, 0 si otra transacción la ha modificado
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.spentToday = :#{#card.spentToday}, c.spentThisWeek = :#{#card.spentThisWeek}, " +
+            "c.spentThisMonth = :#{#card.spentThisMonth}, c.spentTodayDate = :#{#card.spentTodayDate}, " +
+            "c.spentThisWeekStart = :#{#card.spentThisWeekStart}, c.spentThisMonthStart = :#{#card.spentThisMonthStart}, " +
+            "c.version = c.version + 1 WHERE c.id = :#{#card.id} AND c.version = :#{#card.version}")
+    int updateSpending(@Param("card") Card card);
 }
\ No newline at end of file
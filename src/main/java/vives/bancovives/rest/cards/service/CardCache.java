@@ -0,0 +1,88 @@
+package vives.bancovives.rest.cards.service;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import vives.bancovives.config.cache.AliasedCache;
+import vives.bancovives.config.cache.codec.CachedCard;
+import vives.bancovives.rest.cards.model.Card;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caché de tarjetas accesible por su id público y por su número, que apuntan a una misma entrada. También se guarda
+ * el iban de la cuenta de cada tarjeta, para poder descartarla cuando cambia la cuenta, que va copiada dentro.
+ * <p>
+ * Se actualiza desde {@link CardCacheListener} cada vez que se confirma un cambio en una tarjeta, y devuelve copias
+ * desligadas de la base de datos, igual que {@link vives.bancovives.rest.accounts.service.AccountCache}.
+ */
+@Component
+public class CardCache {
+
+    /**
+     * Nombre de la caché de tarjetas
+     */
+    public static final String CACHE_NAME = "cards";
+
+    private static final String CARD_NUMBER = "cardNumber";
+    private static final String ACCOUNT = "account";
+
+    private final AliasedCache<Card> cache;
+
+    public CardCache(CacheManager cacheManager) {
+        this.cache = new AliasedCache<>(cacheManager.getCache(CACHE_NAME), Card.class, Card::getPublicId,
+                Map.of(CARD_NUMBER, Card::getCardNumber,
+                        ACCOUNT, card -> card.getAccount() == null ? null : card.getAccount().getIban()),
+                card -> card.getVersion() == null ? -1 : card.getVersion(),
+                card -> CachedCard.from(card).toEntity());
+    }
+
+    /**
+     * @param publicId Id público de la tarjeta
+     * @param loader   Carga la tarjeta de la base de datos si no está en la caché
+     * @return La tarjeta
+     */
+    public Card findByPublicId(String publicId, Supplier<Card> loader) {
+        return cache.get(publicId, loader);
+    }
+
+    /**
+     * @param cardNumber Número de la tarjeta
+     * @param loader     Carga la tarjeta de la base de datos si no está en la caché
+     * @return La tarjeta
+     */
+    public Card findByCardNumber(String cardNumber, Supplier<Card> loader) {
+        return cache.getByAlias(CARD_NUMBER, cardNumber, loader);
+    }
+
+    /**
+     * @param card Tarjeta tal como ha quedado en la base de datos
+     */
+    public void put(Card card) {
+        cache.put(card);
+    }
+
+    /**
+     * @param publicId Id público de la tarjeta
+     */
+    public void evict(String publicId) {
+        cache.evict(publicId);
+    }
+
+    /**
+     * Descarta la tarjeta de una cuenta, que lleva una copia de la cuenta
+     *
+     * @param iban Iban de la cuenta
+     */
+    public void evictByAccountIban(String iban) {
+        cache.evictByAlias(ACCOUNT, iban);
+    }
+
+    /**
+     * @param ibans Ibanes de las cuentas cuyas tarjetas se borran de una vez
+     */
+    public void evictAllByAccountIban(Collection<String> ibans) {
+        cache.evictAllByAlias(ACCOUNT, ibans);
+    }
+}
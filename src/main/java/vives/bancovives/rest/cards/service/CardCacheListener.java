@@ -0,0 +1,33 @@
+package vives.bancovives.rest.cards.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import vives.bancovives.config.cache.AfterCommit;
+import vives.bancovives.rest.cards.model.Card;
+
+/**
+ * Mantiene {@link CardCache} al día con cada cambio que se confirma en una tarjeta, venga del servicio que venga.
+ * <p>
+ * Hibernate lo crea a través de Spring; la caché se pide al usarse para no depender de ella al arrancar JPA.
+ */
+public class CardCacheListener {
+
+    private final ObjectProvider<CardCache> cardCache;
+
+    public CardCacheListener(ObjectProvider<CardCache> cardCache) {
+        this.cardCache = cardCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Card card) {
+        AfterCommit.run(() -> cardCache.getObject().put(card));
+    }
+
+    @PostRemove
+    public void onRemove(Card card) {
+        AfterCommit.run(() -> cardCache.getObject().evict(card.getPublicId()));
+    }
+}
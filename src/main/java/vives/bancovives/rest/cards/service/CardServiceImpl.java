@@ -2,17 +2,10 @@ package vives.bancovives.rest.cards.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import vives.bancovives.rest.accounts.exception.AccountException;
 import vives.bancovives.rest.accounts.model.Account;
 import vives.bancovives.rest.accounts.service.AccountService;
@@ -28,30 +21,29 @@ import vives.bancovives.rest.products.cardtype.model.CardType;
 import vives.bancovives.rest.products.cardtype.service.CardTypeService;
 import vives.bancovives.utils.card.CreditCardGenerator;
 
-import java.time.DayOfWeek;
 import java.time.LocalDateTime;
-import java.time.temporal.WeekFields;
-import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
 
 /**
  * Implementación del servicio de tarjetas.
+ * Las búsquedas por id público pasan por {@link CardCache}, que se actualiza sola al confirmar cualquier cambio en una
+ * tarjeta.
  */
 @Service
 @Slf4j
-@CacheConfig(cacheNames = {"cards"})
 public class CardServiceImpl implements CardService {
 
     private final CardsRepository repository;
     private final CardTypeService repositoryCardType;
     private final AccountService accountRepository;
+    private final CardCache cardCache;
 
     @Autowired
-    public CardServiceImpl(CardsRepository repository, CardTypeService repositoryCardType, AccountService accountRepository) {
+    public CardServiceImpl(CardsRepository repository, CardTypeService repositoryCardType, AccountService accountRepository, CardCache cardCache) {
         this.repository = repository;
         this.repositoryCardType = repositoryCardType;
         this.accountRepository = accountRepository;
+        this.cardCache = cardCache;
     }
 
     /**
@@ -101,9 +93,19 @@ public class CardServiceImpl implements CardService {
      * @return La tarjeta encontrada.
      */
     @Override
-    @Cacheable(key = "#id")
     public Card findById(String id) {
         log.info("Buscando la tarjeta con id: " + id);
+        return cardCache.findByPublicId(id, () -> existsCardByPublicId(id));
+    }
+
+    /**
+     * Busca una tarjeta por su ID en la base de datos, sin pasar por la caché, para modificarla.
+     *
+     * @param id ID de la tarjeta.
+     * @return La tarjeta encontrada.
+     * @throws CardDoesNotExistException si la tarjeta no existe.
+     */
+    public Card existsCardByPublicId(String id) {
         return repository.findByPublicId(id).orElseThrow(
                 () -> new CardDoesNotExistException("La tarjeta con id: " + id + " no existe"));
     }
@@ -213,7 +215,6 @@ public class CardServiceImpl implements CardService {
      * @return La tarjeta guardada.
      */
     @Override
-    @CachePut(key = "#result.id")
     public Card save(InputCard card) {
         log.info("Saving card: " + card);
         Account account = validationAccount(card.getAccount());
@@ -231,10 +232,9 @@ public class CardServiceImpl implements CardService {
      * @return La tarjeta eliminada.
      */
     @Override
-    @CacheEvict(key = "#id")
     public Card deleteById(String id) {
         log.info("Eliminando la tarjeta con id: " + id);
-        Card result = findById(id);
+        Card result = existsCardByPublicId(id);
         result.setIsDeleted(true);
         result.setLastUpdate(LocalDateTime.now());
         return repository.save(result);
@@ -248,50 +248,10 @@ public class CardServiceImpl implements CardService {
      * @return La tarjeta actualizada.
      */
     @Override
-    @CachePut(key = "#id")
     public Card updateById(String id, UpdateRequestCard updateCard) {
         log.info("Actualizando la tarjeta con id: " + id);
-        Card existingCard = findById(id);
+        Card existingCard = existsCardByPublicId(id);
         Card updatedCard = CardMapper.toCard(updateCard, existingCard);
         return repository.save(updatedCard);
     }
-
-    /**
-     * Resetea los montos gastados de las tarjetas en lotes.
-     */
-    @Scheduled(cron = "0 0 0 * * ?")
-    @Transactional
-    public void resetSpentAmountsInBatches() {
-        log.info("Reseteando los montos gastados de las tarjetas en lotes");
-        int pageSize = 200;
-        Pageable pageable = PageRequest.of(0, pageSize);
-        Page<Card> page;
-
-        do {
-            page = repository.findAll(pageable);
-            resetSpentAmountsForCards(page.getContent());
-            pageable = page.nextPageable();
-        } while (!page.isLast());
-    }
-
-    /**
-     * Resetea los montos gastados para una lista de tarjetas.
-     *
-     * @param cards La lista de tarjetas a resetear.
-     */
-    void resetSpentAmountsForCards(List<Card> cards) {
-        LocalDateTime now = LocalDateTime.now();
-        DayOfWeek firstDayOfWeek = WeekFields.of(Locale.getDefault()).getFirstDayOfWeek();
-
-        for (Card card : cards) {
-            card.setSpentToday(0);
-            if (now.getDayOfWeek() == firstDayOfWeek) {
-                card.setSpentThisWeek(0);
-            }
-            if (now.getDayOfMonth() == 1) {
-                card.setSpentThisMonth(0);
-            }
-        }
-        repository.saveAll(cards);
-    }
-}
\ No newline at end of file
+}
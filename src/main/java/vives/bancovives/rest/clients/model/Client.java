@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import lombok.*;
 import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.clients.service.ClientCacheListener;
 import vives.bancovives.rest.users.models.User;
 import vives.bancovives.utils.IdGenerator;
 
@@ -19,6 +20,7 @@ import java.util.UUID;
 @Builder
 @Entity
 @Table(name = "clients")
+@EntityListeners(ClientCacheListener.class)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Client implements Serializable {
 
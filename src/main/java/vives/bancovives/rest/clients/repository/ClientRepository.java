@@ -2,9 +2,13 @@ package vives.bancovives.rest.clients.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vives.bancovives.rest.clients.model.Client;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -17,4 +21,10 @@ public interface ClientRepository extends JpaRepository<Client, UUID>, JpaSpecif
     Optional<Client> findByEmailIgnoreCase(String email);
     Optional<Client> findByPublicId(String publicId);
     Optional<Client> findByUser_Username(String username);
+    /**
+     * Nombres de usuario de varios clientes en una sola consulta, sin cargar los clientes ni sus usuarios
+     */
+    @Query("SELECT new vives.bancovives.rest.clients.repository.ClientUsername(c.publicId, u.username) " +
+            "FROM Client c JOIN c.user u WHERE c.publicId IN :publicIds")
+    List<ClientUsername> findUsernamesByPublicIdIn(@Param("publicIds") Collection<String> publicIds);
 }
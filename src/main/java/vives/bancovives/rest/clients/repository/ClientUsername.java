@@ -0,0 +1,10 @@
+package vives.bancovives.rest.clients.repository;
+
+/**
+ * Nombre de usuario de un cliente
+ *
+ * @param clientPublicId Id público del cliente
+ * @param username       Nombre de usuario
+ */
+public record ClientUsername(String clientPublicId, String username) {
+}
@@ -0,0 +1,42 @@
+package vives.bancovives.rest.clients.service;
+
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import vives.bancovives.config.cache.AfterCommit;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.service.AccountCache;
+import vives.bancovives.rest.cards.service.CardCache;
+import vives.bancovives.rest.clients.model.Client;
+
+import java.util.List;
+
+/**
+ * Descarta de las cachés las cuentas y tarjetas de un cliente cuando se confirma un cambio en él, ya que cada cuenta
+ * guardada lleva una copia de su cliente.
+ * <p>
+ * Hibernate lo crea a través de Spring; las cachés se piden al usarse para no depender de ellas al arrancar JPA.
+ */
+public class ClientCacheListener {
+
+    private final ObjectProvider<AccountCache> accountCache;
+    private final ObjectProvider<CardCache> cardCache;
+
+    public ClientCacheListener(ObjectProvider<AccountCache> accountCache, ObjectProvider<CardCache> cardCache) {
+        this.accountCache = accountCache;
+        this.cardCache = cardCache;
+    }
+
+    @PostUpdate
+    public void onUpdate(Client client) {
+        AfterCommit.run(() -> {
+            List<Account> accounts = client.getAccounts();
+            if (accounts == null) {
+                return;
+            }
+            for (Account account : accounts) {
+                accountCache.getObject().evict(account.getPublicId());
+                cardCache.getObject().evictByAccountIban(account.getIban());
+            }
+        });
+    }
+}
@@ -19,7 +19,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
+import vives.bancovives.rest.movements.dtos.input.MovementBatchCreateDto;
 import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+import vives.bancovives.rest.movements.dtos.output.MovementBatchResponseDto;
+import vives.bancovives.rest.movements.dtos.output.MovementCursorPageDto;
 import vives.bancovives.rest.movements.dtos.output.MovementResponseDto;
 import vives.bancovives.rest.movements.services.MovementService;
 import vives.bancovives.utils.PageResponse;
@@ -125,6 +128,31 @@ public class MovementController {
         return ResponseEntity.status(HttpStatus.CREATED).body(movementService.save(principal, movementDto));
     }
 
+    /**
+     * Crea un lote de movimientos. Cada movimiento se valida por separado y los que no son validos se rechazan
+     * sin afectar al resto del lote
+     * @param principal usuario que realiza la operacion
+     * @param batchDto movimientos a crear
+     * @return Un response entity con el codigo 201 si se han creado todos los movimientos o 207 si alguno ha sido rechazado,
+     * y el resultado de cada movimiento
+     */
+    @Operation(summary = "Crea un lote de movimientos")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Todos los movimientos del lote han sido creados", content = @Content(schema = @Schema(implementation = MovementBatchResponseDto.class))),
+            @ApiResponse(responseCode = "207", description = "Algunos movimientos del lote han sido rechazados", content = @Content(schema = @Schema(implementation = MovementBatchResponseDto.class))),
+            @ApiResponse(responseCode = "400", description = "El lote esta vacio", content = @Content(schema = @Schema(implementation = MovementBatchResponseDto.class))),
+            @ApiResponse(responseCode = "401", description = "No autenticado", content = @Content(schema = @Schema(implementation = MovementBatchResponseDto.class))),
+            @ApiResponse(responseCode = "403", description = "Acceso denegado", content = @Content(schema = @Schema(implementation = MovementBatchResponseDto.class)))
+    })
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<MovementBatchResponseDto> createMovements(Principal principal, @Valid @RequestBody MovementBatchCreateDto batchDto) {
+        log.info("Create batch of {} movements", batchDto.getMovements().size());
+        MovementBatchResponseDto response = movementService.saveBatch(principal, batchDto.getMovements());
+        HttpStatus status = response.getRejected() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(response);
+    }
+
     /**
      * Actualiza un movimiento
      * @param id id del movimiento
@@ -219,4 +247,28 @@ public class MovementController {
                 .body(PageResponse.of(pageResult, sortBy, direction));
     }
 
+    /**
+     * Busca los movimientos de un usuario por cursor, del mas reciente al mas antiguo, para listados con scroll infinito
+     * @param principal usuario que realiza la operacion
+     * @param cursor cursor devuelto en la pagina anterior, vacio para la primera pagina
+     * @param size tamaño de la pagina
+     * @return Un response entity con el codigo de respuesta, los movimientos y el cursor de la pagina siguiente
+     */
+    @Operation(summary = "Busca los movimientos de un usuario por cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Devuelve una pagina de movimientos y el cursor de la siguiente", content = @Content(schema = @Schema(implementation = MovementCursorPageDto.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor o tamaño de pagina invalido", content = @Content(schema = @Schema(implementation = MovementCursorPageDto.class))),
+            @ApiResponse(responseCode = "401", description = "No autenticado", content = @Content(schema = @Schema(implementation = MovementCursorPageDto.class))),
+            @ApiResponse(responseCode = "403", description = "Acceso denegado", content = @Content(schema = @Schema(implementation = MovementCursorPageDto.class)))
+    })
+    @GetMapping("/myMovements/cursor")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<MovementCursorPageDto> findMeByCursor(
+            Principal principal,
+            @RequestParam(required = false) Optional<String> cursor,
+            @RequestParam(defaultValue = "10") int size){
+        log.info("Buscando sus movimientos por cursor");
+        return ResponseEntity.ok(movementService.findMyMovementsAfter(principal, cursor, size));
+    }
+
 }
@@ -0,0 +1,20 @@
+package vives.bancovives.rest.movements.dtos.input;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovementBatchCreateDto {
+
+    @NotEmpty(message = "El lote debe contener al menos un movimiento")
+    private List<MovementCreateDto> movements;
+
+}
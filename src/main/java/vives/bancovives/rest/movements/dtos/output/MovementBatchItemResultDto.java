@@ -0,0 +1,30 @@
+package vives.bancovives.rest.movements.dtos.output;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovementBatchItemResultDto {
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+
+    private int index;
+    private String status;
+    private MovementResponseDto movement;
+    private String error;
+
+    public static MovementBatchItemResultDto created(int index, MovementResponseDto movement) {
+        return MovementBatchItemResultDto.builder().index(index).status(CREATED).movement(movement).build();
+    }
+
+    public static MovementBatchItemResultDto rejected(int index, String error) {
+        return MovementBatchItemResultDto.builder().index(index).status(REJECTED).error(error).build();
+    }
+}
@@ -0,0 +1,26 @@
+package vives.bancovives.rest.movements.dtos.output;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovementBatchResponseDto {
+    private int total;
+    private int created;
+    private int rejected;
+    private List<MovementBatchItemResultDto> results;
+
+    public static MovementBatchResponseDto of(List<MovementBatchItemResultDto> results) {
+        int created = (int) results.stream()
+                .filter(result -> MovementBatchItemResultDto.CREATED.equals(result.getStatus()))
+                .count();
+        return new MovementBatchResponseDto(results.size(), created, results.size() - created, results);
+    }
+}
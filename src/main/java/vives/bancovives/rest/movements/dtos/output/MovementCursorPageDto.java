@@ -0,0 +1,19 @@
+package vives.bancovives.rest.movements.dtos.output;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MovementCursorPageDto {
+    private List<MovementResponseDto> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+}
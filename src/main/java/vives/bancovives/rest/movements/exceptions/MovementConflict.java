@@ -0,0 +1,11 @@
+package vives.bancovives.rest.movements.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class MovementConflict extends MovementException {
+    public MovementConflict(String message) {
+        super(message);
+    }
+}
@@ -18,31 +18,39 @@ public class MovementMapper {
     public Movement fromCreateDtoToEntity(MovementCreateDto createDto, Account accountOfReference, Account accountOfDestination, Card card) {
         return Movement.builder()
                 .movementType(MovementType.valueOf(createDto.getMovementType().trim().toUpperCase()))
-                .accountOfReference(accountOfReference)
-                .accountOfDestination(accountOfDestination)
+                .ibanOfReference(accountOfReference.getIban())
+                .accountOfReferencePublicId(accountOfReference.getPublicId())
+                .ibanOfDestination(accountOfDestination != null ? accountOfDestination.getIban() : null)
                 .amountOfMoney(createDto.getAmount())
-                .card(card)
+                .cardPublicId(card != null ? card.getPublicId() : null)
+                .cardNumber(card != null ? card.getCardNumber() : null)
                 .isDeleted(false)
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
     }
 
+    /**
+     * Convierte un movimiento en su respuesta usando solo los datos guardados en el documento, sin consultar las cuentas
+     * ni la tarjeta. El saldo de la cuenta de referencia es el que tenía justo después del movimiento
+     * @param movement Movimiento
+     * @return MovementResponseDto Respuesta del movimiento
+     */
     public MovementResponseDto fromEntityToResponse(Movement movement) {
         return MovementResponseDto.builder()
                 .id(movement.get_id())
                 .movementType(movement.getMovementType().name())
                 .accountOfReference(new AccountResponseSimplified(
-                        movement.getAccountOfReference().getPublicId(),
-                        movement.getAccountOfReference().getIban(),
-                        movement.getAccountOfReference().getBalance()))
+                        movement.getAccountOfReferencePublicId(),
+                        movement.getIbanOfReference(),
+                        movement.getBalanceAfterMovement()))
                 .dniOfReference(movement.getClientOfReferenceDni())
-                .ibanOfDestination(movement.getAccountOfDestination() != null ? movement.getAccountOfDestination().getIban() : null)
+                .ibanOfDestination(movement.getIbanOfDestination())
                 .amountBeforeMovement(movement.getAmountBeforeMovement())
                 .amountMoved(movement.getAmountOfMoney())
-                .card(movement.getCard() != null ? new SimplifiedResponseCard(
-                        movement.getCard().getPublicId(),
-                        movement.getCard().getCardNumber()) : null)
+                .card(movement.getCardNumber() != null ? new SimplifiedResponseCard(
+                        movement.getCardPublicId(),
+                        movement.getCardNumber()) : null)
                 .createdAt(movement.getCreatedAt().toString())
                 .build();
     }
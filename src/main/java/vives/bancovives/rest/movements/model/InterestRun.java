@@ -0,0 +1,56 @@
+package vives.bancovives.rest.movements.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Punto de control de una ejecución del abono de intereses mensuales. Guarda la última cuenta hasta la que todas
+ * las anteriores se han procesado, para que una ejecución interrumpida continúe donde se quedó.
+ */
+@Data
+@Builder
+@Entity
+@Table(name = "interest_runs")
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestRun {
+
+    /**
+     * Día de la ejecución
+     */
+    @Id
+    @Column(name = "run_date")
+    private LocalDate runDate;
+
+    /**
+     * Id de la última cuenta procesada, las cuentas se procesan en orden de id
+     */
+    @Column(name = "last_account_id")
+    private UUID lastAccountId;
+
+    @Builder.Default
+    @Column(name = "processed_accounts", nullable = false)
+    private long processedAccounts = 0;
+
+    @Builder.Default
+    @Column(name = "completed", nullable = false)
+    private boolean completed = false;
+
+    @Builder.Default
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt = LocalDateTime.now();
+
+    @Builder.Default
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
@@ -12,19 +12,32 @@ import org.bson.types.ObjectId;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.TypeAlias;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import org.springframework.data.mongodb.core.mapping.Document;
-import vives.bancovives.rest.accounts.model.Account;
-import vives.bancovives.rest.cards.model.Card;
 
 import java.time.LocalDateTime;
 
+/**
+ * Movimiento bancario. Solo guarda los ibans, identificadores públicos, dnis, importes y saldos del momento del
+ * movimiento, no las cuentas ni la tarjeta completas, para que los documentos sean pequeños y no contengan datos
+ * sensibles como la contraseña de la cuenta o el pin y el cvv de la tarjeta.
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Document("movements")
 @TypeAlias("Movement")
+@CompoundIndexes({
+        @CompoundIndex(name = "iban_createdAt_id", def = "{'ibanOfReference': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "movementType_createdAt", def = "{'movementType': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "clientOfReferenceDni_createdAt", def = "{'clientOfReferenceDni': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "clientOfDestinationDni_createdAt", def = "{'clientOfDestinationDni': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "isDeleted_createdAt", def = "{'isDeleted': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "createdAt_id", def = "{'createdAt': -1, '_id': -1}")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Movement {
     @Id
@@ -34,12 +47,23 @@ public class Movement {
     @NotNull
     private MovementType movementType;
 
+    /**
+     * Iban de la cuenta de referencia
+     */
     @NotNull
-    private Account accountOfReference;
+    private String ibanOfReference;
+
+    /**
+     * Identificador público de la cuenta de referencia
+     */
+    private String accountOfReferencePublicId;
 
     private String clientOfReferenceDni;
 
-    private Account accountOfDestination;
+    /**
+     * Iban de la cuenta de destino, solo en las transferencias
+     */
+    private String ibanOfDestination;
 
     private String clientOfDestinationDni;
 
@@ -49,7 +73,22 @@ public class Movement {
     @NotNull
     private Double amountOfMoney = 0.01;
 
-    private Card card;
+    /**
+     * Saldo de la cuenta de referencia después del movimiento
+     */
+    private double balanceAfterMovement;
+
+    /**
+     * Saldo de la cuenta de destino después del movimiento, solo en las transferencias
+     */
+    private Double balanceOfDestinationAfterMovement;
+
+    /**
+     * Identificador público y número de la tarjeta, solo en pagos y extracciones
+     */
+    private String cardPublicId;
+
+    private String cardNumber;
 
     @Builder.Default
     private Boolean isDeleted = false;
@@ -0,0 +1,20 @@
+package vives.bancovives.rest.movements.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+
+/**
+ * Entidades que intervienen en un movimiento, resueltas una sola vez por petición y compartidas por la validación,
+ * la comprobación de propiedad de la cuenta y el movimiento del dinero.
+ * La cuenta de destino y la tarjeta son null cuando el tipo de movimiento no las requiere.
+ */
+@Getter
+@AllArgsConstructor
+public class MovementContext {
+    private final MovementType movementType;
+    private final Account accountOfReference;
+    private final Account accountOfDestination;
+    private final Card card;
+}
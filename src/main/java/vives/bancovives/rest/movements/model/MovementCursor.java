@@ -0,0 +1,55 @@
+package vives.bancovives.rest.movements.model;
+
+import org.bson.types.ObjectId;
+import vives.bancovives.rest.movements.exceptions.MovementBadRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de un movimiento en el listado ordenado por fecha de creación e id, ambos descendentes.
+ * Se envía al cliente como un texto opaco para pedir la página siguiente sin usar skip.
+ *
+ * @param createdAt Fecha de creación del último movimiento devuelto
+ * @param id Id del último movimiento devuelto, que desempata movimientos con la misma fecha
+ */
+public record MovementCursor(LocalDateTime createdAt, ObjectId id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Crea el cursor que apunta a un movimiento
+     * @param movement Movimiento
+     * @return MovementCursor Cursor
+     */
+    public static MovementCursor of(Movement movement) {
+        return new MovementCursor(movement.getCreatedAt(), movement.getId());
+    }
+
+    /**
+     * Codifica el cursor en un texto seguro para usarlo en una url
+     * @return Cursor codificado
+     */
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor recibido del cliente
+     * @param cursor Cursor codificado
+     * @return MovementCursor Cursor
+     * @throws MovementBadRequest Si el cursor no es válido
+     */
+    public static MovementCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new MovementCursor(LocalDateTime.parse(raw.substring(0, separator)), new ObjectId(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new MovementBadRequest("El cursor de paginacion no es valido");
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package vives.bancovives.rest.movements.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import vives.bancovives.rest.movements.model.InterestRun;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface InterestRunRepository extends JpaRepository<InterestRun, LocalDate> {
+    List<InterestRun> findAllByCompletedFalseOrderByRunDate();
+}
@@ -0,0 +1,63 @@
+package vives.bancovives.rest.movements.repository;
+
+import org.bson.Document;
+
+/**
+ * Lectura de los documentos de movimientos con el esquema antiguo, que guardaban las cuentas de referencia y destino
+ * y la tarjeta completas en lugar de sus ibans, identificadores y saldos.
+ */
+final class LegacyMovementDocument {
+
+    static final String ACCOUNT_OF_REFERENCE = "accountOfReference";
+    static final String ACCOUNT_OF_DESTINATION = "accountOfDestination";
+    static final String CARD = "card";
+
+    private LegacyMovementDocument() {
+    }
+
+    /**
+     * Indica si un documento tiene el esquema antiguo
+     * @param document Documento de movimiento
+     * @return true si guarda la cuenta de referencia completa
+     */
+    static boolean isLegacy(Document document) {
+        return document.get(ACCOUNT_OF_REFERENCE) instanceof Document;
+    }
+
+    /**
+     * Obtiene los campos del esquema nuevo a partir de las cuentas y la tarjeta guardadas en un documento antiguo.
+     * Los saldos son los que tenían las cuentas al guardar el movimiento
+     * @param legacy Documento con el esquema antiguo
+     * @return Campos del esquema nuevo, sin los que no se pueden obtener
+     */
+    static Document slimFields(Document legacy) {
+        Document fields = new Document();
+        Document accountOfReference = legacy.get(ACCOUNT_OF_REFERENCE, Document.class);
+        if (accountOfReference != null) {
+            putIfPresent(fields, "ibanOfReference", accountOfReference.get("iban"));
+            putIfPresent(fields, "accountOfReferencePublicId", accountOfReference.get("publicId"));
+            putIfPresent(fields, "balanceAfterMovement", toDouble(accountOfReference.get("balance")));
+        }
+        Document accountOfDestination = legacy.get(ACCOUNT_OF_DESTINATION, Document.class);
+        if (accountOfDestination != null) {
+            putIfPresent(fields, "ibanOfDestination", accountOfDestination.get("iban"));
+            putIfPresent(fields, "balanceOfDestinationAfterMovement", toDouble(accountOfDestination.get("balance")));
+        }
+        Document card = legacy.get(CARD, Document.class);
+        if (card != null) {
+            putIfPresent(fields, "cardPublicId", card.get("publicId"));
+            putIfPresent(fields, "cardNumber", card.get("cardNumber"));
+        }
+        return fields;
+    }
+
+    private static void putIfPresent(Document fields, String key, Object value) {
+        if (value != null) {
+            fields.put(key, value);
+        }
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+}
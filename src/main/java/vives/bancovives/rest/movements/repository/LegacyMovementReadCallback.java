@@ -0,0 +1,30 @@
+package vives.bancovives.rest.movements.repository;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertCallback;
+import org.springframework.stereotype.Component;
+import vives.bancovives.rest.movements.model.Movement;
+
+/**
+ * Completa los movimientos leídos de documentos con el esquema antiguo que todavía no ha reescrito
+ * {@link MovementSchemaMigration}, de modo que se pueden leer mientras la migración está en curso.
+ */
+@Component
+public class LegacyMovementReadCallback implements AfterConvertCallback<Movement> {
+
+    @Override
+    public Movement onAfterConvert(Movement movement, Document document, String collection) {
+        if (movement.getIbanOfReference() != null || !LegacyMovementDocument.isLegacy(document)) {
+            return movement;
+        }
+        Document fields = LegacyMovementDocument.slimFields(document);
+        movement.setIbanOfReference(fields.getString("ibanOfReference"));
+        movement.setAccountOfReferencePublicId(fields.getString("accountOfReferencePublicId"));
+        movement.setBalanceAfterMovement(fields.get("balanceAfterMovement", 0.0));
+        movement.setIbanOfDestination(fields.getString("ibanOfDestination"));
+        movement.setBalanceOfDestinationAfterMovement(fields.getDouble("balanceOfDestinationAfterMovement"));
+        movement.setCardPublicId(fields.getString("cardPublicId"));
+        movement.setCardNumber(fields.getString("cardNumber"));
+        return movement;
+    }
+}
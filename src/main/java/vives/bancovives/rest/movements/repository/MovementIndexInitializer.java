@@ -0,0 +1,62 @@
+package vives.bancovives.rest.movements.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+import vives.bancovives.rest.movements.model.Movement;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Crea al arrancar los índices declarados en {@link Movement}.
+ * Por defecto se crean en segundo plano y un fallo solo se registra, para que la aplicación arranque aunque MongoDB
+ * no esté disponible todavía. Con {@code movements.indexes.verify-plans=true} se crean antes de terminar el arranque
+ * y, si alguna combinación de filtros hace un COLLSCAN, la aplicación no arranca.
+ */
+@Component
+@Slf4j
+public class MovementIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+    private final MovementQueryPlanChecker planChecker;
+
+    @Value("${movements.indexes.create-on-startup:true}")
+    private boolean createOnStartup;
+
+    @Value("${movements.indexes.verify-plans:false}")
+    private boolean verifyPlans;
+
+    public MovementIndexInitializer(MongoTemplate mongoTemplate, MovementQueryPlanChecker planChecker) {
+        this.mongoTemplate = mongoTemplate;
+        this.planChecker = planChecker;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (verifyPlans) {
+            ensureIndexes();
+            planChecker.verify();
+        } else if (createOnStartup) {
+            CompletableFuture.runAsync(this::ensureIndexes).exceptionally(e -> {
+                log.warn("No se han podido crear los indices de movimientos: {}", e.getMessage());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Crea los índices de movimientos que no existan. Es idempotente.
+     */
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Movement.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(Movement.class)
+                .forEach(indexOps::ensureIndex);
+        log.info("Indices de movimientos creados");
+    }
+}
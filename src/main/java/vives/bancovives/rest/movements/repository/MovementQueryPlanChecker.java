@@ -0,0 +1,107 @@
+package vives.bancovives.rest.movements.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import vives.bancovives.rest.movements.model.Movement;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Comprueba con explain() el plan que elige MongoDB para cada combinación de filtros de movimientos
+ * y detecta las que recorren la colección completa (COLLSCAN).
+ */
+@Component
+@Slf4j
+public class MovementQueryPlanChecker {
+
+    private static final String[] FILTERS = {"movementType", "ibanOfReference", "fecha", "clientOfReferenceDni", "clientOfDestinationDni", "isDeleted"};
+    private static final String COLLSCAN = "COLLSCAN";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MovementQueryPlanChecker(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Ejecuta explain() para todas las combinaciones de filtros, ordenadas por fecha como en los listados
+     * @return Combinaciones de filtros que hacen un COLLSCAN, vacía si todas usan un índice
+     */
+    public List<String> findCollectionScans() {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(Movement.class);
+        QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        List<String> collectionScans = new ArrayList<>();
+
+        for (int mask = 0; mask < 1 << FILTERS.length; mask++) {
+            Query query = MovementRepositoryCustomImpl.filtersQuery(
+                    sample(mask, 0, "TRANSFERENCIA"),
+                    sample(mask, 1, "ES0000000000000000000000"),
+                    sample(mask, 2, LocalDate.now()),
+                    sample(mask, 3, "00000000T"),
+                    sample(mask, 4, "00000000T"),
+                    sample(mask, 5, false));
+            query.with(Sort.by(Sort.Direction.DESC, "createdAt"));
+
+            Document filter = queryMapper.getMappedObject(query.getQueryObject(), entity);
+            Document sort = queryMapper.getMappedSort(query.getSortObject(), entity);
+            Document explain = mongoTemplate.execute(Movement.class, collection -> collection.find(filter).sort(sort).explain());
+
+            Object winningPlan = ((Document) explain.get("queryPlanner")).get("winningPlan");
+            if (containsStage(winningPlan, COLLSCAN)) {
+                collectionScans.add(describe(mask));
+            }
+        }
+        return collectionScans;
+    }
+
+    /**
+     * Lanza una excepción si alguna combinación de filtros hace un COLLSCAN
+     * @throws IllegalStateException Si alguna combinación no usa índices
+     */
+    public void verify() {
+        List<String> collectionScans = findCollectionScans();
+        if (!collectionScans.isEmpty()) {
+            throw new IllegalStateException("Filtros de movimientos sin indice (COLLSCAN): " + collectionScans);
+        }
+        log.info("Todas las combinaciones de filtros de movimientos usan un indice");
+    }
+
+    private static <T> Optional<T> sample(int mask, int filter, T value) {
+        return (mask & (1 << filter)) != 0 ? Optional.of(value) : Optional.empty();
+    }
+
+    private static String describe(int mask) {
+        List<String> filters = new ArrayList<>();
+        for (int i = 0; i < FILTERS.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                filters.add(FILTERS[i]);
+            }
+        }
+        return filters.isEmpty() ? "(sin filtros)" : String.join("+", filters);
+    }
+
+    /**
+     * Busca una etapa en un plan de ejecución, recorriendo sus etapas anidadas
+     */
+    private static boolean containsStage(Object plan, String stage) {
+        if (plan instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (plan instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+}
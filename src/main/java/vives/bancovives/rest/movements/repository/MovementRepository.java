@@ -10,5 +10,4 @@ import java.util.List;
 
 @Repository
 public interface MovementRepository extends MongoRepository<Movement, ObjectId>, MovementRepositoryCustom {
-    List<Movement> findAllByAccountOfReference_Iban(String accountOfReference);
 }
@@ -3,8 +3,12 @@ package vives.bancovives.rest.movements.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementCursor;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface MovementRepositoryCustom {
@@ -16,4 +20,12 @@ public interface MovementRepositoryCustom {
             Optional<String> clientOfDestinationDni,
             Optional<Boolean> isDeleted,
             Pageable pageable);
+
+    Page<Movement> findAllByIbanOfReferenceIn(Collection<String> ibans, Pageable pageable);
+
+    List<Movement> findAllByIbanOfReferenceInAfter(Collection<String> ibans, Optional<MovementCursor> after, int limit);
+
+    List<String> findMostActiveIbans(LocalDateTime since, int limit);
+
+    int insertIgnoringDuplicates(List<Movement> movements);
 }
@@ -1,24 +1,37 @@
 package vives.bancovives.rest.movements.repository;
 
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
 import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementCursor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public class MovementRepositoryCustomImpl implements MovementRepositoryCustom {
 
+    private static final String IBAN_OF_REFERENCE = "ibanOfReference";
+    private static final String CREATED_AT = "createdAt";
+    private static final String ID = "_id";
+    private static final String COUNT = "count";
+    private static final int DUPLICATE_KEY = 11000;
+
     private final MongoTemplate mongoTemplate;
 
 
@@ -37,25 +50,122 @@ public class MovementRepositoryCustomImpl implements MovementRepositoryCustom {
             Optional<Boolean> isDeleted,
             Pageable pageable) {
 
+        Query query = filtersQuery(movementType, ibanOfReference, fecha, clientOfReferenceDni, clientOfDestinationDni, isDeleted);
+
+        long total = mongoTemplate.count(query, Movement.class);
+        query.with(pageable);
+
+        List<Movement> movements = mongoTemplate.find(query, Movement.class);
+
+        return new PageImpl<>(movements, pageable, total);
+    }
+
+    /**
+     * Construye la consulta de los filtros de movimientos sobre los campos reales del documento.
+     * Cada filtro tiene un índice en {@link Movement} que empieza por su campo, por lo que ninguna combinación
+     * de filtros recorre la colección completa.
+     * @return Query Consulta sin paginar
+     */
+    static Query filtersQuery(
+            Optional<String> movementType,
+            Optional<String> ibanOfReference,
+            Optional<LocalDate> fecha,
+            Optional<String> clientOfReferenceDni,
+            Optional<String> clientOfDestinationDni,
+            Optional<Boolean> isDeleted) {
+
         Query query = new Query();
 
-        movementType.ifPresent(type -> query.addCriteria(Criteria.where("movementType").is(type)));
-        ibanOfReference.ifPresent(iban -> query.addCriteria(Criteria.where("ibanOfReference").is(iban)));
+        movementType.ifPresent(type -> query.addCriteria(Criteria.where("movementType").is(type.trim().toUpperCase())));
+        ibanOfReference.ifPresent(iban -> query.addCriteria(Criteria.where(IBAN_OF_REFERENCE).is(iban)));
 
         fecha.ifPresent(f -> {
             LocalDateTime startOfDay = f.atStartOfDay();
             LocalDateTime endOfDay = f.atTime(LocalTime.MAX);
-            query.addCriteria(Criteria.where("fecha").gte(startOfDay).lte(endOfDay));
+            query.addCriteria(Criteria.where(CREATED_AT).gte(startOfDay).lte(endOfDay));
         });
         clientOfReferenceDni.ifPresent(dnir -> query.addCriteria(Criteria.where("clientOfReferenceDni").is(dnir)));
         clientOfDestinationDni.ifPresent(dnid -> query.addCriteria(Criteria.where("clientOfDestinationDni").is(dnid)));
         isDeleted.ifPresent(deleted -> query.addCriteria(Criteria.where("isDeleted").is(deleted)));
+        return query;
+    }
 
+    /**
+     * Busca una página de los movimientos de varias cuentas con una sola consulta. El filtrado, la ordenación,
+     * el salto y el límite se hacen en MongoDB, por lo que solo se cargan en memoria los movimientos de la página.
+     * @param ibans Ibans de las cuentas de referencia
+     * @param pageable Paginación y ordenación
+     * @return Page<Movement> Página de movimientos
+     */
+    @Override
+    public Page<Movement> findAllByIbanOfReferenceIn(Collection<String> ibans, Pageable pageable) {
+        Query query = new Query(Criteria.where(IBAN_OF_REFERENCE).in(ibans));
         long total = mongoTemplate.count(query, Movement.class);
         query.with(pageable);
+        return new PageImpl<>(mongoTemplate.find(query, Movement.class), pageable, total);
+    }
 
-        List<Movement> movements = mongoTemplate.find(query, Movement.class);
+    /**
+     * Busca los movimientos de varias cuentas a partir de un cursor, del más reciente al más antiguo.
+     * La condición sobre (createdAt, _id) permite usar el índice en lugar de saltar documentos, por lo que el coste
+     * de cada página no depende de lo lejos que esté en el historial.
+     * @param ibans Ibans de las cuentas de referencia
+     * @param after Último movimiento devuelto en la página anterior, o vacío para la primera página
+     * @param limit Número máximo de movimientos a devolver
+     * @return List<Movement> Movimientos siguientes al cursor
+     */
+    @Override
+    public List<Movement> findAllByIbanOfReferenceInAfter(Collection<String> ibans, Optional<MovementCursor> after, int limit) {
+        Criteria criteria = Criteria.where(IBAN_OF_REFERENCE).in(ibans);
+        after.ifPresent(cursor -> criteria.orOperator(
+                Criteria.where(CREATED_AT).lt(cursor.createdAt()),
+                Criteria.where(CREATED_AT).is(cursor.createdAt()).and(ID).lt(cursor.id())));
 
-        return new PageImpl<>(movements, pageable, total);
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, CREATED_AT, ID))
+                .limit(limit);
+        return mongoTemplate.find(query, Movement.class);
+    }
+
+    /**
+     * Busca las cuentas con más movimientos desde una fecha agrupando en MongoDB, de modo que solo se transfieren los
+     * ibans. El filtro por fecha usa el índice por createdAt.
+     * @param since Fecha desde la que se cuentan los movimientos
+     * @param limit Número máximo de cuentas a devolver
+     * @return List<String> Ibans de referencia, de más a menos movimientos
+     */
+    @Override
+    public List<String> findMostActiveIbans(LocalDateTime since, int limit) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(CREATED_AT).gte(since)),
+                Aggregation.group(IBAN_OF_REFERENCE).count().as(COUNT),
+                Aggregation.sort(Sort.Direction.DESC, COUNT),
+                Aggregation.limit(limit));
+        return mongoTemplate.aggregate(aggregation, Movement.class, Document.class).getMappedResults().stream()
+                .map(document -> document.getString(ID))
+                .toList();
+    }
+
+    /**
+     * Inserta los movimientos con una única escritura bulk no ordenada, ignorando los que ya existen con el mismo id.
+     * Permite repetir una inserción de movimientos con ids deterministas sin duplicarlos
+     * @param movements Movimientos a insertar
+     * @return Número de movimientos insertados
+     */
+    @Override
+    public int insertIgnoringDuplicates(List<Movement> movements) {
+        if (movements.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Movement.class);
+        bulk.insert(movements);
+        try {
+            return bulk.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY)) {
+                return e.getResult().getInsertedCount();
+            }
+            throw e;
+        }
     }
 }
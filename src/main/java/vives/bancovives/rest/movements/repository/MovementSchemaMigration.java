@@ -0,0 +1,123 @@
+package vives.bancovives.rest.movements.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import vives.bancovives.rest.movements.model.Movement;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reescribe en segundo plano los movimientos guardados con el esquema antiguo, que incluían las cuentas y la tarjeta
+ * completas, al esquema actual de {@link Movement}. Los documentos se procesan por lotes de
+ * {@code movements.migration.batch-size} con una única escritura bulk por lote y una pausa de
+ * {@code movements.migration.pause} entre lotes, para no penalizar al resto de operaciones mientras la aplicación sigue
+ * funcionando. Es idempotente: un documento solo se reescribe si todavía tiene el esquema antiguo.
+ */
+@Component
+@Slf4j
+public class MovementSchemaMigration {
+
+    private static final String ID = "_id";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${movements.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${movements.migration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${movements.migration.pause:100ms}")
+    private Duration pause;
+
+    public MovementSchemaMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            CompletableFuture.runAsync(this::migrate).exceptionally(e -> {
+                log.warn("No se ha podido completar la migracion de movimientos: {}", e.getMessage());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Migra todos los movimientos con el esquema antiguo
+     * @return Número de movimientos migrados
+     */
+    public long migrate() {
+        String collection = mongoTemplate.getCollectionName(Movement.class);
+        long migrated = 0;
+        Object lastId = null;
+
+        while (true) {
+            Criteria criteria = Criteria.where(LegacyMovementDocument.ACCOUNT_OF_REFERENCE).exists(true);
+            if (lastId != null) {
+                criteria = criteria.and(ID).gt(lastId);
+            }
+            Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, ID)).limit(batchSize);
+            List<Document> batch = mongoTemplate.find(query, Document.class, collection);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+            for (Document legacy : batch) {
+                bulk.updateOne(
+                        new Query(Criteria.where(ID).is(legacy.get(ID)).and(LegacyMovementDocument.ACCOUNT_OF_REFERENCE).exists(true)),
+                        toSlimUpdate(legacy));
+            }
+            migrated += bulk.execute().getModifiedCount();
+            lastId = batch.get(batch.size() - 1).get(ID);
+            log.info("Migrados {} movimientos al esquema reducido", migrated);
+
+            if (batch.size() < batchSize) {
+                break;
+            }
+            sleepBetweenBatches();
+        }
+        return migrated;
+    }
+
+    /**
+     * Construye la actualización que pasa un documento al esquema actual: añade los ibans, identificadores y saldos
+     * y elimina las cuentas y la tarjeta embebidas
+     * @param legacy Documento con el esquema antiguo
+     * @return Update Actualización del documento
+     */
+    static Update toSlimUpdate(Document legacy) {
+        Update update = new Update();
+        LegacyMovementDocument.slimFields(legacy).forEach(update::set);
+        update.unset(LegacyMovementDocument.ACCOUNT_OF_REFERENCE);
+        update.unset(LegacyMovementDocument.ACCOUNT_OF_DESTINATION);
+        update.unset(LegacyMovementDocument.CARD);
+        return update;
+    }
+
+    private void sleepBetweenBatches() {
+        if (pause.isZero() || pause.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Migracion de movimientos interrumpida", e);
+        }
+    }
+}
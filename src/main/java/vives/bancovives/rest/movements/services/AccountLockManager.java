@@ -0,0 +1,70 @@
+package vives.bancovives.rest.movements.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Gestor de bloqueos por cuenta. Reparte los ibans entre un número fijo de bloqueos (stripes), de modo que los
+ * movimientos sobre cuentas distintas se ejecutan en paralelo y los movimientos sobre una misma cuenta se serializan.
+ * Cuando un movimiento afecta a varias cuentas, los bloqueos se adquieren siempre en orden ascendente de stripe,
+ * lo que evita interbloqueos entre transferencias cruzadas.
+ */
+@Component
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+
+    public AccountLockManager(@Value("${movements.lock.stripes:1024}") int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("El número de stripes debe ser mayor que 0");
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Ejecuta una acción con las cuentas indicadas bloqueadas. Los ibans nulos se ignoran.
+     * @param ibans Ibans de las cuentas que se van a modificar
+     * @param action Acción a ejecutar
+     * @return El resultado de la acción
+     * @param <T> Tipo del resultado
+     */
+    public <T> T executeWithLocks(Collection<String> ibans, Supplier<T> action) {
+        int[] indexes = ibans.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                acquired++;
+            }
+            return action.get();
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Calcula el stripe que corresponde a un iban
+     * @param iban Iban de la cuenta
+     * @return Índice del stripe
+     */
+    int stripeOf(String iban) {
+        int hash = iban.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+}
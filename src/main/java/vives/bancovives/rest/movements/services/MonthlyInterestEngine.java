@@ -0,0 +1,320 @@
+package vives.bancovives.rest.movements.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.movements.model.InterestRun;
+import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementType;
+import vives.bancovives.rest.movements.repository.InterestRunRepository;
+import vives.bancovives.rest.movements.repository.MovementRepository;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Abono nocturno de los intereses mensuales. Las cuentas con intereses cuyo día de abono es hoy se recorren por
+ * bloques de {@code movements.interest.chunk-size} ids en orden, con una consulta sobre el índice (interest_day, id),
+ * y cada bloque se procesa en paralelo en un pool de {@code movements.interest.parallelism} hilos con una transacción
+ * corta propia: se cargan las cuentas del bloque, se abona el interés, se guardan las cuentas y se insertan los
+ * movimientos de una sola vez.
+ * <p>
+ * Es reanudable e idempotente: cada cuenta guarda la fecha de su último abono, por lo que no recibe intereses dos veces
+ * en el mismo mes, los movimientos tienen un id determinista por cuenta y mes, y la ejecución guarda en
+ * {@link InterestRun} la última cuenta hasta la que todos los bloques han terminado, desde la que continúa si se
+ * interrumpe.
+ */
+@Service
+@Slf4j
+public class MonthlyInterestEngine {
+
+    private final AccountRepository accountRepository;
+    private final MovementRepository movementRepository;
+    private final InterestRunRepository interestRunRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * Número de cuentas que se procesan en cada transacción
+     */
+    @Value("${movements.interest.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Número de bloques que se procesan a la vez
+     */
+    @Value("${movements.interest.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * Número máximo de reintentos de un bloque cuando otra transacción ha modificado alguna de sus cuentas
+     */
+    @Value("${movements.lock.max-retries:3}")
+    private int maxRetries;
+
+    public MonthlyInterestEngine(AccountRepository accountRepository, MovementRepository movementRepository, InterestRunRepository interestRunRepository, TransactionTemplate transactionTemplate) {
+        this.accountRepository = accountRepository;
+        this.movementRepository = movementRepository;
+        this.interestRunRepository = interestRunRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Se ejecuta a las 00 de la noche todos los dias y abona los intereses de las cuentas cuyo día de abono es hoy.
+     * Antes continúa las ejecuciones anteriores que quedaron sin completar, para que las cuentas de un bloque que falló
+     * no esperen a que se reinicie la aplicación
+     */
+    @Scheduled(cron = "${movements.interest.cron:0 0 0 * * ?}")
+    public void runNightly() {
+        resumeIncompleteRuns();
+        run(LocalDate.now());
+    }
+
+    /**
+     * Al arrancar, continúa en segundo plano las ejecuciones que se interrumpieron
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRuns() {
+        CompletableFuture.runAsync(this::resumeIncompleteRuns).exceptionally(e -> {
+            log.warn("No se han podido reanudar los abonos de intereses: {}", e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Continúa, de la más antigua a la más reciente, las ejecuciones que se interrumpieron o en las que falló algún
+     * bloque
+     */
+    void resumeIncompleteRuns() {
+        interestRunRepository.findAllByCompletedFalseOrderByRunDate().forEach(incomplete -> {
+            log.info("Reanudando el abono de intereses del {}", incomplete.getRunDate());
+            run(incomplete.getRunDate());
+        });
+    }
+
+    /**
+     * Abona los intereses de las cuentas cuyo día de abono es el indicado
+     * @param date Día de la ejecución
+     * @return InterestRun Estado de la ejecución, o null si ya había otra ejecución en curso
+     */
+    public InterestRun run(LocalDate date) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Ya hay un abono de intereses en curso, se omite el del {}", date);
+            return null;
+        }
+        try {
+            InterestRun interestRun = interestRunRepository.findById(date)
+                    .orElseGet(() -> interestRunRepository.save(InterestRun.builder().runDate(date).build()));
+            if (interestRun.isCompleted()) {
+                log.info("El abono de intereses del {} ya se completó", date);
+                return interestRun;
+            }
+            return process(interestRun);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private InterestRun process(InterestRun interestRun) {
+        LocalDate date = interestRun.getRunDate();
+        LocalDate period = date.withDayOfMonth(1);
+        List<Integer> days = dueDays(date);
+        Checkpoint checkpoint = new Checkpoint(interestRun);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        // Limita los bloques pendientes para no cargar todos los ids en memoria
+        Semaphore pending = new Semaphore(parallelism * 2);
+        Pageable chunk = PageRequest.ofSize(chunkSize);
+        log.info("Abonando intereses del {} a las cuentas con día de abono {}", date, days);
+
+        try {
+            UUID lastId = interestRun.getLastAccountId();
+            while (true) {
+                List<UUID> ids = lastId == null
+                        ? accountRepository.findInterestDueIds(days, period, chunk)
+                        : accountRepository.findInterestDueIdsAfter(days, period, lastId, chunk);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+                int sequence = checkpoint.register(lastId);
+                pending.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        checkpoint.completed(sequence, processChunkWithRetries(ids, date));
+                    } catch (RuntimeException e) {
+                        log.error("Error abonando intereses a las cuentas {}..{}: {}", ids.get(0), ids.get(ids.size() - 1), e.getMessage());
+                        checkpoint.failed();
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+        return checkpoint.finish();
+    }
+
+    private int processChunkWithRetries(List<UUID> ids, LocalDate date) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> processChunk(ids, date));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                log.warn("Conflicto de concurrencia abonando intereses, reintento {} de {}", attempt + 1, maxRetries);
+            }
+        }
+    }
+
+    /**
+     * Abona el interés a las cuentas de un bloque que no lo hayan recibido ya este mes. Las versiones de las cuentas
+     * se comprueban antes de insertar los movimientos, de modo que un conflicto no deja movimientos sin su abono
+     * @param ids Ids de las cuentas
+     * @param date Día de la ejecución
+     * @return Número de cuentas a las que se ha abonado el interés
+     */
+    private int processChunk(List<UUID> ids, LocalDate date) {
+        LocalDate period = date.withDayOfMonth(1);
+        List<Account> accounts = accountRepository.findAllByIdIn(ids);
+        List<Movement> movements = new ArrayList<>(accounts.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (Account account : accounts) {
+            if (account.getLastInterestDate() != null && !account.getLastInterestDate().isBefore(period)) {
+                continue;
+            }
+            double balanceBefore = account.getBalance();
+            double interest = balanceBefore * (account.getAccountType().getInterest() / 100);
+            account.setBalance(balanceBefore + interest);
+            account.setLastInterestDate(date);
+            movements.add(Movement.builder()
+                    .id(interestMovementId(account.getId(), period))
+                    .movementType(MovementType.INTERESMENSUAL)
+                    .ibanOfReference(account.getIban())
+                    .accountOfReferencePublicId(account.getPublicId())
+                    .clientOfReferenceDni(account.getClient() != null ? account.getClient().getDni() : null)
+                    .amountBeforeMovement(balanceBefore)
+                    .amountOfMoney(interest)
+                    .balanceAfterMovement(account.getBalance())
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+
+        if (!movements.isEmpty()) {
+            accountRepository.saveAll(accounts);
+            accountRepository.flush();
+            movementRepository.insertIgnoringDuplicates(movements);
+        }
+        return movements.size();
+    }
+
+    /**
+     * Días de abono que corresponden a una fecha. El último día del mes también se abonan las cuentas creadas en días
+     * que ese mes no tiene
+     * @param date Día de la ejecución
+     * @return Días de abono
+     */
+    static List<Integer> dueDays(LocalDate date) {
+        if (date.getDayOfMonth() < date.lengthOfMonth()) {
+            return List.of(date.getDayOfMonth());
+        }
+        return IntStream.rangeClosed(date.getDayOfMonth(), 31).boxed().toList();
+    }
+
+    /**
+     * Id del movimiento de intereses de una cuenta en un mes. Es siempre el mismo, por lo que reinsertar el movimiento
+     * tras una ejecución interrumpida no lo duplica
+     * @param accountId Id de la cuenta
+     * @param period Primer día del mes
+     * @return ObjectId del movimiento
+     */
+    static ObjectId interestMovementId(UUID accountId, LocalDate period) {
+        return new ObjectId(ByteBuffer.allocate(12)
+                .putInt((int) period.atStartOfDay().toEpochSecond(ZoneOffset.UTC))
+                .putLong(accountId.getMostSignificantBits() ^ accountId.getLeastSignificantBits())
+                .array());
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Esperando a que terminen los bloques de intereses pendientes");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Avanza el punto de control de la ejecución solo hasta el último bloque para el que todos los anteriores han
+     * terminado, de modo que al reanudar no se salta ninguna cuenta aunque los bloques terminen desordenados.
+     * Si un bloque falla el punto de control deja de avanzar y la ejecución queda sin completar
+     */
+    private class Checkpoint {
+        private final InterestRun interestRun;
+        private final List<UUID> lastIds = new ArrayList<>();
+        private final Map<Integer, Integer> completed = new HashMap<>();
+        private int next = 0;
+        private boolean failed = false;
+
+        Checkpoint(InterestRun interestRun) {
+            this.interestRun = interestRun;
+        }
+
+        synchronized int register(UUID lastId) {
+            lastIds.add(lastId);
+            return lastIds.size() - 1;
+        }
+
+        synchronized void completed(int sequence, int processed) {
+            completed.put(sequence, processed);
+            if (failed || !completed.containsKey(next)) {
+                return;
+            }
+            while (completed.containsKey(next)) {
+                interestRun.setProcessedAccounts(interestRun.getProcessedAccounts() + completed.remove(next));
+                interestRun.setLastAccountId(lastIds.get(next));
+                next++;
+            }
+            save();
+        }
+
+        synchronized void failed() {
+            failed = true;
+        }
+
+        synchronized InterestRun finish() {
+            interestRun.setCompleted(!failed);
+            save();
+            log.info("Abono de intereses del {} {}: {} cuentas", interestRun.getRunDate(),
+                    failed ? "interrumpido" : "completado", interestRun.getProcessedAccounts());
+            return interestRun;
+        }
+
+        private void save() {
+            interestRun.setUpdatedAt(LocalDateTime.now());
+            interestRunRepository.save(interestRun);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+import vives.bancovives.rest.movements.dtos.output.MovementBatchResponseDto;
+import vives.bancovives.rest.movements.dtos.output.MovementCursorPageDto;
 import vives.bancovives.rest.movements.dtos.output.MovementResponseDto;
 import vives.bancovives.rest.movements.model.Movement;
 
@@ -26,6 +28,8 @@ public interface MovementService {
 
     MovementResponseDto save(Principal principal, MovementCreateDto movementCreateDto);
 
+    MovementBatchResponseDto saveBatch(Principal principal, List<MovementCreateDto> movements);
+
     MovementResponseDto update(ObjectId id, MovementCreateDto movementCreateDto);
 
     Void deleteById(ObjectId id);
@@ -36,4 +40,6 @@ public interface MovementService {
 
     Page<MovementResponseDto> findMyMovements(Principal principal, Pageable pageable);
 
+    MovementCursorPageDto findMyMovementsAfter(Principal principal, Optional<String> cursor, int size);
+
 }
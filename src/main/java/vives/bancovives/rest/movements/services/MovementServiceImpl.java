@@ -1,26 +1,41 @@
 package vives.bancovives.rest.movements.services;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import vives.bancovives.config.cache.AfterCommit;
+import vives.bancovives.notifications.model.NotificationType;
+import vives.bancovives.notifications.service.NotificationService;
 import vives.bancovives.rest.accounts.exception.AccountNotFoundException;
 import vives.bancovives.rest.accounts.model.Account;
 import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.accounts.service.AccountCache;
 import vives.bancovives.rest.cards.exceptions.CardDoesNotExistException;
 import vives.bancovives.rest.cards.model.Card;
 import vives.bancovives.rest.cards.repository.CardsRepository;
+import vives.bancovives.rest.cards.service.CardCache;
+import vives.bancovives.rest.clients.model.Client;
 import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+import vives.bancovives.rest.movements.dtos.output.MovementBatchItemResultDto;
+import vives.bancovives.rest.movements.dtos.output.MovementBatchResponseDto;
+import vives.bancovives.rest.movements.dtos.output.MovementCursorPageDto;
 import vives.bancovives.rest.movements.dtos.output.MovementResponseDto;
 import vives.bancovives.rest.movements.exceptions.MovementBadRequest;
+import vives.bancovives.rest.movements.exceptions.MovementConflict;
 import vives.bancovives.rest.movements.exceptions.MovementNotFound;
 import vives.bancovives.rest.movements.mapper.MovementMapper;
 import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementContext;
+import vives.bancovives.rest.movements.model.MovementCursor;
 import vives.bancovives.rest.movements.model.MovementType;
 import vives.bancovives.rest.movements.repository.MovementRepository;
 import vives.bancovives.rest.movements.validator.MovementValidator;
@@ -30,8 +45,10 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Servicio que implementa la interfaz MovementService y que se encarga de gestionar los movimientos
@@ -45,13 +62,37 @@ public class MovementServiceImpl implements MovementService{
     private final CardsRepository cardsRepository;
     private final MovementValidator validator;
     private final MovementMapper movementMapper;
+    private final Validator beanValidator;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountLockManager lockManager;
+    private final AccountCache accountCache;
+    private final CardCache cardCache;
+    private final NotificationService notificationService;
 
-    public MovementServiceImpl(MovementRepository movementRepository, AccountRepository accountRepository, CardsRepository cardRepository, MovementValidator movementValidator, MovementMapper movementMapper) {
+    /**
+     * Número máximo de movimientos que se procesan en una misma transacción al crear movimientos por lotes.
+     */
+    @Value("${movements.batch.size:500}")
+    private int batchSize;
+
+    /**
+     * Número máximo de reintentos de un movimiento cuando otra transacción ha modificado antes la misma cuenta o tarjeta.
+     */
+    @Value("${movements.lock.max-retries:3}")
+    private int maxRetries;
+
+    public MovementServiceImpl(MovementRepository movementRepository, AccountRepository accountRepository, CardsRepository cardRepository, MovementValidator movementValidator, MovementMapper movementMapper, Validator beanValidator, TransactionTemplate transactionTemplate, AccountLockManager lockManager, AccountCache accountCache, CardCache cardCache, NotificationService notificationService) {
         this.movementRepository = movementRepository;
         this.accountRepository = accountRepository;
         this.cardsRepository = cardRepository;
         this.validator = movementValidator;
         this.movementMapper = movementMapper;
+        this.beanValidator = beanValidator;
+        this.transactionTemplate = transactionTemplate;
+        this.lockManager = lockManager;
+        this.accountCache = accountCache;
+        this.cardCache = cardCache;
+        this.notificationService = notificationService;
     }
 
     /**
@@ -97,52 +138,291 @@ public class MovementServiceImpl implements MovementService{
     }
 
     /**
-     * Método que se encarga de guardar un movimiento en la base de datos
+     * Método que se encarga de guardar un movimiento en la base de datos.
+     * La notificación del movimiento se guarda en el outbox en la misma transacción y se envía en segundo plano
      * @param principal Usuario autenticado
      * @param movementCreateDto Movimiento a guardar
      * @return  MovementResponseDto Movimiento guardado
      */
-    @Transactional
     @Override
     public MovementResponseDto save(Principal principal, MovementCreateDto movementCreateDto) {
-        validator.validateMovementDto(movementCreateDto);
-        validateUser(principal, movementCreateDto.getIbanOfReference());
+        return executeLocked(Arrays.asList(movementCreateDto.getIbanOfReference(), movementCreateDto.getIbanOfDestination()), () -> {
+            MovementContext context = resolveContext(movementCreateDto);
+            validator.validateMovementDto(movementCreateDto, context);
+            validateUser(principal, context.getAccountOfReference());
 
-        Account accountOfReference = existsAccountByIban(movementCreateDto.getIbanOfReference());
-        Account accountOfDestination = movementCreateDto.getIbanOfDestination() != null
-                ? existsAccountByIban(movementCreateDto.getIbanOfDestination())
-                : null;
-        Card card = movementCreateDto.getCardNumber() != null
-                ? existsCardByCardNumber(movementCreateDto.getCardNumber())
+            Movement movementToSave = movementMapper.fromCreateDtoToEntity(
+                    movementCreateDto, context.getAccountOfReference(), context.getAccountOfDestination(), context.getCard());
+
+            moveMoney(movementToSave, context);
+
+            saveCachedModifications(context.getAccountOfReference(), context.getAccountOfDestination(), context.getCard());
+            notificationService.sendNotificationFromMovement(movementToSave, context.getAccountOfReference(), context.getAccountOfDestination(), NotificationType.CREATE);
+            return movementMapper.fromEntityToResponse(movementRepository.save(movementToSave));
+        });
+    }
+
+    /**
+     * Resuelve una sola vez el tipo de movimiento y las cuentas y tarjeta que intervienen en él.
+     * La cuenta de destino y la tarjeta solo se cargan si el tipo de movimiento las requiere.
+     * Las cuentas y la tarjeta se leen de la caché, por lo que validar un movimiento sobre cuentas usadas hace poco no
+     * consulta la base de datos. Si alguna ha cambiado desde que se guardó en la caché, su versión no coincidirá al
+     * guardar el movimiento y se reintentará leyéndola de nuevo.
+     * @param dto Movimiento a realizar
+     * @return MovementContext Entidades del movimiento
+     * @throws AccountNotFoundException Excepción si alguna cuenta no existe
+     * @throws CardDoesNotExistException Excepción si la tarjeta no existe
+     */
+    private MovementContext resolveContext(MovementCreateDto dto) {
+        MovementType movementType = validator.validateMovementType(dto.getMovementType());
+        Account accountOfReference = findAccountByIban(dto.getIbanOfReference());
+        Account accountOfDestination = null;
+        if (movementType.requiresDestinationAccount() && dto.getIbanOfDestination() != null) {
+            // Una misma cuenta debe ser el mismo objeto para que los dos cambios de saldo se apliquen sobre él
+            accountOfDestination = dto.getIbanOfDestination().equals(accountOfReference.getIban())
+                    ? accountOfReference
+                    : findAccountByIban(dto.getIbanOfDestination());
+        }
+        Card card = movementType.requiresCard() && dto.getCardNumber() != null
+                ? findCardByCardNumber(dto.getCardNumber())
                 : null;
+        return new MovementContext(movementType, accountOfReference, accountOfDestination, card);
+    }
+
+    /**
+     * Busca una cuenta por su iban en la caché de cuentas, o en la base de datos si no está
+     * @param iban Iban de la cuenta
+     * @return Account Cuenta
+     * @throws AccountNotFoundException Excepción si la cuenta no existe
+     */
+    private Account findAccountByIban(String iban) {
+        return accountCache.findByIban(iban, () -> existsAccountByIban(iban));
+    }
+
+    /**
+     * Busca una tarjeta por su número en la caché de tarjetas, o en la base de datos si no está
+     * @param cardNumber Número de la tarjeta
+     * @return Card Tarjeta
+     * @throws CardDoesNotExistException Excepción si la tarjeta no existe
+     */
+    private Card findCardByCardNumber(String cardNumber) {
+        return cardCache.findByCardNumber(cardNumber, () -> existsCardByCardNumber(cardNumber));
+    }
+
+    /**
+     * Método que se encarga de guardar un lote de movimientos. El lote se divide en bloques de tamaño
+     * {@code movements.batch.size} y cada bloque se procesa en una única transacción: se cargan todas las cuentas
+     * y tarjetas del bloque con una sola consulta cada una, junto con los clientes y usuarios que necesitan los
+     * movimientos y sus notificaciones, se validan y aplican los movimientos en memoria y se guardan
+     * las cuentas, las tarjetas y los movimientos de una sola vez.
+     * Los movimientos que no superan la validación se rechazan sin afectar al resto del lote.
+     *
+     * @param principal Usuario autenticado
+     * @param movements Movimientos a guardar
+     * @return MovementBatchResponseDto Resultado de cada movimiento del lote
+     */
+    @Override
+    public MovementBatchResponseDto saveBatch(Principal principal, List<MovementCreateDto> movements) {
+        log.info("Guardando lote de {} movimientos", movements.size());
+        Set<String> ibansOfUser = isAdmin(principal) ? null : findIbansOfUser(principal);
+        int chunkSize = batchSize > 0 ? batchSize : movements.size();
+
+        List<MovementBatchItemResultDto> results = new ArrayList<>(movements.size());
+        for (int start = 0; start < movements.size(); start += chunkSize) {
+            List<MovementCreateDto> chunk = movements.subList(start, Math.min(start + chunkSize, movements.size()));
+            results.addAll(saveChunk(principal, chunk, start, ibansOfUser));
+        }
+        return MovementBatchResponseDto.of(results);
+    }
+
+    /**
+     * Procesa un bloque del lote en una única transacción. Si falla la escritura del bloque, todos sus movimientos
+     * se marcan como rechazados.
+     *
+     * @param principal Usuario autenticado
+     * @param chunk Movimientos del bloque
+     * @param offset Posición del primer movimiento del bloque dentro del lote
+     * @param ibansOfUser Ibans de las cuentas del usuario, o null si es administrador
+     * @return Resultados de los movimientos del bloque
+     */
+    private List<MovementBatchItemResultDto> saveChunk(Principal principal, List<MovementCreateDto> chunk, int offset, Set<String> ibansOfUser) {
+        try {
+            return executeLocked(collectIbans(chunk), () -> applyChunk(principal, chunk, offset, ibansOfUser));
+        } catch (RuntimeException e) {
+            log.error("Error guardando el bloque de movimientos {}-{}: {}", offset, offset + chunk.size() - 1, e.getMessage());
+            List<MovementBatchItemResultDto> failed = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                failed.add(MovementBatchItemResultDto.rejected(offset + i, "Error guardando el bloque de movimientos: " + e.getMessage()));
+            }
+            return failed;
+        }
+    }
+
+    /**
+     * Valida y aplica en memoria los movimientos de un bloque y guarda los cambios de una sola vez.
+     * Los movimientos se aplican en orden, de modo que cada uno se valida con los saldos y límites
+     * resultantes de los anteriores.
+     * Las notificaciones de los movimientos creados se guardan juntas en el outbox, con los destinatarios obtenidos de
+     * las cuentas ya cargadas.
+     *
+     * @param principal Usuario autenticado
+     * @param chunk Movimientos del bloque
+     * @param offset Posición del primer movimiento del bloque dentro del lote
+     * @param ibansOfUser Ibans de las cuentas del usuario, o null si es administrador
+     * @return Resultados de los movimientos del bloque
+     */
+    private List<MovementBatchItemResultDto> applyChunk(Principal principal, List<MovementCreateDto> chunk, int offset, Set<String> ibansOfUser) {
+        Map<String, Account> accounts = accountRepository.findAllWithClientByIbanIn(collectIbans(chunk)).stream()
+                .collect(Collectors.toMap(Account::getIban, Function.identity()));
+        Set<String> cardNumbers = chunk.stream()
+                .map(MovementCreateDto::getCardNumber)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, Card> cards = cardNumbers.isEmpty() ? Map.of() : cardsRepository.findAllByCardNumberIn(cardNumbers).stream()
+                .collect(Collectors.toMap(Card::getCardNumber, Function.identity()));
+
+        List<MovementBatchItemResultDto> results = new ArrayList<>(chunk.size());
+        List<Movement> movementsToSave = new ArrayList<>(chunk.size());
+        // Las entidades de un mismo contexto de persistencia son únicas, por lo que basta con comparar referencias
+        Set<Account> modifiedAccounts = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Card> modifiedCards = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            MovementCreateDto dto = chunk.get(i);
+            try {
+                validateConstraints(dto);
+                if (ibansOfUser != null && !ibansOfUser.contains(dto.getIbanOfReference())) {
+                    throw new AccountNotFoundException("La cuenta con iban " + dto.getIbanOfReference() + " no pertenece al usuario con username " + principal.getName());
+                }
+                MovementType movementType = validator.validateMovementType(dto.getMovementType());
+                Account accountOfReference = findLoadedAccount(accounts, dto.getIbanOfReference());
+                Account accountOfDestination = movementType.requiresDestinationAccount() ? findLoadedAccount(accounts, dto.getIbanOfDestination()) : null;
+                Card card = movementType.requiresCard() ? findLoadedCard(cards, dto.getCardNumber()) : null;
+                MovementContext context = new MovementContext(movementType, accountOfReference, accountOfDestination, card);
+                validator.validateMovementDto(dto, context);
+
+                Movement movement = movementMapper.fromCreateDtoToEntity(dto, accountOfReference, accountOfDestination, card);
+                moveMoney(movement, context);
+
+                modifiedAccounts.add(accountOfReference);
+                if (accountOfDestination != null) {
+                    modifiedAccounts.add(accountOfDestination);
+                }
+                if (card != null) {
+                    modifiedCards.add(card);
+                }
+                movementsToSave.add(movement);
+                results.add(MovementBatchItemResultDto.created(offset + i, null));
+            } catch (RuntimeException e) {
+                results.add(MovementBatchItemResultDto.rejected(offset + i, e.getMessage()));
+            }
+        }
 
-        Movement movementToSave = movementMapper.fromCreateDtoToEntity(
-                movementCreateDto, accountOfReference, accountOfDestination, card);
+        if (!movementsToSave.isEmpty()) {
+            accountRepository.saveAll(modifiedAccounts);
+            cardsRepository.saveAll(modifiedCards);
+            // Todo lo que puede fallar en la transacción se escribe antes que los movimientos, que no se deshacen
+            notificationService.sendNotificationsFromMovements(movementsToSave, modifiedAccounts, NotificationType.CREATE);
+            accountRepository.flush();
+            movementRepository.insert(movementsToSave);
+        }
 
-        moveMoney(movementToSave);
+        Iterator<Movement> saved = movementsToSave.iterator();
+        for (MovementBatchItemResultDto result : results) {
+            if (MovementBatchItemResultDto.CREATED.equals(result.getStatus())) {
+                result.setMovement(movementMapper.fromEntityToResponse(saved.next()));
+            }
+        }
+        return results;
+    }
 
-        saveModificationsInAccountsAndCard(accountOfReference, accountOfDestination, card);
-        return movementMapper.fromEntityToResponse(movementRepository.save(movementToSave));
+    /**
+     * Valida las restricciones declaradas en MovementCreateDto, que en un lote no se comprueban en el controlador
+     * @param dto Movimiento a validar
+     */
+    private void validateConstraints(MovementCreateDto dto) {
+        Set<ConstraintViolation<MovementCreateDto>> violations = beanValidator.validate(dto);
+        if (!violations.isEmpty()) {
+            throw new MovementBadRequest(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
     }
 
     /**
-     * Método que se encarga de añadir interes a un movimiento
+     * Obtiene los ibans de referencia y destino de un bloque de movimientos
+     * @param chunk Movimientos del bloque
+     * @return Ibans sin repetir
+     */
+    private Set<String> collectIbans(List<MovementCreateDto> chunk) {
+        Set<String> ibans = new HashSet<>();
+        for (MovementCreateDto dto : chunk) {
+            if (dto.getIbanOfReference() != null) ibans.add(dto.getIbanOfReference());
+            if (dto.getIbanOfDestination() != null) ibans.add(dto.getIbanOfDestination());
+        }
+        return ibans;
+    }
+
+    /**
+     * Busca una cuenta entre las cargadas para el bloque
+     * @param accounts Cuentas cargadas indexadas por iban
+     * @param iban Iban de la cuenta
+     * @return Account Cuenta
+     * @throws AccountNotFoundException Excepción si la cuenta no existe
+     */
+    private Account findLoadedAccount(Map<String, Account> accounts, String iban) {
+        Account account = iban != null ? accounts.get(iban) : null;
+        if (account == null) {
+            throw new AccountNotFoundException("Cuenta con iban " + iban + " no encontrada");
+        }
+        return account;
+    }
+
+    /**
+     * Busca una tarjeta entre las cargadas para el bloque
+     * @param cards Tarjetas cargadas indexadas por número
+     * @param cardNumber Número de la tarjeta
+     * @return Card Tarjeta
+     * @throws CardDoesNotExistException Excepción si la tarjeta no existe
+     */
+    private Card findLoadedCard(Map<String, Card> cards, String cardNumber) {
+        Card card = cardNumber != null ? cards.get(cardNumber) : null;
+        if (card == null) {
+            throw new CardDoesNotExistException("Tarjeta con numero " + cardNumber + " no encontrada");
+        }
+        return card;
+    }
+
+    /**
+     * Método que se encarga de añadir interes a un movimiento.
+     * Se registra igual que el abono nocturno de {@link MonthlyInterestEngine}: la cuenta guarda la fecha del abono y
+     * el movimiento tiene el id de la cuenta y el mes, de modo que los intereses no se abonan dos veces en el mismo mes
      * @param createDto
      * @return MovementResponseDto Movimiento con interes añadido
+     * @throws MovementBadRequest Si la cuenta ya ha recibido los intereses este mes
      */
-    @Transactional
     @Override
     public MovementResponseDto addInterest(MovementCreateDto createDto){
         if(!createDto.getMovementType().trim().equalsIgnoreCase("INTERESMENSUAL")){
             throw new MovementBadRequest("No se puede añadir interes a un movimiento que no sea de tipo interes mensual");
         }
-        Account accountOfReference = existsAccountByIban(createDto.getIbanOfReference());
-        validator.validateInteresMensual(createDto, accountOfReference);
-        Movement movement = movementMapper.fromCreateDtoToEntity(createDto, accountOfReference, null, null);
-        movement.setAmountOfMoney(calculateInterest(accountOfReference));
-        moveMoney(movement);
-        saveModificationsInAccountsAndCard(accountOfReference, null, null);
-        return movementMapper.fromEntityToResponse(movementRepository.save(movement));
+        return executeLocked(Collections.singletonList(createDto.getIbanOfReference()), () -> {
+            Account accountOfReference = existsAccountByIban(createDto.getIbanOfReference());
+            validator.validateInteresMensual(createDto, accountOfReference);
+            LocalDate today = LocalDate.now();
+            LocalDate period = today.withDayOfMonth(1);
+            if (accountOfReference.getLastInterestDate() != null && !accountOfReference.getLastInterestDate().isBefore(period)) {
+                throw new MovementBadRequest("Ya se han abonado los intereses de este mes a la cuenta con iban " + accountOfReference.getIban());
+            }
+            Movement movement = movementMapper.fromCreateDtoToEntity(createDto, accountOfReference, null, null);
+            movement.setId(MonthlyInterestEngine.interestMovementId(accountOfReference.getId(), period));
+            movement.setAmountOfMoney(calculateInterest(accountOfReference));
+            moveMoney(movement, new MovementContext(MovementType.INTERESMENSUAL, accountOfReference, null, null));
+            accountOfReference.setLastInterestDate(today);
+            saveModificationsInAccountsAndCard(accountOfReference, null, null);
+            return movementMapper.fromEntityToResponse(movementRepository.save(movement));
+        });
     }
 
     /**
@@ -151,7 +431,6 @@ public class MovementServiceImpl implements MovementService{
      * @param movementDto Movimiento a actualizar
      * @return MovementResponseDto Movimiento actualizado
      */
-    @Transactional
     @Override
     public MovementResponseDto update(ObjectId id, MovementCreateDto movementDto) {
         Movement movementToUpdate = existsMovementById(id);
@@ -159,29 +438,37 @@ public class MovementServiceImpl implements MovementService{
         if(movementToUpdate.getMovementType() != MovementType.TRANSFERENCIA || !movementDto.getMovementType().trim().equalsIgnoreCase("TRANSFERENCIA")){
             throw new MovementBadRequest("No se puede modificar un movimiento que no sea de tipo transferencia");
         }
-        validator.validateMovementDto(movementDto);
+        String oldReferenceIban = movementToUpdate.getIbanOfReference();
+        String oldDestinationIban = movementToUpdate.getIbanOfDestination();
 
-        Account oldReferenceAccount = existsAccountByIban(movementToUpdate.getAccountOfReference().getIban());
-        Account oldDestinationAccount = existsAccountByIban(movementToUpdate.getAccountOfDestination().getIban());
+        return executeLocked(Arrays.asList(oldReferenceIban, oldDestinationIban, movementDto.getIbanOfReference(), movementDto.getIbanOfDestination()), () -> {
+            validator.validateMovementDto(movementDto);
+            Movement current = reloadLocked(id, oldReferenceIban, oldDestinationIban);
 
-        revertTransfer(oldReferenceAccount, oldDestinationAccount, movementToUpdate.getAmountOfMoney());
+            Account oldReferenceAccount = existsAccountByIban(oldReferenceIban);
+            Account oldDestinationAccount = existsAccountByIban(oldDestinationIban);
 
-        Account newReferenceAccount = existsAccountByIban(movementDto.getIbanOfReference());
-        Account newDestinationAccount = existsAccountByIban(movementDto.getIbanOfDestination());
+            revertTransfer(oldReferenceAccount, oldDestinationAccount, current.getAmountOfMoney());
 
-        // Actualizar la entidad del movimiento
-        movementToUpdate.setAccountOfReference(newReferenceAccount);
-        movementToUpdate.setAccountOfDestination(newDestinationAccount);
-        movementToUpdate.setAmountOfMoney(movementDto.getAmount());
+            Account newReferenceAccount = existsAccountByIban(movementDto.getIbanOfReference());
+            Account newDestinationAccount = existsAccountByIban(movementDto.getIbanOfDestination());
 
+            // Actualizar la entidad del movimiento
+            current.setIbanOfReference(newReferenceAccount.getIban());
+            current.setAccountOfReferencePublicId(newReferenceAccount.getPublicId());
+            current.setIbanOfDestination(newDestinationAccount.getIban());
+            current.setAmountOfMoney(movementDto.getAmount());
 
-        moveMoney(movementToUpdate);
 
-        saveModificationsInAccountsAndCard(newReferenceAccount, newDestinationAccount, null);
+            moveMoney(current, new MovementContext(MovementType.TRANSFERENCIA, newReferenceAccount, newDestinationAccount, null));
 
-        movementRepository.save(movementToUpdate);
+            saveModificationsInAccountsAndCard(newReferenceAccount, newDestinationAccount, null);
 
-        return movementMapper.fromEntityToResponse(movementToUpdate);
+            notificationService.sendNotificationFromMovement(current, newReferenceAccount, newDestinationAccount, NotificationType.UPDATE);
+            movementRepository.save(current);
+
+            return movementMapper.fromEntityToResponse(current);
+        });
     }
 
     /**
@@ -203,13 +490,14 @@ public class MovementServiceImpl implements MovementService{
      * @param id Id del movimiento
      * @return Boolean
      */
-    @Transactional
     @Override
     public Boolean cancelMovement(Principal principal, ObjectId id) {
         Movement movementToCancel = existsMovementById(id);
 
         verifyIsATransferencia(movementToCancel.getMovementType());
-        validateUser(principal, movementToCancel.getAccountOfReference().getIban());
+        String referenceIban = movementToCancel.getIbanOfReference();
+        String destinationIban = movementToCancel.getIbanOfDestination();
+        validateUser(principal, referenceIban);
 
         LocalDateTime now = LocalDateTime.now();
         Duration duration = Duration.between(movementToCancel.getCreatedAt(), now);
@@ -218,11 +506,78 @@ public class MovementServiceImpl implements MovementService{
             throw new MovementBadRequest("El movimiento no puede cancelarse porque han pasado más de 24 horas.");
         }
 
-        revertTransfer(movementToCancel.getAccountOfReference(), movementToCancel.getAccountOfDestination(), movementToCancel.getAmountOfMoney());
+        return executeLocked(Arrays.asList(referenceIban, destinationIban), () -> {
+            // Si otra cancelación se ha adelantado el movimiento ya no existe y no se devuelve el dinero dos veces
+            Movement current = reloadLocked(id, referenceIban, destinationIban);
+            Account referenceAccount = existsAccountByIban(referenceIban);
+            Account destinationAccount = existsAccountByIban(destinationIban);
+            revertTransfer(referenceAccount, destinationAccount, current.getAmountOfMoney());
+
+            notificationService.sendNotificationFromMovement(current, referenceAccount, destinationAccount, NotificationType.DELETE);
+            movementRepository.delete(current);
+
+            return true;
+        });
+    }
 
-        movementRepository.delete(movementToCancel);
+    /**
+     * Vuelve a leer, con sus cuentas ya bloqueadas, un movimiento que se leyó antes de bloquearlas, para trabajar con su
+     * estado actual y no con el que tenía cuando se leyó
+     * @param id Id del movimiento
+     * @param referenceIban Iban de la cuenta de referencia bloqueada
+     * @param destinationIban Iban de la cuenta de destino bloqueada
+     * @return Movement Movimiento actual
+     * @throws MovementNotFound Si otra operación lo ha borrado mientras tanto
+     * @throws MovementConflict Si otra operación lo ha cambiado a otras cuentas, que no están bloqueadas
+     */
+    private Movement reloadLocked(ObjectId id, String referenceIban, String destinationIban) {
+        Movement current = existsMovementById(id);
+        if (!Objects.equals(current.getIbanOfReference(), referenceIban) || !Objects.equals(current.getIbanOfDestination(), destinationIban)) {
+            throw new MovementConflict("El movimiento ha sido modificado por otra operación, intentelo de nuevo");
+        }
+        return current;
+    }
 
-        return true;
+    /**
+     * Ejecuta una operación que modifica cuentas con las cuentas bloqueadas y en una transacción propia.
+     * El bloqueo se mantiene hasta que la transacción termina, de modo que otro movimiento sobre las mismas cuentas
+     * siempre lee los saldos ya confirmados. Si otra transacción ha modificado antes alguna de las cuentas o tarjetas
+     * (por ejemplo desde otra instancia de la aplicación), se descartan de la caché sus cuentas y tarjetas, que estaban
+     * desactualizadas, y la operación se reintenta hasta {@code movements.lock.max-retries} veces.
+     *
+     * @param ibans Ibans de las cuentas que se van a modificar
+     * @param operation Operación a ejecutar
+     * @return El resultado de la operación
+     * @param <T> Tipo del resultado
+     * @throws MovementConflict Si se agotan los reintentos
+     */
+    private <T> T executeLocked(Collection<String> ibans, Supplier<T> operation) {
+        return lockManager.executeWithLocks(ibans, () -> {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return transactionTemplate.execute(status -> operation.get());
+                } catch (OptimisticLockingFailureException e) {
+                    evictFromCache(ibans);
+                    if (attempt >= maxRetries) {
+                        throw new MovementConflict("Las cuentas del movimiento han sido modificadas por otra operación, intentelo de nuevo");
+                    }
+                    log.warn("Conflicto de concurrencia en las cuentas {}, reintento {} de {}", ibans, attempt + 1, maxRetries);
+                }
+            }
+        });
+    }
+
+    /**
+     * Descarta de la caché las cuentas indicadas y sus tarjetas
+     * @param ibans Ibans de las cuentas
+     */
+    private void evictFromCache(Collection<String> ibans) {
+        for (String iban : ibans) {
+            if (iban != null) {
+                accountCache.evictByIban(iban);
+                cardCache.evictByAccountIban(iban);
+            }
+        }
     }
 
     /**
@@ -258,36 +613,44 @@ public class MovementServiceImpl implements MovementService{
 
 
     /**
-     * Se encarga de mover el dinero dependiendo del tipo de transaccion e insertar el movimiento en la base de datos
+     * Se encarga de mover el dinero dependiendo del tipo de transaccion y de guardar en el movimiento los dnis
+     * de los clientes y los saldos de las cuentas antes y después del movimiento
      *
      * @param movement Movimiento a realizar
+     * @param context Cuentas y tarjeta que intervienen en el movimiento
      */
-    public void moveMoney(Movement movement){
+    public void moveMoney(Movement movement, MovementContext context){
+        Account accountOfReference = context.getAccountOfReference();
+        Account accountOfDestination = context.getAccountOfDestination();
         switch (movement.getMovementType()){
             case TRANSFERENCIA:
-                movement.setAmountBeforeMovement(movement.getAccountOfReference().getBalance());
-                movement.getAccountOfReference().setBalance(movement.getAccountOfReference().getBalance() - movement.getAmountOfMoney());
-                movement.getAccountOfDestination().setBalance(movement.getAccountOfDestination().getBalance() + movement.getAmountOfMoney());
-                movement.setClientOfDestinationDni(movement.getAccountOfDestination().getClient().getDni());
-                movement.setClientOfReferenceDni(movement.getAccountOfReference().getClient().getDni());
+                // Los dnis se leen antes de cambiar los saldos, para que una cuenta sin cliente no deje en un lote
+                // las cuentas modificadas sin su movimiento
+                movement.setClientOfDestinationDni(accountOfDestination.getClient().getDni());
+                movement.setClientOfReferenceDni(accountOfReference.getClient().getDni());
+                movement.setAmountBeforeMovement(accountOfReference.getBalance());
+                accountOfReference.setBalance(accountOfReference.getBalance() - movement.getAmountOfMoney());
+                accountOfDestination.setBalance(accountOfDestination.getBalance() + movement.getAmountOfMoney());
+                movement.setBalanceOfDestinationAfterMovement(accountOfDestination.getBalance());
                 break;
             case INGRESO, NOMINA:
-                movement.setClientOfDestinationDni(movement.getAccountOfReference().getClient().getDni());
-                movement.setAmountBeforeMovement(movement.getAccountOfReference().getBalance());
-                movement.getAccountOfReference().setBalance(movement.getAccountOfReference().getBalance() + movement.getAmountOfMoney());
+                movement.setClientOfDestinationDni(accountOfReference.getClient().getDni());
+                movement.setAmountBeforeMovement(accountOfReference.getBalance());
+                accountOfReference.setBalance(accountOfReference.getBalance() + movement.getAmountOfMoney());
                 break;
             case PAGO:
             case EXTRACCION:
-                movement.setAmountBeforeMovement(movement.getAccountOfReference().getBalance());
-                movement.setClientOfReferenceDni(movement.getAccountOfReference().getClient().getDni());
-                movement.getAccountOfReference().setBalance(movement.getAccountOfReference().getBalance() - movement.getAmountOfMoney());
-                setNewLimitsInCard(movement.getCard(), movement.getAmountOfMoney());
+                movement.setAmountBeforeMovement(accountOfReference.getBalance());
+                movement.setClientOfReferenceDni(accountOfReference.getClient().getDni());
+                accountOfReference.setBalance(accountOfReference.getBalance() - movement.getAmountOfMoney());
+                setNewLimitsInCard(context.getCard(), movement.getAmountOfMoney());
                 break;
             case INTERESMENSUAL:
-                movement.setAmountBeforeMovement(movement.getAccountOfReference().getBalance());
-                movement.setClientOfReferenceDni(movement.getAccountOfReference().getClient().getDni());
-                movement.getAccountOfReference().setBalance(movement.getAccountOfReference().getBalance() + calculateInterest(movement.getAccountOfReference()));
+                movement.setAmountBeforeMovement(accountOfReference.getBalance());
+                movement.setClientOfReferenceDni(accountOfReference.getClient().getDni());
+                accountOfReference.setBalance(accountOfReference.getBalance() + movement.getAmountOfMoney());
         }
+        movement.setBalanceAfterMovement(accountOfReference.getBalance());
     }
 
     /**
@@ -300,14 +663,13 @@ public class MovementServiceImpl implements MovementService{
     }
 
     /**
-     * Actualiza los limites de una tarjeta despues de realizar un movimiento de tipo PAGO o EXTRACCION
+     * Actualiza los limites de una tarjeta despues de realizar un movimiento de tipo PAGO o EXTRACCION.
+     * Los gastos de un periodo ya terminado se ponen a cero antes de sumar el nuevo
      * @param card
      * @param amount
      */
     public void setNewLimitsInCard(Card card, Double amount){
-        card.setSpentToday(card.getSpentToday() + amount);
-        card.setSpentThisWeek(card.getSpentThisWeek() + amount);
-        card.setSpentThisMonth(card.getSpentThisMonth() + amount);
+        card.addSpending(amount, LocalDate.now());
     }
 
     /**
@@ -324,6 +686,53 @@ public class MovementServiceImpl implements MovementService{
         if(card != null){
             cardsRepository.save(card);
         }
+        // Se comprueban las versiones antes de escribir en MongoDB para que un conflicto no deje movimientos huérfanos
+        accountRepository.flush();
+    }
+
+    /**
+     * Guarda las modificaciones de las cuentas y la tarjeta leídas de la caché después de realizar un movimiento.
+     * Se escriben con una actualización que comprueba la versión, sin volver a leerlas de la base de datos; si otra
+     * operación las ha modificado se lanza un conflicto de concurrencia y el movimiento se reintenta. Como esas
+     * actualizaciones no pasan por los listeners de las entidades, las copias nuevas se guardan en la caché al
+     * confirmarse la transacción.
+     * @param accountOfReference Cuenta de referencia
+     * @param accountOfDestination Cuenta de destino, puede ser nula o la misma que la de referencia
+     * @param card Tarjeta, puede ser nula
+     * @throws ObjectOptimisticLockingFailureException Si alguna ha cambiado desde que se leyó
+     */
+    private void saveCachedModifications(Account accountOfReference, Account accountOfDestination, Card card){
+        List<Account> accounts = accountOfDestination == null || accountOfDestination == accountOfReference
+                ? List.of(accountOfReference)
+                : List.of(accountOfReference, accountOfDestination);
+        for (Account account : accounts) {
+            if (accountRepository.updateBalance(account.getId(), account.getBalance(), account.getVersion()) == 0) {
+                throw new ObjectOptimisticLockingFailureException(Account.class, account.getId());
+            }
+            account.setVersion(account.getVersion() + 1);
+        }
+        if (card != null) {
+            if (cardsRepository.updateSpending(card) == 0) {
+                throw new ObjectOptimisticLockingFailureException(Card.class, card.getId());
+            }
+            card.setVersion(card.getVersion() + 1);
+            // La tarjeta guarda una copia de su cuenta, que tiene que ser la que se acaba de actualizar
+            accounts.stream()
+                    .filter(account -> account.getId().equals(card.getAccount().getId()))
+                    .findFirst()
+                    .ifPresent(card::setAccount);
+        }
+        AfterCommit.run(() -> {
+            for (Account account : accounts) {
+                accountCache.put(account);
+                if (card == null || !card.getAccount().getIban().equals(account.getIban())) {
+                    cardCache.evictByAccountIban(account.getIban());
+                }
+            }
+            if (card != null) {
+                cardCache.put(card);
+            }
+        });
     }
 
     /**
@@ -337,6 +746,7 @@ public class MovementServiceImpl implements MovementService{
         accountOfDestination.setBalance(accountOfDestination.getBalance() - amount);
         accountRepository.save(accountOfReference);
         accountRepository.save(accountOfDestination);
+        accountRepository.flush();
     }
 
     /**
@@ -351,101 +761,119 @@ public class MovementServiceImpl implements MovementService{
 
 
     /**
-     * Este método se ejecuta a las 00 de la noche todos los dias de manera automatica, para que busque las cuentas que
-     * tengan interes, si se cumple el mes desde que se creo la cuenta, se le añade el interes mensual a la cuenta
-     * y se almacena el movimiento y el cambio en el balance de la cuenta en las bases de datos
+     * Método que se encarga de buscar los movimientos de un usuario. Los movimientos de todas sus cuentas se buscan
+     * con una sola consulta paginada en MongoDB, por lo que solo se cargan los movimientos de la página pedida
+     * @param principal Usuario autenticado
+     * @param pageable Paginación
+     * @return Page<MovementResponseDto> Lista de movimientos
      */
-    @Scheduled(cron = "0 0 0 * * ?")// se ejecutaria a las 00
-    @Transactional
-    public void createInteresMensualMovement(){
-        List<Account> accountsWithInterest = accountRepository.findAllByAccountType_InterestNotNull();
-        for (Account account : accountsWithInterest) {
-            LocalDate creationDate = account.getCreatedAt().toLocalDate();
-            LocalDate today = LocalDate.now();
+    @Override
+    public Page<MovementResponseDto> findMyMovements(Principal principal, Pageable pageable){
+        log.info("Buscando sus movientos");
 
-            if (creationDate.getDayOfMonth() == today.getDayOfMonth() ||
-                    (creationDate.getDayOfMonth() > today.lengthOfMonth() && today.getDayOfMonth() == today.lengthOfMonth())) {
-                Movement movement = Movement.builder()
-                        .movementType(MovementType.INTERESMENSUAL)
-                        .accountOfReference(account)
-                        .amountOfMoney(calculateInterest(account))
-                        .build();
+        List<String> ibans = findIbansOfUserOrThrow(principal);
+        Page<Movement> movements = movementRepository.findAllByIbanOfReferenceIn(ibans, pageable);
 
-                moveMoney(movement);
-                saveModificationsInAccountsAndCard(account, null, null);
-            }
+        if(movements.getTotalElements() == 0){
+            throw new MovementNotFound("No se han encontrado movimientos para las cuentas del usuario con username " + principal.getName());
         }
+        return movements.map(movementMapper::fromEntityToResponse);
     }
 
     /**
-     * Método que se encarga de buscar los movimientos de un usuario
+     * Método que se encarga de buscar los movimientos de un usuario por cursor, del más reciente al más antiguo,
+     * pensado para listados con scroll infinito. Cada página continúa a partir del último movimiento de la anterior
      * @param principal Usuario autenticado
-     * @param pageable Paginación
-     * @return Page<MovementResponseDto> Lista de movimientos
+     * @param cursor Cursor devuelto en la página anterior, o vacío para la primera página
+     * @param size Tamaño de la página
+     * @return MovementCursorPageDto Movimientos y cursor de la página siguiente
      */
     @Override
-    public Page<MovementResponseDto> findMyMovements(Principal principal, Pageable pageable){
-        log.info("Buscando sus movientos");
+    public MovementCursorPageDto findMyMovementsAfter(Principal principal, Optional<String> cursor, int size){
+        log.info("Buscando sus movimientos por cursor");
+        if(size <= 0){
+            throw new MovementBadRequest("El tamaño de la pagina debe ser mayor que 0");
+        }
+        Optional<MovementCursor> after = cursor.map(MovementCursor::decode);
+        List<String> ibans = findIbansOfUserOrThrow(principal);
+
+        // Se pide un movimiento más para saber si hay página siguiente sin necesidad de contar
+        List<Movement> movements = movementRepository.findAllByIbanOfReferenceInAfter(ibans, after, size + 1);
+        boolean hasNext = movements.size() > size;
+        List<Movement> page = hasNext ? movements.subList(0, size) : movements;
+
+        return MovementCursorPageDto.builder()
+                .content(page.stream().map(movementMapper::fromEntityToResponse).toList())
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? MovementCursor.of(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
 
-        List<Account> accounts = accountRepository.findAllByClient_User_Username(principal.getName());
-        if(accounts.isEmpty()){
+    /**
+     * Método que obtiene los ibans de las cuentas de un usuario sin cargar las cuentas
+     * @param principal Usuario autenticado
+     * @return List<String> Ibans de las cuentas
+     * @throws MovementNotFound Si el usuario no tiene cuentas
+     */
+    private List<String> findIbansOfUserOrThrow(Principal principal){
+        List<String> ibans = accountRepository.findIbansByClient_User_Username(principal.getName());
+        if(ibans.isEmpty()){
             throw new MovementNotFound("No se han encontrado cuentas para el usuario con username " + principal.getName());
         }
+        return ibans;
+    }
 
-        List<Movement> movements = accounts.stream()
-                .flatMap(account -> movementRepository.findAllByAccountOfReference_Iban(account.getIban()).stream())
-                .toList();
-
-        if(movements.isEmpty()){
-            throw new MovementNotFound("No se han encontrado movimientos para las cuentas del usuario con username " + principal.getName());
+    /**
+     * Método que se encarga de validar si un usuario tiene acceso a una cuenta. La comprobación se hace con una única
+     * consulta de existencia por el iban, que es único, en lugar de cargar todas las cuentas del usuario
+     * @param principal Usuario autenticado
+     * @param ibanOfReference Iban de la cuenta
+     */
+    public void validateUser(Principal principal, String ibanOfReference){
+        if (!isAdmin(principal) && !accountRepository.existsByIbanAndClient_User_Username(ibanOfReference, principal.getName())) {
+            throw new AccountNotFoundException("La cuenta con iban " + ibanOfReference + " no pertenece al usuario con username " + principal.getName());
         }
-        List<MovementResponseDto> responses = movements.stream().map(movementMapper::fromEntityToResponse).toList();
-
-        return getPage(responses, pageable);
     }
 
     /**
-     * Método que se encarga de paginar una lista de movimientos
-     * @param list Lista de movimientos
-     * @param pageable Paginación
-     * @param <T> Tipo de movimiento
-     * @return Page<T> Lista de movimientos paginada
+     * Método que se encarga de validar si un usuario tiene acceso a una cuenta ya cargada, comprobando el usuario de
+     * su cliente sin consultar la base de datos
+     * @param principal Usuario autenticado
+     * @param accountOfReference Cuenta de referencia
      */
-    private <T> Page<T> getPage(List<T> list, Pageable pageable) {
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), list.size());
-
-        if (start >= list.size()) {
-            return Page.empty(pageable);
+    private void validateUser(Principal principal, Account accountOfReference){
+        if (isAdmin(principal)) {
+            return;
+        }
+        Client client = accountOfReference.getClient();
+        if (client == null || client.getUser() == null || !principal.getName().equals(client.getUser().getUsername())) {
+            throw new AccountNotFoundException("La cuenta con iban " + accountOfReference.getIban() + " no pertenece al usuario con username " + principal.getName());
         }
-
-        return new PageImpl<>(list.subList(start, end), pageable, list.size());
     }
 
     /**
-     * Método que se encarga de validar si un usuario tiene acceso a una cuenta
+     * Método que comprueba si el usuario autenticado es administrador
      * @param principal Usuario autenticado
-     * @param ibanOfReference Iban de la cuenta
+     * @return true si tiene rol ADMIN o SUPER_ADMIN
      */
-    public void validateUser(Principal principal, String ibanOfReference){
+    private boolean isAdmin(Principal principal){
         Authentication authentication = (Authentication) principal;
-        boolean isAdmin = authentication.getAuthorities().stream()
+        return authentication.getAuthorities().stream()
                 .anyMatch(auth -> auth.getAuthority().equals("ROLE_ADMIN") || auth.getAuthority().equals("ROLE_SUPER_ADMIN"));
+    }
 
-        if (!isAdmin) {
-            List<Account> accountsOfUser = accountRepository.findAllByClient_User_Username(principal.getName());
-
-            if (accountsOfUser.isEmpty()) {
-                throw new AccountNotFoundException("No se han encontrado cuentas para el usuario con username " + principal.getName());
-            }
-
-            boolean ibanBelongsToUser = accountsOfUser.stream().anyMatch(account -> account.getIban().equals(ibanOfReference));
-
-            if (!ibanBelongsToUser) {
-                throw new AccountNotFoundException("La cuenta con iban " + ibanOfReference + " no pertenece al usuario con username " + principal.getName());
-            }
+    /**
+     * Método que obtiene los ibans de las cuentas de un usuario
+     * @param principal Usuario autenticado
+     * @return Ibans de las cuentas del usuario
+     */
+    private Set<String> findIbansOfUser(Principal principal){
+        List<String> ibansOfUser = accountRepository.findIbansByClient_User_Username(principal.getName());
+        if (ibansOfUser.isEmpty()) {
+            throw new AccountNotFoundException("No se han encontrado cuentas para el usuario con username " + principal.getName());
         }
+        return new HashSet<>(ibansOfUser);
     }
 
 }
-
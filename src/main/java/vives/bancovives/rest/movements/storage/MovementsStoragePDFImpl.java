@@ -51,16 +51,16 @@ public class MovementsStoragePDFImpl implements MovementsStoragePDF{
             for (Movement item : movements) {
                 String date = item.getUpdatedAt().getYear() + "-" + item.getUpdatedAt().getMonth() + "-" + item.getUpdatedAt().getDayOfMonth();
                 table.addCell(date);
-                if (account.getIban().equals(item.getAccountOfDestination().getIban())) {
-                    table.addCell(item.getAccountOfReference().getIban());
-                    table.addCell(String.valueOf(item.getAccountOfReference()));
+                if (account.getIban().equals(item.getIbanOfDestination())) {
+                    table.addCell(item.getIbanOfReference());
+                    table.addCell(String.valueOf(item.getIbanOfReference()));
                     table.addCell("-" + item.getAmountOfMoney());
-                    table.addCell(String.valueOf(item.getAccountOfDestination().getBalance()));
+                    table.addCell(String.valueOf(item.getBalanceOfDestinationAfterMovement()));
                 }else {
-                    table.addCell(item.getAccountOfReference().getIban());
-                    table.addCell(item.getAccountOfDestination().getIban());
+                    table.addCell(item.getIbanOfReference());
+                    table.addCell(item.getIbanOfDestination());
                     table.addCell("+" + item.getAmountOfMoney());
-                    table.addCell(String.valueOf(item.getAccountOfDestination().getBalance()));
+                    table.addCell(String.valueOf(item.getBalanceOfDestinationAfterMovement()));
                 }
             }
 
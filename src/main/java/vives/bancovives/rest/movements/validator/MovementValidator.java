@@ -11,6 +11,7 @@ import vives.bancovives.rest.cards.repository.CardsRepository;
 import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
 import vives.bancovives.rest.movements.exceptions.MovementBadRequest;
 import vives.bancovives.rest.movements.exceptions.MovementForbidden;
+import vives.bancovives.rest.movements.model.MovementContext;
 import vives.bancovives.rest.movements.model.MovementType;
 
 import java.time.LocalDate;
@@ -49,6 +50,18 @@ public class MovementValidator {
         validateCorrectAttributesFromMovementType(movementType, movementCreateDto, accountOfReference, accountOfDestination, card);
     }
 
+    /**
+     * Método que valida un movimiento con las entidades ya resueltas en su contexto, sin acceder a la base de datos.
+     *
+     * @param movementCreateDto Objeto de la clase MovementCreateDto que se va a validar
+     * @param context Tipo de movimiento, cuentas y tarjeta ya cargados
+     */
+    public void validateMovementDto(MovementCreateDto movementCreateDto, MovementContext context) {
+        validatePositiveAmount(movementCreateDto.getAmount());
+        validateCorrectAttributesFromMovementType(context.getMovementType(), movementCreateDto,
+                context.getAccountOfReference(), context.getAccountOfDestination(), context.getCard());
+    }
+
 
     /**
      * Método que valida el tipo de movimiento.
@@ -229,10 +242,12 @@ public class MovementValidator {
 
     /**
      * Método que valida que el monto a mover no exceda los limites de la tarjeta.
+     * Antes renueva los gastos cuyo periodo ya ha terminado.
      * @param amount Monto a mover
      * @param card Tarjeta
      */
     public void validateTimelyAmount(double amount, Card card){
+        card.rollSpendingPeriods(LocalDate.now());
         if(amount + card.getSpentToday() > card.getDailyLimit()){
             throw new MovementBadRequest("La cantidad superaria el limite diario de la tarjeta");
         }
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 import vives.bancovives.rest.products.accounttype.model.AccountType;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,4 +13,5 @@ import java.util.UUID;
 public interface AccountTypeRepository extends JpaRepository<AccountType, UUID>, JpaSpecificationExecutor<AccountType> {
     Optional<AccountType> findByPublicId(String id);
     Optional<AccountType> findByName(String name);
+    List<AccountType> findAllByIsDeletedFalse();
 }
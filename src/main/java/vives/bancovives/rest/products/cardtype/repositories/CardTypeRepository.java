@@ -6,6 +6,7 @@ import org.springframework.stereotype.Repository;
 import vives.bancovives.rest.products.accounttype.model.AccountType;
 import vives.bancovives.rest.products.cardtype.model.CardType;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -13,4 +14,5 @@ import java.util.UUID;
 public interface CardTypeRepository extends JpaRepository<CardType, UUID>, JpaSpecificationExecutor<CardType> {
     Optional<CardType> findByPublicId(String id);
     Optional<CardType> findByName(String name);
+    List<CardType> findAllByIsDeletedFalse();
 }
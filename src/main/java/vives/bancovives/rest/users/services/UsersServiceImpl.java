@@ -27,6 +27,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import vives.bancovives.rest.users.validator.UserUpdateValidator;
 import vives.bancovives.security.jwt.JwtService;
+import vives.bancovives.security.jwt.TokenRevocationService;
 import vives.bancovives.security.model.JwtAuthResponse;
 
 import java.util.Optional;
@@ -48,6 +49,7 @@ public class UsersServiceImpl implements UsersService {
     private final UsersRepository usersRepository;
     private final UsersMapper usersMapper;
     private final UserUpdateValidator userUpdateValidator;
+    private final TokenRevocationService revocationService;
 
     public UsersServiceImpl(
             AuthUsersService userService,
@@ -56,7 +58,8 @@ public class UsersServiceImpl implements UsersService {
             AuthenticationManager authenticationManager,
             UsersRepository usersRepository,
             UsersMapper usersMapper,
-            UserUpdateValidator userUpdateValidator
+            UserUpdateValidator userUpdateValidator,
+            TokenRevocationService revocationService
     ) {
         this.userService = userService;
         this.passwordEncoder = passwordEncoder;
@@ -65,6 +68,7 @@ public class UsersServiceImpl implements UsersService {
         this.usersRepository = usersRepository;
         this.usersMapper = usersMapper;
         this.userUpdateValidator = userUpdateValidator;
+        this.revocationService = revocationService;
     }
 
     /**
@@ -138,6 +142,8 @@ public class UsersServiceImpl implements UsersService {
         User oldUser = findByPublicId(publicId);
         userUpdateValidator.validateUpdate(updateDto);
         validateUsernameIsNotTaken(updateDto.getUsername());
+        // Los tokens emitidos llevan los roles y el nombre anteriores
+        revocationService.revoke(oldUser.getUsername());
         User updatedUser = usersMapper.fromUpdateDtotoUser(oldUser, updateDto);
         updatedUser.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
         return usersRepository.save(updatedUser);
@@ -155,6 +161,7 @@ public class UsersServiceImpl implements UsersService {
         log.info("Borrando administrador con id: " + publicId);
         User userToDelete = findByPublicId(publicId);
         usersRepository.deleteById(userToDelete.getId());
+        revocationService.revoke(userToDelete.getUsername());
     }
 
     /**
@@ -227,6 +234,7 @@ public class UsersServiceImpl implements UsersService {
         if(updateUser.getUpdatedAt()!=null){
             validateUsernameIsNotTaken(updateUser.getUsername());
         }
+        revocationService.revoke(oldUser.getUsername());
         User updatedUser = usersMapper.updateUserFromClient(oldUser, updateUser);
         return usersRepository.save(updatedUser);
     }
@@ -1,13 +1,17 @@
 package vives.bancovives.security.filter;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,9 +21,18 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 import vives.bancovives.rest.users.services.UsersService;
+import vives.bancovives.security.jwt.JwtPrincipal;
 import vives.bancovives.security.jwt.JwtService;
+import vives.bancovives.security.jwt.TokenRevocationService;
+import vives.bancovives.security.jwt.VerifiedToken;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.aspectj.weaver.tools.cache.SimpleCacheFactory.path;
 
@@ -44,20 +57,60 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
      */
     private final UserDetailsService userService;
 
+    /**
+     * La lista de usuarios cuyos tokens se han revocado.
+     */
+    private final TokenRevocationService revocationService;
+
+    /**
+     * Tiempo que tarda el filtro en autenticar cada petición, según el resultado.
+     */
+    private final Map<AuthResult, Timer> latency = new EnumMap<>(AuthResult.class);
+
+    /**
+     * Contador de peticiones autenticadas, para escribir en el log solo una de cada {@link #logSampleRate}.
+     */
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Si está activo, los tokens que incluyen los roles autentican sin cargar el usuario de la base de datos.
+     */
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
+
+    /**
+     * Se escribe en DEBUG una de cada este número de peticiones autenticadas. Con 0 no se escribe ninguna.
+     */
+    @Value("${jwt.filter.log-sample-rate:100}")
+    private int logSampleRate;
+
     /**
      * Constructor para la clase JwtAuthenticationFilter.
      *
      * @param jwtService El servicio JWT que se utilizará.
      * @param userService El servicio de usuarios que se utilizará.
+     * @param revocationService La lista de tokens revocados que se utilizará.
+     * @param meterRegistry El registro donde se publica la latencia de autenticación.
      */
     @Autowired
-    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userService) {
+    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userService,
+                                   TokenRevocationService revocationService, MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userService = userService;
+        this.revocationService = revocationService;
+        for (AuthResult result : AuthResult.values()) {
+            latency.put(result, Timer.builder("security.jwt.authentication")
+                    .description("Tiempo que tarda el filtro JWT en autenticar una petición")
+                    .tag("result", result.name().toLowerCase())
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+        }
     }
 
     /**
      * Este método se llama para cada solicitud entrante y realiza el proceso de autenticación JWT.
+     * El token se verifica una sola vez y sus datos se reutilizan para el usuario, la caducidad y los roles.
+     * El token nunca se escribe en el log.
      *
      * @param request La solicitud HTTP entrante.
      * @param response La respuesta HTTP saliente.
@@ -69,55 +122,92 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
             throws ServletException, IOException {
-        log.info("Iniciando el filtro de autenticación");
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        UserDetails userDetails = null;
-        String userName = null;
 
         // Si no tenemos cabecera o no empieza por Bearer, no hacemos nada
         if (!StringUtils.hasText(authHeader) || !StringUtils.startsWithIgnoreCase(authHeader, "Bearer ")) {
-            log.info("No se ha encontrado cabecera de autenticación, se ignora");
             filterChain.doFilter(request, response);
             return;
         }
 
-        log.info("Se ha encontrado cabecera de autenticación, se procesa");
-        // Si tenemos cabecera, la extraemos y comprobamos que sea válida
-        jwt = authHeader.substring(7);
-        // Lo primero que debemos ver es que el token es válido
+        long start = System.nanoTime();
+        AuthResult result = authenticate(request, authHeader.substring(7));
+        long elapsed = System.nanoTime() - start;
+        latency.get(result).record(elapsed, TimeUnit.NANOSECONDS);
+        if (logSampleRate > 0 && log.isDebugEnabled() && requests.getAndIncrement() % logSampleRate == 0) {
+            log.debug("Autenticación JWT: {} en {} µs", result, TimeUnit.NANOSECONDS.toMicros(elapsed));
+        }
+
+        switch (result) {
+            case INVALID -> response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token no autorizado o no válido");
+            case REVOKED -> response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "El token proporcionado ha sido revocado");
+            case USER_NOT_FOUND -> response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Usuario no autorizado");
+            case USER_MISMATCH -> response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "El token proporcionado no es válido");
+            default -> filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Verifica el token y, si es válido, autentica la petición con los roles firmados en el token o, para los tokens
+     * que no los incluyen, con el usuario cargado de la base de datos.
+     *
+     * @param request La solicitud HTTP entrante.
+     * @param jwt El token de la cabecera de autenticación.
+     * @return Resultado de la autenticación.
+     */
+    private AuthResult authenticate(HttpServletRequest request, String jwt) {
+        Optional<VerifiedToken> verified = jwtService.verify(jwt);
+        if (verified.isEmpty()) {
+            return AuthResult.INVALID;
+        }
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            return AuthResult.ALREADY_AUTHENTICATED;
+        }
+        VerifiedToken token = verified.get();
+        Optional<JwtPrincipal> principal = stateless ? token.principal() : Optional.empty();
+        if (principal.isPresent()) {
+            if (revocationService.isRevoked(principal.get())) {
+                return AuthResult.REVOKED;
+            }
+            setAuthentication(request, principal.get(), principal.get().authorities());
+            return AuthResult.STATELESS;
+        }
+        UserDetails userDetails;
         try {
-            userName = jwtService.extractUserName(jwt);
+            userDetails = userService.loadUserByUsername(token.subject());
         } catch (Exception e) {
-            log.info("Token no válido");
-            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token no autorizado o no válido");
-            return;
+            return AuthResult.USER_NOT_FOUND;
         }
-        log.info("Usuario autenticado: {}", userName);
-        if (StringUtils.hasText(userName)
-                && SecurityContextHolder.getContext().getAuthentication() == null) {
-            log.info("Comprobando usuario y token");
-            try {
-                userDetails = userService.loadUserByUsername(userName);
-            } catch (Exception e) {
-                log.info("Usuario no encontrado: {}", userName);
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Usuario no autorizado");
-                return;
-            }
-            log.info("Usuario encontrado: {}", userDetails);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
-                log.info("JWT válido");
-                SecurityContext context = SecurityContextHolder.createEmptyContext();
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                context.setAuthentication(authToken);
-                SecurityContextHolder.setContext(context);
-            } else {
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "El token proporcionado no es válido");
-                return;
-            }
+        if (userDetails == null) {
+            return AuthResult.USER_NOT_FOUND;
+        }
+        if (!token.belongsTo(userDetails)) {
+            return AuthResult.USER_MISMATCH;
         }
-        filterChain.doFilter(request, response);
+        setAuthentication(request, userDetails, userDetails.getAuthorities());
+        return AuthResult.DATABASE;
+    }
+
+    /**
+     * Guarda el usuario autenticado en el contexto de seguridad de la petición.
+     *
+     * @param request La solicitud HTTP entrante.
+     * @param principal El usuario autenticado.
+     * @param authorities Las autoridades del usuario.
+     */
+    private void setAuthentication(HttpServletRequest request, Object principal, Collection<? extends GrantedAuthority> authorities) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                principal, null, authorities);
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        context.setAuthentication(authToken);
+        SecurityContextHolder.setContext(context);
+    }
+
+    /**
+     * Resultado de autenticar una petición con token, que se usa como etiqueta de la métrica de latencia.
+     */
+    enum AuthResult {
+        STATELESS, DATABASE, ALREADY_AUTHENTICATED, INVALID, REVOKED, USER_NOT_FOUND, USER_MISMATCH
     }
 }
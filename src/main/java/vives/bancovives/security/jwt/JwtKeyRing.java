@@ -0,0 +1,142 @@
+package vives.bancovives.security.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.JWTVerifier;
+
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Claves ya procesadas con las que se firman y verifican los tokens JWT. Es inmutable y se comparte entre todas las
+ * peticiones: el algoritmo de firma y los verificadores de auth0 no guardan estado y son seguros entre hilos.
+ * <p>
+ * Cada clave se identifica con un {@code kid} calculado a partir de la clave pública, que se incluye en la cabecera de
+ * los tokens. Al rotar las claves se conservan los verificadores de las anteriores para que los tokens ya emitidos
+ * sigan siendo válidos hasta que caduquen.
+ */
+final class JwtKeyRing {
+
+    /**
+     * Número máximo de claves que se aceptan a la vez, incluida la activa
+     */
+    static final int MAX_KEYS = 3;
+
+    private final String activeKeyId;
+    private final Algorithm signingAlgorithm;
+    private final Map<String, JWTVerifier> verifiers;
+
+    private JwtKeyRing(String activeKeyId, Algorithm signingAlgorithm, Map<String, JWTVerifier> verifiers) {
+        this.activeKeyId = activeKeyId;
+        this.signingAlgorithm = signingAlgorithm;
+        this.verifiers = verifiers;
+    }
+
+    /**
+     * Crea el anillo con un único par de claves en formato PEM
+     *
+     * @param privateKeyPem Clave privada PKCS#8
+     * @param publicKeyPem  Clave pública X.509
+     * @return Anillo de claves
+     */
+    static JwtKeyRing of(String privateKeyPem, String publicKeyPem) {
+        return empty().rotate(privateKeyPem, publicKeyPem);
+    }
+
+    private static JwtKeyRing empty() {
+        return new JwtKeyRing(null, null, Map.of());
+    }
+
+    /**
+     * Devuelve un anillo nuevo en el que el par de claves indicado es el activo, conservando las claves anteriores
+     * más recientes para verificar los tokens que firmaron
+     *
+     * @param privateKeyPem Clave privada PKCS#8
+     * @param publicKeyPem  Clave pública X.509
+     * @return Anillo de claves rotado
+     * @throws IllegalArgumentException Si las claves no son válidas o no forman un par
+     */
+    JwtKeyRing rotate(String privateKeyPem, String publicKeyPem) {
+        ECPrivateKey privateKey = parsePrivateKey(privateKeyPem);
+        ECPublicKey publicKey = parsePublicKey(publicKeyPem);
+        String keyId = keyId(publicKey);
+        Algorithm algorithm = Algorithm.ECDSA256(publicKey, privateKey);
+        JWTVerifier verifier = JWT.require(algorithm).build();
+        // Comprueba que la clave pública corresponde a la privada antes de empezar a firmar con ella
+        verifier.verify(JWT.create().withKeyId(keyId).sign(algorithm));
+
+        Map<String, JWTVerifier> rotated = new LinkedHashMap<>();
+        rotated.put(keyId, verifier);
+        verifiers.forEach((id, previous) -> {
+            if (rotated.size() < MAX_KEYS) {
+                rotated.putIfAbsent(id, previous);
+            }
+        });
+        return new JwtKeyRing(keyId, algorithm, Map.copyOf(rotated));
+    }
+
+    String activeKeyId() {
+        return activeKeyId;
+    }
+
+    Algorithm signingAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    /**
+     * Verificador de la clave con la que se firmó un token. Los tokens sin {@code kid}, emitidos antes de que
+     * existiera, se verifican con la clave activa
+     *
+     * @param keyId Valor de la cabecera {@code kid} del token
+     * @return Verificador, o vacío si la clave no está en el anillo
+     */
+    Optional<JWTVerifier> verifierFor(String keyId) {
+        return Optional.ofNullable(verifiers.get(keyId == null ? activeKeyId : keyId));
+    }
+
+    /**
+     * Identificador de una clave pública: los primeros bytes de su huella SHA-256 en Base64 para URL
+     */
+    static String keyId(ECPublicKey publicKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(publicKey.getEncoded());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 16);
+        } catch (Exception e) {
+            throw new IllegalStateException("No se puede calcular el identificador de la clave", e);
+        }
+    }
+
+    private static ECPrivateKey parsePrivateKey(String pem) {
+        try {
+            byte[] decoded = decodePem(pem, "PRIVATE KEY");
+            return (ECPrivateKey) KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(decoded));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Clave privada no válida: " + e.getMessage(), e);
+        }
+    }
+
+    private static ECPublicKey parsePublicKey(String pem) {
+        try {
+            byte[] decoded = decodePem(pem, "PUBLIC KEY");
+            return (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(decoded));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Clave pública no válida: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] decodePem(String pem, String type) {
+        String content = pem
+                .replace("-----BEGIN " + type + "-----", "")
+                .replace("-----END " + type + "-----", "")
+                .replaceAll("\\s", "");
+        return Base64.getDecoder().decode(content);
+    }
+}
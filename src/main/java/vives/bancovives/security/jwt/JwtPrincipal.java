@@ -0,0 +1,35 @@
+package vives.bancovives.security.jwt;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Usuario autenticado construido solo con los datos firmados del token, sin consultar la base de datos.
+ * {@link #getName()} devuelve el nombre de usuario, igual que el {@code User} que se cargaba antes, por lo que los
+ * servicios que usan {@code Principal.getName()} no cambian.
+ *
+ * @param username Nombre de usuario, el {@code sub} del token
+ * @param publicId Identificador público del usuario
+ * @param roles    Autoridades del usuario, por ejemplo {@code ROLE_ADMIN}
+ * @param issuedAt Fecha de emisión del token, para comprobar si se ha revocado después
+ */
+public record JwtPrincipal(String username, String publicId, List<String> roles, Instant issuedAt)
+        implements AuthenticatedPrincipal, Serializable {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    /**
+     * @return Autoridades del usuario para la autenticación de Spring Security
+     */
+    public List<GrantedAuthority> authorities() {
+        return roles.stream().<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+    }
+}
@@ -2,10 +2,14 @@ package vives.bancovives.security.jwt;
 
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.util.Optional;
+
 public interface JwtService {
     String extractUserName(String token);
 
     String generateToken(UserDetails userDetails);
 
     boolean isTokenValid(String token, UserDetails userDetails);
-}
\ No newline at end of file
+
+    Optional<VerifiedToken> verify(String token);
+}
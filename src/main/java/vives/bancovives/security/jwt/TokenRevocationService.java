@@ -0,0 +1,7 @@
+package vives.bancovives.security.jwt;
+
+public interface TokenRevocationService {
+    void revoke(String username);
+
+    boolean isRevoked(JwtPrincipal principal);
+}
@@ -0,0 +1,111 @@
+package vives.bancovives.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Lista de usuarios cuyos tokens se han revocado, para rechazar en segundos los tokens de un usuario borrado o
+ * modificado aunque sigan firmados y sin caducar.
+ * <p>
+ * Cada revocación guarda la fecha en la que se hizo, en milisegundos, y se rechazan los tokens emitidos antes. El
+ * {@code iat} de los tokens solo tiene segundos, así que no se puede saber si un token emitido en el mismo segundo que
+ * la revocación es anterior o posterior a ella; esos tokens también se rechazan, y quien inicie sesión en ese mismo
+ * segundo tendrá que volver a hacerlo. Es preferible a dejar válido durante toda su vida un token que debía revocarse.
+ * <p>
+ * La revocación se guarda en Redis para
+ * que la vean todos los nodos, con una caducidad igual a la de los tokens, y en una caché Caffeine local. Las consultas
+ * a Redis se guardan en otra caché local durante {@code jwt.revocation.refresh}, de modo que cada nodo consulta Redis
+ * como mucho una vez por usuario en ese intervalo y una revocación hecha en otro nodo se aplica en ese tiempo.
+ * Si Redis no está disponible solo se aplican las revocaciones hechas en este nodo.
+ */
+@Service
+@Slf4j
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    static final String KEY_PREFIX = "jwt:revoked:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration tokenLifetime;
+    private final Cache<String, Instant> localRevocations;
+    private final LoadingCache<String, Optional<Instant>> sharedRevocations;
+
+    public TokenRevocationServiceImpl(
+            StringRedisTemplate redisTemplate,
+            @Value("${jwt.expiration}") long jwtExpiration,
+            @Value("${jwt.revocation.refresh:5s}") Duration refresh
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.tokenLifetime = Duration.ofSeconds(jwtExpiration);
+        this.localRevocations = Caffeine.newBuilder()
+                .expireAfterWrite(tokenLifetime)
+                .build();
+        this.sharedRevocations = Caffeine.newBuilder()
+                .expireAfterWrite(refresh)
+                .maximumSize(100_000)
+                .build(this::loadSharedRevocation);
+    }
+
+    /**
+     * Revoca los tokens emitidos hasta ahora para un usuario
+     *
+     * @param username Nombre de usuario
+     */
+    @Override
+    public void revoke(String username) {
+        Instant revokedAt = Instant.now();
+        log.info("Revocando los tokens del usuario {}", username);
+        localRevocations.put(username, revokedAt);
+        sharedRevocations.invalidate(username);
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + username, Long.toString(revokedAt.toEpochMilli()), tokenLifetime);
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido publicar la revocación del usuario {}: {}", username, e.getMessage());
+        }
+    }
+
+    /**
+     * Comprueba si el token de un usuario se emitió antes de la última revocación de sus tokens, o en el mismo segundo
+     *
+     * @param principal Usuario autenticado con el token
+     * @return true si el token está revocado
+     */
+    @Override
+    public boolean isRevoked(JwtPrincipal principal) {
+        Instant issuedAt = principal.issuedAt();
+        Instant local = localRevocations.getIfPresent(principal.username());
+        if (local != null && issuedNotAfter(issuedAt, local)) {
+            return true;
+        }
+        return sharedRevocations.get(principal.username())
+                .map(revokedAt -> issuedNotAfter(issuedAt, revokedAt))
+                .orElse(false);
+    }
+
+    /**
+     * @param issuedAt  Fecha de emisión del token, con la precisión de segundos del {@code iat}
+     * @param revokedAt Fecha de la revocación
+     * @return Si el token no se emitió en un segundo posterior al de la revocación
+     */
+    private static boolean issuedNotAfter(Instant issuedAt, Instant revokedAt) {
+        return issuedAt.getEpochSecond() <= revokedAt.getEpochSecond();
+    }
+
+    private Optional<Instant> loadSharedRevocation(String username) {
+        try {
+            String revokedAt = redisTemplate.opsForValue().get(KEY_PREFIX + username);
+            return Optional.ofNullable(revokedAt).map(epoch -> Instant.ofEpochMilli(Long.parseLong(epoch)));
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido consultar la revocación del usuario {}: {}", username, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
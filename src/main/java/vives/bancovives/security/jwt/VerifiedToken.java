@@ -0,0 +1,51 @@
+package vives.bancovives.security.jwt;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Datos de un token JWT cuya firma ya se ha verificado. Se obtiene con una sola verificación y se reutiliza para el
+ * usuario, la caducidad y los roles, sin volver a decodificar el token.
+ *
+ * @param subject   Nombre de usuario, el {@code sub} del token
+ * @param publicId  Identificador público del usuario, o null si el token no lo incluye
+ * @param roles     Autoridades firmadas en el token, o null si es un token anterior que no las incluye
+ * @param issuedAt  Fecha de emisión del token
+ * @param expiresAt Fecha de caducidad del token
+ */
+public record VerifiedToken(String subject, String publicId, List<String> roles, Instant issuedAt, Instant expiresAt) {
+
+    /**
+     * @param now Instante de referencia
+     * @return true si el token ha caducado en ese instante
+     */
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+
+    /**
+     * Comprueba que el token pertenece al usuario indicado y no ha caducado
+     *
+     * @param userDetails Usuario cargado de la base de datos
+     * @return true si el token es válido para el usuario
+     */
+    public boolean belongsTo(UserDetails userDetails) {
+        return userDetails != null && subject.equals(userDetails.getUsername()) && !isExpired(Instant.now());
+    }
+
+    /**
+     * Usuario autenticado a partir de los claims firmados. Los tokens emitidos antes de incluir los roles devuelven
+     * vacío y se autentican cargando el usuario de la base de datos.
+     *
+     * @return Usuario autenticado, o vacío si el token no incluye los roles
+     */
+    public Optional<JwtPrincipal> principal() {
+        if (roles == null || issuedAt == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new JwtPrincipal(subject, publicId, roles, issuedAt));
+    }
+}
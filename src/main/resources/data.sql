@@ -68,15 +68,15 @@ INSERT INTO clients(id, public_id, dni, complete_name, street, house_number, cit
 VALUES('7ab2f1b8-1743-4e60-b272-dbc06f28d230', 'BgKW5qfKxYhMft2z3Zh', '12345678A', 'Pepe dos', 'calle leganes', '123', 'LEGANES', 'ESPAÑA','pepedos@test.com', 654123787, null, null, 'd2886a1d-7b10-4f24-9a31-582542db0a4a', false, false, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
 
 /* Cuentas */
-INSERT INTO accounts(id, public_id, iban, balance, password, account_type, client_id, created_at, updated_at, is_deleted)
-VALUES ('96257eff-0484-4a87-9509-51a9f24daf64', 'BgLi9HNRv_UnWaC0Kkw', 'ES71CU4N1759HNCGUNQSNXM6', 1000.0, 'JAKARTA24', '1e4b41d8-9d4c-4321-ade7-3c8a843626e2','fb1ef73c-4c7e-44b4-b5d9-9135dc40b4fd', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, false);
+INSERT INTO accounts(id, public_id, iban, balance, password, account_type, client_id, created_at, updated_at, is_deleted, version, interest_day)
+VALUES ('96257eff-0484-4a87-9509-51a9f24daf64', 'BgLi9HNRv_UnWaC0Kkw', 'ES71CU4N1759HNCGUNQSNXM6', 1000.0, 'JAKARTA24', '1e4b41d8-9d4c-4321-ade7-3c8a843626e2','fb1ef73c-4c7e-44b4-b5d9-9135dc40b4fd', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, false, 0, EXTRACT(DAY FROM CURRENT_TIMESTAMP));
 
-INSERT INTO accounts(id, public_id, iban, balance, password, account_type, client_id, created_at, updated_at, is_deleted)
-VALUES ('a6f20974-a880-46b6-8b6d-069694eeaf60', 'BgLi9quF_BMyN0F8Nxs', 'ES51W8N4JVONAWK5B6ZA50OV', 10.0, 'JAKARTA26', '1e4b41d8-9d4c-4321-ade7-3c8a843626e2','11b12967-5ffd-455a-aa35-65172f9b86fe',  CURRENT_TIMESTAMP, CURRENT_TIMESTAMP,false);
+INSERT INTO accounts(id, public_id, iban, balance, password, account_type, client_id, created_at, updated_at, is_deleted, version, interest_day)
+VALUES ('a6f20974-a880-46b6-8b6d-069694eeaf60', 'BgLi9quF_BMyN0F8Nxs', 'ES51W8N4JVONAWK5B6ZA50OV', 10.0, 'JAKARTA26', '1e4b41d8-9d4c-4321-ade7-3c8a843626e2','11b12967-5ffd-455a-aa35-65172f9b86fe',  CURRENT_TIMESTAMP, CURRENT_TIMESTAMP,false, 0, EXTRACT(DAY FROM CURRENT_TIMESTAMP));
 
 /* Tarjetas */
-INSERT INTO cards(id, public_id, card_owner, card_number, expiration_date, cvv, pin, card_type_id, account_id, spent_today, spent_this_week, spent_this_month, daily_limit, weekly_limit, monthly_limit, is_inactive, created_at, updated_at, is_deleted)
-VALUES ('f47ac10b-58cc-4372-a567-0e02b2c3d479', 'BgLi9quF_BMyN0F8Nxs','Cliente test', '1234567890123456', '12/25', 123, '1234', 'f47ac10b-58cc-4372-a567-0e02b2c3d479', '96257eff-0484-4a87-9509-51a9f24daf64', 0, 0, 0, 1000, 5000, 10000, false, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, false);
-INSERT INTO cards(id, public_id, card_number, card_owner, expiration_date, cvv, pin, card_type_id, account_id, spent_today, spent_this_week, spent_this_month, daily_limit, weekly_limit, monthly_limit, is_inactive, created_at, updated_at, is_deleted)
-VALUES ('9b0e9e1a-1f40-11ee-be56-0242ac120002', 'BgLi9quF_BMyN0F8Nxa', '1234567890123457','Pepe uno', '12/25', 123, '1234', '9b0e9e1a-1f40-11ee-be56-0242ac120002', 'a6f20974-a880-46b6-8b6d-069694eeaf60', 0, 0, 0, 500, 1000, 4500, false, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, false);
+INSERT INTO cards(id, public_id, card_owner, card_number, expiration_date, cvv, pin, card_type_id, account_id, spent_today, spent_this_week, spent_this_month, daily_limit, weekly_limit, monthly_limit, is_inactive, created_at, updated_at, is_deleted, version)
+VALUES ('f47ac10b-58cc-4372-a567-0e02b2c3d479', 'BgLi9quF_BMyN0F8Nxs','Cliente test', '1234567890123456', '12/25', 123, '1234', 'f47ac10b-58cc-4372-a567-0e02b2c3d479', '96257eff-0484-4a87-9509-51a9f24daf64', 0, 0, 0, 1000, 5000, 10000, false, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, false, 0);
+INSERT INTO cards(id, public_id, card_number, card_owner, expiration_date, cvv, pin, card_type_id, account_id, spent_today, spent_this_week, spent_this_month, daily_limit, weekly_limit, monthly_limit, is_inactive, created_at, updated_at, is_deleted, version)
+VALUES ('9b0e9e1a-1f40-11ee-be56-0242ac120002', 'BgLi9quF_BMyN0F8Nxa', '1234567890123457','Pepe uno', '12/25', 123, '1234', '9b0e9e1a-1f40-11ee-be56-0242ac120002', 'a6f20974-a880-46b6-8b6d-069694eeaf60', 0, 0, 0, 500, 1000, 4500, false, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, false, 0);
 
@@ -0,0 +1,141 @@
+package vives.bancovives.config.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AliasedCacheTest {
+
+    /**
+     * Entidad mutable de prueba con clave principal, un alias y versión
+     */
+    static final class Item {
+        String id;
+        String code;
+        String name;
+        Long version;
+
+        Item(String id, String code, String name, Long version) {
+            this.id = id;
+            this.code = code;
+            this.name = name;
+            this.version = version;
+        }
+
+        Item copy() {
+            return new Item(id, code, name, version);
+        }
+    }
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private ConcurrentMapCache backing;
+    private AliasedCache<Item> cache;
+
+    @BeforeEach
+    void setUp() {
+        backing = new ConcurrentMapCache("items", false);
+        cache = new AliasedCache<>(backing, Item.class, item -> item.id, Map.of("code", item -> item.code),
+                item -> item.version == null ? -1 : item.version, Item::copy);
+    }
+
+    private Item load(Item item) {
+        loads.incrementAndGet();
+        return item;
+    }
+
+    @Test
+    void getByAlias_LoadsOnceAndServesBothKeys() {
+        Item item = new Item("id-1", "A1", "uno", 0L);
+
+        assertEquals("uno", cache.getByAlias("code", "A1", () -> load(item)).name);
+        assertEquals("uno", cache.getByAlias("code", "A1", () -> load(item)).name);
+        assertEquals("uno", cache.get("id-1", () -> load(item)).name);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_ReturnsCopiesThatDoNotChangeTheCache() {
+        cache.put(new Item("id-1", "A1", "uno", 0L));
+
+        cache.get("id-1").orElseThrow().name = "modificado";
+
+        assertEquals("uno", cache.get("id-1").orElseThrow().name);
+    }
+
+    @Test
+    void evict_InvalidatesEveryAlias() {
+        cache.put(new Item("id-1", "A1", "uno", 0L));
+
+        cache.evict("id-1");
+
+        assertTrue(cache.findByAlias("code", "A1").isEmpty());
+        assertTrue(cache.get("id-1").isEmpty());
+    }
+
+    @Test
+    void evictByAlias_InvalidatesThePrimaryEntry() {
+        cache.put(new Item("id-1", "A1", "uno", 0L));
+
+        cache.evictByAlias("code", "A1");
+
+        assertTrue(cache.get("id-1").isEmpty());
+    }
+
+    @Test
+    void evictAllByAlias_InvalidatesKnownEntriesAndIgnoresUnknownAliases() {
+        cache.put(new Item("id-1", "A1", "uno", 0L));
+        cache.put(new Item("id-2", "B2", "dos", 0L));
+        cache.put(new Item("id-3", "C3", "tres", 0L));
+
+        cache.evictAllByAlias("code", List.of("A1", "B2", "Z9"));
+
+        assertTrue(cache.get("id-1").isEmpty());
+        assertTrue(cache.get("id-2").isEmpty());
+        assertEquals("tres", cache.get("id-3").orElseThrow().name);
+    }
+
+    @Test
+    void put_DoesNotReplaceANewerVersion() {
+        cache.put(new Item("id-1", "A1", "nuevo", 2L));
+
+        cache.put(new Item("id-1", "A1", "antiguo", 1L));
+
+        assertEquals("nuevo", cache.get("id-1").orElseThrow().name);
+    }
+
+    @Test
+    void load_DoesNotReplaceAnEntryWrittenMeanwhile() {
+        Item slowRead = new Item("id-1", "A1", "leído", 1L);
+
+        cache.getByAlias("code", "A1", () -> {
+            cache.put(new Item("id-1", "A1", "escrito", 2L));
+            return slowRead;
+        });
+
+        assertEquals("escrito", cache.findByAlias("code", "A1").orElseThrow().name);
+    }
+
+    @Test
+    void put_IgnoresEntitiesWithoutVersion() {
+        cache.put(new Item("id-1", "A1", "sin guardar", null));
+
+        assertNull(backing.get("id-1"));
+        assertNull(backing.get("code:A1"));
+    }
+
+    @Test
+    void findByAlias_StaleAliasIsAMiss() {
+        cache.put(new Item("id-1", "A1", "uno", 0L));
+        cache.put(new Item("id-1", "B2", "uno", 1L));
+
+        assertTrue(cache.findByAlias("code", "A1").isEmpty());
+        assertEquals("uno", cache.findByAlias("code", "B2").orElseThrow().name);
+    }
+}
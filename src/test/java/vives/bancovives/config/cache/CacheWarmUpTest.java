@@ -0,0 +1,155 @@
+package vives.bancovives.config.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.accounts.service.AccountCache;
+import vives.bancovives.rest.clients.model.Client;
+import vives.bancovives.rest.movements.repository.MovementRepository;
+import vives.bancovives.rest.products.accounttype.model.AccountType;
+import vives.bancovives.rest.products.accounttype.repositories.AccountTypeRepository;
+import vives.bancovives.rest.products.cardtype.model.CardType;
+import vives.bancovives.rest.products.cardtype.repositories.CardTypeRepository;
+import vives.bancovives.rest.users.models.User;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CacheWarmUpTest {
+
+    private ConcurrentMapCacheManager cacheManager;
+    private AccountTypeRepository accountTypeRepository;
+    private CardTypeRepository cardTypeRepository;
+    private AccountRepository accountRepository;
+    private MovementRepository movementRepository;
+    private AccountCache accountCache;
+    private CacheWarmUp warmUp;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager();
+        accountTypeRepository = mock(AccountTypeRepository.class);
+        cardTypeRepository = mock(CardTypeRepository.class);
+        accountRepository = mock(AccountRepository.class);
+        movementRepository = mock(MovementRepository.class);
+        accountCache = new AccountCache(cacheManager);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        warmUp = new CacheWarmUp(cacheManager, accountTypeRepository, cardTypeRepository, accountRepository,
+                movementRepository, accountCache, transactionTemplate);
+        ReflectionTestUtils.setField(warmUp, "enabled", true);
+        ReflectionTestUtils.setField(warmUp, "budget", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(warmUp, "hotAccounts", 2);
+        ReflectionTestUtils.setField(warmUp, "activityWindow", Duration.ofDays(7));
+    }
+
+    @Test
+    void warmUp_CachesCatalogueByIdAndName() {
+        AccountType ahorro = AccountType.builder().publicId("at-1").name("AHORRO").build();
+        CardType debito = CardType.builder().publicId("ct-1").name("DEBITO").build();
+        when(accountTypeRepository.findAllByIsDeletedFalse()).thenReturn(List.of(ahorro));
+        when(cardTypeRepository.findAllByIsDeletedFalse()).thenReturn(List.of(debito));
+
+        warmUp.warmUp();
+
+        assertAll(
+                () -> assertSame(ahorro, cacheManager.getCache(CacheWarmUp.ACCOUNT_TYPES).get("at-1").get()),
+                () -> assertSame(ahorro, cacheManager.getCache(CacheWarmUp.ACCOUNT_TYPES).get("AHORRO").get()),
+                () -> assertSame(debito, cacheManager.getCache(CacheWarmUp.CARD_TYPES).get("DEBITO").get())
+        );
+    }
+
+    @Test
+    void warmUp_CachesMostActiveAccountsAndTheirUsers() {
+        User user = User.builder().publicId("user-1").username("cliente").build();
+        Account account = Account.builder().iban("ES1").version(3L)
+                .client(Client.builder().user(user).build()).build();
+        when(movementRepository.findMostActiveIbans(any(), eq(2))).thenReturn(List.of("ES1"));
+        when(accountRepository.findAllWithClientByIbanIn(List.of("ES1"))).thenReturn(List.of(account));
+
+        warmUp.warmUp();
+
+        Account cached = accountCache.findByIban("ES1", () -> fail("La cuenta debería estar en la caché"));
+        assertEquals(3L, cached.getVersion());
+        assertSame(user, cacheManager.getCache(CacheWarmUp.USERS).get("user-1").get());
+    }
+
+    @Test
+    void warmUp_MongoFailureStillWarmsCatalogue() {
+        AccountType ahorro = AccountType.builder().publicId("at-1").name("AHORRO").build();
+        when(accountTypeRepository.findAllByIsDeletedFalse()).thenReturn(List.of(ahorro));
+        when(movementRepository.findMostActiveIbans(any(), anyInt()))
+                .thenThrow(new UncategorizedMongoDbException("MongoDB no disponible", null));
+
+        warmUp.warmUp();
+
+        assertNotNull(cacheManager.getCache(CacheWarmUp.ACCOUNT_TYPES).get("AHORRO"));
+        verify(accountRepository, never()).findAllWithClientByIbanIn(any());
+    }
+
+    @Test
+    void health_OutOfServiceUntilWarmUpFinishes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(movementRepository.findMostActiveIbans(any(), anyInt())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        assertEquals(Status.OUT_OF_SERVICE, warmUp.health().getStatus());
+
+        warmUp.onApplicationReady();
+        assertEquals(Status.OUT_OF_SERVICE, warmUp.health().getStatus());
+
+        release.countDown();
+        long end = System.currentTimeMillis() + 5000;
+        while (warmUp.health().getStatus() != Status.UP && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(Status.UP, warmUp.health().getStatus());
+        assertNull(warmUp.health().getDetails().get("budgetExceeded"));
+    }
+
+    @Test
+    void health_UpWhenBudgetIsExceeded() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(movementRepository.findMostActiveIbans(any(), anyInt())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        ReflectionTestUtils.setField(warmUp, "budget", Duration.ZERO);
+
+        warmUp.onApplicationReady();
+
+        assertEquals(Status.UP, warmUp.health().getStatus());
+        assertEquals(true, warmUp.health().getDetails().get("budgetExceeded"));
+        release.countDown();
+    }
+
+    @Test
+    void health_UpWhenDisabled() {
+        ReflectionTestUtils.setField(warmUp, "enabled", false);
+
+        warmUp.onApplicationReady();
+
+        assertEquals(Status.UP, warmUp.health().getStatus());
+        verifyNoInteractions(accountTypeRepository, movementRepository);
+    }
+}
@@ -0,0 +1,87 @@
+package vives.bancovives.config.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guarda y borra entradas en bloque en un Redis real con la factoría de conexiones de la aplicación.
+ * Se omite si Docker no está disponible.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PipelinedRedisCacheContainerTest {
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7.4-alpine").withExposedPorts(6379);
+
+    private JedisConnectionFactory connectionFactory;
+    private PipelinedRedisCache cache;
+
+    @BeforeEach
+    void setUp() {
+        RedisConfiguration configuration = new RedisConfiguration();
+        configuration.host = redis.getHost();
+        configuration.port = redis.getMappedPort(6379);
+        configuration.client = "jedis";
+        configuration.mode = "standalone";
+        configuration.password = "";
+        configuration.poolMaxTotal = 4;
+        configuration.poolMaxIdle = 4;
+        configuration.poolMinIdle = 0;
+        configuration.poolMaxWait = Duration.ofSeconds(1);
+        configuration.connectTimeout = Duration.ofSeconds(2);
+        configuration.readTimeout = Duration.ofSeconds(2);
+        connectionFactory = (JedisConnectionFactory) configuration.connectionFactory();
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMinutes(5))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()));
+        cache = new PipelinedRedisCache("accounts",
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), cacheConfig, connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void putAllAndEvictAll_AreVisibleToSingleKeyOperations() {
+        Map<String, String> entries = IntStream.range(0, 500).boxed()
+                .collect(Collectors.toMap(i -> "id-" + i, i -> "cuenta " + i));
+
+        cache.putAll(entries);
+
+        assertEquals("cuenta 499", cache.get("id-499", String.class));
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long ttl = connection.keyCommands().ttl("accounts::id-0".getBytes(StandardCharsets.UTF_8));
+            assertTrue(ttl > 0 && ttl <= 300);
+        }
+
+        cache.evictAll(List.of("id-0", "id-499"));
+
+        assertNull(cache.get("id-0"));
+        assertNull(cache.get("id-499"));
+        assertEquals("cuenta 1", cache.get("id-1", String.class));
+    }
+}
@@ -0,0 +1,105 @@
+package vives.bancovives.config.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PipelinedRedisCacheTest {
+
+    private RedisConnectionFactory connectionFactory;
+    private RedisConnection connection;
+    private RedisStringCommands stringCommands;
+    private PipelinedRedisCache cache;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = mock(RedisConnectionFactory.class);
+        connection = mock(RedisConnection.class);
+        stringCommands = mock(RedisStringCommands.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        cache = newCache();
+    }
+
+    private PipelinedRedisCache newCache() {
+        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMinutes(5))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
+                .disableCachingNullValues();
+        return new PipelinedRedisCache("accounts", mock(RedisCacheWriter.class), config, connectionFactory);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void putAll_SendsEveryEntryInOnePipeline() {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("id-1", "cuenta 1");
+        entries.put("id-2", "cuenta 2");
+        entries.put("id-3", null);
+
+        cache.putAll(entries);
+
+        verify(connectionFactory, times(1)).getConnection();
+        verify(connection).openPipeline();
+        verify(stringCommands).set(eq(bytes("accounts::id-1")), eq(bytes("cuenta 1")),
+                eq(Expiration.from(Duration.ofMinutes(5))), eq(RedisStringCommands.SetOption.upsert()));
+        verify(stringCommands).set(eq(bytes("accounts::id-2")), eq(bytes("cuenta 2")), any(), any());
+        verifyNoMoreInteractions(stringCommands);
+        verify(connection).closePipeline();
+        verify(connection).close();
+    }
+
+    @Test
+    void putAll_DoesNotPipelineOnACluster() {
+        RedisClusterConnection clusterConnection = mock(RedisClusterConnection.class);
+        when(connectionFactory.getConnection()).thenReturn(clusterConnection);
+        when(clusterConnection.stringCommands()).thenReturn(stringCommands);
+
+        cache.putAll(Map.of("id-1", "cuenta 1"));
+
+        verify(clusterConnection, never()).openPipeline();
+        verify(stringCommands).set(any(), any(), any(), any());
+    }
+
+    @Test
+    void evictAll_DeletesEveryKeyWithOneCommand() {
+        RedisKeyCommands keyCommands = mock(RedisKeyCommands.class);
+        when(connection.keyCommands()).thenReturn(keyCommands);
+
+        cache.evictAll(List.of("id-1", "id-2"));
+
+        verify(keyCommands, times(1)).del(bytes("accounts::id-1"), bytes("accounts::id-2"));
+    }
+
+    @Test
+    void emptyBulkOperationsDoNotConnect() {
+        cache.putAll(Map.of());
+        cache.evictAll(List.of());
+
+        verifyNoInteractions(connectionFactory);
+        assertEquals("accounts", cache.getName());
+    }
+}
@@ -0,0 +1,94 @@
+package vives.bancovives.config.cache;
+
+import io.lettuce.core.cluster.ClusterClientOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisConfigurationTest {
+
+    private RedisConfiguration configuration;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new RedisConfiguration();
+        configuration.host = "localhost";
+        configuration.port = 6379;
+        configuration.client = "jedis";
+        configuration.mode = "standalone";
+        configuration.password = "";
+        configuration.sentinelMaster = "mymaster";
+        configuration.sentinelNodes = new String[]{"sentinel-1:26379", "sentinel-2:26379"};
+        configuration.clusterNodes = new String[]{"redis-1:6379", "redis-2:6379", "redis-3:6379"};
+        configuration.clusterMaxRedirects = 5;
+        configuration.poolMaxTotal = 32;
+        configuration.poolMaxIdle = 8;
+        configuration.poolMinIdle = 2;
+        configuration.poolMaxWait = Duration.ofMillis(250);
+        configuration.connectTimeout = Duration.ofSeconds(1);
+        configuration.readTimeout = Duration.ofMillis(1500);
+    }
+
+    @Test
+    void jedisStandalone_UsesConfiguredPoolAndTimeouts() {
+        JedisConnectionFactory factory = assertInstanceOf(JedisConnectionFactory.class, configuration.connectionFactory());
+
+        assertAll(
+                () -> assertEquals("localhost", factory.getHostName()),
+                () -> assertEquals(32, factory.getPoolConfig().getMaxTotal()),
+                () -> assertEquals(8, factory.getPoolConfig().getMaxIdle()),
+                () -> assertEquals(Duration.ofMillis(250), factory.getPoolConfig().getMaxWaitDuration()),
+                () -> assertEquals(Duration.ofMillis(1500), factory.getClientConfiguration().getReadTimeout()),
+                () -> assertEquals(Duration.ofSeconds(1), factory.getClientConfiguration().getConnectTimeout()),
+                () -> assertFalse(factory.isRedisSentinelAware()),
+                () -> assertFalse(factory.isRedisClusterAware())
+        );
+    }
+
+    @Test
+    void jedisSentinel_UsesMasterAndSentinelNodes() {
+        configuration.mode = "sentinel";
+        configuration.password = "secreto";
+
+        JedisConnectionFactory factory = assertInstanceOf(JedisConnectionFactory.class, configuration.connectionFactory());
+
+        assertTrue(factory.isRedisSentinelAware());
+        assertEquals("mymaster", factory.getSentinelConfiguration().getMaster().getName());
+        assertEquals(2, factory.getSentinelConfiguration().getSentinels().size());
+        assertArrayEquals("secreto".toCharArray(), factory.getSentinelConfiguration().getPassword().get());
+    }
+
+    @Test
+    void jedisCluster_UsesClusterNodesAndRedirects() {
+        configuration.mode = "cluster";
+
+        JedisConnectionFactory factory = assertInstanceOf(JedisConnectionFactory.class, configuration.connectionFactory());
+
+        assertTrue(factory.isRedisClusterAware());
+        assertEquals(3, factory.getClusterConfiguration().getClusterNodes().size());
+        assertEquals(5, factory.getClusterConfiguration().getMaxRedirects());
+    }
+
+    @Test
+    void lettuceCluster_UsesPooledClientWithClusterOptions() {
+        configuration.client = "lettuce";
+        configuration.mode = "cluster";
+
+        LettuceConnectionFactory factory = assertInstanceOf(LettuceConnectionFactory.class, configuration.connectionFactory());
+
+        LettucePoolingClientConfiguration clientConfig =
+                assertInstanceOf(LettucePoolingClientConfiguration.class, factory.getClientConfiguration());
+        assertAll(
+                () -> assertTrue(factory.isClusterAware()),
+                () -> assertEquals(32, clientConfig.getPoolConfig().getMaxTotal()),
+                () -> assertEquals(Duration.ofMillis(1500), clientConfig.getCommandTimeout()),
+                () -> assertInstanceOf(ClusterClientOptions.class, clientConfig.getClientOptions().orElseThrow())
+        );
+    }
+}
@@ -0,0 +1,87 @@
+package vives.bancovives.config.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TwoLevelCacheManagerTest {
+
+    private ConcurrentMapCacheManager remoteCacheManager;
+    private StringRedisTemplate redisTemplate;
+    private TwoLevelCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        remoteCacheManager = new ConcurrentMapCacheManager();
+        redisTemplate = mock(StringRedisTemplate.class);
+        cacheManager = new TwoLevelCacheManager(remoteCacheManager, redisTemplate,
+                name -> new CacheSpec(100, Duration.ofMinutes(1), Duration.ofMinutes(30), 0.1, 1.0),
+                new SimpleMeterRegistry());
+    }
+
+    private void receive(String message) {
+        cacheManager.onMessage(new DefaultMessage(
+                TwoLevelCacheManager.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                message.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    @Test
+    void getCache_ReturnsTheSameTwoLevelCache() {
+        Cache cache = cacheManager.getCache("accounts");
+
+        assertInstanceOf(TwoLevelCache.class, cache);
+        assertSame(cache, cacheManager.getCache("accounts"));
+    }
+
+    @Test
+    void put_PublishesInvalidationWithNodeId() {
+        cacheManager.getCache("accounts").put("id", "cuenta");
+
+        verify(redisTemplate).convertAndSend(TwoLevelCacheManager.CHANNEL, cacheManager.nodeId() + ":accounts:id");
+    }
+
+    @Test
+    void onMessage_FromAnotherNodeInvalidatesNearEntry() {
+        Cache cache = cacheManager.getCache("accounts");
+        cache.put("id", "cuenta");
+        remoteCacheManager.getCache("accounts").put("id", "cuenta actualizada");
+
+        receive("otro-nodo:accounts:id");
+
+        assertEquals("cuenta actualizada", cache.get("id").get());
+    }
+
+    @Test
+    void onMessage_WithoutKeyInvalidatesWholeNearCache() {
+        Cache cache = cacheManager.getCache("accounts");
+        cache.put("a", "uno");
+        cache.put("b", "dos");
+        remoteCacheManager.getCache("accounts").clear();
+
+        receive("otro-nodo:accounts");
+
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void onMessage_FromThisNodeIsIgnored() {
+        Cache cache = cacheManager.getCache("accounts");
+        cache.put("id", "cuenta");
+        remoteCacheManager.getCache("accounts").put("id", "cuenta actualizada");
+
+        receive(cacheManager.nodeId() + ":accounts:id");
+
+        assertEquals("cuenta", cache.get("id").get());
+    }
+}
@@ -0,0 +1,151 @@
+package vives.bancovives.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de carga de las cargas a través de la caché: compara cuántas consultas llegan a la base de datos cuando
+ * muchas peticiones concurrentes fallan a la vez, con la carga agrupada por clave y con el patrón de leer, cargar y
+ * guardar que se usaba antes.
+ */
+class TwoLevelCacheStampedeTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoLevelCacheStampedeTest.class);
+    private static final int THREADS = 32;
+    private static final long QUERY_MILLIS = 20;
+
+    private final AtomicInteger queries = new AtomicInteger();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private TwoLevelCache newCache(Duration ttl, double earlyRefreshBeta) {
+        CacheSpec spec = new CacheSpec(100, Duration.ofMinutes(10), ttl, 0.1, earlyRefreshBeta);
+        return new TwoLevelCache("accountTypes", Caffeine.newBuilder().expireAfter(spec.nearExpiry()).build(),
+                new ConcurrentMapCache("accountTypes", false), spec, (name, key) -> {
+        }, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Consulta simulada a la base de datos
+     */
+    private String query(String name) throws InterruptedException {
+        queries.incrementAndGet();
+        Thread.sleep(QUERY_MILLIS);
+        return "Tipo " + name;
+    }
+
+    /**
+     * Leer, y si no está cargar y guardar, sin agrupar las cargas
+     */
+    private String naiveGet(Cache cache, String name, Duration ttl) throws InterruptedException {
+        Cache.ValueWrapper wrapper = cache.get(name);
+        if (wrapper != null) {
+            return (String) wrapper.get();
+        }
+        String value = query(name);
+        cache.put(name, new TimedValue(value, System.currentTimeMillis() + ttl.toMillis(), QUERY_MILLIS));
+        return value;
+    }
+
+    private List<String> runConcurrently(Callable<String> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        List<String> results = new ArrayList<>();
+        for (Future<String> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    @Test
+    void coldKey_OnlyOneQueryForConcurrentMisses() throws Exception {
+        TwoLevelCache cache = newCache(Duration.ofMinutes(30), 1.0);
+
+        List<String> results = runConcurrently(() -> cache.get("AHORRO", () -> query("AHORRO")));
+
+        assertEquals(1, queries.get());
+        assertTrue(results.stream().allMatch("Tipo AHORRO"::equals));
+    }
+
+    @Test
+    void coldKey_NaiveLoadingQueriesOncePerThread() throws Exception {
+        TwoLevelCache cache = newCache(Duration.ofMinutes(30), 1.0);
+
+        runConcurrently(() -> naiveGet(cache, "AHORRO", Duration.ofMinutes(30)));
+
+        log.info("Consultas con {} peticiones concurrentes sobre una clave fría: sin agrupar {}, agrupadas 1",
+                THREADS, queries.get());
+        assertTrue(queries.get() > 1);
+    }
+
+    @Test
+    void expiryStorm_SingleFlightReducesDatabaseQps() throws Exception {
+        Duration ttl = Duration.ofMillis(100);
+        long runMillis = 1000;
+        String[] keys = {"AHORRO", "NOMINA", "JOVEN", "EMPRESA", "CREDITO"};
+
+        TwoLevelCache singleFlight = newCache(ttl, 1.0);
+        runConcurrently(() -> readFor(runMillis, keys, key -> singleFlight.get(key, () -> query(key))));
+        int singleFlightQueries = queries.getAndSet(0);
+
+        TwoLevelCache naive = newCache(ttl, 0.0);
+        runConcurrently(() -> readFor(runMillis, keys, key -> naiveGet(naive, key, ttl)));
+        int naiveQueries = queries.get();
+
+        log.info("Consultas por segundo con {} hilos, {} claves y {} de vida: sin agrupar {}, agrupadas {}",
+                THREADS, keys.length, ttl, naiveQueries * 1000 / runMillis, singleFlightQueries * 1000 / runMillis);
+        assertTrue(singleFlightQueries * 4 < naiveQueries,
+                "Agrupadas " + singleFlightQueries + " frente a " + naiveQueries + " sin agrupar");
+    }
+
+    @FunctionalInterface
+    private interface Lookup {
+        String get(String key) throws Exception;
+    }
+
+    private String readFor(long millis, String[] keys, Lookup lookup) throws Exception {
+        long end = System.currentTimeMillis() + millis;
+        int i = 0;
+        String last = null;
+        while (System.currentTimeMillis() < end) {
+            last = lookup.get(keys[i++ % keys.length]);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,231 @@
+package vives.bancovives.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TwoLevelCacheTest {
+
+    private final List<String> published = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private Cache remote;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        remote = spy(new ConcurrentMapCache("accounts", false));
+        cache = newCache(remote);
+    }
+
+    private TwoLevelCache newCache(Cache remoteCache) {
+        return newCache(remoteCache, 0.0);
+    }
+
+    private TwoLevelCache newCache(Cache remoteCache, double earlyRefreshBeta) {
+        CacheSpec spec = new CacheSpec(100, Duration.ofMinutes(1), Duration.ofMinutes(30), 0.1, earlyRefreshBeta);
+        return new TwoLevelCache("accounts", Caffeine.newBuilder().maximumSize(100).expireAfter(spec.nearExpiry()).build(),
+                remoteCache, spec, (name, key) -> published.add(name + ":" + key), meterRegistry);
+    }
+
+    private double loads(String result) {
+        return meterRegistry.get(TwoLevelCache.LOADS_METRIC).tag("result", result).counter().count();
+    }
+
+    private double gets(String level, String result) {
+        return meterRegistry.get(TwoLevelCache.GETS_METRIC).tag("level", level).tag("result", result).counter().count();
+    }
+
+    @Test
+    void get_NearHitDoesNotReachRedis() {
+        cache.put("id", "cuenta");
+        clearInvocations(remote);
+
+        assertEquals("cuenta", cache.get("id").get());
+
+        verify(remote, never()).get(any());
+        assertEquals(1, gets("near", "hit"));
+    }
+
+    @Test
+    void get_RedisHitIsKeptInNearCache() {
+        remote.put("id", "cuenta");
+
+        assertEquals("cuenta", cache.get("id").get());
+        assertEquals("cuenta", cache.get("id").get());
+
+        verify(remote, times(1)).get("id");
+        assertEquals(1, gets("near", "miss"));
+        assertEquals(1, gets("redis", "hit"));
+        assertEquals(1, gets("near", "hit"));
+    }
+
+    @Test
+    void get_MissOnBothLevels() {
+        assertNull(cache.get("id"));
+
+        assertEquals(1, gets("near", "miss"));
+        assertEquals(1, gets("redis", "miss"));
+    }
+
+    @Test
+    void get_NearKeysAreTheTextOfTheKey() {
+        UUID id = UUID.randomUUID();
+        cache.put(id, "cuenta");
+
+        cache.invalidateNear(id.toString());
+
+        assertEquals("cuenta", cache.get(id).get());
+        assertEquals(1, gets("redis", "hit"));
+    }
+
+    @Test
+    void get_WithLoaderCachesTheLoadedValue() {
+        assertEquals("cuenta", cache.get("id", () -> "cuenta"));
+        assertEquals("cuenta", cache.get("id", () -> fail("No debería volver a cargarse")));
+
+        TimedValue stored = assertInstanceOf(TimedValue.class, remote.get("id").get());
+        assertEquals("cuenta", stored.value());
+        assertEquals("cuenta", cache.get("id").get());
+        assertEquals(1, loads("loaded"));
+    }
+
+    @Test
+    void get_WithLoaderDoesNotPublishInvalidation() {
+        cache.get("id", () -> "cuenta");
+
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void get_WithLoaderWrapsLoaderFailureAndCachesNothing() {
+        IllegalStateException failure = new IllegalStateException("Base de datos caída");
+
+        Cache.ValueRetrievalException e = assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get("id", () -> {
+                    throw failure;
+                }));
+
+        assertSame(failure, e.getCause());
+        assertNull(cache.get("id"));
+        assertEquals("cuenta", cache.get("id", () -> "cuenta"));
+    }
+
+    @Test
+    void get_WithLoaderDoesNotCacheNull() {
+        assertNull(cache.get("id", () -> null));
+
+        assertNull(remote.get("id"));
+        assertEquals("cuenta", cache.get("id", () -> "cuenta"));
+    }
+
+    @Test
+    void get_ExpiredTimedValueIsAMiss() {
+        remote.put("id", new TimedValue("cuenta caducada", System.currentTimeMillis() - 1, 10));
+
+        assertNull(cache.get("id"));
+        assertEquals("cuenta", cache.get("id", () -> "cuenta"));
+    }
+
+    @Test
+    void get_WithLoaderRefreshesEarlyWhenCloseToExpiry() {
+        TwoLevelCache refreshing = newCache(remote, 1_000_000.0);
+        remote.put("id", new TimedValue("cuenta", System.currentTimeMillis() + 60_000, 50));
+
+        assertEquals("cuenta actualizada", refreshing.get("id", () -> "cuenta actualizada"));
+
+        assertEquals(1, loads("early_refresh"));
+        assertEquals("cuenta actualizada", refreshing.get("id").get());
+    }
+
+    @Test
+    void get_WithLoaderKeepsValueWhenEarlyRefreshIsDisabled() {
+        remote.put("id", new TimedValue("cuenta", System.currentTimeMillis() + 60_000, 1_000_000));
+
+        assertEquals("cuenta", cache.get("id", () -> fail("No debería refrescarse")));
+    }
+
+    @Test
+    void putAndEvict_PublishInvalidation() {
+        cache.put("id", "cuenta");
+        cache.evict("id");
+        cache.clear();
+
+        assertEquals(List.of("accounts:id", "accounts:id", "accounts:null"), published);
+        assertNull(remote.get("id"));
+        assertNull(cache.get("id"));
+    }
+
+    @Test
+    void putAllLoaded_StoresTimedValuesWithoutPublishing() {
+        cache.putAllLoaded(Map.of("id-1", "cuenta 1", "id-2", "cuenta 2"));
+
+        assertEquals("cuenta 2", cache.get("id-2").get());
+        assertInstanceOf(TimedValue.class, remote.get("id-1").get());
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void putAllLoaded_UsesPipelinedRedisCache() {
+        PipelinedRedisCache pipelined = mock(PipelinedRedisCache.class);
+        TwoLevelCache bulk = newCache(pipelined);
+
+        bulk.putAllLoaded(Map.of("id-1", "cuenta 1"));
+        bulk.evictAll(List.of("id-1", "id-2"));
+
+        verify(pipelined).putAll(argThat(entries -> entries.size() == 1));
+        verify(pipelined).evictAll(List.of("id-1", "id-2"));
+        verify(pipelined, never()).put(any(), any());
+        verify(pipelined, never()).evict(any());
+    }
+
+    @Test
+    void evictAll_RemovesBothLevelsAndPublishesEachKey() {
+        cache.put("id-1", "cuenta 1");
+        cache.put("id-2", "cuenta 2");
+        published.clear();
+
+        cache.evictAll(List.of("id-1", "id-2"));
+
+        assertNull(cache.get("id-1"));
+        assertNull(remote.get("id-2"));
+        assertEquals(List.of("accounts:id-1", "accounts:id-2"), published);
+    }
+
+    @Test
+    void invalidateNear_NextReadGoesToRedis() {
+        cache.put("id", "cuenta");
+        remote.put("id", "cuenta actualizada");
+
+        cache.invalidateNear("id");
+
+        assertEquals("cuenta actualizada", cache.get("id").get());
+    }
+
+    @Test
+    void redisUnavailable_ServesFromNearCache() {
+        Cache failing = mock(Cache.class);
+        doThrow(new RedisConnectionFailureException("Redis caído")).when(failing).put(any(), any());
+        when(failing.get(any())).thenThrow(new RedisConnectionFailureException("Redis caído"));
+        TwoLevelCache degraded = newCache(failing);
+
+        degraded.put("id", "cuenta");
+
+        assertEquals("cuenta", degraded.get("id").get());
+        assertNull(degraded.get("otro"));
+    }
+}
@@ -0,0 +1,194 @@
+package vives.bancovives.config.cache.codec;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import vives.bancovives.config.cache.TimedValue;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.clients.model.Address;
+import vives.bancovives.rest.clients.model.Client;
+import vives.bancovives.rest.products.accounttype.model.AccountType;
+import vives.bancovives.rest.products.cardtype.model.CardType;
+import vives.bancovives.rest.users.models.Role;
+import vives.bancovives.rest.users.models.User;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectionRedisSerializerTest {
+
+    private final ProjectionRedisSerializer serializer = new ProjectionRedisSerializer(CacheProjection.defaults());
+
+    private Account account() {
+        User user = User.builder()
+                .username("cliente")
+                .password("$2a$10$hash")
+                .roles(Set.of(Role.USER))
+                .build();
+        Client client = Client.builder()
+                .id(UUID.randomUUID())
+                .publicId("client-1")
+                .dni("12345678Z")
+                .completeName("Cliente Uno")
+                .email("cliente@bancovives.es")
+                .phoneNumber("600000000")
+                .address(new Address("Calle", "1", "Madrid", "España"))
+                .user(user)
+                .accounts(new ArrayList<>())
+                .validated(true)
+                .build();
+        AccountType accountType = AccountType.builder().name("AHORRO").description("Cuenta de ahorro").interest(1.5)
+                .accounts(new ArrayList<>()).build();
+        Account account = Account.builder()
+                .iban("ES0000000000000000000001")
+                .balance(1234.5)
+                .password("1234")
+                .client(client)
+                .accountType(accountType)
+                .version(3L)
+                .interestDay(15)
+                .lastInterestDate(LocalDate.of(2025, 6, 15))
+                .build();
+        client.getAccounts().add(account);
+        accountType.getAccounts().add(account);
+        return account;
+    }
+
+    @Test
+    void account_RoundTripKeepsItsFieldsAndRelations() {
+        Account account = account();
+
+        Account cached = (Account) serializer.deserialize(serializer.serialize(account));
+
+        assertAll(
+                () -> assertEquals(account.getId(), cached.getId()),
+                () -> assertEquals(account.getPublicId(), cached.getPublicId()),
+                () -> assertEquals(account.getIban(), cached.getIban()),
+                () -> assertEquals(account.getBalance(), cached.getBalance()),
+                () -> assertEquals(account.getPassword(), cached.getPassword()),
+                () -> assertEquals(account.getCreatedAt(), cached.getCreatedAt()),
+                () -> assertEquals(account.getVersion(), cached.getVersion()),
+                () -> assertEquals(account.getLastInterestDate(), cached.getLastInterestDate()),
+                () -> assertEquals("AHORRO", cached.getAccountType().getName()),
+                () -> assertEquals(1.5, cached.getAccountType().getInterest()),
+                () -> assertEquals("12345678Z", cached.getClient().getDni()),
+                () -> assertEquals("Madrid", cached.getClient().getAddress().getCity()),
+                () -> assertEquals("cliente", cached.getClient().getUser().getUsername()),
+                () -> assertEquals(Set.of(Role.USER), cached.getClient().getUser().getRoles())
+        );
+    }
+
+    @Test
+    void account_DoesNotDragTheEntityGraph() {
+        Account cached = (Account) serializer.deserialize(serializer.serialize(account()));
+
+        assertNull(cached.getClient().getAccounts());
+        assertNull(cached.getAccountType().getAccounts());
+        assertNull(cached.getClient().getUser().getPassword());
+    }
+
+    @Test
+    void account_IsSmallerThanJavaSerialization() {
+        Account account = account();
+
+        byte[] projected = serializer.serialize(account);
+        byte[] jdk = new JdkSerializationRedisSerializer().serialize(account);
+
+        assertTrue(projected.length < jdk.length, projected.length + " >= " + jdk.length);
+    }
+
+    @Test
+    void card_RoundTrip() {
+        Card card = Card.builder()
+                .id(UUID.randomUUID())
+                .cardNumber("1234567890123456")
+                .cardOwner("CLIENTE UNO")
+                .expirationDate("12/30")
+                .cvv(123)
+                .pin("1234")
+                .cardType(CardType.builder().name("DEBITO").description("Debito").build())
+                .account(account())
+                .spentToday(10)
+                .spentTodayDate(LocalDate.of(2025, 6, 11))
+                .build();
+
+        Card cached = (Card) serializer.deserialize(serializer.serialize(card));
+
+        assertEquals(card.getCardNumber(), cached.getCardNumber());
+        assertEquals(card.getPin(), cached.getPin());
+        assertEquals(10, cached.getSpentToday());
+        assertEquals(card.getSpentTodayDate(), cached.getSpentTodayDate());
+        assertEquals(card.getMonthlyLimit(), cached.getMonthlyLimit());
+        assertEquals("DEBITO", cached.getCardType().getName());
+        assertEquals(card.getAccount().getIban(), cached.getAccount().getIban());
+    }
+
+    @Test
+    void user_RoundTripKeepsPasswordAndRoles() {
+        User user = User.builder().username("admin").password("hash").roles(Set.of(Role.ADMIN, Role.USER)).build();
+
+        User cached = (User) serializer.deserialize(serializer.serialize(user));
+
+        assertEquals(user.getPublicId(), cached.getPublicId());
+        assertEquals("hash", cached.getPassword());
+        assertEquals(user.getRoles(), cached.getRoles());
+    }
+
+    @Test
+    void deserialize_IgnoresUnknownFieldsAndDefaultsMissingOnes() {
+        String json = "{\"t\":\"cardType\",\"v\":{\"name\":\"DEBITO\",\"newField\":{\"a\":1}}}";
+
+        CardType cached = (CardType) serializer.deserialize(json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("DEBITO", cached.getName());
+        assertNull(cached.getDescription());
+    }
+
+    @Test
+    void deserialize_UnknownTypeOrInvalidValueIsAMiss() {
+        assertNull(serializer.deserialize("{\"t\":\"unknown\",\"v\":{}}".getBytes(StandardCharsets.UTF_8)));
+        assertNull(serializer.deserialize("not json".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void deserialize_ReadsValuesWrittenWithJavaSerialization() {
+        AccountType accountType = AccountType.builder().name("AHORRO").description("Cuenta de ahorro").build();
+        byte[] legacy = new JdkSerializationRedisSerializer().serialize(accountType);
+
+        AccountType cached = (AccountType) serializer.deserialize(legacy);
+
+        assertEquals("AHORRO", cached.getName());
+    }
+
+    @Test
+    void serialize_TypesWithoutProjectionUseJavaSerialization() {
+        List<String> value = new ArrayList<>(List.of("a", "b"));
+
+        assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+    }
+
+    @Test
+    void timedValue_RoundTripKeepsExpiryAndLoadTime() {
+        CardType cardType = CardType.builder().name("DEBITO").description("Tarjeta de débito").build();
+
+        TimedValue cached = (TimedValue) serializer.deserialize(
+                serializer.serialize(new TimedValue(cardType, 1_700_000_000_000L, 42)));
+
+        assertEquals(1_700_000_000_000L, cached.expiresAtMillis());
+        assertEquals(42, cached.loadMillis());
+        assertEquals("DEBITO", ((CardType) cached.value()).getName());
+    }
+
+    @Test
+    void timedValue_WithoutProjectionUsesJavaSerialization() {
+        TimedValue value = new TimedValue("texto", 1_700_000_000_000L, 42);
+
+        assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+    }
+}
@@ -0,0 +1,45 @@
+package vives.bancovives.notifications.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba la fecha de los mensajes con el servidor en una zona horaria distinta de UTC
+ */
+class NotificationFrameTest {
+
+    private TimeZone defaultTimeZone;
+
+    @BeforeEach
+    void setUp() {
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Madrid"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    void of_ConvertsCreationDateFromServerTimeZone() {
+        // 08:00 en Madrid en horario de verano son las 06:00 UTC
+        NotificationOutboxEvent event = NotificationOutboxEvent.builder()
+                .source(NotificationSource.ACCOUNT)
+                .type(NotificationType.CREATE)
+                .recipient("user")
+                .createdAt(LocalDateTime.of(2024, 10, 17, 8, 0))
+                .build();
+
+        NotificationFrame frame = NotificationFrame.of(event, NotificationType.CREATE);
+
+        assertEquals(Instant.parse("2024-10-17T06:00:00Z").toEpochMilli(), frame.timestamp());
+    }
+}
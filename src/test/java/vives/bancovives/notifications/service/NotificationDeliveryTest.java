@@ -0,0 +1,108 @@
+package vives.bancovives.notifications.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import vives.bancovives.notifications.exceptions.NotificationSenderException;
+import vives.bancovives.notifications.model.NotificationOutboxEvent;
+import vives.bancovives.notifications.model.NotificationSource;
+import vives.bancovives.notifications.model.NotificationType;
+import vives.bancovives.notifications.websocket.broker.NotificationBroker;
+import vives.bancovives.notifications.websocket.broker.UserMessage;
+import vives.bancovives.rest.movements.model.MovementType;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class NotificationDeliveryTest {
+
+    private NotificationBroker broker;
+    private NotificationDelivery delivery;
+
+    @BeforeEach
+    void setUp() {
+        broker = mock(NotificationBroker.class);
+        when(broker.publish(any())).thenReturn(CompletableFuture.completedFuture(null));
+        delivery = new NotificationDelivery(broker, new ObjectMapper());
+    }
+
+    @Test
+    void deliver_TransferNotifiesBothClientsWithTheSameFrame() {
+        UUID eventId = UUID.randomUUID();
+        Instant createdAt = Instant.parse("2024-10-17T06:00:00Z");
+        delivery.deliver(NotificationOutboxEvent.builder()
+                .id(eventId)
+                .source(NotificationSource.MOVEMENT)
+                .type(NotificationType.CREATE)
+                .movementType(MovementType.TRANSFERENCIA)
+                .entityId("6710c0aa")
+                .amount(20.0)
+                .recipient("first")
+                .destinationRecipient("second")
+                .createdAt(LocalDateTime.ofInstant(createdAt, ZoneId.systemDefault()))
+                .build());
+
+        ArgumentCaptor<UserMessage> messages = ArgumentCaptor.forClass(UserMessage.class);
+        verify(broker, times(2)).publish(messages.capture());
+        List<UserMessage> published = messages.getAllValues();
+        assertAll(
+                () -> assertEquals("first", published.get(0).username()),
+                () -> assertEquals("second", published.get(1).username()),
+                () -> assertEquals("{\"type\":\"CREATE\",\"entity\":\"MOVEMENT\",\"id\":\"6710c0aa\",\"amount\":20.0,"
+                        + "\"timestamp\":" + createdAt.toEpochMilli() + "}", published.get(0).payload()),
+                () -> assertSame(published.get(0).payload(), published.get(1).payload()),
+                () -> assertEquals(eventId + ":0", published.get(0).id()),
+                () -> assertEquals(eventId + ":1", published.get(1).id())
+        );
+    }
+
+    @Test
+    void deliver_UpdateOfAnotherMovementIsNotifiedAsNew() {
+        delivery.deliver(NotificationOutboxEvent.builder()
+                .source(NotificationSource.MOVEMENT)
+                .type(NotificationType.UPDATE)
+                .movementType(MovementType.INGRESO)
+                .entityId("6710c0aa")
+                .recipient("first")
+                .destinationRecipient("second")
+                .build());
+
+        verify(broker).publish(argThat(message -> message.username().equals("first")
+                && message.payload().contains("\"type\":\"CREATE\"")));
+        verifyNoMoreInteractions(broker);
+    }
+
+    @Test
+    void deliver_CardNotifiesItsRecipient() {
+        delivery.deliver(NotificationOutboxEvent.builder()
+                .source(NotificationSource.CARD)
+                .type(NotificationType.DELETE)
+                .recipient("second")
+                .build());
+
+        verify(broker).publish(argThat(message -> message.username().equals("second")
+                && message.payload().contains("\"type\":\"DELETE\",\"entity\":\"CARD\"")
+                && !message.payload().contains("amount")));
+    }
+
+    @Test
+    void deliver_SendFailureIsReported() {
+        when(broker.publish(any())).thenReturn(CompletableFuture.failedFuture(new IOException("cerrada")));
+
+        assertThrows(NotificationSenderException.class, () -> delivery.deliver(NotificationOutboxEvent.builder()
+                .source(NotificationSource.CLIENT)
+                .type(NotificationType.UPDATE)
+                .recipient("first")
+                .build()));
+    }
+}
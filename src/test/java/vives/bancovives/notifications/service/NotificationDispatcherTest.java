@@ -0,0 +1,141 @@
+package vives.bancovives.notifications.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import vives.bancovives.notifications.exceptions.NotificationSenderException;
+import vives.bancovives.notifications.model.NotificationOutboxEvent;
+import vives.bancovives.notifications.model.NotificationSource;
+import vives.bancovives.notifications.model.NotificationType;
+import vives.bancovives.notifications.repository.NotificationOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotificationDispatcherTest {
+
+    private NotificationOutboxRepository outboxRepository;
+    private NotificationDelivery delivery;
+    private NotificationDispatcher dispatcher;
+    private final CountDownLatch stalled = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(NotificationOutboxRepository.class);
+        delivery = mock(NotificationDelivery.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        dispatcher = new NotificationDispatcher(outboxRepository, delivery, transactionTemplate);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "lease", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(dispatcher, "deliveryTimeout", Duration.ofMillis(300));
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "retryBackoff", Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stalled.countDown();
+        dispatcher.stop();
+    }
+
+    @Test
+    void dispatchBatch_ClaimsTheBatchAndDeletesDeliveredEvents() throws InterruptedException {
+        NotificationOutboxEvent first = event(0);
+        NotificationOutboxEvent second = event(0);
+        when(outboxRepository.findDue(any(), any())).thenReturn(List.of(first, second));
+
+        assertEquals(2, dispatcher.dispatchBatch());
+
+        verify(outboxRepository).postpone(eq(List.of(first.getId(), second.getId())), any());
+        verify(delivery).deliver(first);
+        verify(delivery).deliver(second);
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(first.getId(), second.getId()));
+        verify(outboxRepository, never()).reschedule(any(), anyInt(), any());
+    }
+
+    @Test
+    void dispatchBatch_EmptyOutboxDoesNothing() throws InterruptedException {
+        when(outboxRepository.findDue(any(), any())).thenReturn(List.of());
+
+        assertEquals(0, dispatcher.dispatchBatch());
+
+        verify(outboxRepository, never()).postpone(anyCollection(), any());
+        verifyNoInteractions(delivery);
+    }
+
+    @Test
+    void dispatchBatch_StalledDeliveryIsRetriedWithoutHoldingBackTheOthers() throws InterruptedException {
+        NotificationOutboxEvent slow = event(0);
+        NotificationOutboxEvent fast = event(0);
+        when(outboxRepository.findDue(any(), any())).thenReturn(List.of(slow, fast));
+        doAnswer(invocation -> {
+            stalled.await();
+            return null;
+        }).when(delivery).deliver(slow);
+
+        long start = System.nanoTime();
+        dispatcher.dispatchBatch();
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(elapsedMillis < 2_000, "El lote no debe esperar más que el tiempo máximo de envío: " + elapsedMillis);
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(fast.getId()));
+        verify(outboxRepository).reschedule(eq(slow.getId()), eq(1), any());
+    }
+
+    @Test
+    void dispatchBatch_FailedDeliveryIsRetriedWithExponentialBackoff() throws InterruptedException {
+        NotificationOutboxEvent event = event(1);
+        when(outboxRepository.findDue(any(), any())).thenReturn(List.of(event));
+        doThrow(new NotificationSenderException("fallo")).when(delivery).deliver(event);
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatchBatch();
+
+        verify(outboxRepository).reschedule(eq(event.getId()), eq(2),
+                argThat(next -> !next.isBefore(before.plusSeconds(4))));
+    }
+
+    @Test
+    void dispatchBatch_DiscardsTheEventAfterTheLastAttempt() throws InterruptedException {
+        NotificationOutboxEvent event = event(2);
+        when(outboxRepository.findDue(any(), any())).thenReturn(List.of(event));
+        doThrow(new NotificationSenderException("fallo")).when(delivery).deliver(event);
+
+        dispatcher.dispatchBatch();
+
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(event.getId()));
+        verify(outboxRepository, never()).reschedule(any(), anyInt(), any());
+    }
+
+    private NotificationOutboxEvent event(int attempts) {
+        return NotificationOutboxEvent.builder()
+                .id(UUID.randomUUID())
+                .source(NotificationSource.CLIENT)
+                .type(NotificationType.UPDATE)
+                .recipient("user")
+                .attempts(attempts)
+                .build();
+    }
+}
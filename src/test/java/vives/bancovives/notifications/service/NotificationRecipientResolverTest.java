@@ -0,0 +1,73 @@
+package vives.bancovives.notifications.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.service.AccountService;
+import vives.bancovives.rest.clients.exceptions.ClientNotFound;
+import vives.bancovives.rest.clients.model.Client;
+import vives.bancovives.rest.clients.repository.ClientRepository;
+import vives.bancovives.rest.clients.repository.ClientUsername;
+import vives.bancovives.rest.users.models.User;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class NotificationRecipientResolverTest {
+
+    private ClientRepository clientRepository;
+    private NotificationRecipientResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        clientRepository = mock(ClientRepository.class);
+        resolver = new NotificationRecipientResolver(clientRepository, mock(AccountService.class), 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void usernameOf_LoadedUserNeedsNoQuery() {
+        Client client = Client.builder().publicId("client-1").user(User.builder().username("first").build()).build();
+
+        assertEquals("first", resolver.usernameOf(client));
+
+        verifyNoInteractions(clientRepository);
+    }
+
+    @Test
+    void usernameOf_ClientWithoutLoadedUserUsesTheCacheFilledByEarlierLookups() {
+        resolver.usernameOf(Client.builder().publicId("client-1").user(User.builder().username("first").build()).build());
+
+        assertEquals("first", resolver.usernameOf(Client.builder().publicId("client-1").build()));
+
+        verifyNoInteractions(clientRepository);
+    }
+
+    @Test
+    void usernamesOf_MissingClientsAreQueriedTogetherOnceAndThenCached() {
+        Account loaded = Account.builder().iban("ES1")
+                .client(Client.builder().publicId("client-1").user(User.builder().username("first").build()).build()).build();
+        Account second = Account.builder().iban("ES2").client(Client.builder().publicId("client-2").build()).build();
+        Account third = Account.builder().iban("ES3").client(Client.builder().publicId("client-3").build()).build();
+        when(clientRepository.findUsernamesByPublicIdIn(Set.of("client-2", "client-3")))
+                .thenReturn(List.of(new ClientUsername("client-2", "second"), new ClientUsername("client-3", "third")));
+
+        Map<String, String> usernames = resolver.usernamesOf(List.of(loaded, second, third));
+        resolver.usernamesOf(List.of(second, third));
+
+        assertEquals(Map.of("ES1", "first", "ES2", "second", "ES3", "third"), usernames);
+        verify(clientRepository, times(1)).findUsernamesByPublicIdIn(any());
+    }
+
+    @Test
+    void usernameOf_UnknownClientThrows() {
+        when(clientRepository.findUsernamesByPublicIdIn(any())).thenReturn(List.of());
+
+        assertThrows(ClientNotFound.class, () -> resolver.usernameOf(Client.builder().publicId("missing").build()));
+    }
+}
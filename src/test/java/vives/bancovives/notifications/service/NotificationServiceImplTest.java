@@ -0,0 +1,141 @@
+package vives.bancovives.notifications.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import vives.bancovives.notifications.model.NotificationOutboxEvent;
+import vives.bancovives.notifications.model.NotificationSource;
+import vives.bancovives.notifications.model.NotificationType;
+import vives.bancovives.notifications.repository.NotificationOutboxRepository;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.service.AccountService;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.clients.model.Client;
+import vives.bancovives.rest.clients.repository.ClientRepository;
+import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementType;
+import vives.bancovives.rest.users.models.User;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NotificationServiceImplTest {
+
+    private NotificationOutboxRepository outboxRepository;
+    private NotificationDispatcher dispatcher;
+    private ClientRepository clientRepository;
+    private AccountService accountService;
+    private NotificationServiceImpl notificationService;
+    private Account first;
+    private Account second;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(NotificationOutboxRepository.class);
+        dispatcher = mock(NotificationDispatcher.class);
+        clientRepository = mock(ClientRepository.class);
+        accountService = mock(AccountService.class);
+        NotificationRecipientResolver resolver = new NotificationRecipientResolver(clientRepository, accountService, 100, Duration.ofMinutes(10));
+        notificationService = new NotificationServiceImpl(outboxRepository, dispatcher, resolver);
+        first = account("ES1", "client-1", "first");
+        second = account("ES2", "client-2", "second");
+    }
+
+    @Test
+    void sendNotificationFromMovement_TransferWithLoadedAccountsOnlyStoresTheEvent() {
+        Movement transfer = transfer();
+        notificationService.sendNotificationFromMovement(transfer, first, second, NotificationType.CREATE);
+
+        NotificationOutboxEvent event = savedEvents().get(0);
+        assertAll(
+                () -> assertEquals(NotificationSource.MOVEMENT, event.getSource()),
+                () -> assertEquals(transfer.get_id(), event.getEntityId()),
+                () -> assertEquals(25.0, event.getAmount()),
+                () -> assertEquals(NotificationType.CREATE, event.getType()),
+                () -> assertEquals(MovementType.TRANSFERENCIA, event.getMovementType()),
+                () -> assertEquals("first", event.getRecipient()),
+                () -> assertEquals("second", event.getDestinationRecipient()),
+                () -> assertEquals(0, event.getAttempts())
+        );
+        // Los destinatarios salen de las cuentas cargadas, sin consultar nada
+        verifyNoInteractions(clientRepository, accountService);
+        // Sin transacción se avisa en el momento
+        verify(dispatcher).wakeUp();
+    }
+
+    @Test
+    void sendNotificationFromMovement_WithoutAccountsLooksThemUpByIban() {
+        when(accountService.findByIban("ES1")).thenReturn(first);
+        when(accountService.findByIban("ES2")).thenReturn(second);
+
+        notificationService.sendNotificationFromMovement(transfer(), NotificationType.UPDATE);
+
+        NotificationOutboxEvent event = savedEvents().get(0);
+        assertEquals("first", event.getRecipient());
+        assertEquals("second", event.getDestinationRecipient());
+    }
+
+    @Test
+    void sendNotificationFromMovement_DeleteOfAMovementThatIsNotATransferIsNotStored() {
+        Movement movement = new Movement();
+        movement.setMovementType(MovementType.INGRESO);
+        movement.setIbanOfReference("ES1");
+
+        notificationService.sendNotificationFromMovement(movement, first, null, NotificationType.DELETE);
+
+        verifyNoInteractions(outboxRepository, dispatcher);
+    }
+
+    @Test
+    void sendNotificationsFromMovements_StoresAllEventsAtOnce() {
+        Movement ingreso = new Movement();
+        ingreso.setMovementType(MovementType.INGRESO);
+        ingreso.setIbanOfReference("ES2");
+
+        notificationService.sendNotificationsFromMovements(List.of(transfer(), ingreso), List.of(first, second), NotificationType.CREATE);
+
+        List<NotificationOutboxEvent> events = savedEvents();
+        assertEquals(2, events.size());
+        assertEquals("second", events.get(1).getRecipient());
+        assertNull(events.get(1).getDestinationRecipient());
+        verify(dispatcher, times(1)).wakeUp();
+        verifyNoInteractions(clientRepository);
+    }
+
+    @Test
+    void sendNotificationFromCard_IsAddressedToTheClientOfTheAccount() {
+        Card card = Card.builder().account(second).build();
+        notificationService.sendNotificationFromCard(card, NotificationType.UPDATE);
+
+        NotificationOutboxEvent event = savedEvents().get(0);
+        assertEquals(NotificationSource.CARD, event.getSource());
+        assertEquals(card.getPublicId(), event.getEntityId());
+        assertNull(event.getAmount());
+        assertEquals("second", event.getRecipient());
+    }
+
+    private Movement transfer() {
+        Movement movement = new Movement();
+        movement.setMovementType(MovementType.TRANSFERENCIA);
+        movement.setIbanOfReference("ES1");
+        movement.setIbanOfDestination("ES2");
+        movement.setAmountOfMoney(25.0);
+        return movement;
+    }
+
+    private Account account(String iban, String clientPublicId, String username) {
+        User user = User.builder().username(username).build();
+        Client client = Client.builder().publicId(clientPublicId).user(user).build();
+        return Account.builder().iban(iban).client(client).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NotificationOutboxEvent> savedEvents() {
+        ArgumentCaptor<List<NotificationOutboxEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository).saveAllAndFlush(captor.capture());
+        return captor.getValue();
+    }
+}
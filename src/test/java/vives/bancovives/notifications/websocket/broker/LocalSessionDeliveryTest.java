@@ -0,0 +1,119 @@
+package vives.bancovives.notifications.websocket.broker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import vives.bancovives.notifications.websocket.config.WebSocketHandler;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class LocalSessionDeliveryTest {
+
+    private WebSocketHandler webSocketHandler;
+    private LocalSessionDelivery localDelivery;
+
+    @BeforeEach
+    void setUp() {
+        webSocketHandler = mock(WebSocketHandler.class);
+        localDelivery = new LocalSessionDelivery(webSocketHandler, Duration.ofMinutes(5), 1000, Duration.ofMillis(100), 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        localDelivery.stop();
+    }
+
+    @Test
+    void deliver_DuplicateIsDiscarded() throws IOException {
+        UserMessage message = new UserMessage("evento:0", "cliente", "aviso");
+
+        localDelivery.deliver(message);
+        localDelivery.deliver(message);
+
+        verify(webSocketHandler, times(1)).sendMessage("aviso", "cliente");
+    }
+
+    @Test
+    void deliver_FailedMessageCanBeRetried() throws Exception {
+        UserMessage message = new UserMessage("evento:0", "cliente", "aviso");
+        doThrow(new IOException("cerrada")).doNothing().when(webSocketHandler).sendMessage("aviso", "cliente");
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> localDelivery.deliver(message).get());
+        assertInstanceOf(IOException.class, failure.getCause());
+        localDelivery.deliver(message).get();
+
+        verify(webSocketHandler, times(2)).sendMessage("aviso", "cliente");
+    }
+
+    @Test
+    void deliver_BurstIsCoalescedIntoOneDigest() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            localDelivery.deliver(new UserMessage("evento-" + i + ":0", "cliente", "{\"id\":\"" + i + "\"}"));
+        }
+
+        verify(webSocketHandler).sendMessage("{\"id\":\"0\"}", "cliente");
+        verify(webSocketHandler, timeout(2000)).sendMessage(
+                "{\"type\":\"DIGEST\",\"count\":4,\"events\":[{\"id\":\"2\"},{\"id\":\"3\"},{\"id\":\"4\"}]}", "cliente");
+        verify(webSocketHandler, after(300).times(2)).sendMessage(anyString(), eq("cliente"));
+    }
+
+    @Test
+    void deliver_CoalescedMessageCompletesWhenTheWindowIsSent() throws Exception {
+        CompletableFuture<Void> first = localDelivery.deliver(new UserMessage("evento-0:0", "cliente", "primero"));
+        CompletableFuture<Void> second = localDelivery.deliver(new UserMessage("evento-1:0", "cliente", "segundo"));
+
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        second.get(2, TimeUnit.SECONDS);
+        verify(webSocketHandler).sendMessage("segundo", "cliente");
+    }
+
+    @Test
+    void deliver_FailedDigestFailsItsMessagesAndTheyCanBeRetried() throws Exception {
+        doThrow(new IOException("cerrada")).when(webSocketHandler).sendMessage(startsWith("{\"type\":\"DIGEST\""), eq("cliente"));
+        localDelivery.deliver(new UserMessage("evento-0:0", "cliente", "{\"id\":\"0\"}"));
+        CompletableFuture<Void> second = localDelivery.deliver(new UserMessage("evento-1:0", "cliente", "{\"id\":\"1\"}"));
+        CompletableFuture<Void> third = localDelivery.deliver(new UserMessage("evento-2:0", "cliente", "{\"id\":\"2\"}"));
+
+        assertThrows(ExecutionException.class, () -> second.get(2, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> third.get(2, TimeUnit.SECONDS));
+
+        // El reintento no se toma por un duplicado y se envía al cerrar la ventana
+        localDelivery.deliver(new UserMessage("evento-1:0", "cliente", "{\"id\":\"1\"}")).get(2, TimeUnit.SECONDS);
+        verify(webSocketHandler).sendMessage("{\"id\":\"1\"}", "cliente");
+    }
+
+    @Test
+    void deliver_MessageAfterTheWindowIsSentAlone() throws Exception {
+        localDelivery.deliver(new UserMessage("evento-0:0", "cliente", "primero"));
+        localDelivery.deliver(new UserMessage("evento-1:0", "otro", "de otro usuario"));
+        Thread.sleep(300);
+
+        localDelivery.deliver(new UserMessage("evento-2:0", "cliente", "segundo"));
+
+        verify(webSocketHandler).sendMessage("primero", "cliente");
+        verify(webSocketHandler).sendMessage("de otro usuario", "otro");
+        verify(webSocketHandler).sendMessage("segundo", "cliente");
+    }
+
+    @Test
+    void deliver_WithoutWindowEveryMessageIsSent() throws IOException {
+        localDelivery = new LocalSessionDelivery(webSocketHandler, Duration.ofMinutes(5), 1000, Duration.ZERO, 3);
+
+        localDelivery.deliver(new UserMessage("evento-0:0", "cliente", "primero"));
+        localDelivery.deliver(new UserMessage("evento-1:0", "cliente", "segundo"));
+
+        verify(webSocketHandler).sendMessage("primero", "cliente");
+        verify(webSocketHandler).sendMessage("segundo", "cliente");
+    }
+}
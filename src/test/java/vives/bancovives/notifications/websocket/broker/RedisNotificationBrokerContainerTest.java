@@ -0,0 +1,91 @@
+package vives.bancovives.notifications.websocket.broker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Reparte notificaciones entre dos nodos a través de un Redis real: cada mensaje llega solo al nodo en el que está
+ * conectado su usuario. Se omite si Docker no está disponible.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisNotificationBrokerContainerTest {
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7.4-alpine").withExposedPorts(6379);
+
+    private JedisConnectionFactory connectionFactory;
+    private LocalSessionDelivery firstSessions;
+    private LocalSessionDelivery secondSessions;
+    private RedisNotificationBroker first;
+    private RedisNotificationBroker second;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new JedisConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        firstSessions = mock(LocalSessionDelivery.class);
+        secondSessions = mock(LocalSessionDelivery.class);
+        when(firstSessions.deliver(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(secondSessions.deliver(any())).thenReturn(CompletableFuture.completedFuture(null));
+        first = node(redisTemplate, firstSessions);
+        second = node(redisTemplate, secondSessions);
+    }
+
+    private RedisNotificationBroker node(StringRedisTemplate redisTemplate, LocalSessionDelivery sessions) {
+        RedisNotificationBroker broker = new RedisNotificationBroker(connectionFactory, redisTemplate, sessions,
+                new ObjectMapper(), 100, Duration.ofMillis(5), Duration.ofSeconds(30));
+        broker.start();
+        broker.subscribe();
+        return broker;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        first.stop();
+        second.stop();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void publish_ReachesOnlyTheNodeOfTheUser() throws Exception {
+        when(secondSessions.connectedUsers()).thenReturn(Set.of("cliente"));
+        second.refreshPresence();
+        UserMessage message = new UserMessage("evento:0", "cliente", "aviso");
+
+        first.publish(message).get(5, TimeUnit.SECONDS);
+
+        verify(secondSessions, timeout(2000)).deliver(message);
+        verify(firstSessions, never()).deliver(any());
+    }
+
+    @Test
+    void publish_DisconnectedUserIsNotRoutedAnymore() throws Exception {
+        when(secondSessions.connectedUsers()).thenReturn(Set.of("cliente"));
+        second.refreshPresence();
+        second.userDisconnected("cliente");
+        Thread.sleep(200);
+
+        first.publish(new UserMessage("evento:0", "cliente", "aviso")).get(5, TimeUnit.SECONDS);
+
+        verify(secondSessions, after(500).never()).deliver(any());
+    }
+}
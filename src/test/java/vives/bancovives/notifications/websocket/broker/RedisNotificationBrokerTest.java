@@ -0,0 +1,99 @@
+package vives.bancovives.notifications.websocket.broker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RedisNotificationBrokerTest {
+
+    private StringRedisTemplate redisTemplate;
+    private LocalSessionDelivery localDelivery;
+    private RedisNotificationBroker broker;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        localDelivery = mock(LocalSessionDelivery.class);
+        when(localDelivery.deliver(any())).thenReturn(CompletableFuture.completedFuture(null));
+        broker = new RedisNotificationBroker(mock(RedisConnectionFactory.class), redisTemplate, localDelivery,
+                new ObjectMapper(), 100, Duration.ofMillis(5), Duration.ofSeconds(30));
+        broker.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        broker.stop();
+    }
+
+    @Test
+    void publish_WithoutRedisDeliversToLocalSessions() throws Exception {
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("sin conexión"));
+        when(localDelivery.hasSessions("cliente")).thenReturn(true);
+        UserMessage message = new UserMessage("evento:0", "cliente", "aviso");
+
+        broker.publish(message).get(5, TimeUnit.SECONDS);
+
+        verify(localDelivery).deliver(message);
+    }
+
+    @Test
+    void publish_OnlyToNodesWithSessionsOfTheUser() throws Exception {
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenReturn(List.of(Set.of("otro-nodo"), Set.of()))
+                .thenReturn(List.of(1L));
+        UserMessage remote = new UserMessage("evento:0", "remoto", "aviso");
+        UserMessage nobody = new UserMessage("evento:1", "desconectado", "aviso");
+
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        broker.flush(List.of(new RedisNotificationBroker.Pending(remote, first),
+                new RedisNotificationBroker.Pending(nobody, second)));
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        // Una búsqueda de nodos y una publicación para todo el lote
+        verify(redisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+        verify(localDelivery, never()).deliver(any());
+    }
+
+    @Test
+    void publish_RepeatedMessageInTheBatchIsSentOnce() throws Exception {
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(Set.of(broker.nodeId())));
+        UserMessage message = new UserMessage("evento:0", "cliente", "aviso");
+
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        broker.flush(List.of(new RedisNotificationBroker.Pending(message, first),
+                new RedisNotificationBroker.Pending(message, second)));
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        verify(localDelivery, times(1)).deliver(message);
+    }
+
+    @Test
+    void publish_LocalFailureIsReported() throws Exception {
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(Set.of(broker.nodeId())));
+        when(localDelivery.deliver(any())).thenReturn(CompletableFuture.failedFuture(new IOException("cerrada")));
+
+        CompletableFuture<Void> future = broker.publish(new UserMessage("evento:0", "cliente", "aviso"));
+
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,115 @@
+package vives.bancovives.notifications.websocket.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SessionSendBuffersTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private WebSocketSession slow;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        slow = mock(WebSocketSession.class);
+        when(slow.getId()).thenReturn("1");
+        when(slow.getAttributes()).thenReturn(new HashMap<>());
+        when(slow.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            sending.countDown();
+            released.await();
+            return null;
+        }).when(slow).sendMessage(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        released.countDown();
+    }
+
+    /**
+     * Deja un hilo bloqueado enviando a la sesión, como haría un cliente que no lee del socket
+     */
+    private void blockOn(WebSocketSession session) throws InterruptedException {
+        Thread.ofVirtual().start(() -> {
+            try {
+                session.sendMessage(new TextMessage("primero"));
+            } catch (Exception ignored) {
+                // El envío se libera al terminar la prueba
+            }
+        });
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void drop_NewMessagesAreDiscardedWhileTheBufferIsFull() throws Exception {
+        SessionSendBuffers buffers = new SessionSendBuffers(Duration.ofSeconds(10), DataSize.ofBytes(20),
+                OverflowStrategy.DROP, meterRegistry);
+        WebSocketSession session = buffers.wrap(slow);
+        blockOn(session);
+
+        session.sendMessage(new TextMessage("mensaje-0001"));
+        session.sendMessage(new TextMessage("mensaje-0002"));
+        session.sendMessage(new TextMessage("mensaje-0003"));
+
+        assertEquals(2, meterRegistry.get("websocket.send.dropped").tag("reason", "overflow").counter().count());
+        assertEquals(12, meterRegistry.get("websocket.send.buffer").gauge().value());
+        assertEquals(1, meterRegistry.get("websocket.send.queue").gauge().value());
+    }
+
+    @Test
+    void terminate_OverflowingSessionIsReported() throws Exception {
+        SessionSendBuffers buffers = new SessionSendBuffers(Duration.ofSeconds(10), DataSize.ofBytes(20),
+                OverflowStrategy.TERMINATE, meterRegistry);
+        WebSocketSession session = buffers.wrap(slow);
+        blockOn(session);
+
+        session.sendMessage(new TextMessage("mensaje-0001"));
+
+        assertThrows(SessionLimitExceededException.class, () -> session.sendMessage(new TextMessage("mensaje-0002")));
+    }
+
+    @Test
+    void release_CountsTheMessagesLeftUnsent() throws Exception {
+        SessionSendBuffers buffers = new SessionSendBuffers(Duration.ofSeconds(10), DataSize.ofKilobytes(1),
+                OverflowStrategy.TERMINATE, meterRegistry);
+        WebSocketSession session = buffers.wrap(slow);
+        blockOn(session);
+        session.sendMessage(new TextMessage("mensaje-0001"));
+
+        buffers.release(session);
+
+        assertEquals(1, meterRegistry.get("websocket.send.dropped").tag("reason", "closed").counter().count());
+        assertEquals(0, meterRegistry.get("websocket.send.queue").gauge().value());
+    }
+
+    @Test
+    void stalled_FindsSessionsBlockedLongerThanTheLimit() throws Exception {
+        SessionSendBuffers buffers = new SessionSendBuffers(Duration.ofMillis(50), DataSize.ofKilobytes(1),
+                OverflowStrategy.TERMINATE, meterRegistry);
+        WebSocketSession session = buffers.wrap(slow);
+        blockOn(session);
+
+        Thread.sleep(100);
+
+        assertEquals(1, buffers.stalled().size());
+        assertEquals("1", buffers.stalled().getFirst().getId());
+    }
+}
@@ -0,0 +1,161 @@
+package vives.bancovives.notifications.websocket.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import vives.bancovives.rest.users.models.User;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WebSocketHandlerTest {
+
+    private WebSocketHandler handler;
+    private final User user = User.builder().username("cliente").build();
+
+    @BeforeEach
+    void setUp() {
+        handler = new WebSocketHandler("Notification", null, null);
+    }
+
+    private WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    @Test
+    void sendMessage_ReachesEveryDeviceOfTheUserOnly() throws IOException {
+        WebSocketSession phone = session("1");
+        WebSocketSession laptop = session("2");
+        WebSocketSession other = session("3");
+        handler.register("cliente", phone);
+        handler.register("cliente", laptop);
+        handler.register("otro", other);
+
+        handler.sendMessage("aviso", user);
+
+        verify(phone).sendMessage(new TextMessage("aviso"));
+        verify(laptop).sendMessage(new TextMessage("aviso"));
+        verify(other, never()).sendMessage(any());
+    }
+
+    @Test
+    void sendMessage_UserWithoutSessionsSendsNothing() {
+        assertDoesNotThrow(() -> handler.sendMessage("aviso", user));
+    }
+
+    @Test
+    void afterConnectionClosed_RemovesOnlyThatSession() throws Exception {
+        WebSocketSession phone = session("1");
+        WebSocketSession laptop = session("2");
+        handler.register("cliente", phone);
+        handler.register("cliente", laptop);
+
+        handler.afterConnectionClosed(phone, CloseStatus.NORMAL);
+        assertEquals(1, handler.sessionCount("cliente"));
+
+        handler.afterConnectionClosed(laptop, CloseStatus.NORMAL);
+        assertEquals(0, handler.sessionCount("cliente"));
+    }
+
+    @Test
+    void handleTransportError_RemovesAndClosesTheSession() throws Exception {
+        WebSocketSession phone = session("1");
+        handler.register("cliente", phone);
+
+        handler.handleTransportError(phone, new IOException("conexión perdida"));
+
+        assertEquals(0, handler.sessionCount("cliente"));
+        verify(phone).close(CloseStatus.SERVER_ERROR);
+    }
+
+    @Test
+    void sendMessage_FailedDeviceIsRemovedAndOthersStillReceive() throws IOException {
+        WebSocketSession broken = session("1");
+        WebSocketSession laptop = session("2");
+        doThrow(new IOException("broken pipe")).when(broken).sendMessage(any());
+        handler.register("cliente", broken);
+        handler.register("cliente", laptop);
+
+        handler.sendMessage("aviso", user);
+
+        verify(laptop).sendMessage(new TextMessage("aviso"));
+        assertEquals(1, handler.sessionCount("cliente"));
+    }
+
+    @Test
+    void sendMessage_ClosedSessionIsRemovedWithoutSending() throws IOException {
+        WebSocketSession closed = session("1");
+        when(closed.isOpen()).thenReturn(false);
+        handler.register("cliente", closed);
+
+        handler.sendMessage("aviso", user);
+
+        verify(closed, never()).sendMessage(any());
+        assertEquals(0, handler.sessionCount("cliente"));
+    }
+
+    @Test
+    void register_NotifiesPresenceOnFirstAndLastSessionOnly() throws Exception {
+        SessionPresenceListener presence = mock(SessionPresenceListener.class);
+        handler = new WebSocketHandler("Notification", null, null, presence, SessionSendBuffers.withDefaults());
+        WebSocketSession phone = session("1");
+        WebSocketSession laptop = session("2");
+
+        handler.register("cliente", phone);
+        handler.register("cliente", laptop);
+        handler.afterConnectionClosed(phone, CloseStatus.NORMAL);
+        verify(presence).userConnected("cliente");
+        verify(presence, never()).userDisconnected(any());
+
+        handler.afterConnectionClosed(laptop, CloseStatus.NORMAL);
+        verify(presence).userDisconnected("cliente");
+        assertFalse(handler.hasSessions("cliente"));
+    }
+
+    @Test
+    void closeStalledSessions_ClosesSessionsThatDoNotReceive() throws Exception {
+        handler = new WebSocketHandler("Notification", null, null, SessionPresenceListener.NONE,
+                new SessionSendBuffers(Duration.ofMillis(50), DataSize.ofKilobytes(64),
+                        ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE, new SimpleMeterRegistry()));
+        WebSocketSession stalled = session("1");
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            released.await();
+            return null;
+        }).when(stalled).sendMessage(any());
+        handler.register("cliente", stalled);
+        Thread.ofVirtual().start(() -> {
+            try {
+                handler.sendMessage("aviso", "cliente");
+            } catch (IOException ignored) {
+                // No llega a fallar, se queda bloqueado hasta el final de la prueba
+            }
+        });
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+
+        handler.closeStalledSessions();
+
+        assertEquals(0, handler.sessionCount("cliente"));
+        verify(stalled, timeout(2000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        released.countDown();
+    }
+}
@@ -0,0 +1,113 @@
+package vives.bancovives.notifications.websocket.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Prueba de carga que envía ráfagas de notificaciones en paralelo a muchos usuarios, algunos de ellos con clientes
+ * que no leen del socket. Comprueba que los clientes rápidos lo reciben todo sin esperar a los lentos, que en cada
+ * sesión lenta solo queda bloqueado un hilo y que las sesiones lentas se cierran al llenar su búfer.
+ */
+class WebSocketSlowClientsLoadTest {
+
+    private static final int USERS = 200;
+    private static final int SLOW_USERS = 20;
+    private static final int MESSAGES = 50;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final AtomicInteger blockedSenders = new AtomicInteger();
+    private final List<AtomicInteger> received = new ArrayList<>();
+    private final List<WebSocketSession> slowSessions = new ArrayList<>();
+    private WebSocketHandler handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SessionSendBuffers buffers = new SessionSendBuffers(Duration.ofSeconds(30), DataSize.ofBytes(512),
+                OverflowStrategy.TERMINATE, meterRegistry);
+        handler = new WebSocketHandler("Notification", null, null, SessionPresenceListener.NONE, buffers);
+        for (int i = 0; i < USERS; i++) {
+            WebSocketSession session = mock(WebSocketSession.class);
+            when(session.getId()).thenReturn(String.valueOf(i));
+            when(session.getAttributes()).thenReturn(new HashMap<>());
+            when(session.isOpen()).thenReturn(true);
+            AtomicInteger count = new AtomicInteger();
+            received.add(count);
+            if (i < SLOW_USERS) {
+                doAnswer(invocation -> {
+                    blockedSenders.incrementAndGet();
+                    released.await();
+                    return null;
+                }).when(session).sendMessage(any());
+                slowSessions.add(session);
+            } else {
+                doAnswer(invocation -> count.incrementAndGet()).when(session).sendMessage(any());
+            }
+            handler.register("usuario-" + i, session);
+        }
+    }
+
+    @Test
+    void slowClientsDoNotHoldBackTheRest() throws Exception {
+        List<Future<?>> sends = new ArrayList<>();
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (int message = 0; message < MESSAGES; message++) {
+                String payload = "{\"type\":\"CREATE\",\"message\":\"Se ha realizado un movimiento " + message + "\"}";
+                for (int user = 0; user < USERS; user++) {
+                    String username = "usuario-" + user;
+                    sends.add(executor.submit(() -> {
+                        handler.sendMessage(payload, username);
+                        return null;
+                    }));
+                }
+            }
+
+            // Todos los envíos terminan salvo el primero a cada sesión lenta, que sigue esperando al cliente
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (sends.stream().filter(Future::isDone).count() < sends.size() - SLOW_USERS
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(sends.size() - SLOW_USERS, sends.stream().filter(Future::isDone).count(),
+                    "Solo deben quedar bloqueados los primeros envíos a las sesiones lentas");
+            assertEquals(SLOW_USERS, blockedSenders.get(), "Cada sesión lenta debe bloquear un único hilo");
+            for (int user = SLOW_USERS; user < USERS; user++) {
+                assertEquals(MESSAGES, received.get(user).get(), "El usuario " + user + " debe recibirlo todo");
+            }
+            for (WebSocketSession slow : slowSessions) {
+                verify(slow, timeout(2000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+            assertEquals(SLOW_USERS, meterRegistry.get("websocket.sessions.terminated").counter().count());
+            assertTrue(meterRegistry.get("websocket.send.dropped").tag("reason", "closed").counter().count() > 0);
+            assertEquals(0, meterRegistry.get("websocket.send.queue").gauge().value());
+            assertTrue(elapsedMillis < 10_000, "Los envíos han tardado " + elapsedMillis + " ms");
+        } finally {
+            released.countDown();
+            executor.shutdown();
+        }
+    }
+}
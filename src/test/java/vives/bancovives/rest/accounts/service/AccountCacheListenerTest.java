@@ -0,0 +1,79 @@
+package vives.bancovives.rest.accounts.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.service.CardCache;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountCacheListenerTest {
+
+    @Mock
+    AccountCache accountCache;
+
+    @Mock
+    CardCache cardCache;
+
+    @Mock
+    ObjectProvider<AccountCache> accountCacheProvider;
+
+    @Mock
+    ObjectProvider<CardCache> cardCacheProvider;
+
+    AccountCacheListener listener;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(accountCacheProvider.getObject()).thenReturn(accountCache);
+        lenient().when(cardCacheProvider.getObject()).thenReturn(cardCache);
+        listener = new AccountCacheListener(accountCacheProvider, cardCacheProvider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Account account(String publicId, String iban) {
+        return Account.builder().publicId(publicId).iban(iban).build();
+    }
+
+    @Test
+    void onChange_EvictsEveryAccountOfTheTransactionAtOnceAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.onChange(account("pub-1", "ES01"));
+        listener.onChange(account("pub-2", "ES02"));
+        listener.onChange(account("pub-1", "ES01"));
+
+        verifyNoInteractions(accountCache, cardCache);
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+
+        verify(accountCache).evictAll(List.of("pub-1", "pub-2"));
+        verify(cardCache).evictAllByAccountIban(List.of("ES01", "ES02"));
+        verify(accountCache, never()).put(any());
+    }
+
+    @Test
+    void onChange_WithoutTransactionEvictsImmediately() {
+        listener.onChange(account("pub-1", "ES01"));
+
+        verify(accountCache).evictAll(List.of("pub-1"));
+        verify(cardCache).evictAllByAccountIban(List.of("ES01"));
+    }
+}
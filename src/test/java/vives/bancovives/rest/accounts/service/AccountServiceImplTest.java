@@ -5,7 +5,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -43,6 +45,9 @@ class AccountServiceImplTest {
     @Mock
     private AccountTypeRepository accountTypeRepository;
 
+    @Spy
+    private AccountCache accountCache = new AccountCache(new ConcurrentMapCacheManager());
+
     @InjectMocks
     private AccountServiceImpl accountService;
 
@@ -0,0 +1,141 @@
+package vives.bancovives.rest.cards.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardTest {
+
+    private Card spentOn(LocalDate date) {
+        Card card = new Card();
+        card.addSpending(100, date);
+        return card;
+    }
+
+    private void assertSpent(Card card, double today, double week, double month) {
+        assertAll(
+                () -> assertEquals(today, card.getSpentToday()),
+                () -> assertEquals(week, card.getSpentThisWeek()),
+                () -> assertEquals(month, card.getSpentThisMonth())
+        );
+    }
+
+    @Test
+    void addSpending_SameDayAccumulates() {
+        LocalDate day = LocalDate.of(2025, 6, 11);
+        Card card = spentOn(day);
+
+        card.addSpending(50, day);
+
+        assertSpent(card, 150, 150, 150);
+        assertEquals(day, card.getSpentTodayDate());
+        assertEquals(LocalDate.of(2025, 6, 9), card.getSpentThisWeekStart());
+        assertEquals(LocalDate.of(2025, 6, 1), card.getSpentThisMonthStart());
+    }
+
+    @Test
+    void addSpending_NextDayOfSameWeekAndMonthRollsOnlyDaily() {
+        Card card = spentOn(LocalDate.of(2025, 6, 11));
+
+        card.addSpending(50, LocalDate.of(2025, 6, 12));
+
+        assertSpent(card, 50, 150, 150);
+    }
+
+    @Test
+    void addSpending_SundayToMondayRollsWeekly() {
+        Card card = spentOn(LocalDate.of(2025, 6, 15));
+
+        card.addSpending(50, LocalDate.of(2025, 6, 16));
+
+        assertSpent(card, 50, 50, 150);
+    }
+
+    @Test
+    void addSpending_MonthEndRollsMonthlyButNotWeekly() {
+        // El 30 de abril de 2025 es miércoles y el 1 de mayo jueves de la misma semana
+        Card card = spentOn(LocalDate.of(2025, 4, 30));
+
+        card.addSpending(50, LocalDate.of(2025, 5, 1));
+
+        assertSpent(card, 50, 150, 50);
+    }
+
+    @Test
+    void addSpending_YearEndKeepsIsoWeek() {
+        // El 31 de diciembre de 2026 es jueves y la semana ISO sigue el 1 de enero de 2027
+        Card card = spentOn(LocalDate.of(2026, 12, 31));
+
+        card.addSpending(50, LocalDate.of(2027, 1, 1));
+
+        assertSpent(card, 50, 150, 50);
+        assertEquals(LocalDate.of(2026, 12, 28), card.getSpentThisWeekStart());
+        assertEquals(LocalDate.of(2027, 1, 1), card.getSpentThisMonthStart());
+    }
+
+    @Test
+    void addSpending_LeapDayBelongsToFebruary() {
+        Card card = spentOn(LocalDate.of(2024, 2, 28));
+
+        card.addSpending(50, LocalDate.of(2024, 2, 29));
+        assertSpent(card, 50, 150, 150);
+
+        card.addSpending(25, LocalDate.of(2024, 3, 1));
+        assertSpent(card, 25, 175, 25);
+    }
+
+    @Test
+    void addSpending_NonLeapFebruaryEndsOnThe28th() {
+        Card card = spentOn(LocalDate.of(2025, 2, 28));
+
+        card.addSpending(50, LocalDate.of(2025, 3, 1));
+
+        assertSpent(card, 50, 150, 50);
+    }
+
+    @Test
+    void addSpending_SameDayOfNextMonthRollsEverything() {
+        Card card = spentOn(LocalDate.of(2025, 1, 15));
+
+        card.addSpending(50, LocalDate.of(2025, 2, 15));
+
+        assertSpent(card, 50, 50, 50);
+    }
+
+    @Test
+    void rollSpendingPeriods_SameDayOfAnotherYearRollsMonthly() {
+        Card card = spentOn(LocalDate.of(2024, 3, 1));
+
+        card.rollSpendingPeriods(LocalDate.of(2025, 3, 1));
+
+        assertSpent(card, 0, 0, 0);
+    }
+
+    @Test
+    void rollSpendingPeriods_WithoutPeriodsKeepsLegacyAmounts() {
+        Card card = new Card();
+        card.setSpentToday(10);
+        card.setSpentThisWeek(20);
+        card.setSpentThisMonth(30);
+
+        card.rollSpendingPeriods(LocalDate.of(2025, 6, 11));
+
+        assertSpent(card, 10, 20, 30);
+        assertEquals(LocalDate.of(2025, 6, 11), card.getSpentTodayDate());
+    }
+
+    @Test
+    void weekStart_IsMondayWhateverTheLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.US);
+            assertEquals(LocalDate.of(2025, 6, 9), Card.weekStart(LocalDate.of(2025, 6, 15)));
+            assertEquals(LocalDate.of(2025, 6, 16), Card.weekStart(LocalDate.of(2025, 6, 16)));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
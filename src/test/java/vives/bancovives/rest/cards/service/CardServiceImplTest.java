@@ -5,7 +5,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -27,9 +29,7 @@ import vives.bancovives.rest.products.cardtype.model.CardType;
 import vives.bancovives.rest.products.cardtype.service.CardTypeService;
 import vives.bancovives.utils.IdGenerator;
 
-import java.time.DayOfWeek;
 import java.time.LocalDateTime;
-import java.time.temporal.WeekFields;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,6 +47,9 @@ class CardServiceImplTest {
     @Mock
     private AccountService accountService;
 
+    @Spy
+    private CardCache cardCache = new CardCache(new ConcurrentMapCacheManager());
+
     @InjectMocks
     private CardServiceImpl cardService;
 
@@ -329,42 +332,6 @@ class CardServiceImplTest {
         verify(cardsRepository, never()).save(any(Card.class));
     }
 
-/*    @Test
-    void resetSpentAmountsInBatches_ShouldResetSpentAmounts() {
-        Pageable pageable = PageRequest.of(0, 200);
-        List<Card> cards = Collections.singletonList(card);
-        Page<Card> page = new PageImpl<>(cards, pageable, 1);
-
-        when(cardsRepository.findAll(pageable)).thenReturn(page);
-        when(cardsRepository.findAll(page.nextPageable())).thenReturn(Page.empty());
-
-        cardService.resetSpentAmountsInBatches();
-
-        verify(cardsRepository, times(2)).findAll(any(Pageable.class));
-        verify(cardsRepository).saveAll(cards);
-
-        assertEquals(0, card.getSpentToday());
-        assertEquals(0, card.getSpentThisWeek());
-        assertEquals(0, card.getSpentThisMonth());
-    }*/
-
-    @Test
-    void resetSpentAmountsForCards_ShouldResetSpentAmounts() {
-        List<Card> cards = Collections.singletonList(card);
-        LocalDateTime now = LocalDateTime.now();
-        DayOfWeek firstDayOfWeek = WeekFields.of(Locale.getDefault()).getFirstDayOfWeek();
-
-        cardService.resetSpentAmountsForCards(cards);
-
-        assertEquals(0, card.getSpentToday());
-        if (now.getDayOfWeek() == firstDayOfWeek) {
-            assertEquals(0, card.getSpentThisWeek());
-        }
-        if (now.getDayOfMonth() == 1) {
-            assertEquals(0, card.getSpentThisMonth());
-        }
-    }
-
     @Test
     void updateById_ShouldUpdateCardPin() {
         // Arrange
@@ -81,7 +81,7 @@ class ClientServiceImplTest {
     @BeforeEach
     void setUp() {
         User user = new User(uuid, id, "usernameTest", "passwordTest", Collections.singleton(Role.USER), null, LocalDateTime.now(), LocalDateTime.now(), false);
-        account = new Account(UUID.randomUUID(), id, "ES123456789", 0.0, "passwordTest", null, null, LocalDateTime.now(), LocalDateTime.now(), false);
+        account = new Account(UUID.randomUUID(), id, "ES123456789", 0.0, "passwordTest", null, null, LocalDateTime.now(), LocalDateTime.now(), false, null, null, null);
         accountResponse = new AccountResponseSimplified(account.getPublicId(), account.getIban(), account.getBalance());
         client = new Client(uuid, id, "12345678Z", "nameTest", address, "email@test.com", "654321987", null, "alguna imagen", user, List.of(account), true, false, LocalDateTime.now(), LocalDateTime.now());
         createDto = new ClientCreateDto("12345678Z", "nameTest", "email@test.com", "654321987", "streetTest", "123", "CITYTEST", "ESPAÑA", "usernameTest", "passwordTest");
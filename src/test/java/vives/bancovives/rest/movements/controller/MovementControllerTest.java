@@ -22,7 +22,11 @@ import vives.bancovives.rest.accounts.model.Account;
 import vives.bancovives.rest.clients.dto.output.ClientResponseDto;
 import vives.bancovives.rest.clients.exceptions.ClientBadRequest;
 import vives.bancovives.rest.clients.exceptions.ClientNotFound;
+import vives.bancovives.rest.movements.dtos.input.MovementBatchCreateDto;
 import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+import vives.bancovives.rest.movements.dtos.output.MovementBatchItemResultDto;
+import vives.bancovives.rest.movements.dtos.output.MovementBatchResponseDto;
+import vives.bancovives.rest.movements.dtos.output.MovementCursorPageDto;
 import vives.bancovives.rest.movements.dtos.output.MovementResponseDto;
 import vives.bancovives.rest.movements.exceptions.MovementBadRequest;
 import vives.bancovives.rest.movements.exceptions.MovementNotFound;
@@ -38,6 +42,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
@@ -50,7 +55,7 @@ class MovementControllerTest {
     Account accountOfReference = Account.builder().publicId("123").iban("BE68539007547034").balance(500).build();
     Account accountOfDestination = Account.builder().publicId("456").iban("BE68539007547035").balance(10).build();
     MovementCreateDto movementCreateDto = MovementCreateDto.builder().movementType("TRANSFERENCIA").ibanOfReference("BE68539007547034").ibanOfDestination("BE68539007547035").amount(100.0).build(); ;
-    Movement movement = Movement.builder().id(id).movementType(MovementType.TRANSFERENCIA).amountOfMoney(100.0).accountOfDestination(accountOfDestination).accountOfReference(accountOfReference).build();
+    Movement movement = Movement.builder().id(id).movementType(MovementType.TRANSFERENCIA).amountOfMoney(100.0).ibanOfDestination(accountOfDestination.getIban()).ibanOfReference(accountOfReference.getIban()).build();
     MovementResponseDto movementResponseDto = MovementResponseDto.builder().id(movement.get_id()).movementType("TRANSFERENCIA").amountMoved(100.0).build();
     Principal principal = () -> "admin";
     Principal principalUser = () -> "user";
@@ -131,6 +136,59 @@ class MovementControllerTest {
     }
 
 
+    @Test
+    @WithMockUser(username = "user", roles = {"USER"})
+    void createMovements() throws Exception{
+        MovementBatchResponseDto batchResponse = MovementBatchResponseDto.of(List.of(MovementBatchItemResultDto.created(0, movementResponseDto)));
+        when(movementService.saveBatch(any(), any())).thenReturn(batchResponse);
+
+        MockHttpServletResponse response = mockMvc.perform(
+                post(endpoint + "/batch")
+                        .content(jsonMapper.writeValueAsString(new MovementBatchCreateDto(List.of(movementCreateDto))))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andReturn().getResponse();
+
+        assertEquals(HttpStatus.CREATED.value(), response.getStatus());
+        verify(movementService, times(1)).saveBatch(any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"USER"})
+    void createMovements_PartiallyRejected() throws Exception{
+        MovementBatchResponseDto batchResponse = MovementBatchResponseDto.of(List.of(
+                MovementBatchItemResultDto.created(0, movementResponseDto),
+                MovementBatchItemResultDto.rejected(1, "Cuenta con iban ES3 no encontrada")));
+        when(movementService.saveBatch(any(), any())).thenReturn(batchResponse);
+
+        MockHttpServletResponse response = mockMvc.perform(
+                post(endpoint + "/batch")
+                        .content(jsonMapper.writeValueAsString(new MovementBatchCreateDto(List.of(movementCreateDto, movementCreateDto))))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andReturn().getResponse();
+
+        MovementBatchResponseDto result = jsonMapper.readValue(response.getContentAsString(), MovementBatchResponseDto.class);
+        assertAll(
+                () -> assertEquals(HttpStatus.MULTI_STATUS.value(), response.getStatus()),
+                () -> assertEquals(1, result.getRejected())
+        );
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"USER"})
+    void createMovements_EmptyBatch() throws Exception{
+        MockHttpServletResponse response = mockMvc.perform(
+                post(endpoint + "/batch")
+                        .content(jsonMapper.writeValueAsString(new MovementBatchCreateDto(List.of())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andReturn().getResponse();
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+        verify(movementService, never()).saveBatch(any(), any());
+    }
+
     @Test
     @WithMockUser(username = "admin", roles = {"ADMIN"})
     void updateMovement() throws Exception{
@@ -184,4 +242,26 @@ class MovementControllerTest {
     @WithMockUser(username = "user", roles = {"USER"})
     void findMe() throws Exception{
     }
+
+    @Test
+    @WithMockUser(username = "user", roles = {"USER"})
+    void findMeByCursor() throws Exception{
+        MovementCursorPageDto cursorPage = MovementCursorPageDto.builder()
+                .content(List.of(movementResponseDto)).size(1).hasNext(true).nextCursor("abc").build();
+        when(movementService.findMyMovementsAfter(any(), eq(Optional.of("xyz")), eq(5))).thenReturn(cursorPage);
+
+        MockHttpServletResponse response = mockMvc.perform(
+                get(endpoint + "/myMovements/cursor")
+                        .param("cursor", "xyz")
+                        .param("size", "5")
+                        .accept(MediaType.APPLICATION_JSON)
+        ).andReturn().getResponse();
+
+        MovementCursorPageDto result = jsonMapper.readValue(response.getContentAsString(), MovementCursorPageDto.class);
+        assertAll(
+                () -> assertEquals(HttpStatus.OK.value(), response.getStatus()),
+                () -> assertEquals("abc", result.getNextCursor()),
+                () -> assertTrue(result.isHasNext())
+        );
+    }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import vives.bancovives.rest.accounts.model.Account;
 import vives.bancovives.rest.cards.model.Card;
 import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+import vives.bancovives.rest.movements.dtos.output.MovementResponseDto;
 import vives.bancovives.rest.movements.model.Movement;
 import vives.bancovives.rest.movements.model.MovementType;
 
@@ -33,10 +34,12 @@ class MovementMapperTest {
         Movement movement = movementMapper.fromCreateDtoToEntity(movementCreateDto, accountOfReference, accountOfDestination, card);
         assertAll(
                 () -> assertEquals(MovementType.TRANSFERENCIA, movement.getMovementType()),
-                () -> assertEquals(accountOfReference, movement.getAccountOfReference()),
-                () -> assertEquals(accountOfDestination, movement.getAccountOfDestination()),
+                () -> assertEquals(accountOfReference.getIban(), movement.getIbanOfReference()),
+                () -> assertEquals(accountOfReference.getPublicId(), movement.getAccountOfReferencePublicId()),
+                () -> assertEquals(accountOfDestination.getIban(), movement.getIbanOfDestination()),
                 () -> assertEquals(10.0, movement.getAmountOfMoney()),
-                () -> assertEquals(card, movement.getCard()),
+                () -> assertEquals(card.getPublicId(), movement.getCardPublicId()),
+                () -> assertEquals(card.getCardNumber(), movement.getCardNumber()),
                 () -> assertFalse(movement.getIsDeleted()),
                 () -> assertNotNull(movement.getCreatedAt()),
                 () -> assertNotNull(movement.getUpdatedAt())
@@ -44,28 +47,64 @@ class MovementMapperTest {
 
     }
 
+    @Test
+    void fromCreateDtoToEntity_WithoutDestinationNorCard() {
+        Movement movement = movementMapper.fromCreateDtoToEntity(movementCreateDto, accountOfReference, null, null);
+        assertAll(
+                () -> assertEquals(accountOfReference.getIban(), movement.getIbanOfReference()),
+                () -> assertNull(movement.getIbanOfDestination()),
+                () -> assertNull(movement.getCardPublicId()),
+                () -> assertNull(movement.getCardNumber())
+        );
+    }
+
     @Test
     void fromEntityToResponse() {
         movement = Movement.builder()
                 .movementType(MovementType.TRANSFERENCIA)
-                .accountOfReference(accountOfReference)
-                .accountOfDestination(accountOfDestination)
+                .ibanOfReference("ibanOfReference")
+                .accountOfReferencePublicId("publicIdOfReference")
+                .clientOfReferenceDni("12345678Z")
+                .ibanOfDestination("ibanOfDestination")
+                .amountBeforeMovement(100.0)
                 .amountOfMoney(10.0)
-                .card(card)
+                .balanceAfterMovement(90.0)
+                .cardPublicId("123")
+                .cardNumber("123")
                 .isDeleted(false)
-                .createdAt(null)
-                .updatedAt(null)
                 .build();
-        Movement movement = movementMapper.fromCreateDtoToEntity(movementCreateDto, accountOfReference, accountOfDestination, card);
+
+        MovementResponseDto response = movementMapper.fromEntityToResponse(movement);
+
         assertAll(
-                () -> assertEquals(MovementType.TRANSFERENCIA, movement.getMovementType()),
-                () -> assertEquals(accountOfReference, movement.getAccountOfReference()),
-                () -> assertEquals(accountOfDestination, movement.getAccountOfDestination()),
-                () -> assertEquals(10.0, movement.getAmountOfMoney()),
-                () -> assertEquals(card, movement.getCard()),
-                () -> assertFalse(movement.getIsDeleted()),
-                () -> assertNotNull(movement.getCreatedAt()),
-                () -> assertNotNull(movement.getUpdatedAt())
+                () -> assertEquals(movement.get_id(), response.getId()),
+                () -> assertEquals("TRANSFERENCIA", response.getMovementType()),
+                () -> assertEquals("publicIdOfReference", response.getAccountOfReference().getPublicId()),
+                () -> assertEquals("ibanOfReference", response.getAccountOfReference().getIban()),
+                () -> assertEquals(90.0, response.getAccountOfReference().getBalance()),
+                () -> assertEquals("12345678Z", response.getDniOfReference()),
+                () -> assertEquals("ibanOfDestination", response.getIbanOfDestination()),
+                () -> assertEquals(100.0, response.getAmountBeforeMovement()),
+                () -> assertEquals(10.0, response.getAmountMoved()),
+                () -> assertEquals("123", response.getCard().getPublicId()),
+                () -> assertEquals("123", response.getCard().getCardNumber()),
+                () -> assertEquals(movement.getCreatedAt().toString(), response.getCreatedAt())
+        );
+    }
+
+    @Test
+    void fromEntityToResponse_WithoutCard() {
+        movement = Movement.builder()
+                .movementType(MovementType.INGRESO)
+                .ibanOfReference("ibanOfReference")
+                .amountOfMoney(10.0)
+                .build();
+
+        MovementResponseDto response = movementMapper.fromEntityToResponse(movement);
+
+        assertAll(
+                () -> assertNull(response.getCard()),
+                () -> assertNull(response.getIbanOfDestination())
         );
     }
-}
\ No newline at end of file
+}
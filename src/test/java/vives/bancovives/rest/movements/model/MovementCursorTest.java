@@ -0,0 +1,49 @@
+package vives.bancovives.rest.movements.model;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import vives.bancovives.rest.movements.exceptions.MovementBadRequest;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovementCursorTest {
+
+    @Test
+    void encodeAndDecode_ReturnSameCursor() {
+        MovementCursor cursor = new MovementCursor(LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_000_000), new ObjectId());
+
+        MovementCursor decoded = MovementCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void encode_IsUrlSafe() {
+        String encoded = new MovementCursor(LocalDateTime.now(), new ObjectId()).encode();
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void of_UsesCreatedAtAndIdOfMovement() {
+        Movement movement = Movement.builder().createdAt(LocalDateTime.of(2024, 1, 1, 10, 0)).build();
+
+        MovementCursor cursor = MovementCursor.of(movement);
+
+        assertAll(
+                () -> assertEquals(movement.getCreatedAt(), cursor.createdAt()),
+                () -> assertEquals(movement.getId(), cursor.id())
+        );
+    }
+
+    @Test
+    void decode_InvalidCursor() {
+        assertAll(
+                () -> assertThrows(MovementBadRequest.class, () -> MovementCursor.decode("no es un cursor")),
+                () -> assertThrows(MovementBadRequest.class, () -> MovementCursor.decode("c2luc2VwYXJhZG9y")),
+                () -> assertThrows(MovementBadRequest.class, () -> MovementCursor.decode("MjAyNC0wMS0wMVQxMDowMHxhYmM"))
+        );
+    }
+}
@@ -0,0 +1,136 @@
+package vives.bancovives.rest.movements.repository;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.clients.model.Address;
+import vives.bancovives.rest.clients.model.Client;
+import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementType;
+import vives.bancovives.rest.products.accounttype.model.AccountType;
+import vives.bancovives.rest.products.cardtype.model.CardType;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Movimientos de prueba con el esquema actual y con el esquema antiguo, que guardaba las cuentas y la tarjeta completas
+ */
+final class LegacyMovementFixtures {
+
+    private static final DocumentCodec CODEC = new DocumentCodec(CodecRegistries.withUuidRepresentation(
+            MongoClientSettings.getDefaultCodecRegistry(), UuidRepresentation.STANDARD));
+
+    private LegacyMovementFixtures() {
+    }
+
+    static MappingMongoConverter converter() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    static Account account(String iban, String dni, double balance) {
+        Client client = Client.builder()
+                .id(UUID.randomUUID())
+                .publicId("client-" + dni)
+                .dni(dni)
+                .completeName("Cliente " + dni)
+                .email(dni + "@bancovives.es")
+                .phoneNumber("600000000")
+                .address(new Address())
+                .build();
+        AccountType accountType = AccountType.builder().name("AHORRO").description("Cuenta de ahorro").interest(1.0).build();
+        return Account.builder()
+                .iban(iban)
+                .balance(balance)
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3z6C1o5qZs2Ywq4Ccf1f0a.")
+                .client(client)
+                .accountType(accountType)
+                .version(3L)
+                .build();
+    }
+
+    static Card card(Account account) {
+        return Card.builder()
+                .cardNumber("4111111111111111")
+                .cardOwner(account.getClient().getCompleteName())
+                .expirationDate("12/29")
+                .cvv(123)
+                .pin("1234")
+                .cardType(CardType.builder().name("DEBITO").description("Tarjeta de debito").build())
+                .account(account)
+                .version(1L)
+                .build();
+    }
+
+    /**
+     * Pago con tarjeta con el esquema actual
+     */
+    static Movement slimMovement(Account accountOfReference, Card card) {
+        return Movement.builder()
+                .movementType(MovementType.PAGO)
+                .ibanOfReference(accountOfReference.getIban())
+                .accountOfReferencePublicId(accountOfReference.getPublicId())
+                .clientOfReferenceDni(accountOfReference.getClient().getDni())
+                .amountBeforeMovement(accountOfReference.getBalance() + 25.0)
+                .amountOfMoney(25.0)
+                .balanceAfterMovement(accountOfReference.getBalance())
+                .cardPublicId(card.getPublicId())
+                .cardNumber(card.getCardNumber())
+                .build();
+    }
+
+    /**
+     * El mismo movimiento con el esquema antiguo, tal y como lo guardaba Spring Data con las entidades embebidas
+     */
+    static Document legacyDocument(MappingMongoConverter converter, Movement movement, Account accountOfReference, Account accountOfDestination, Card card) {
+        Document document = new Document();
+        converter.write(movement, document);
+        List.of("ibanOfReference", "accountOfReferencePublicId", "ibanOfDestination", "balanceAfterMovement",
+                "balanceOfDestinationAfterMovement", "cardPublicId", "cardNumber").forEach(document::remove);
+        document.put(LegacyMovementDocument.ACCOUNT_OF_REFERENCE, embedded(converter, accountOfReference));
+        if (accountOfDestination != null) {
+            document.put(LegacyMovementDocument.ACCOUNT_OF_DESTINATION, embedded(converter, accountOfDestination));
+        }
+        if (card != null) {
+            document.put(LegacyMovementDocument.CARD, embedded(converter, card));
+        }
+        return document;
+    }
+
+    static Document slimDocument(MappingMongoConverter converter, Movement movement) {
+        Document document = new Document();
+        converter.write(movement, document);
+        return document;
+    }
+
+    /**
+     * Tamaño en bytes del documento codificado en BSON
+     */
+    static int bsonSize(Document document) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        CODEC.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        return buffer.getPosition();
+    }
+
+    private static Document embedded(MappingMongoConverter converter, Object entity) {
+        Document document = new Document();
+        converter.write(entity, document);
+        return document;
+    }
+}
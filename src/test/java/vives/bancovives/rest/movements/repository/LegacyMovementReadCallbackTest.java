@@ -0,0 +1,52 @@
+package vives.bancovives.rest.movements.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.movements.model.Movement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegacyMovementReadCallbackTest {
+
+    LegacyMovementReadCallback callback = new LegacyMovementReadCallback();
+    MappingMongoConverter converter = LegacyMovementFixtures.converter();
+    Account accountOfReference = LegacyMovementFixtures.account("ES1", "11111111A", 75.0);
+    Account accountOfDestination = LegacyMovementFixtures.account("ES2", "22222222B", 300.0);
+    Card card = LegacyMovementFixtures.card(accountOfReference);
+
+    @Test
+    void onAfterConvert_FillsFieldsFromLegacyDocument() {
+        Movement original = LegacyMovementFixtures.slimMovement(accountOfReference, card);
+        Document legacy = LegacyMovementFixtures.legacyDocument(converter, original, accountOfReference, accountOfDestination, card);
+        Movement read = converter.read(Movement.class, legacy);
+
+        Movement movement = callback.onAfterConvert(read, legacy, "movements");
+
+        assertAll(
+                () -> assertEquals("ES1", movement.getIbanOfReference()),
+                () -> assertEquals(accountOfReference.getPublicId(), movement.getAccountOfReferencePublicId()),
+                () -> assertEquals(75.0, movement.getBalanceAfterMovement()),
+                () -> assertEquals("ES2", movement.getIbanOfDestination()),
+                () -> assertEquals(300.0, movement.getBalanceOfDestinationAfterMovement()),
+                () -> assertEquals(card.getPublicId(), movement.getCardPublicId()),
+                () -> assertEquals(card.getCardNumber(), movement.getCardNumber()),
+                () -> assertEquals("11111111A", movement.getClientOfReferenceDni()),
+                () -> assertEquals(original.getAmountOfMoney(), movement.getAmountOfMoney())
+        );
+    }
+
+    @Test
+    void onAfterConvert_IgnoresSlimDocument() {
+        Movement original = LegacyMovementFixtures.slimMovement(accountOfReference, card);
+        Document slim = LegacyMovementFixtures.slimDocument(converter, original);
+        Movement read = converter.read(Movement.class, slim);
+
+        Movement movement = callback.onAfterConvert(read, slim, "movements");
+
+        assertEquals(converter.read(Movement.class, slim), movement);
+        assertEquals(original.getIbanOfReference(), movement.getIbanOfReference());
+    }
+}
@@ -0,0 +1,78 @@
+package vives.bancovives.rest.movements.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import vives.bancovives.rest.movements.model.Movement;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Crea los índices de movimientos en un MongoDB real y comprueba con explain() que ninguna combinación
+ * de filtros hace un COLLSCAN. El contexto arranca con {@code movements.indexes.verify-plans=true}, así que también
+ * comprueba las 64 combinaciones al arrancar. Se omite si Docker no está disponible.
+ */
+@DataMongoTest(properties = {"movements.indexes.create-on-startup=false", "movements.indexes.verify-plans=true"})
+@Import({MovementIndexInitializer.class, MovementQueryPlanChecker.class})
+@Testcontainers(disabledWithoutDocker = true)
+class MovementIndexInitializerTest {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+    }
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @Autowired
+    MovementIndexInitializer indexInitializer;
+
+    @Autowired
+    MovementQueryPlanChecker planChecker;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(Movement.class);
+        mongoTemplate.createCollection(Movement.class);
+    }
+
+    @Test
+    void withoutIndexesSomeFiltersDoCollectionScans() {
+        assertFalse(planChecker.findCollectionScans().isEmpty());
+        assertThrows(IllegalStateException.class, planChecker::verify);
+    }
+
+    @Test
+    void verifyPlansOnStartupCreatesIndexesAndChecksEveryFilterCombination() {
+        assertDoesNotThrow(indexInitializer::onApplicationReady);
+        assertEquals(List.of(), planChecker.findCollectionScans());
+    }
+
+    @Test
+    void ensureIndexesAvoidsCollectionScansForEveryFilterCombination() {
+        indexInitializer.ensureIndexes();
+        indexInitializer.ensureIndexes();
+
+        List<String> indexNames = mongoTemplate.indexOps(Movement.class).getIndexInfo().stream().map(IndexInfo::getName).toList();
+        assertAll(
+                () -> assertTrue(indexNames.containsAll(List.of("iban_createdAt_id", "movementType_createdAt",
+                        "clientOfReferenceDni_createdAt", "clientOfDestinationDni_createdAt", "isDeleted_createdAt", "createdAt_id"))),
+                () -> assertEquals(List.of(), planChecker.findCollectionScans())
+        );
+    }
+}
@@ -0,0 +1,76 @@
+package vives.bancovives.rest.movements.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import vives.bancovives.rest.movements.model.Movement;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovementQueryPlanCheckerTest {
+
+    @Mock
+    MongoTemplate mongoTemplate;
+
+    MovementQueryPlanChecker planChecker;
+
+    @BeforeEach
+    void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        planChecker = new MovementQueryPlanChecker(mongoTemplate);
+    }
+
+    private static Document explain(Document winningPlan) {
+        return new Document("queryPlanner", new Document("winningPlan", winningPlan));
+    }
+
+    @Test
+    void findCollectionScans_AllCombinationsUseIndexes() {
+        Document ixscan = explain(new Document("stage", "FETCH")
+                .append("inputStage", new Document("stage", "IXSCAN").append("indexName", "createdAt_id")));
+        when(mongoTemplate.execute(eq(Movement.class), any(CollectionCallback.class))).thenReturn(ixscan);
+
+        assertTrue(planChecker.findCollectionScans().isEmpty());
+        // Una consulta explain por cada combinación de los seis filtros
+        verify(mongoTemplate, times(64)).execute(eq(Movement.class), any(CollectionCallback.class));
+        assertDoesNotThrow(() -> planChecker.verify());
+    }
+
+    @Test
+    void findCollectionScans_DetectsNestedCollscan() {
+        Document ixscan = explain(new Document("stage", "IXSCAN"));
+        Document collscan = explain(new Document("stage", "SORT")
+                .append("inputStage", new Document("stage", "OR")
+                        .append("inputStages", List.of(new Document("stage", "IXSCAN"), new Document("stage", "COLLSCAN")))));
+        when(mongoTemplate.execute(eq(Movement.class), any(CollectionCallback.class))).thenReturn(collscan, ixscan);
+
+        List<String> collectionScans = planChecker.findCollectionScans();
+
+        assertEquals(List.of("(sin filtros)"), collectionScans);
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            when(mongoTemplate.execute(eq(Movement.class), any(CollectionCallback.class))).thenReturn(collscan);
+            planChecker.verify();
+        });
+        assertTrue(exception.getMessage().contains("movementType+ibanOfReference+fecha+clientOfReferenceDni+clientOfDestinationDni+isDeleted"));
+    }
+}
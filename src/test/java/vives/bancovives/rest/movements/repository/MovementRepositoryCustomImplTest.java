@@ -0,0 +1,137 @@
+package vives.bancovives.rest.movements.repository;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementCursor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovementRepositoryCustomImplTest {
+
+    @Mock
+    MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    MovementRepositoryCustomImpl repository;
+
+    @Test
+    void findAllByIbanOfReferenceIn_PaginatesInDatabase() {
+        when(mongoTemplate.count(any(Query.class), eq(Movement.class))).thenReturn(35L);
+        when(mongoTemplate.find(any(Query.class), eq(Movement.class))).thenReturn(Collections.nCopies(10, new Movement()));
+
+        Page<Movement> page = repository.findAllByIbanOfReferenceIn(List.of("ES1", "ES2"),
+                PageRequest.of(2, 10, Sort.by("createdAt").descending()));
+
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Movement.class));
+        Query query = captor.getValue();
+        assertAll(
+                () -> assertEquals(new Document("ibanOfReference", new Document("$in", List.of("ES1", "ES2"))), query.getQueryObject()),
+                () -> assertEquals(new Document("createdAt", -1), query.getSortObject()),
+                () -> assertEquals(20, query.getSkip()),
+                () -> assertEquals(10, query.getLimit()),
+                () -> assertEquals(35, page.getTotalElements()),
+                () -> assertEquals(10, page.getContent().size())
+        );
+    }
+
+    @Test
+    void findAllByIbanOfReferenceInAfter_FirstPage() {
+        repository.findAllByIbanOfReferenceInAfter(List.of("ES1"), Optional.empty(), 11);
+
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Movement.class));
+        Query query = captor.getValue();
+        assertAll(
+                () -> assertEquals(new Document("ibanOfReference", new Document("$in", List.of("ES1"))), query.getQueryObject()),
+                () -> assertEquals(new Document("createdAt", -1).append("_id", -1), query.getSortObject()),
+                () -> assertEquals(0, query.getSkip()),
+                () -> assertEquals(11, query.getLimit())
+        );
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Movement.class));
+    }
+
+    @Test
+    void findAllByIbanOfReferenceInAfter_ContinuesFromCursorWithoutSkip() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 0);
+        ObjectId id = new ObjectId();
+
+        repository.findAllByIbanOfReferenceInAfter(List.of("ES1"), Optional.of(new MovementCursor(createdAt, id)), 11);
+
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Movement.class));
+        Document expected = new Document("ibanOfReference", new Document("$in", List.of("ES1")))
+                .append("$or", List.of(
+                        new Document("createdAt", new Document("$lt", createdAt)),
+                        new Document("createdAt", createdAt).append("_id", new Document("$lt", id))));
+        assertAll(
+                () -> assertEquals(expected, captor.getValue().getQueryObject()),
+                () -> assertEquals(0, captor.getValue().getSkip())
+        );
+    }
+
+    @Test
+    void findAllByFilters_UsesFieldsOfTheDocument() {
+        when(mongoTemplate.count(any(Query.class), eq(Movement.class))).thenReturn(0L);
+        LocalDate fecha = LocalDate.of(2024, 5, 1);
+
+        repository.findAllByFilters(Optional.of("transferencia"), Optional.of("ES1"), Optional.of(fecha),
+                Optional.of("111A"), Optional.of("222B"), Optional.of(false), PageRequest.of(0, 10));
+
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Movement.class));
+        Document expected = new Document("movementType", "TRANSFERENCIA")
+                .append("ibanOfReference", "ES1")
+                .append("createdAt", new Document("$gte", fecha.atStartOfDay()).append("$lte", fecha.atTime(LocalTime.MAX)))
+                .append("clientOfReferenceDni", "111A")
+                .append("clientOfDestinationDni", "222B")
+                .append("isDeleted", false);
+        assertEquals(expected, captor.getValue().getQueryObject());
+    }
+
+    @Test
+    void findMostActiveIbans_GroupsAndSortsInDatabase() {
+        LocalDateTime since = LocalDateTime.of(2024, 5, 1, 0, 0);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Movement.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(new Document("_id", "ES2").append("count", 7),
+                        new Document("_id", "ES1").append("count", 3)), new Document()));
+
+        List<String> ibans = repository.findMostActiveIbans(since, 2);
+
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq(Movement.class), eq(Document.class));
+        List<Document> pipeline = captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertAll(
+                () -> assertEquals(List.of("ES2", "ES1"), ibans),
+                () -> assertEquals(new Document("$match", new Document("createdAt", new Document("$gte", since))), pipeline.get(0)),
+                () -> assertEquals("$ibanOfReference", pipeline.get(1).get("$group", Document.class).get("_id")),
+                () -> assertEquals(new Document("$sort", new Document("count", -1)), pipeline.get(2)),
+                () -> assertEquals(new Document("$limit", 2L), pipeline.get(3))
+        );
+    }
+}
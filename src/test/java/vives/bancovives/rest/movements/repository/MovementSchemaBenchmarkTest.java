@@ -0,0 +1,144 @@
+package vives.bancovives.rest.movements.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.movements.model.Movement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara en un MongoDB real el tamaño y el rendimiento de escritura y lectura de los movimientos con el esquema
+ * antiguo y con el reducido, y comprueba la migración de uno a otro. Se omite si Docker no está disponible.
+ */
+@DataMongoTest(properties = {"movements.indexes.create-on-startup=false", "movements.migration.enabled=false"})
+@Import({MovementSchemaMigration.class, LegacyMovementReadCallback.class})
+@Testcontainers(disabledWithoutDocker = true)
+class MovementSchemaBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MovementSchemaBenchmarkTest.class);
+
+    private static final int MOVEMENTS = 5000;
+    private static final String LEGACY_COLLECTION = "movements_legacy";
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+    }
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @Autowired
+    MovementSchemaMigration migration;
+
+    @Autowired
+    MovementRepository movementRepository;
+
+    Account accountOfReference = LegacyMovementFixtures.account("ES1", "11111111A", 75.0);
+    Account accountOfDestination = LegacyMovementFixtures.account("ES2", "22222222B", 300.0);
+    Card card = LegacyMovementFixtures.card(accountOfReference);
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(Movement.class);
+        mongoTemplate.dropCollection(LEGACY_COLLECTION);
+    }
+
+    @Test
+    void slimSchemaIsSmallerAndFaster() {
+        MappingMongoConverter converter = (MappingMongoConverter) mongoTemplate.getConverter();
+        List<Document> legacy = new ArrayList<>(MOVEMENTS);
+        List<Document> slim = new ArrayList<>(MOVEMENTS);
+        for (int i = 0; i < MOVEMENTS; i++) {
+            Movement movement = LegacyMovementFixtures.slimMovement(accountOfReference, card);
+            legacy.add(LegacyMovementFixtures.legacyDocument(converter, movement, accountOfReference, accountOfDestination, card));
+            slim.add(LegacyMovementFixtures.slimDocument(converter, movement));
+        }
+        String slimCollection = mongoTemplate.getCollectionName(Movement.class);
+
+        // Calentamiento
+        mongoTemplate.getCollection(LEGACY_COLLECTION).insertMany(legacy.subList(0, 100).stream().map(Document::new).toList());
+        mongoTemplate.getCollection(LEGACY_COLLECTION).deleteMany(new Document());
+
+        long legacyInsert = time(() -> mongoTemplate.getCollection(LEGACY_COLLECTION).insertMany(legacy));
+        long slimInsert = time(() -> mongoTemplate.getCollection(slimCollection).insertMany(slim));
+        long legacyRead = time(() -> mongoTemplate.getCollection(LEGACY_COLLECTION).find().into(new ArrayList<>()));
+        long slimRead = time(() -> mongoTemplate.getCollection(slimCollection).find().into(new ArrayList<>()));
+
+        double legacyAvgSize = averageSize(LEGACY_COLLECTION);
+        double slimAvgSize = averageSize(slimCollection);
+        log.info("Tamaño medio: antiguo {} bytes, reducido {} bytes", legacyAvgSize, slimAvgSize);
+        log.info("Inserción de {} movimientos: antiguo {} ms ({} mov/s), reducido {} ms ({} mov/s)",
+                MOVEMENTS, legacyInsert, perSecond(legacyInsert), slimInsert, perSecond(slimInsert));
+        log.info("Lectura de {} movimientos: antiguo {} ms ({} mov/s), reducido {} ms ({} mov/s)",
+                MOVEMENTS, legacyRead, perSecond(legacyRead), slimRead, perSecond(slimRead));
+
+        assertTrue(slimAvgSize * 3 < legacyAvgSize);
+    }
+
+    @Test
+    void migrateRewritesLegacyDocumentsAndKeepsThemReadable() {
+        MappingMongoConverter converter = (MappingMongoConverter) mongoTemplate.getConverter();
+        List<Document> legacy = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            Movement movement = LegacyMovementFixtures.slimMovement(accountOfReference, card);
+            legacy.add(LegacyMovementFixtures.legacyDocument(converter, movement, accountOfReference, accountOfDestination, card));
+        }
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Movement.class)).insertMany(legacy);
+
+        // Antes de migrar los movimientos se leen completos gracias al callback
+        Movement beforeMigration = movementRepository.findById(legacy.get(0).getObjectId("_id")).orElseThrow();
+        assertEquals("ES1", beforeMigration.getIbanOfReference());
+
+        assertEquals(1200, migration.migrate());
+        assertEquals(0, migration.migrate());
+
+        assertEquals(0, mongoTemplate.getCollection(mongoTemplate.getCollectionName(Movement.class))
+                .countDocuments(new Document(LegacyMovementDocument.ACCOUNT_OF_REFERENCE, new Document("$exists", true))));
+        Movement migrated = movementRepository.findById(legacy.get(0).getObjectId("_id")).orElseThrow();
+        assertAll(
+                () -> assertEquals("ES1", migrated.getIbanOfReference()),
+                () -> assertEquals("ES2", migrated.getIbanOfDestination()),
+                () -> assertEquals(75.0, migrated.getBalanceAfterMovement()),
+                () -> assertEquals(card.getCardNumber(), migrated.getCardNumber()),
+                () -> assertEquals(1200, movementRepository.findAllByIbanOfReferenceIn(List.of("ES1"), PageRequest.of(0, 10)).getTotalElements())
+        );
+    }
+
+    private double averageSize(String collection) {
+        Document stats = mongoTemplate.executeCommand(new Document("collStats", collection));
+        return ((Number) stats.get("avgObjSize")).doubleValue();
+    }
+
+    private static long time(Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        return Math.max(1, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static long perSecond(long millis) {
+        return MOVEMENTS * 1000L / millis;
+    }
+}
@@ -0,0 +1,131 @@
+package vives.bancovives.rest.movements.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.movements.model.Movement;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovementSchemaMigrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MovementSchemaMigrationTest.class);
+
+    @Mock
+    MongoTemplate mongoTemplate;
+
+    @Mock
+    BulkOperations bulkOperations;
+
+    MovementSchemaMigration migration;
+
+    MappingMongoConverter converter = LegacyMovementFixtures.converter();
+    Account accountOfReference = LegacyMovementFixtures.account("ES1", "11111111A", 75.0);
+    Account accountOfDestination = LegacyMovementFixtures.account("ES2", "22222222B", 300.0);
+    Card card = LegacyMovementFixtures.card(accountOfReference);
+    Movement movement = LegacyMovementFixtures.slimMovement(accountOfReference, card);
+
+    @BeforeEach
+    void setUp() {
+        migration = new MovementSchemaMigration(mongoTemplate);
+        ReflectionTestUtils.setField(migration, "batchSize", 2);
+        ReflectionTestUtils.setField(migration, "pause", Duration.ZERO);
+    }
+
+    @Test
+    void toSlimUpdate_CopiesIdentifiersAndBalancesAndRemovesEmbeddedEntities() {
+        Document legacy = LegacyMovementFixtures.legacyDocument(converter, movement, accountOfReference, accountOfDestination, card);
+
+        Document update = MovementSchemaMigration.toSlimUpdate(legacy).getUpdateObject();
+
+        Document expectedSet = new Document("ibanOfReference", "ES1")
+                .append("accountOfReferencePublicId", accountOfReference.getPublicId())
+                .append("balanceAfterMovement", 75.0)
+                .append("ibanOfDestination", "ES2")
+                .append("balanceOfDestinationAfterMovement", 300.0)
+                .append("cardPublicId", card.getPublicId())
+                .append("cardNumber", "4111111111111111");
+        assertAll(
+                () -> assertEquals(expectedSet, update.get("$set")),
+                () -> assertEquals(new Document("accountOfReference", 1).append("accountOfDestination", 1).append("card", 1), update.get("$unset"))
+        );
+    }
+
+    @Test
+    void toSlimUpdate_WithoutDestinationNorCard() {
+        Document legacy = LegacyMovementFixtures.legacyDocument(converter, movement, accountOfReference, null, null);
+
+        Document set = MovementSchemaMigration.toSlimUpdate(legacy).getUpdateObject().get("$set", Document.class);
+
+        assertEquals(List.of("ibanOfReference", "accountOfReferencePublicId", "balanceAfterMovement"), List.copyOf(set.keySet()));
+    }
+
+    @Test
+    void migrate_RewritesLegacyDocumentsInBatches() {
+        Document first = new Document("_id", new ObjectId()).append("accountOfReference", new Document("iban", "ES1"));
+        Document second = new Document("_id", new ObjectId()).append("accountOfReference", new Document("iban", "ES2"));
+        Document third = new Document("_id", new ObjectId()).append("accountOfReference", new Document("iban", "ES3"));
+        when(mongoTemplate.getCollectionName(Movement.class)).thenReturn("movements");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("movements"))).thenReturn(List.of(first, second), List.of(third));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, "movements")).thenReturn(bulkOperations);
+        BulkWriteResult twoModified = mock(BulkWriteResult.class);
+        when(twoModified.getModifiedCount()).thenReturn(2);
+        BulkWriteResult oneModified = mock(BulkWriteResult.class);
+        when(oneModified.getModifiedCount()).thenReturn(1);
+        when(bulkOperations.execute()).thenReturn(twoModified, oneModified);
+
+        long migrated = migration.migrate();
+
+        assertEquals(3, migrated);
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(queries.capture(), eq(Document.class), eq("movements"));
+        // El segundo lote continúa a partir del último documento del primero
+        assertEquals(new Document("accountOfReference", new Document("$exists", true)).append("_id", new Document("$gt", second.get("_id"))),
+                queries.getAllValues().get(1).getQueryObject());
+        verify(bulkOperations, times(3)).updateOne(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(2)).execute();
+    }
+
+    @Test
+    void migrate_NothingToMigrate() {
+        when(mongoTemplate.getCollectionName(Movement.class)).thenReturn("movements");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("movements"))).thenReturn(List.of());
+
+        assertEquals(0, migration.migrate());
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), anyString());
+    }
+
+    @Test
+    void slimDocumentIsMuchSmallerThanLegacyDocument() {
+        int legacySize = LegacyMovementFixtures.bsonSize(
+                LegacyMovementFixtures.legacyDocument(converter, movement, accountOfReference, accountOfDestination, card));
+        int slimSize = LegacyMovementFixtures.bsonSize(LegacyMovementFixtures.slimDocument(converter, movement));
+
+        log.info("Tamaño del movimiento: esquema antiguo {} bytes, esquema reducido {} bytes ({}%)",
+                legacySize, slimSize, slimSize * 100 / legacySize);
+        assertTrue(slimSize * 3 < legacySize, "El documento reducido ocupa " + slimSize + " bytes y el antiguo " + legacySize);
+    }
+}
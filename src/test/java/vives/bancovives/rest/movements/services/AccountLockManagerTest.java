@@ -0,0 +1,79 @@
+package vives.bancovives.rest.movements.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountLockManagerTest {
+
+    private final AccountLockManager lockManager = new AccountLockManager(64);
+
+    @Test
+    void executeWithLocks_ReturnsActionResult() {
+        String result = lockManager.executeWithLocks(Arrays.asList("ES1", null, "ES2"), () -> "ok");
+
+        assertEquals("ok", result);
+    }
+
+    @Test
+    void executeWithLocks_SerializesSameAccount() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+
+        List<Future<Object>> futures = pool.invokeAll(Collections.nCopies(200, () ->
+                lockManager.executeWithLocks(List.of("ES1"), () -> {
+                    maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                    Thread.onSpinWait();
+                    inside.decrementAndGet();
+                    return null;
+                })));
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(1, maxInside.get());
+    }
+
+    @Test
+    void executeWithLocks_CrossedTransfersDoNotDeadlock() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch done = new CountDownLatch(2000);
+
+        for (int i = 0; i < 1000; i++) {
+            pool.submit(() -> lockManager.executeWithLocks(List.of("ES1", "ES2"), () -> { done.countDown(); return null; }));
+            pool.submit(() -> lockManager.executeWithLocks(List.of("ES2", "ES1"), () -> { done.countDown(); return null; }));
+        }
+        pool.shutdown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void executeWithLocks_ReleasesLocksWhenActionFails() {
+        assertThrows(IllegalStateException.class, () ->
+                lockManager.executeWithLocks(List.of("ES1"), () -> { throw new IllegalStateException("error"); }));
+
+        assertEquals("ok", CompletableFuture
+                .supplyAsync(() -> lockManager.executeWithLocks(List.of("ES1"), () -> "ok"))
+                .orTimeout(5, TimeUnit.SECONDS)
+                .join());
+    }
+
+    @Test
+    void constructor_RejectsInvalidStripeCount() {
+        assertThrows(IllegalArgumentException.class, () -> new AccountLockManager(0));
+    }
+}
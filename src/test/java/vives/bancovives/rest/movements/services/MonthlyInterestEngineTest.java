@@ -0,0 +1,208 @@
+package vives.bancovives.rest.movements.services;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.movements.model.InterestRun;
+import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementType;
+import vives.bancovives.rest.movements.repository.InterestRunRepository;
+import vives.bancovives.rest.movements.repository.MovementRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+
+/**
+ * Abona los intereses a varios miles de cuentas por bloques en paralelo y comprueba que cada cuenta los recibe una
+ * sola vez, también cuando la ejecución se interrumpe y se reanuda.
+ */
+@SpringBootTest
+class MonthlyInterestEngineTest {
+
+    private static final int DUE_ACCOUNTS = 2000;
+    private static final double INITIAL_BALANCE = 1000.0;
+
+    @Autowired
+    MonthlyInterestEngine engine;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    InterestRunRepository interestRunRepository;
+
+    @MockBean
+    MovementRepository movementRepository;
+
+    private final List<UUID> accountIds = new ArrayList<>();
+    private final Map<ObjectId, Movement> insertedMovements = new ConcurrentHashMap<>();
+    private LocalDate runDate;
+    private double interestRate;
+
+    @BeforeEach
+    void setUp() {
+        // Un día que no es el de abono de las cuentas de data.sql, que se crean hoy
+        runDate = LocalDate.of(2030, 1, LocalDate.now().getDayOfMonth() % 28 + 1);
+        Account template = accountRepository.findByIban("ES71CU4N1759HNCGUNQSNXM6").orElseThrow();
+        interestRate = template.getAccountType().getInterest();
+
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < DUE_ACCOUNTS; i++) {
+            accounts.add(account(String.format("ESINT%019d", i), runDate.getDayOfMonth(), INITIAL_BALANCE, template));
+        }
+        // Cuentas que no deben recibir intereses: otro día de abono y saldo cero
+        accounts.add(account("ESINTOTHERDAY0000000000", runDate.getDayOfMonth() + 1, INITIAL_BALANCE, template));
+        accounts.add(account("ESINTZEROBALANCE0000000", runDate.getDayOfMonth(), 0, template));
+        accountRepository.saveAll(accounts).forEach(account -> accountIds.add(account.getId()));
+
+        ReflectionTestUtils.setField(engine, "chunkSize", 100);
+        ReflectionTestUtils.setField(engine, "parallelism", 4);
+        when(movementRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> insert(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountRepository.deleteAllById(accountIds);
+        interestRunRepository.deleteAll();
+        accountIds.clear();
+    }
+
+    @Test
+    void dueDays_LastDayOfMonthIncludesMissingDays() {
+        assertAll(
+                () -> assertEquals(List.of(15), MonthlyInterestEngine.dueDays(LocalDate.of(2030, 2, 15))),
+                () -> assertEquals(List.of(28, 29, 30, 31), MonthlyInterestEngine.dueDays(LocalDate.of(2030, 2, 28))),
+                () -> assertEquals(List.of(30, 31), MonthlyInterestEngine.dueDays(LocalDate.of(2030, 4, 30))),
+                () -> assertEquals(List.of(31), MonthlyInterestEngine.dueDays(LocalDate.of(2030, 1, 31)))
+        );
+    }
+
+    @Test
+    void interestMovementId_IsDeterministicPerAccountAndMonth() {
+        UUID accountId = UUID.randomUUID();
+        LocalDate january = LocalDate.of(2030, 1, 1);
+        assertAll(
+                () -> assertEquals(MonthlyInterestEngine.interestMovementId(accountId, january), MonthlyInterestEngine.interestMovementId(accountId, january)),
+                () -> assertNotEquals(MonthlyInterestEngine.interestMovementId(accountId, january), MonthlyInterestEngine.interestMovementId(accountId, january.plusMonths(1))),
+                () -> assertNotEquals(MonthlyInterestEngine.interestMovementId(accountId, january), MonthlyInterestEngine.interestMovementId(UUID.randomUUID(), january))
+        );
+    }
+
+    @Test
+    void run_AppliesInterestOnceToEveryDueAccount() {
+        InterestRun interestRun = engine.run(runDate);
+
+        assertAll(
+                () -> assertTrue(interestRun.isCompleted()),
+                () -> assertEquals(DUE_ACCOUNTS, interestRun.getProcessedAccounts()),
+                () -> assertEquals(DUE_ACCOUNTS, insertedMovements.size()),
+                () -> assertTrue(insertedMovements.values().stream().allMatch(movement ->
+                        movement.getMovementType() == MovementType.INTERESMENSUAL
+                                && movement.getAmountBeforeMovement() == INITIAL_BALANCE
+                                && movement.getBalanceAfterMovement() == expectedBalance())),
+                () -> assertDueAccountsHaveInterestOnce(),
+                () -> assertEquals(INITIAL_BALANCE, accountRepository.findByIban("ESINTOTHERDAY0000000000").orElseThrow().getBalance()),
+                () -> assertNull(accountRepository.findByIban("ESINTZEROBALANCE0000000").orElseThrow().getLastInterestDate())
+        );
+
+        // Una ejecución completada no se repite y, aunque se repita, las cuentas ya no reciben intereses este mes
+        assertEquals(DUE_ACCOUNTS, engine.run(runDate).getProcessedAccounts());
+        interestRunRepository.deleteById(runDate);
+        assertEquals(0, engine.run(runDate).getProcessedAccounts());
+        assertDueAccountsHaveInterestOnce();
+    }
+
+    @Test
+    void run_ResumesFromCheckpointAfterFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        reset(movementRepository);
+        when(movementRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 5) {
+                throw new IllegalStateException("MongoDB no disponible");
+            }
+            return insert(invocation.getArgument(0));
+        });
+
+        InterestRun interrupted = engine.run(runDate);
+
+        assertFalse(interrupted.isCompleted());
+        assertTrue(interrupted.getProcessedAccounts() < DUE_ACCOUNTS);
+        assertEquals(interrupted.getLastAccountId(), interestRunRepository.findById(runDate).orElseThrow().getLastAccountId());
+
+        InterestRun resumed = engine.run(runDate);
+
+        assertAll(
+                () -> assertTrue(resumed.isCompleted()),
+                () -> assertEquals(DUE_ACCOUNTS, insertedMovements.size()),
+                () -> assertDueAccountsHaveInterestOnce()
+        );
+    }
+
+    @Test
+    void resumeIncompleteRuns_CompletesRunsWithFailedChunks() {
+        AtomicInteger calls = new AtomicInteger();
+        reset(movementRepository);
+        when(movementRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 5) {
+                throw new IllegalStateException("MongoDB no disponible");
+            }
+            return insert(invocation.getArgument(0));
+        });
+        assertFalse(engine.run(runDate).isCompleted());
+
+        engine.resumeIncompleteRuns();
+
+        assertAll(
+                () -> assertTrue(interestRunRepository.findById(runDate).orElseThrow().isCompleted()),
+                () -> assertEquals(DUE_ACCOUNTS, insertedMovements.size()),
+                () -> assertDueAccountsHaveInterestOnce()
+        );
+    }
+
+    private void assertDueAccountsHaveInterestOnce() {
+        List<Account> due = accountRepository.findAllById(accountIds).stream()
+                .filter(account -> account.getIban().matches("ESINT\\d+"))
+                .toList();
+        assertEquals(DUE_ACCOUNTS, due.size());
+        assertTrue(due.stream().allMatch(account -> account.getBalance() == expectedBalance() && runDate.equals(account.getLastInterestDate())));
+    }
+
+    private double expectedBalance() {
+        return INITIAL_BALANCE + INITIAL_BALANCE * (interestRate / 100);
+    }
+
+    private int insert(List<Movement> movements) {
+        int inserted = 0;
+        for (Movement movement : movements) {
+            if (insertedMovements.putIfAbsent(movement.getId(), movement) == null) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    private static Account account(String iban, int interestDay, double balance, Account template) {
+        return Account.builder()
+                .iban(iban)
+                .balance(balance)
+                .password("password")
+                .accountType(template.getAccountType())
+                .client(template.getClient())
+                .interestDay(interestDay)
+                .build();
+    }
+}
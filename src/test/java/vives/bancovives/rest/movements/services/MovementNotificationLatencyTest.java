@@ -0,0 +1,140 @@
+package vives.bancovives.rest.movements.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import vives.bancovives.notifications.websocket.config.WebSocketHandler;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.cards.repository.CardsRepository;
+import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+import vives.bancovives.rest.movements.repository.MovementRepository;
+import vives.bancovives.rest.users.models.User;
+import vives.bancovives.rest.users.services.UsersService;
+import vives.bancovives.security.jwt.JwtService;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Comprueba que un cliente de WebSocket que no lee sus mensajes no retrasa la creación de movimientos: la
+ * notificación se guarda en el outbox y se envía en segundo plano.
+ */
+@SpringBootTest(properties = "notifications.dispatcher.poll-interval=100ms")
+class MovementNotificationLatencyTest {
+
+    @Autowired
+    MovementService movementService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    CardsRepository cardsRepository;
+
+    @Autowired
+    WebSocketHandler webSocketHandler;
+
+    @Autowired
+    JwtService jwtService;
+
+    @Autowired
+    UsersService usersService;
+
+    @MockBean
+    MovementRepository movementRepository;
+
+    private final CountDownLatch stalledSend = new CountDownLatch(1);
+    private final CountDownLatch releaseSocket = new CountDownLatch(1);
+    private Account account;
+    private Card card;
+    private Authentication owner;
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Account template = accountRepository.findByIban("ES71CU4N1759HNCGUNQSNXM6").orElseThrow();
+        Card templateCard = cardsRepository.findByCardNumber("1234567890123456").orElseThrow();
+        account = accountRepository.save(Account.builder()
+                .iban("ESLATENCY000000000000001")
+                .balance(1000)
+                .password("password")
+                .accountType(template.getAccountType())
+                .client(template.getClient())
+                .build());
+        card = cardsRepository.save(Card.builder()
+                .cardNumber("9999000033334444")
+                .cardOwner("Cliente test")
+                .expirationDate("12/99")
+                .cvv(123)
+                .pin("1234")
+                .cardType(templateCard.getCardType())
+                .account(account)
+                .build());
+        String username = template.getClient().getUser().getUsername();
+        owner = new UsernamePasswordAuthenticationToken(username, null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        when(movementRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        User user = usersService.findUserByUsername(username);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("token", jwtService.generateToken(user));
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("stalled");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAttributes()).thenReturn(attributes);
+        webSocketHandler.afterConnectionEstablished(session);
+        // A partir del saludo, el cliente deja de leer y cada envío se queda bloqueado
+        doAnswer(invocation -> {
+            stalledSend.countDown();
+            releaseSocket.await();
+            return null;
+        }).when(session).sendMessage(any());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        releaseSocket.countDown();
+        webSocketHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        cardsRepository.findByCardNumber(card.getCardNumber()).ifPresent(cardsRepository::delete);
+        accountRepository.deleteById(account.getId());
+    }
+
+    @Test
+    void saveIsNotDelayedByAStalledWebSocket() throws InterruptedException {
+        movementService.save(owner, pago());
+        assertTrue(stalledSend.await(10, TimeUnit.SECONDS), "La notificación debe llegar al socket bloqueado");
+
+        long start = System.nanoTime();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> movementService.save(owner, pago()));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(elapsedMillis < 1_000, "Crear el movimiento ha tardado " + elapsedMillis + " ms");
+        assertEquals(980.0, accountRepository.findByIban(account.getIban()).orElseThrow().getBalance());
+    }
+
+    private MovementCreateDto pago() {
+        return MovementCreateDto.builder()
+                .movementType("PAGO")
+                .ibanOfReference(account.getIban())
+                .cardNumber(card.getCardNumber())
+                .amount(10.0)
+                .build();
+    }
+}
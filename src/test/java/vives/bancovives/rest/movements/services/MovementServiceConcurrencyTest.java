@@ -0,0 +1,196 @@
+package vives.bancovives.rest.movements.services;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+import vives.bancovives.rest.movements.exceptions.MovementBadRequest;
+import vives.bancovives.rest.movements.exceptions.MovementNotFound;
+import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementType;
+import vives.bancovives.rest.movements.repository.MovementRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba de carga que lanza transferencias concurrentes entre unas pocas cuentas muy utilizadas
+ * y comprueba que no se pierde ninguna actualización del saldo ni se devuelve dos veces una transferencia cancelada.
+ */
+@SpringBootTest
+class MovementServiceConcurrencyTest {
+
+    private static final int ACCOUNTS = 4;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS = 800;
+    private static final double INITIAL_BALANCE = 1000.0;
+
+    @Autowired
+    MovementService movementService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @MockBean
+    MovementRepository movementRepository;
+
+    private final Authentication admin = new UsernamePasswordAuthenticationToken(
+            "admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+
+    private final List<Account> hotAccounts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Account template = accountRepository.findByIban("ES71CU4N1759HNCGUNQSNXM6").orElseThrow();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            hotAccounts.add(accountRepository.save(Account.builder()
+                    .iban("ESHOT0000000000000000" + i)
+                    .balance(INITIAL_BALANCE)
+                    .password("password")
+                    .accountType(template.getAccountType())
+                    .client(template.getClient())
+                    .build()));
+        }
+        when(movementRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountRepository.deleteAllById(hotAccounts.stream().map(Account::getId).toList());
+        hotAccounts.clear();
+    }
+
+    @Test
+    void concurrentTransfersKeepTotalBalance() throws Exception {
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            tasks.add(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = random.nextInt(ACCOUNTS);
+                int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                MovementCreateDto dto = MovementCreateDto.builder()
+                        .movementType("TRANSFERENCIA")
+                        .ibanOfReference(hotAccounts.get(from).getIban())
+                        .ibanOfDestination(hotAccounts.get(to).getIban())
+                        .amount((double) (1 + random.nextInt(50)))
+                        .build();
+                try {
+                    movementService.save(admin, dto);
+                    completed.incrementAndGet();
+                } catch (MovementBadRequest e) {
+                    // Saldo insuficiente en la cuenta de origen
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        double total = hotAccounts.stream()
+                .map(account -> accountRepository.findByIban(account.getIban()).orElseThrow())
+                .mapToDouble(Account::getBalance)
+                .sum();
+
+        assertAll(
+                () -> assertEquals(TRANSFERS, completed.get() + rejected.get()),
+                () -> assertTrue(completed.get() > 0),
+                () -> assertEquals(ACCOUNTS * INITIAL_BALANCE, total, 0.0001)
+        );
+    }
+
+    @Test
+    void concurrentCancelsRefundTransferOnce() throws Exception {
+        Account reference = hotAccounts.get(0);
+        Account destination = hotAccounts.get(1);
+        // Estado de las cuentas tras una transferencia de 100 entre ellas
+        reference.setBalance(INITIAL_BALANCE - 100);
+        destination.setBalance(INITIAL_BALANCE + 100);
+        accountRepository.saveAll(List.of(reference, destination));
+
+        Movement transfer = Movement.builder()
+                .movementType(MovementType.TRANSFERENCIA)
+                .ibanOfReference(reference.getIban())
+                .ibanOfDestination(destination.getIban())
+                .amountOfMoney(100.0)
+                .build();
+        ObjectId id = transfer.getId();
+        AtomicReference<Movement> stored = new AtomicReference<>(transfer);
+        // Las dos cancelaciones leen el movimiento antes de que ninguna bloquee las cuentas
+        CyclicBarrier bothRead = new CyclicBarrier(2);
+        AtomicInteger reads = new AtomicInteger();
+        when(movementRepository.findById(id)).thenAnswer(invocation -> {
+            Optional<Movement> movement = Optional.ofNullable(stored.get());
+            if (reads.incrementAndGet() <= 2) {
+                bothRead.await(10, TimeUnit.SECONDS);
+            }
+            return movement;
+        });
+        doAnswer(invocation -> {
+            stored.set(null);
+            return null;
+        }).when(movementRepository).delete(any(Movement.class));
+
+        AtomicInteger cancelled = new AtomicInteger();
+        AtomicInteger notFound = new AtomicInteger();
+        Callable<Void> cancel = () -> {
+            try {
+                if (movementService.cancelMovement(admin, id)) {
+                    cancelled.incrementAndGet();
+                }
+            } catch (MovementNotFound e) {
+                notFound.incrementAndGet();
+            }
+            return null;
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (Future<Void> future : pool.invokeAll(List.of(cancel, cancel))) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertAll(
+                () -> assertEquals(1, cancelled.get()),
+                () -> assertEquals(1, notFound.get()),
+                () -> assertEquals(INITIAL_BALANCE, accountRepository.findByIban(reference.getIban()).orElseThrow().getBalance(), 0.0001),
+                () -> assertEquals(INITIAL_BALANCE, accountRepository.findByIban(destination.getIban()).orElseThrow().getBalance(), 0.0001)
+        );
+    }
+}
@@ -1,38 +1,62 @@
 package vives.bancovives.rest.movements.services;
 
+import jakarta.validation.Validator;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import vives.bancovives.notifications.model.NotificationType;
+import vives.bancovives.notifications.service.NotificationService;
+import vives.bancovives.rest.accounts.exception.AccountNotFoundException;
 import vives.bancovives.rest.accounts.model.Account;
 import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.accounts.service.AccountCache;
 import vives.bancovives.rest.cards.model.Card;
 import vives.bancovives.rest.cards.repository.CardsRepository;
+import vives.bancovives.rest.cards.service.CardCache;
+import vives.bancovives.rest.clients.exceptions.ClientNotFound;
 import vives.bancovives.rest.clients.model.Client;
 import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+import vives.bancovives.rest.movements.dtos.output.MovementBatchItemResultDto;
+import vives.bancovives.rest.movements.dtos.output.MovementBatchResponseDto;
+import vives.bancovives.rest.movements.dtos.output.MovementCursorPageDto;
 import vives.bancovives.rest.movements.dtos.output.MovementResponseDto;
 import vives.bancovives.rest.movements.exceptions.MovementBadRequest;
+import vives.bancovives.rest.movements.exceptions.MovementConflict;
 import vives.bancovives.rest.movements.exceptions.MovementNotFound;
 import vives.bancovives.rest.movements.mapper.MovementMapper;
 import vives.bancovives.rest.movements.model.Movement;
+import vives.bancovives.rest.movements.model.MovementCursor;
+import vives.bancovives.rest.movements.model.MovementContext;
 import vives.bancovives.rest.movements.model.MovementType;
 import vives.bancovives.rest.movements.repository.MovementRepository;
 import vives.bancovives.rest.movements.validator.MovementValidator;
 import vives.bancovives.rest.products.accounttype.model.AccountType;
 
 import java.security.Principal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -53,12 +77,32 @@ class MovementServiceImplTest {
     @Mock
     private MovementMapper movementMapper;
 
+    @Mock
+    private Validator beanValidator;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private AccountLockManager lockManager = new AccountLockManager(16);
+
+    @Spy
+    private AccountCache accountCache = new AccountCache(new ConcurrentMapCacheManager());
+
+    @Spy
+    private CardCache cardCache = new CardCache(new ConcurrentMapCacheManager());
+
+    @Mock
+    private NotificationService notificationService;
+
     @InjectMocks
     private MovementServiceImpl movementService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
@@ -110,8 +154,8 @@ class MovementServiceImplTest {
 
         AccountType accountType = AccountType.builder().interest(0.01).build();
         Client client = Client.builder().dni("123").build();
-        Account account = Account.builder().iban("123").client(client).accountType(accountType).balance(1000).build();
-        Movement movement = Movement.builder().movementType(MovementType.INTERESMENSUAL).accountOfReference(account).build();
+        Account account = Account.builder().id(UUID.randomUUID()).iban("123").client(client).accountType(accountType).balance(1000).build();
+        Movement movement = Movement.builder().movementType(MovementType.INTERESMENSUAL).ibanOfReference(account.getIban()).build();
         MovementResponseDto responseDto = new MovementResponseDto();
 
         when(accountRepository.findByIban(anyString())).thenReturn(Optional.of(account));
@@ -124,9 +168,27 @@ class MovementServiceImplTest {
 
         // Then
         assertNotNull(result);
+        assertEquals(LocalDate.now(), account.getLastInterestDate());
+        assertEquals(MonthlyInterestEngine.interestMovementId(account.getId(), LocalDate.now().withDayOfMonth(1)), movement.getId());
         verify(movementRepository).save(movement);
     }
 
+    @Test
+    void testAddInterest_ThrowsExceptionWhenAlreadyCreditedThisMonth() {
+        // Given
+        MovementCreateDto createDto = MovementCreateDto.builder().movementType("INTERESMENSUAL").ibanOfReference("ES1").build();
+        AccountType accountType = AccountType.builder().interest(1.0).build();
+        Account account = Account.builder().id(UUID.randomUUID()).iban("ES1").client(Client.builder().dni("123").build())
+                .accountType(accountType).balance(1000).lastInterestDate(LocalDate.now().withDayOfMonth(1)).build();
+
+        when(accountRepository.findByIban("ES1")).thenReturn(Optional.of(account));
+
+        // When & Then
+        assertThrows(MovementBadRequest.class, () -> movementService.addInterest(createDto));
+        assertEquals(1000.0, account.getBalance());
+        verify(movementRepository, never()).save(any());
+    }
+
     @Test
     void testAddInterest_ThrowsExceptionForInvalidType() {
         // Given
@@ -147,16 +209,28 @@ class MovementServiceImplTest {
         GrantedAuthority authority = mock(GrantedAuthority.class);
         when(authority.getAuthority()).thenReturn("ROLE_USER");
 
-        // Mock the account repository to return a user account
-        Account account = new Account();
-        account.setIban("ES1234567890");
-        when(accountRepository.findAllByClient_User_Username("user@example.com")).thenReturn(Collections.singletonList(account));
+        // Mock the account repository to confirm the account belongs to the user
+        when(accountRepository.existsByIbanAndClient_User_Username("ES1234567890", "user@example.com")).thenReturn(true);
 
         // When
         movementService.validateUser(authentication, "ES1234567890");
 
         // Then
-        // No exception should be thrown, test passes
+        verify(accountRepository).existsByIbanAndClient_User_Username("ES1234567890", "user@example.com");
+        verify(accountRepository, never()).findAllByClient_User_Username(anyString());
+    }
+
+    @Test
+    void testValidateUser_AccountOfAnotherUser() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getName()).thenReturn("user@example.com");
+        when(accountRepository.existsByIbanAndClient_User_Username("ES1234567890", "user@example.com")).thenReturn(false);
+
+        // When & Then
+        AccountNotFoundException exception = assertThrows(AccountNotFoundException.class,
+                () -> movementService.validateUser(authentication, "ES1234567890"));
+        assertEquals("La cuenta con iban ES1234567890 no pertenece al usuario con username user@example.com", exception.getMessage());
     }
 
     @Test
@@ -166,8 +240,8 @@ class MovementServiceImplTest {
         Movement movement = new Movement();
         movement.setId(id);
         movement.setMovementType(MovementType.TRANSFERENCIA);
-        movement.setAccountOfReference(Account.builder().iban("ES1234567890").build());
-        movement.setAccountOfDestination(Account.builder().iban("ES0987654321").build());
+        movement.setIbanOfReference("ES1234567890");
+        movement.setIbanOfDestination("ES0987654321");
 
         movement.setAmountOfMoney(100.0);
         movement.setCreatedAt(LocalDateTime.now().minusHours(1)); // Movimiento creado hace 1 hora
@@ -176,14 +250,43 @@ class MovementServiceImplTest {
         when(authentication.getName()).thenReturn("user@example.com");
 
         when(movementRepository.findById(id)).thenReturn(Optional.of(movement));
-        when(accountRepository.findAllByClient_User_Username(anyString())).thenReturn(Collections.singletonList(movement.getAccountOfReference()));
+        when(accountRepository.existsByIbanAndClient_User_Username("ES1234567890", "user@example.com")).thenReturn(true);
+        Account storedReference = Account.builder().iban("ES1234567890").balance(400).build();
+        Account storedDestination = Account.builder().iban("ES0987654321").balance(300).build();
+        when(accountRepository.findByIban("ES1234567890")).thenReturn(Optional.of(storedReference));
+        when(accountRepository.findByIban("ES0987654321")).thenReturn(Optional.of(storedDestination));
 
         // When
         Boolean result = movementService.cancelMovement(authentication, id);
 
         // Then
         assertTrue(result); // Verificamos que la cancelación fue exitosa
+        assertEquals(500.0, storedReference.getBalance()); // Se revierte sobre el saldo actual de la cuenta
+        assertEquals(200.0, storedDestination.getBalance());
         verify(movementRepository, times(1)).delete(movement); // Verificamos que se llamó a delete
+        verify(notificationService).sendNotificationFromMovement(movement, storedReference, storedDestination, NotificationType.DELETE);
+    }
+
+    @Test
+    void testCancelMovement_KeepsMovementWhenNotificationFails() {
+        // Given
+        ObjectId id = new ObjectId("5f50c31d6f703e2230d0478c");
+        Movement movement = Movement.builder().id(id).movementType(MovementType.TRANSFERENCIA).ibanOfReference("ES1234567890")
+                .ibanOfDestination("ES0987654321").amountOfMoney(100.0).createdAt(LocalDateTime.now().minusHours(1)).build();
+
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getName()).thenReturn("user@example.com");
+
+        when(movementRepository.findById(id)).thenReturn(Optional.of(movement));
+        when(accountRepository.existsByIbanAndClient_User_Username("ES1234567890", "user@example.com")).thenReturn(true);
+        when(accountRepository.findByIban("ES1234567890")).thenReturn(Optional.of(Account.builder().iban("ES1234567890").balance(400).build()));
+        when(accountRepository.findByIban("ES0987654321")).thenReturn(Optional.of(Account.builder().iban("ES0987654321").balance(300).build()));
+        doThrow(new ClientNotFound("La cuenta ES0987654321 no tiene usuario")).when(notificationService)
+                .sendNotificationFromMovement(any(), any(), any(), eq(NotificationType.DELETE));
+
+        // When & Then
+        assertThrows(ClientNotFound.class, () -> movementService.cancelMovement(authentication, id));
+        verify(movementRepository, never()).delete(any());
     }
 
     @Test
@@ -193,8 +296,8 @@ class MovementServiceImplTest {
         Movement movement = new Movement();
         movement.setId(id);
         movement.setMovementType(MovementType.TRANSFERENCIA);
-        movement.setAccountOfReference(Account.builder().iban("ES1234567890").balance(0).build());
-        movement.setAccountOfDestination(Account.builder().iban("ES0987654321").build());
+        movement.setIbanOfReference("ES1234567890");
+        movement.setIbanOfDestination("ES0987654321");
         movement.setAmountOfMoney(100.0);
         movement.setCreatedAt(LocalDateTime.now().minusDays(2)); // Movimiento creado hace más de 24 horas
 
@@ -202,7 +305,7 @@ class MovementServiceImplTest {
         when(authentication.getName()).thenReturn("user@example.com");
 
         when(movementRepository.findById(id)).thenReturn(Optional.of(movement));
-        when(accountRepository.findAllByClient_User_Username(anyString())).thenReturn(Collections.singletonList(movement.getAccountOfReference()));
+        when(accountRepository.existsByIbanAndClient_User_Username("ES1234567890", "user@example.com")).thenReturn(true);
 
         // When & Then
         MovementBadRequest exception = assertThrows(MovementBadRequest.class, () -> {
@@ -249,14 +352,19 @@ class MovementServiceImplTest {
         Client client2 = Client.builder().dni("456").build();
         movement.setMovementType(MovementType.TRANSFERENCIA);
         movement.setAmountOfMoney(100.0);
-        movement.setAccountOfReference(Account.builder().iban("ES1234567890").client(client).balance(500).build());
-        movement.setAccountOfDestination(Account.builder().iban("ES0987654321").client(client2).balance(200).build());
+        Account accountOfReference = Account.builder().iban("ES1234567890").client(client).balance(500).build();
+        Account accountOfDestination = Account.builder().iban("ES0987654321").client(client2).balance(200).build();
         // When
-        movementService.moveMoney(movement);
+        movementService.moveMoney(movement, new MovementContext(MovementType.TRANSFERENCIA, accountOfReference, accountOfDestination, null));
 
         // Then
-        assertEquals(400.0, movement.getAccountOfReference().getBalance()); // Balance de referencia después de la transferencia
-        assertEquals(300.0, movement.getAccountOfDestination().getBalance()); // Balance de destino después de la transferencia
+        assertEquals(400.0, accountOfReference.getBalance()); // Balance de referencia después de la transferencia
+        assertEquals(300.0, accountOfDestination.getBalance()); // Balance de destino después de la transferencia
+        assertEquals(500.0, movement.getAmountBeforeMovement());
+        assertEquals(400.0, movement.getBalanceAfterMovement()); // Se guarda el saldo en el movimiento
+        assertEquals(300.0, movement.getBalanceOfDestinationAfterMovement());
+        assertEquals("123", movement.getClientOfReferenceDni());
+        assertEquals("456", movement.getClientOfDestinationDni());
     }
 
     @Test
@@ -266,13 +374,15 @@ class MovementServiceImplTest {
         Client client =  Client.builder().dni("123").build();
         movement.setMovementType(MovementType.INGRESO);
         movement.setAmountOfMoney(100.0);
-        movement.setAccountOfReference(Account.builder().client(client).iban("ES1234567890").balance(500.0).build());
+        Account accountOfReference = Account.builder().client(client).iban("ES1234567890").balance(500.0).build();
 
         // When
-        movementService.moveMoney(movement);
+        movementService.moveMoney(movement, new MovementContext(MovementType.INGRESO, accountOfReference, null, null));
 
         // Then
-        assertEquals(600.0, movement.getAccountOfReference().getBalance()); // Balance después del ingreso
+        assertEquals(600.0, accountOfReference.getBalance()); // Balance después del ingreso
+        assertEquals(600.0, movement.getBalanceAfterMovement());
+        assertNull(movement.getBalanceOfDestinationAfterMovement());
     }
 
     @Test
@@ -283,7 +393,6 @@ class MovementServiceImplTest {
         card.setSpentThisMonth(200.0);
 
         Movement movement = new Movement();
-        movement.setCard(card);
         movement.setAmountOfMoney(30.0);
 
         // When
@@ -294,4 +403,264 @@ class MovementServiceImplTest {
         assertEquals(230.0, card.getSpentThisMonth()); // Nuevo gasto del mes
     }
 
+    @Test
+    void testSaveBatch_RejectsInvalidMovementsAndSavesTheRest() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        doReturn(List.of((GrantedAuthority) () -> "ROLE_ADMIN")).when(authentication).getAuthorities();
+
+        Account origin = Account.builder().iban("ES1").client(Client.builder().dni("123").build()).balance(500).build();
+        Account destination = Account.builder().iban("ES2").client(Client.builder().dni("456").build()).balance(200).build();
+        MovementCreateDto valid = MovementCreateDto.builder().movementType("TRANSFERENCIA").ibanOfReference("ES1").ibanOfDestination("ES2").amount(100.0).build();
+        MovementCreateDto unknownAccount = MovementCreateDto.builder().movementType("TRANSFERENCIA").ibanOfReference("ES1").ibanOfDestination("ES3").amount(50.0).build();
+        Movement movement = Movement.builder().movementType(MovementType.TRANSFERENCIA).ibanOfReference(origin.getIban()).ibanOfDestination(destination.getIban()).amountOfMoney(100.0).build();
+
+        when(accountRepository.findAllWithClientByIbanIn(any())).thenReturn(List.of(origin, destination));
+        when(validator.validateMovementType("TRANSFERENCIA")).thenReturn(MovementType.TRANSFERENCIA);
+        when(movementMapper.fromCreateDtoToEntity(valid, origin, destination, null)).thenReturn(movement);
+        when(movementMapper.fromEntityToResponse(movement)).thenReturn(new MovementResponseDto());
+
+        // When
+        MovementBatchResponseDto result = movementService.saveBatch(authentication, List.of(valid, unknownAccount));
+
+        // Then
+        assertEquals(2, result.getTotal());
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getRejected());
+        assertEquals(MovementBatchItemResultDto.CREATED, result.getResults().get(0).getStatus());
+        assertNotNull(result.getResults().get(0).getMovement());
+        assertEquals(MovementBatchItemResultDto.REJECTED, result.getResults().get(1).getStatus());
+        assertEquals(400.0, origin.getBalance());
+        assertEquals(300.0, destination.getBalance());
+        verify(accountRepository, times(1)).findAllWithClientByIbanIn(any());
+        verify(accountRepository, never()).findByIban(anyString());
+        verify(movementRepository, times(1)).insert(List.of(movement));
+        verify(notificationService).sendNotificationsFromMovements(eq(List.of(movement)), argThat(accounts ->
+                accounts.size() == 2 && accounts.contains(origin) && accounts.contains(destination)), eq(NotificationType.CREATE));
+    }
+
+    @Test
+    void testSaveBatch_RejectsTransferToAccountWithoutClientWithoutMovingMoney() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        doReturn(List.of((GrantedAuthority) () -> "ROLE_ADMIN")).when(authentication).getAuthorities();
+
+        Account origin = Account.builder().iban("ES1").client(Client.builder().dni("123").build()).balance(500).build();
+        Account withoutClient = Account.builder().iban("ES2").balance(200).build();
+        MovementCreateDto dto = MovementCreateDto.builder().movementType("TRANSFERENCIA").ibanOfReference("ES1").ibanOfDestination("ES2").amount(100.0).build();
+        Movement movement = Movement.builder().movementType(MovementType.TRANSFERENCIA).ibanOfReference("ES1").ibanOfDestination("ES2").amountOfMoney(100.0).build();
+
+        when(accountRepository.findAllWithClientByIbanIn(any())).thenReturn(List.of(origin, withoutClient));
+        when(validator.validateMovementType("TRANSFERENCIA")).thenReturn(MovementType.TRANSFERENCIA);
+        when(movementMapper.fromCreateDtoToEntity(dto, origin, withoutClient, null)).thenReturn(movement);
+
+        // When
+        MovementBatchResponseDto result = movementService.saveBatch(authentication, List.of(dto));
+
+        // Then
+        assertEquals(1, result.getRejected());
+        assertEquals(500.0, origin.getBalance());
+        assertEquals(200.0, withoutClient.getBalance());
+        verify(accountRepository, never()).saveAll(any());
+        verify(movementRepository, never()).insert(anyList());
+    }
+
+    @Test
+    void testSaveBatch_DoesNotInsertMovementsWhenNotificationsFail() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        doReturn(List.of((GrantedAuthority) () -> "ROLE_ADMIN")).when(authentication).getAuthorities();
+
+        Account account = Account.builder().iban("ES1").client(Client.builder().dni("123").build()).balance(500).build();
+        MovementCreateDto dto = MovementCreateDto.builder().movementType("NOMINA").ibanOfReference("ES1").amount(100.0).build();
+        Movement movement = Movement.builder().movementType(MovementType.NOMINA).ibanOfReference("ES1").amountOfMoney(100.0).build();
+
+        when(accountRepository.findAllWithClientByIbanIn(any())).thenReturn(List.of(account));
+        when(validator.validateMovementType("NOMINA")).thenReturn(MovementType.NOMINA);
+        when(movementMapper.fromCreateDtoToEntity(dto, account, null, null)).thenReturn(movement);
+        doThrow(new ClientNotFound("La cuenta ES1 no tiene usuario")).when(notificationService)
+                .sendNotificationsFromMovements(anyList(), any(), eq(NotificationType.CREATE));
+
+        // When
+        MovementBatchResponseDto result = movementService.saveBatch(authentication, List.of(dto));
+
+        // Then
+        assertEquals(1, result.getRejected());
+        verify(movementRepository, never()).insert(anyList());
+    }
+
+    @Test
+    void testSaveBatch_RejectsAccountsNotOwnedByUser() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getName()).thenReturn("user@example.com");
+        doReturn(List.of((GrantedAuthority) () -> "ROLE_USER")).when(authentication).getAuthorities();
+        when(accountRepository.findIbansByClient_User_Username("user@example.com")).thenReturn(List.of("ES1"));
+
+        MovementCreateDto dto = MovementCreateDto.builder().movementType("NOMINA").ibanOfReference("ES9").amount(100.0).build();
+
+        // When
+        MovementBatchResponseDto result = movementService.saveBatch(authentication, List.of(dto));
+
+        // Then
+        assertEquals(1, result.getRejected());
+        assertEquals("La cuenta con iban ES9 no pertenece al usuario con username user@example.com", result.getResults().get(0).getError());
+        verify(movementRepository, never()).insert(anyList());
+    }
+
+    @Test
+    void testSaveBatch_RejectsWholeChunkWhenSaveFails() {
+        // Given
+        ReflectionTestUtils.setField(movementService, "batchSize", 1);
+        Authentication authentication = mock(Authentication.class);
+        doReturn(List.of((GrantedAuthority) () -> "ROLE_ADMIN")).when(authentication).getAuthorities();
+
+        Account first = Account.builder().iban("ES1").client(Client.builder().dni("123").build()).balance(500).build();
+        Account second = Account.builder().iban("ES2").client(Client.builder().dni("456").build()).balance(500).build();
+        MovementCreateDto firstDto = MovementCreateDto.builder().movementType("NOMINA").ibanOfReference("ES1").amount(100.0).build();
+        MovementCreateDto secondDto = MovementCreateDto.builder().movementType("NOMINA").ibanOfReference("ES2").amount(100.0).build();
+        Movement firstMovement = Movement.builder().movementType(MovementType.NOMINA).ibanOfReference(first.getIban()).amountOfMoney(100.0).build();
+        Movement secondMovement = Movement.builder().movementType(MovementType.NOMINA).ibanOfReference(second.getIban()).amountOfMoney(100.0).build();
+
+        when(accountRepository.findAllWithClientByIbanIn(any())).thenReturn(List.of(first), List.of(second));
+        when(validator.validateMovementType("NOMINA")).thenReturn(MovementType.NOMINA);
+        when(movementMapper.fromCreateDtoToEntity(firstDto, first, null, null)).thenReturn(firstMovement);
+        when(movementMapper.fromCreateDtoToEntity(secondDto, second, null, null)).thenReturn(secondMovement);
+        when(movementRepository.insert(List.of(secondMovement))).thenThrow(new RuntimeException("Mongo no disponible"));
+
+        // When
+        MovementBatchResponseDto result = movementService.saveBatch(authentication, List.of(firstDto, secondDto));
+
+        // Then
+        assertEquals(1, result.getCreated());
+        assertEquals(MovementBatchItemResultDto.REJECTED, result.getResults().get(1).getStatus());
+        assertEquals(1, result.getResults().get(1).getIndex());
+        verify(accountRepository, times(2)).findAllWithClientByIbanIn(any());
+    }
+
+    @Test
+    void testAddInterest_RetriesOnOptimisticLockingFailure() {
+        // Given
+        ReflectionTestUtils.setField(movementService, "maxRetries", 2);
+        MovementCreateDto createDto = MovementCreateDto.builder().movementType("INTERESMENSUAL").ibanOfReference("ES1").build();
+        AccountType accountType = AccountType.builder().interest(1.0).build();
+        UUID accountId = UUID.randomUUID();
+        Movement movement = Movement.builder().movementType(MovementType.INTERESMENSUAL).ibanOfReference("ES1").build();
+
+        // Cada intento lee de nuevo la cuenta, sin los cambios del intento anterior
+        when(accountRepository.findByIban("ES1")).thenAnswer(invocation -> Optional.of(Account.builder().id(accountId).iban("ES1")
+                .client(Client.builder().dni("123").build()).accountType(accountType).balance(1000).build()));
+        when(movementMapper.fromCreateDtoToEntity(any(), any(), any(), any())).thenReturn(movement);
+        when(movementRepository.save(movement)).thenReturn(movement);
+        when(movementMapper.fromEntityToResponse(movement)).thenReturn(new MovementResponseDto());
+        doThrow(new OptimisticLockingFailureException("conflicto")).doNothing().when(accountRepository).flush();
+
+        // When
+        MovementResponseDto result = movementService.addInterest(createDto);
+
+        // Then
+        assertNotNull(result);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(movementRepository, times(1)).save(movement);
+    }
+
+    @Test
+    void testAddInterest_ThrowsConflictWhenRetriesAreExhausted() {
+        // Given
+        ReflectionTestUtils.setField(movementService, "maxRetries", 1);
+        MovementCreateDto createDto = MovementCreateDto.builder().movementType("INTERESMENSUAL").ibanOfReference("ES1").build();
+        AccountType accountType = AccountType.builder().interest(1.0).build();
+        UUID accountId = UUID.randomUUID();
+
+        when(accountRepository.findByIban("ES1")).thenAnswer(invocation -> Optional.of(Account.builder().id(accountId).iban("ES1")
+                .client(Client.builder().dni("123").build()).accountType(accountType).balance(1000).build()));
+        when(movementMapper.fromCreateDtoToEntity(any(), any(), any(), any())).thenReturn(Movement.builder().movementType(MovementType.INTERESMENSUAL).ibanOfReference("ES1").build());
+        doThrow(new OptimisticLockingFailureException("conflicto")).when(accountRepository).flush();
+
+        // When & Then
+        assertThrows(MovementConflict.class, () -> movementService.addInterest(createDto));
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(movementRepository, never()).save(any());
+    }
+
+    @Test
+    void testFindMyMovements_QueriesAllAccountsInOnePage() {
+        // Given
+        Principal principal = () -> "user@example.com";
+        PageRequest pageable = PageRequest.of(1, 2);
+        Movement movement = new Movement();
+        when(accountRepository.findIbansByClient_User_Username("user@example.com")).thenReturn(List.of("ES1", "ES2"));
+        when(movementRepository.findAllByIbanOfReferenceIn(List.of("ES1", "ES2"), pageable))
+                .thenReturn(new PageImpl<>(List.of(movement), pageable, 3));
+        when(movementMapper.fromEntityToResponse(movement)).thenReturn(new MovementResponseDto());
+
+        // When
+        Page<MovementResponseDto> result = movementService.findMyMovements(principal, pageable);
+
+        // Then
+        assertEquals(3, result.getTotalElements());
+        assertEquals(1, result.getContent().size());
+        verify(movementMapper, times(1)).fromEntityToResponse(any());
+    }
+
+    @Test
+    void testFindMyMovements_NoAccounts() {
+        // Given
+        Principal principal = () -> "user@example.com";
+        when(accountRepository.findIbansByClient_User_Username("user@example.com")).thenReturn(List.of());
+
+        // When & Then
+        assertThrows(MovementNotFound.class, () -> movementService.findMyMovements(principal, PageRequest.of(0, 10)));
+        verifyNoInteractions(movementRepository);
+    }
+
+    @Test
+    void testFindMyMovementsAfter_ReturnsNextCursorWhenThereAreMoreMovements() {
+        // Given
+        Principal principal = () -> "user@example.com";
+        Movement newest = Movement.builder().createdAt(LocalDateTime.of(2024, 5, 2, 10, 0)).build();
+        Movement older = Movement.builder().createdAt(LocalDateTime.of(2024, 5, 1, 10, 0)).build();
+        Movement oldest = Movement.builder().createdAt(LocalDateTime.of(2024, 4, 30, 10, 0)).build();
+        MovementCursor cursor = new MovementCursor(LocalDateTime.of(2024, 5, 3, 10, 0), new ObjectId());
+        when(accountRepository.findIbansByClient_User_Username("user@example.com")).thenReturn(List.of("ES1"));
+        when(movementRepository.findAllByIbanOfReferenceInAfter(List.of("ES1"), Optional.of(cursor), 3))
+                .thenReturn(List.of(newest, older, oldest));
+        when(movementMapper.fromEntityToResponse(any())).thenReturn(new MovementResponseDto());
+
+        // When
+        MovementCursorPageDto result = movementService.findMyMovementsAfter(principal, Optional.of(cursor.encode()), 2);
+
+        // Then
+        assertAll(
+                () -> assertEquals(2, result.getContent().size()),
+                () -> assertTrue(result.isHasNext()),
+                () -> assertEquals(MovementCursor.of(older), MovementCursor.decode(result.getNextCursor()))
+        );
+    }
+
+    @Test
+    void testFindMyMovementsAfter_LastPage() {
+        // Given
+        Principal principal = () -> "user@example.com";
+        when(accountRepository.findIbansByClient_User_Username("user@example.com")).thenReturn(List.of("ES1"));
+        when(movementRepository.findAllByIbanOfReferenceInAfter(List.of("ES1"), Optional.empty(), 11))
+                .thenReturn(List.of(new Movement()));
+        when(movementMapper.fromEntityToResponse(any())).thenReturn(new MovementResponseDto());
+
+        // When
+        MovementCursorPageDto result = movementService.findMyMovementsAfter(principal, Optional.empty(), 10);
+
+        // Then
+        assertAll(
+                () -> assertEquals(1, result.getSize()),
+                () -> assertFalse(result.isHasNext()),
+                () -> assertNull(result.getNextCursor())
+        );
+    }
+
+    @Test
+    void testFindMyMovementsAfter_InvalidSize() {
+        assertThrows(MovementBadRequest.class, () -> movementService.findMyMovementsAfter(() -> "user", Optional.empty(), 0));
+    }
+
 }
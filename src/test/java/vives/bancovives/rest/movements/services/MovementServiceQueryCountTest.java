@@ -0,0 +1,177 @@
+package vives.bancovives.rest.movements.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import vives.bancovives.rest.accounts.model.Account;
+import vives.bancovives.rest.accounts.repositories.AccountRepository;
+import vives.bancovives.rest.accounts.service.AccountCache;
+import vives.bancovives.rest.cards.model.Card;
+import vives.bancovives.rest.cards.repository.CardsRepository;
+import vives.bancovives.rest.cards.service.CardCache;
+import vives.bancovives.rest.movements.dtos.input.MovementCreateDto;
+import vives.bancovives.rest.movements.dtos.output.MovementBatchResponseDto;
+import vives.bancovives.rest.movements.repository.MovementRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Comprueba con las estadísticas de Hibernate cuántas sentencias SQL ejecuta la creación de un movimiento.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "notifications.dispatcher.enabled=false"
+})
+class MovementServiceQueryCountTest {
+
+    @Autowired
+    MovementService movementService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    CardsRepository cardsRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    AccountCache accountCache;
+
+    @Autowired
+    CardCache cardCache;
+
+    @MockBean
+    MovementRepository movementRepository;
+
+    private Account account;
+    private Account otherAccount;
+    private Card card;
+    private Authentication owner;
+
+    @BeforeEach
+    void setUp() {
+        Account template = accountRepository.findByIban("ES71CU4N1759HNCGUNQSNXM6").orElseThrow();
+        Card templateCard = cardsRepository.findByCardNumber("1234567890123456").orElseThrow();
+        account = accountRepository.save(Account.builder()
+                .iban("ESQUERY00000000000000001")
+                .balance(1000)
+                .password("password")
+                .accountType(template.getAccountType())
+                .client(template.getClient())
+                .build());
+        otherAccount = accountRepository.save(Account.builder()
+                .iban("ESQUERY00000000000000002")
+                .balance(1000)
+                .password("password")
+                .accountType(template.getAccountType())
+                .client(template.getClient())
+                .build());
+        card = cardsRepository.save(Card.builder()
+                .cardNumber("9999000011112222")
+                .cardOwner("Cliente test")
+                .expirationDate("12/99")
+                .cvv(123)
+                .pin("1234")
+                .cardType(templateCard.getCardType())
+                .account(account)
+                .build());
+        owner = new UsernamePasswordAuthenticationToken(
+                template.getClient().getUser().getUsername(), null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        when(movementRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardsRepository.findByCardNumber(card.getCardNumber()).ifPresent(cardsRepository::delete);
+        accountRepository.deleteById(account.getId());
+        accountRepository.deleteById(otherAccount.getId());
+    }
+
+    @Test
+    void savePagoResolvesEachEntityOnce() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        accountCache.evict(account.getPublicId());
+        cardCache.evict(card.getPublicId());
+        statistics.clear();
+
+        movementService.save(owner, pago());
+
+        assertAll(
+                // Cuenta de referencia y tarjeta
+                () -> assertEquals(2, statistics.getQueryExecutionCount()),
+                // Las dos lecturas anteriores, los roles del usuario, la actualización de la cuenta y de la tarjeta y la
+                // notificación en el outbox
+                () -> assertEquals(6, statistics.getPrepareStatementCount()),
+                () -> assertEquals(990.0, accountRepository.findByIban(account.getIban()).orElseThrow().getBalance())
+        );
+    }
+
+    @Test
+    void savePagoOnCachedEntitiesOnlyUpdates() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        movementService.save(owner, pago());
+        statistics.clear();
+
+        movementService.save(owner, pago());
+
+        assertAll(
+                () -> assertEquals(0, statistics.getQueryExecutionCount()),
+                // Solo la actualización de la cuenta y de la tarjeta y la notificación en el outbox
+                () -> assertEquals(3, statistics.getPrepareStatementCount()),
+                () -> assertEquals(980.0, accountRepository.findByIban(account.getIban()).orElseThrow().getBalance())
+        );
+    }
+
+    @Test
+    void saveBatchLoadsAccountsCardsAndRecipientsWithOneQueryEach() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Authentication admin = new UsernamePasswordAuthenticationToken("admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        MovementCreateDto transferencia = MovementCreateDto.builder()
+                .movementType("TRANSFERENCIA")
+                .ibanOfReference(account.getIban())
+                .ibanOfDestination(otherAccount.getIban())
+                .amount(10.0)
+                .build();
+        MovementCreateDto nomina = MovementCreateDto.builder()
+                .movementType("NOMINA")
+                .ibanOfReference(otherAccount.getIban())
+                .amount(10.0)
+                .build();
+        statistics.clear();
+
+        MovementBatchResponseDto result = movementService.saveBatch(admin, List.of(transferencia, pago(), nomina));
+
+        assertAll(
+                () -> assertEquals(3, result.getCreated()),
+                // Cuentas con sus clientes y usuarios, y tarjetas
+                () -> assertEquals(2, statistics.getQueryExecutionCount()),
+                // Las dos consultas anteriores, los roles del usuario, la actualización por lotes de las cuentas y de la
+                // tarjeta y las notificaciones en el outbox, sin ninguna carga de clientes o usuarios
+                () -> assertEquals(6, statistics.getPrepareStatementCount())
+        );
+    }
+
+    private MovementCreateDto pago() {
+        return MovementCreateDto.builder()
+                .movementType("PAGO")
+                .ibanOfReference(account.getIban())
+                .cardNumber(card.getCardNumber())
+                .amount(10.0)
+                .build();
+    }
+}
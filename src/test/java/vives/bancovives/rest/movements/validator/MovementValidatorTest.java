@@ -16,6 +16,7 @@ import vives.bancovives.rest.movements.exceptions.MovementBadRequest;
 import vives.bancovives.rest.movements.exceptions.MovementForbidden;
 import vives.bancovives.rest.products.accounttype.model.AccountType;
 
+import java.time.LocalDate;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -217,4 +218,27 @@ class MovementValidatorTest {
         assertEquals("La cuenta con el IBAN IBAN123 no existe", exception.getMessage());
     }
 
-}
\ No newline at end of file
+    @Test
+    void validateTimelyAmount_WhenSpentDayHasEnded_ShouldIgnorePreviousSpending() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        Card card = Card.builder().dailyLimit(200).build();
+        card.addSpending(150, yesterday);
+
+        assertDoesNotThrow(() -> movementValidator.validateTimelyAmount(100, card));
+        assertEquals(0, card.getSpentToday());
+        assertEquals(LocalDate.now(), card.getSpentTodayDate());
+    }
+
+    @Test
+    void validateTimelyAmount_WhenSpentToday_ShouldThrowMovementBadRequest() {
+        Card card = Card.builder().dailyLimit(200).build();
+        card.addSpending(150, LocalDate.now());
+
+        MovementBadRequest exception = assertThrows(MovementBadRequest.class, () ->
+                movementValidator.validateTimelyAmount(100, card)
+        );
+
+        assertEquals("La cantidad superaria el limite diario de la tarjeta", exception.getMessage());
+    }
+
+}
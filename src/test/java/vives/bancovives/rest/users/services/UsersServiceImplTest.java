@@ -26,6 +26,7 @@ import vives.bancovives.rest.users.models.User;
 import vives.bancovives.rest.users.repositories.UsersRepository;
 import vives.bancovives.rest.users.validator.UserUpdateValidator;
 import vives.bancovives.security.jwt.JwtService;
+import vives.bancovives.security.jwt.TokenRevocationService;
 import vives.bancovives.security.model.JwtAuthResponse;
 import vives.bancovives.utils.IdGenerator;
 
@@ -51,6 +52,7 @@ class UsersServiceImplTest {
     @Mock private UsersRepository usersRepository;
     @Mock private UsersMapper usersMapper;
     @Mock private UserUpdateValidator userUpdateValidator;
+    @Mock private TokenRevocationService revocationService;
 
     @InjectMocks
     private UsersServiceImpl usersService;
@@ -151,6 +153,7 @@ class UsersServiceImplTest {
         User userToDelete = new User();
         UUID id = UUID.randomUUID();
         userToDelete.setId(id);
+        userToDelete.setUsername("deletedUser");
         when(usersRepository.findByPublicId(publicId)).thenReturn(Optional.of(userToDelete));
 
         // Act
@@ -158,6 +161,7 @@ class UsersServiceImplTest {
 
         // Assert
         verify(usersRepository).deleteById(id);
+        verify(revocationService).revoke("deletedUser");
     }
 
     @Test
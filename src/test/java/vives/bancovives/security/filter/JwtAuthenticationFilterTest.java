@@ -2,6 +2,7 @@ package vives.bancovives.security.filter;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,7 +10,6 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.Authentication;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -17,9 +17,15 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import vives.bancovives.rest.users.models.Role;
 import vives.bancovives.rest.users.models.User;
-import vives.bancovives.rest.users.services.UsersService;
+import org.springframework.test.util.ReflectionTestUtils;
+import vives.bancovives.security.jwt.JwtPrincipal;
 import vives.bancovives.security.jwt.JwtService;
+import vives.bancovives.security.jwt.TokenRevocationService;
+import vives.bancovives.security.jwt.VerifiedToken;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import static org.mockito.Mockito.*;
@@ -33,7 +39,11 @@ public class JwtAuthenticationFilterTest {
     @Mock
     private UserDetailsService userService;
 
-    @InjectMocks
+    @Mock
+    private TokenRevocationService revocationService;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
     @Mock
@@ -44,8 +54,25 @@ public class JwtAuthenticationFilterTest {
 
     @BeforeEach
     public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtService, userService, revocationService, meterRegistry);
         request = new MockHttpServletRequest();
         response = new MockHttpServletResponse();
+        SecurityContextHolder.clearContext();
+    }
+
+    private VerifiedToken legacyToken(String username) {
+        Instant now = Instant.now();
+        return new VerifiedToken(username, null, null, now, now.plusSeconds(3600));
+    }
+
+    private VerifiedToken tokenWithRoles(String username) {
+        Instant now = Instant.now();
+        return new VerifiedToken(username, "public-id", List.of("ROLE_USER"), now, now.plusSeconds(3600));
+    }
+
+    private long recorded(String result) {
+        return meterRegistry.get("security.jwt.authentication").tag("result", result).timer().count();
     }
 
     @Test
@@ -59,6 +86,7 @@ public class JwtAuthenticationFilterTest {
         // Assert
         verify(filterChain).doFilter(request, response);
         assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(jwtService);
     }
 
     @Test
@@ -67,13 +95,15 @@ public class JwtAuthenticationFilterTest {
         String invalidToken = "Bearer invalid_token";
         request.addHeader("Authorization", invalidToken);
 
-        when(jwtService.extractUserName(invalidToken.substring(7))).thenThrow(new RuntimeException("Invalid token"));
+        when(jwtService.verify(invalidToken.substring(7))).thenReturn(Optional.empty());
 
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         // Assert
         assertEquals(HttpServletResponse.SC_UNAUTHORIZED, response.getStatus());
+        verifyNoInteractions(userService);
+        assertEquals(1, recorded("invalid"));
     }
 
     @Test
@@ -89,9 +119,8 @@ public class JwtAuthenticationFilterTest {
                 .roles(Set.of(Role.USER))
                 .build();
 
-        when(jwtService.extractUserName(validToken.substring(7))).thenReturn(username);
+        when(jwtService.verify(validToken.substring(7))).thenReturn(Optional.of(legacyToken(username)));
         when(userService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(jwtService.isTokenValid(validToken.substring(7), userDetails)).thenReturn(true);
 
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -101,6 +130,9 @@ public class JwtAuthenticationFilterTest {
         assertNotNull(authentication);
         assertEquals(username, authentication.getName());
         verify(filterChain, times(1)).doFilter(request, response);
+        verify(jwtService, times(1)).verify(validToken.substring(7));
+        verifyNoMoreInteractions(jwtService);
+        assertEquals(1, recorded("database"));
     }
 
     @Test
@@ -110,19 +142,15 @@ public class JwtAuthenticationFilterTest {
         request.addHeader("Authorization", validToken);
 
         String username = "testUser";
-        UserDetails userDetails = User.builder()
-                .username("username")
-                .password("encodedPassword")
-                .roles(Set.of(Role.USER))
-                .build();
 
-        when(jwtService.extractUserName(validToken.substring(7))).thenReturn(username);
+        when(jwtService.verify(validToken.substring(7))).thenReturn(Optional.of(legacyToken(username)));
 
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         // Assert
         assertEquals(HttpServletResponse.SC_UNAUTHORIZED, response.getStatus());
+        verify(filterChain, never()).doFilter(request, response);
     }
 
     @Test
@@ -138,12 +166,85 @@ public class JwtAuthenticationFilterTest {
                 .roles(Set.of(Role.USER))
                 .build();
 
-        when(jwtService.extractUserName(validToken.substring(7))).thenReturn(username);
+        when(jwtService.verify(validToken.substring(7))).thenReturn(Optional.of(legacyToken(username)));
+        when(userService.loadUserByUsername(username)).thenReturn(userDetails);
+
+        // Act
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        assertEquals(HttpServletResponse.SC_UNAUTHORIZED, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testDoFilterInternal_StatelessTokenSkipsUserLookup() throws Exception {
+        // Arrange
+        String validToken = "Bearer valid_token";
+        request.addHeader("Authorization", validToken);
+        ReflectionTestUtils.setField(jwtAuthenticationFilter, "stateless", true);
+        VerifiedToken token = tokenWithRoles("testUser");
+        JwtPrincipal principal = token.principal().orElseThrow();
+
+        when(jwtService.verify(validToken.substring(7))).thenReturn(Optional.of(token));
+        when(revocationService.isRevoked(principal)).thenReturn(false);
+
+        // Act
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("testUser", authentication.getName());
+        assertEquals(principal, authentication.getPrincipal());
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+        verify(filterChain, times(1)).doFilter(request, response);
+        verifyNoInteractions(userService);
+        assertEquals(1, recorded("stateless"));
+    }
+
+    @Test
+    void testDoFilterInternal_StatelessTokenRevoked() throws Exception {
+        // Arrange
+        String validToken = "Bearer valid_token";
+        request.addHeader("Authorization", validToken);
+        ReflectionTestUtils.setField(jwtAuthenticationFilter, "stateless", true);
+        VerifiedToken token = tokenWithRoles("testUser");
+
+        when(jwtService.verify(validToken.substring(7))).thenReturn(Optional.of(token));
+        when(revocationService.isRevoked(token.principal().orElseThrow())).thenReturn(true);
 
         // Act
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         // Assert
         assertEquals(HttpServletResponse.SC_UNAUTHORIZED, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(filterChain, never()).doFilter(request, response);
+        assertEquals(1, recorded("revoked"));
+    }
+
+    @Test
+    void testDoFilterInternal_StatelessLegacyTokenFallsBackToUserLookup() throws Exception {
+        // Arrange
+        String validToken = "Bearer valid_token";
+        request.addHeader("Authorization", validToken);
+        ReflectionTestUtils.setField(jwtAuthenticationFilter, "stateless", true);
+        User userDetails = User.builder()
+                .username("testUser")
+                .password("encodedPassword")
+                .roles(Set.of(Role.USER))
+                .build();
+
+        when(jwtService.verify(validToken.substring(7))).thenReturn(Optional.of(legacyToken("testUser")));
+        when(userService.loadUserByUsername("testUser")).thenReturn(userDetails);
+
+        // Act
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        assertEquals(userDetails, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        verify(filterChain, times(1)).doFilter(request, response);
+        verifyNoInteractions(revocationService);
     }
 }
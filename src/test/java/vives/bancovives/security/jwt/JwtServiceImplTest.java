@@ -1,17 +1,35 @@
 package vives.bancovives.security.jwt;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.util.ReflectionTestUtils;
+import vives.bancovives.rest.users.models.Role;
+import vives.bancovives.rest.users.models.User;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,6 +44,11 @@ class JwtServiceImplTest {
     @Mock
     private UserDetails userDetails;
 
+    @TempDir
+    Path keysDir;
+    Path privateKey;
+    Path publicKey;
+
     @BeforeEach
     void setup() {
         String privateKeyPath = "src/test/resources/keys/private_key.pem";
@@ -68,9 +91,8 @@ class JwtServiceImplTest {
     void testIsTokenValid_ExpiredToken() throws Exception {
         // Arrange
         when(userDetails.getUsername()).thenReturn("testUser");
-        Date pastDate = new Date(System.currentTimeMillis() - (3600 * 1000));
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", -3600L);
         String expiredToken = jwtService.generateToken(userDetails);
-        when(jwtService.extractExpiration(expiredToken)).thenReturn(pastDate);
 
         // Act
         boolean isValid = jwtService.isTokenValid(expiredToken, userDetails);
@@ -85,5 +107,140 @@ class JwtServiceImplTest {
 
         assertFalse(isVerified);
     }
-}
 
+    @Test
+    void generateToken_IncludesActiveKeyId() {
+        when(userDetails.getUsername()).thenReturn("testUser");
+
+        String token = jwtService.generateToken(userDetails);
+
+        assertEquals(jwtService.keyRing().activeKeyId(), JWT.decode(token).getKeyId());
+    }
+
+    @Test
+    void verifyToken_KeysAreLoadedOnlyOnce() throws Exception {
+        usePrivateAndPublicKeyCopies();
+        when(userDetails.getUsername()).thenReturn("testUser");
+        String token = jwtService.generateToken(userDetails);
+
+        // Sin los ficheros se sigue firmando y verificando con las claves ya cargadas
+        Files.delete(privateKey);
+        Files.delete(publicKey);
+
+        assertTrue(jwtService.verifyToken(token));
+        assertTrue(jwtService.verifyToken(jwtService.generateToken(userDetails)));
+    }
+
+    @Test
+    void verifyToken_UnknownKeyId_ReturnsFalse() throws Exception {
+        KeyPair otherKeys = newKeyPair();
+        String token = JWT.create()
+                .withKeyId("desconocida")
+                .withSubject("testUser")
+                .sign(Algorithm.ECDSA256((ECPublicKey) otherKeys.getPublic(), (ECPrivateKey) otherKeys.getPrivate()));
+
+        assertFalse(jwtService.verifyToken(token));
+    }
+
+    @Test
+    void reloadKeysIfChanged_RotatesKeysAndKeepsPreviousTokensValid() throws Exception {
+        usePrivateAndPublicKeyCopies();
+        when(userDetails.getUsername()).thenReturn("testUser");
+        String previousToken = jwtService.generateToken(userDetails);
+        String previousKeyId = jwtService.keyRing().activeKeyId();
+
+        writeKeys(newKeyPair());
+        jwtService.reloadKeysIfChanged();
+        String newToken = jwtService.generateToken(userDetails);
+
+        assertAll(
+                () -> assertNotEquals(previousKeyId, JWT.decode(newToken).getKeyId()),
+                () -> assertTrue(jwtService.verifyToken(newToken)),
+                () -> assertTrue(jwtService.verifyToken(previousToken))
+        );
+    }
+
+    @Test
+    void reloadKeysIfChanged_KeepsKeysWhenNewKeysDoNotMatch() throws Exception {
+        usePrivateAndPublicKeyCopies();
+        String previousKeyId = jwtService.keyRing().activeKeyId();
+
+        // Solo se ha reemplazado la clave pública
+        Files.writeString(publicKey, pem("PUBLIC KEY", newKeyPair().getPublic().getEncoded()));
+        Files.setLastModifiedTime(publicKey, FileTime.from(Instant.now().plusSeconds(60)));
+        jwtService.reloadKeysIfChanged();
+
+        assertEquals(previousKeyId, jwtService.keyRing().activeKeyId());
+    }
+
+    @Test
+    void verify_ReturnsSignedClaimsFromASingleVerification() {
+        User user = User.builder()
+                .publicId("public-id")
+                .username("testUser")
+                .password("encodedPassword")
+                .roles(Set.of(Role.USER))
+                .build();
+
+        String token = jwtService.generateToken(user);
+        Optional<VerifiedToken> verified = jwtService.verify(token);
+
+        assertTrue(verified.isPresent());
+        assertEquals("testUser", verified.get().subject());
+        assertTrue(verified.get().belongsTo(user));
+        assertTrue(verified.get().expiresAt().isAfter(Instant.now()));
+        Optional<JwtPrincipal> principal = verified.get().principal();
+        assertTrue(principal.isPresent());
+        assertEquals("testUser", principal.get().getName());
+        assertEquals("public-id", principal.get().publicId());
+        assertEquals(List.of("ROLE_USER"), principal.get().roles());
+        assertNotNull(principal.get().issuedAt());
+    }
+
+    @Test
+    void verify_TokenWithoutRoles_HasNoPrincipal() {
+        JwtKeyRing ring = jwtService.keyRing();
+        String legacyToken = JWT.create()
+                .withKeyId(ring.activeKeyId())
+                .withSubject("testUser")
+                .withIssuedAt(new Date())
+                .sign(ring.signingAlgorithm());
+
+        Optional<VerifiedToken> verified = jwtService.verify(legacyToken);
+        assertTrue(verified.isPresent());
+        assertTrue(verified.get().principal().isEmpty());
+    }
+
+    @Test
+    void verify_InvalidToken_ReturnsEmpty() {
+        assertTrue(jwtService.verify("invalid.token").isEmpty());
+    }
+
+    private void usePrivateAndPublicKeyCopies() throws Exception {
+        privateKey = Files.copy(Path.of("src/test/resources/keys/private_key.pem"), keysDir.resolve("private_key.pem"));
+        publicKey = Files.copy(Path.of("src/test/resources/keys/public_key.pem"), keysDir.resolve("public_key.pem"));
+        ReflectionTestUtils.setField(jwtService, "privateKeyPath", privateKey.toString());
+        ReflectionTestUtils.setField(jwtService, "publicKeyPath", publicKey.toString());
+        jwtService.keyRing();
+    }
+
+    private void writeKeys(KeyPair keyPair) throws Exception {
+        Files.writeString(privateKey, pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        Files.writeString(publicKey, pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+        FileTime modified = FileTime.from(Instant.now().plusSeconds(60));
+        Files.setLastModifiedTime(privateKey, modified);
+        Files.setLastModifiedTime(publicKey, modified);
+    }
+
+    private static KeyPair newKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    private static String pem(String type, byte[] encoded) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(encoded)
+                + "\n-----END " + type + "-----\n";
+    }
+}
@@ -0,0 +1,98 @@
+package vives.bancovives.security.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceImplTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private TokenRevocationServiceImpl revocationService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        revocationService = new TokenRevocationServiceImpl(redisTemplate, 3600L, Duration.ofSeconds(5));
+    }
+
+    private JwtPrincipal issuedAt(Instant issuedAt) {
+        return new JwtPrincipal("testUser", "public-id", List.of("ROLE_USER"), issuedAt);
+    }
+
+    @Test
+    void isRevoked_WithoutRevocation_ReturnsFalse() {
+        assertFalse(revocationService.isRevoked(issuedAt(Instant.now())));
+    }
+
+    @Test
+    void revoke_RejectsTokensIssuedBefore() {
+        JwtPrincipal principal = issuedAt(Instant.now().minusSeconds(60));
+
+        revocationService.revoke("testUser");
+
+        assertTrue(revocationService.isRevoked(principal));
+        verify(valueOperations).set(eq(TokenRevocationServiceImpl.KEY_PREFIX + "testUser"), anyString(), eq(Duration.ofSeconds(3600)));
+    }
+
+    @Test
+    void revoke_AcceptsTokensIssuedAfter() {
+        revocationService.revoke("testUser");
+
+        assertFalse(revocationService.isRevoked(issuedAt(Instant.now().plusSeconds(1))));
+    }
+
+    @Test
+    void revoke_RejectsTokensIssuedEarlierInTheSameSecond() {
+        // El iat solo tiene segundos
+        JwtPrincipal principal = issuedAt(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+
+        revocationService.revoke("testUser");
+
+        assertTrue(revocationService.isRevoked(principal));
+    }
+
+    @Test
+    void isRevoked_AppliesRevocationSharedThroughRedis() {
+        Instant revokedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusMillis(700);
+        when(valueOperations.get(TokenRevocationServiceImpl.KEY_PREFIX + "testUser"))
+                .thenReturn(Long.toString(revokedAt.toEpochMilli()));
+
+        assertTrue(revocationService.isRevoked(issuedAt(revokedAt.minusSeconds(60))));
+        assertTrue(revocationService.isRevoked(issuedAt(revokedAt.truncatedTo(ChronoUnit.SECONDS))));
+        assertFalse(revocationService.isRevoked(issuedAt(revokedAt.plusSeconds(60))));
+        verify(valueOperations, times(1)).get(anyString());
+    }
+
+    @Test
+    void redisUnavailable_AppliesOnlyLocalRevocations() {
+        doThrow(new RedisConnectionFailureException("Redis caído"))
+                .when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("Redis caído"));
+
+        revocationService.revoke("testUser");
+
+        assertTrue(revocationService.isRevoked(issuedAt(Instant.now().minusSeconds(60))));
+        assertFalse(revocationService.isRevoked(new JwtPrincipal("otherUser", null, List.of(), Instant.now())));
+    }
+}